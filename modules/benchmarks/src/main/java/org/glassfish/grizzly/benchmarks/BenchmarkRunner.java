@@ -0,0 +1,178 @@
+/*
+ * Copyright (c) 2017 Oracle and/or its affiliates. All rights reserved.
+ *
+ * This program and the accompanying materials are made available under the
+ * terms of the Eclipse Public License v. 2.0, which is available at
+ * http://www.eclipse.org/legal/epl-2.0.
+ *
+ * This Source Code may also be made available under the following Secondary
+ * Licenses when the conditions for such availability set forth in the
+ * Eclipse Public License v. 2.0 are satisfied: GNU General Public License,
+ * version 2 with the GNU Classpath Exception, which is available at
+ * https://www.gnu.org/software/classpath/license.html.
+ *
+ * SPDX-License-Identifier: EPL-2.0 OR GPL-2.0 WITH Classpath-exception-2.0
+ */
+
+package org.glassfish.grizzly.benchmarks;
+
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.List;
+import java.util.Map;
+import java.util.Properties;
+import java.util.TreeMap;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.infra.BenchmarkParams;
+import org.openjdk.jmh.results.RunResult;
+import org.openjdk.jmh.runner.Runner;
+import org.openjdk.jmh.runner.options.CommandLineOptions;
+import org.openjdk.jmh.runner.options.Options;
+import org.openjdk.jmh.runner.options.OptionsBuilder;
+
+/**
+ * Runs the Grizzly benchmark suite and optionally checks the results against
+ * a previously recorded baseline.
+ *
+ * The regular JMH command line options are supported. Additionally the
+ * following system properties are recognized:
+ * <ul>
+ *     <li><tt>grizzly.benchmarks.baseline</tt> - the baseline file to compare the results with</li>
+ *     <li><tt>grizzly.benchmarks.tolerance</tt> - the allowed regression, 0.1 (10%) by default</li>
+ *     <li><tt>grizzly.benchmarks.save</tt> - the file to store the results to, so it could be used as a baseline later</li>
+ * </ul>
+ *
+ * The process exits with status <tt>1</tt>, if any of the benchmarks regressed
+ * more than the tolerance allows.
+ */
+public class BenchmarkRunner {
+
+    private static final String BASELINE_PROP = "grizzly.benchmarks.baseline";
+    private static final String TOLERANCE_PROP = "grizzly.benchmarks.tolerance";
+    private static final String SAVE_PROP = "grizzly.benchmarks.save";
+
+    public static void main(final String[] args) throws Exception {
+        final Options options = new OptionsBuilder()
+                .parent(new CommandLineOptions(args))
+                .build();
+
+        final Collection<RunResult> results = new Runner(options).run();
+        final Properties scores = toProperties(results);
+
+        final String save = System.getProperty(SAVE_PROP);
+        if (save != null) {
+            store(scores, new File(save));
+        }
+
+        final String baseline = System.getProperty(BASELINE_PROP);
+        if (baseline != null) {
+            final double tolerance = Double.parseDouble(
+                    System.getProperty(TOLERANCE_PROP, "0.1"));
+            final List<String> regressions = compare(results,
+                    load(new File(baseline)), tolerance);
+
+            if (!regressions.isEmpty()) {
+                System.err.println("Benchmarks regressed more than "
+                        + (tolerance * 100) + "% against " + baseline + ':');
+                for (String regression : regressions) {
+                    System.err.println("\t" + regression);
+                }
+                System.exit(1);
+            }
+        }
+    }
+
+    static List<String> compare(final Collection<RunResult> results,
+            final Properties baseline, final double tolerance) {
+        final List<String> regressions = new ArrayList<String>();
+
+        for (RunResult result : results) {
+            final String key = key(result.getParams());
+            final String baselineValue = baseline.getProperty(key);
+            if (baselineValue == null) {
+                continue;
+            }
+
+            final double expected = Double.parseDouble(baselineValue);
+            final double actual = result.getPrimaryResult().getScore();
+            // for the throughput the bigger score is better,
+            // for all the other modes - the smaller one
+            final boolean isRegression =
+                    result.getParams().getMode() == Mode.Throughput
+                    ? actual < expected * (1 - tolerance)
+                    : actual > expected * (1 + tolerance);
+            if (isRegression) {
+                regressions.add(key + ": baseline=" + expected
+                        + ", actual=" + actual + ' '
+                        + result.getPrimaryResult().getScoreUnit());
+            }
+        }
+
+        return regressions;
+    }
+
+    static String key(final BenchmarkParams params) {
+        final StringBuilder sb = new StringBuilder(params.getBenchmark());
+        // keep the parameters ordered, so the keys are stable between runs
+        final TreeMap<String, String> sorted = new TreeMap<String, String>();
+        for (String paramKey : params.getParamsKeys()) {
+            sorted.put(paramKey, params.getParam(paramKey));
+        }
+
+        char separator = '[';
+        for (Map.Entry<String, String> entry : sorted.entrySet()) {
+            sb.append(separator).append(entry.getKey())
+                    .append('=').append(entry.getValue());
+            separator = ',';
+        }
+        if (!sorted.isEmpty()) {
+            sb.append(']');
+        }
+
+        return sb.toString();
+    }
+
+    private static Properties toProperties(final Collection<RunResult> results) {
+        final Properties properties = new Properties();
+        for (RunResult result : results) {
+            properties.setProperty(key(result.getParams()),
+                    String.valueOf(result.getPrimaryResult().getScore()));
+        }
+
+        return properties;
+    }
+
+    private static Properties load(final File file) throws IOException {
+        final Properties properties = new Properties();
+        final InputStream in = new FileInputStream(file);
+        try {
+            properties.load(in);
+        } finally {
+            in.close();
+        }
+
+        return properties;
+    }
+
+    private static void store(final Properties properties, final File file)
+            throws IOException {
+        final OutputStream out = new FileOutputStream(file);
+        try {
+            // the scores are comparable only on the same hardware and JDK
+            properties.store(out, "Grizzly benchmark results, JDK "
+                    + System.getProperty("java.vm.version") + " ("
+                    + System.getProperty("java.vm.name") + "), "
+                    + System.getProperty("os.name") + ' '
+                    + System.getProperty("os.arch") + ", "
+                    + Runtime.getRuntime().availableProcessors() + " CPUs");
+        } finally {
+            out.close();
+        }
+    }
+}
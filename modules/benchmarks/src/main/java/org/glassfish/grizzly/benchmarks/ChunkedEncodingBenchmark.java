@@ -0,0 +1,115 @@
+/*
+ * Copyright (c) 2017 Oracle and/or its affiliates. All rights reserved.
+ *
+ * This program and the accompanying materials are made available under the
+ * terms of the Eclipse Public License v. 2.0, which is available at
+ * http://www.eclipse.org/legal/epl-2.0.
+ *
+ * This Source Code may also be made available under the following Secondary
+ * Licenses when the conditions for such availability set forth in the
+ * Eclipse Public License v. 2.0 are satisfied: GNU General Public License,
+ * version 2 with the GNU Classpath Exception, which is available at
+ * https://www.gnu.org/software/classpath/license.html.
+ *
+ * SPDX-License-Identifier: EPL-2.0 OR GPL-2.0 WITH Classpath-exception-2.0
+ */
+
+package org.glassfish.grizzly.benchmarks;
+
+import java.util.Arrays;
+import java.util.concurrent.TimeUnit;
+import org.glassfish.grizzly.Buffer;
+import org.glassfish.grizzly.filterchain.FilterChainContext;
+import org.glassfish.grizzly.http.ChunkedTransferEncoding;
+import org.glassfish.grizzly.http.HttpCodecFilter;
+import org.glassfish.grizzly.http.HttpContent;
+import org.glassfish.grizzly.http.HttpRequestPacket;
+import org.glassfish.grizzly.http.HttpResponsePacket;
+import org.glassfish.grizzly.http.Method;
+import org.glassfish.grizzly.http.Protocol;
+import org.glassfish.grizzly.memory.Buffers;
+import org.glassfish.grizzly.memory.MemoryManager;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+
+/**
+ * Measures HTTP chunk serialization done by {@link ChunkedTransferEncoding}
+ * for the regular and the last chunk of a chunked response.
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class ChunkedEncodingBenchmark {
+
+    @Param({"16", "1024", "8192"})
+    public int chunkSize;
+
+    private byte[] payload;
+    private MemoryManager memoryManager;
+    private HttpResponsePacket response;
+    private ChunkedTransferEncoding encoding;
+    private FilterChainContext ctx;
+
+    @Setup
+    public void setup() {
+        payload = new byte[chunkSize];
+        Arrays.fill(payload, (byte) 'a');
+
+        final StandaloneConnection connection = new StandaloneConnection();
+        memoryManager = connection.getMemoryManager();
+
+        final HttpRequestPacket request = HttpRequestPacket.builder()
+                .method(Method.GET)
+                .uri("/chunked")
+                .protocol(Protocol.HTTP_1_1)
+                .build();
+        response = HttpResponsePacket.builder(request)
+                .protocol(Protocol.HTTP_1_1)
+                .chunked(true)
+                .build();
+
+        encoding = new ChunkedTransferEncoding(
+                HttpCodecFilter.DEFAULT_MAX_HTTP_PACKET_HEADER_SIZE);
+        ctx = FilterChainContext.create(connection);
+    }
+
+    @TearDown
+    public void tearDown() {
+        ctx.completeAndRecycle();
+    }
+
+    @Benchmark
+    public Buffer encodeChunk() {
+        return encode(false);
+    }
+
+    @Benchmark
+    public Buffer encodeLastChunk() {
+        return encode(true);
+    }
+
+    private Buffer encode(final boolean isLast) {
+        final HttpContent content = HttpContent.builder(response)
+                .content(Buffers.wrap(memoryManager, payload))
+                .last(isLast)
+                .build();
+
+        final Buffer encoded = encoding.serializePacket(ctx, content);
+        encoded.tryDispose();
+        content.recycle();
+        return encoded;
+    }
+}
@@ -0,0 +1,112 @@
+/*
+ * Copyright (c) 2017 Oracle and/or its affiliates. All rights reserved.
+ *
+ * This program and the accompanying materials are made available under the
+ * terms of the Eclipse Public License v. 2.0, which is available at
+ * http://www.eclipse.org/legal/epl-2.0.
+ *
+ * This Source Code may also be made available under the following Secondary
+ * Licenses when the conditions for such availability set forth in the
+ * Eclipse Public License v. 2.0 are satisfied: GNU General Public License,
+ * version 2 with the GNU Classpath Exception, which is available at
+ * https://www.gnu.org/software/classpath/license.html.
+ *
+ * SPDX-License-Identifier: EPL-2.0 OR GPL-2.0 WITH Classpath-exception-2.0
+ */
+
+package org.glassfish.grizzly.benchmarks;
+
+import java.io.IOException;
+import java.util.concurrent.TimeUnit;
+import org.glassfish.grizzly.Connection;
+import org.glassfish.grizzly.filterchain.BaseFilter;
+import org.glassfish.grizzly.filterchain.FilterChain;
+import org.glassfish.grizzly.filterchain.FilterChainBuilder;
+import org.glassfish.grizzly.filterchain.FilterChainContext;
+import org.glassfish.grizzly.filterchain.FilterChainEvent;
+import org.glassfish.grizzly.filterchain.NextAction;
+import org.glassfish.grizzly.filterchain.TransportFilter;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+/**
+ * Measures the {@link org.glassfish.grizzly.filterchain.DefaultFilterChain}
+ * dispatch cost: {@link FilterChainContext} creation, filter traversal in both
+ * directions and context recycling.
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class FilterChainBenchmark {
+
+    private static final FilterChainEvent EVENT = new FilterChainEvent() {
+        @Override
+        public Object type() {
+            return FilterChainBenchmark.class;
+        }
+    };
+
+    @Param({"2", "5", "10"})
+    public int filters;
+
+    private FilterChain filterChain;
+    private Connection connection;
+    private CountingFilter lastFilter;
+
+    @Setup
+    public void setup() {
+        final FilterChainBuilder builder = FilterChainBuilder.stateless();
+        builder.add(new TransportFilter());
+        for (int i = 1; i < filters; i++) {
+            builder.add(new PassThroughFilter());
+        }
+        lastFilter = new CountingFilter();
+        builder.add(lastFilter);
+        filterChain = builder.build();
+
+        connection = new StandaloneConnection();
+    }
+
+    @Benchmark
+    public int upstream() {
+        filterChain.fireEventUpstream(connection, EVENT, null);
+        return lastFilter.count;
+    }
+
+    @Benchmark
+    public int downstream() {
+        filterChain.fireEventDownstream(connection, EVENT, null);
+        return lastFilter.count;
+    }
+
+    private static final class PassThroughFilter extends BaseFilter {
+        @Override
+        public NextAction handleEvent(final FilterChainContext ctx,
+                final FilterChainEvent event) throws IOException {
+            return ctx.getInvokeAction();
+        }
+    }
+
+    private static final class CountingFilter extends BaseFilter {
+        int count;
+
+        @Override
+        public NextAction handleEvent(final FilterChainContext ctx,
+                final FilterChainEvent event) throws IOException {
+            count++;
+            return ctx.getInvokeAction();
+        }
+    }
+}
@@ -0,0 +1,171 @@
+/*
+ * Copyright (c) 2017 Oracle and/or its affiliates. All rights reserved.
+ *
+ * This program and the accompanying materials are made available under the
+ * terms of the Eclipse Public License v. 2.0, which is available at
+ * http://www.eclipse.org/legal/epl-2.0.
+ *
+ * This Source Code may also be made available under the following Secondary
+ * Licenses when the conditions for such availability set forth in the
+ * Eclipse Public License v. 2.0 are satisfied: GNU General Public License,
+ * version 2 with the GNU Classpath Exception, which is available at
+ * https://www.gnu.org/software/classpath/license.html.
+ *
+ * SPDX-License-Identifier: EPL-2.0 OR GPL-2.0 WITH Classpath-exception-2.0
+ */
+
+package org.glassfish.grizzly.benchmarks;
+
+import java.nio.ByteBuffer;
+import java.util.concurrent.TimeUnit;
+import org.glassfish.grizzly.Buffer;
+import org.glassfish.grizzly.http.util.Constants;
+import org.glassfish.grizzly.http.util.SwarScanner;
+import org.glassfish.grizzly.memory.ByteBufferWrapper;
+import org.glassfish.grizzly.utils.Charsets;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+/**
+ * Compares the word-at-a-time {@link SwarScanner} header scanning with the
+ * byte-by-byte loop, which was used by the HTTP codec before, for both the
+ * heap (byte[]) and the direct {@link Buffer} inputs. The header block of
+ * {@link HttpRequestParsingBenchmark} is scanned line by line: the name up to
+ * the ':' and the value up to the CR.
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class HeaderScanBenchmark {
+
+    @Param({"browser", "cdn"})
+    public String request;
+
+    private byte[] headerBytes;
+    private ByteBuffer arrayView;
+    private Buffer directBuffer;
+
+    @Setup
+    public void setup() {
+        final String r = "browser".equals(request)
+                ? HttpRequestParsingBenchmark.BROWSER_GET
+                : HttpRequestParsingBenchmark.CDN_GET;
+        // skip the request line, names are already in the lower case,
+        // so the scan doesn't modify the input
+        final String headers = r.substring(r.indexOf('\n') + 1).toLowerCase();
+
+        headerBytes = headers.getBytes(Charsets.ASCII_CHARSET);
+        arrayView = ByteBuffer.wrap(headerBytes);
+
+        final ByteBuffer direct = ByteBuffer.allocateDirect(headerBytes.length);
+        direct.put(headerBytes).flip();
+        directBuffer = new ByteBufferWrapper(direct);
+    }
+
+    @Benchmark
+    public int byteLoopHeap() {
+        final byte[] input = headerBytes;
+        final int limit = input.length;
+        int checksum = 0;
+        int offset = 0;
+
+        while (offset < limit && input[offset] != Constants.CR) {
+            while (input[offset] != Constants.COLON) {
+                offset++;
+            }
+            checksum += offset;
+            while (input[offset] != Constants.CR && input[offset] != Constants.LF) {
+                offset++;
+            }
+            checksum += offset;
+            offset += 2;
+        }
+
+        return checksum;
+    }
+
+    @Benchmark
+    public int swarHeap() {
+        final byte[] input = headerBytes;
+        final ByteBuffer view = arrayView;
+        final int limit = input.length;
+        int checksum = 0;
+        int offset = 0;
+
+        while (offset < limit && input[offset] != Constants.CR) {
+            offset = SwarScanner.skipHeaderName(view, offset, limit, true);
+            while (input[offset] != Constants.COLON) {
+                offset++;
+            }
+            checksum += offset;
+            offset = SwarScanner.skipToEOL(view, offset, limit);
+            while (input[offset] != Constants.CR && input[offset] != Constants.LF) {
+                offset++;
+            }
+            checksum += offset;
+            offset += 2;
+        }
+
+        return checksum;
+    }
+
+    @Benchmark
+    public int byteLoopDirect() {
+        final Buffer input = directBuffer;
+        final int limit = input.limit();
+        int checksum = 0;
+        int offset = 0;
+
+        while (offset < limit && input.get(offset) != Constants.CR) {
+            while (input.get(offset) != Constants.COLON) {
+                offset++;
+            }
+            checksum += offset;
+            byte b;
+            while ((b = input.get(offset)) != Constants.CR && b != Constants.LF) {
+                offset++;
+            }
+            checksum += offset;
+            offset += 2;
+        }
+
+        return checksum;
+    }
+
+    @Benchmark
+    public int swarDirect() {
+        final Buffer input = directBuffer;
+        final int limit = input.limit();
+        int checksum = 0;
+        int offset = 0;
+
+        while (offset < limit && input.get(offset) != Constants.CR) {
+            offset = SwarScanner.skipHeaderName(input, offset, limit, true);
+            while (input.get(offset) != Constants.COLON) {
+                offset++;
+            }
+            checksum += offset;
+            offset = SwarScanner.skipToEOL(input, offset, limit);
+            byte b;
+            while ((b = input.get(offset)) != Constants.CR && b != Constants.LF) {
+                offset++;
+            }
+            checksum += offset;
+            offset += 2;
+        }
+
+        return checksum;
+    }
+}
@@ -0,0 +1,164 @@
+/*
+ * Copyright (c) 2017 Oracle and/or its affiliates. All rights reserved.
+ *
+ * This program and the accompanying materials are made available under the
+ * terms of the Eclipse Public License v. 2.0, which is available at
+ * http://www.eclipse.org/legal/epl-2.0.
+ *
+ * This Source Code may also be made available under the following Secondary
+ * Licenses when the conditions for such availability set forth in the
+ * Eclipse Public License v. 2.0 are satisfied: GNU General Public License,
+ * version 2 with the GNU Classpath Exception, which is available at
+ * https://www.gnu.org/software/classpath/license.html.
+ *
+ * SPDX-License-Identifier: EPL-2.0 OR GPL-2.0 WITH Classpath-exception-2.0
+ */
+
+package org.glassfish.grizzly.benchmarks;
+
+import java.util.concurrent.TimeUnit;
+import org.glassfish.grizzly.Buffer;
+import org.glassfish.grizzly.http2.hpack.Decoder;
+import org.glassfish.grizzly.http2.hpack.DecodingCallback;
+import org.glassfish.grizzly.http2.hpack.Encoder;
+import org.glassfish.grizzly.http2.hpack.IndexingEncoder;
+import org.glassfish.grizzly.memory.HeapMemoryManager;
+import org.glassfish.grizzly.memory.MemoryManager;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import org.openjdk.jmh.infra.Blackhole;
+
+/**
+ * Measures HPACK {@link Encoder} and {@link Decoder} round-trips for
+ * realistic request and response header sets.
+ * <p>
+ * The "plain" encoder policy encodes every header, which is not found in
+ * the static table, as a literal without indexing, the "indexing" policy
+ * ({@link IndexingEncoder}) adds repeated headers to the dynamic table, so
+ * the header blocks, encoded after the first one, mostly consist of the
+ * indexed representations.
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class HpackBenchmark {
+
+    static final String[][] REQUEST_HEADERS = {
+        {":method", "GET"},
+        {":scheme", "https"},
+        {":authority", "www.example.com"},
+        {":path", "/api/v1/items?page=2&size=50"},
+        {"user-agent", "Mozilla/5.0 (X11; Linux x86_64) AppleWebKit/537.36 (KHTML, like Gecko) Chrome/61.0.3163.100 Safari/537.36"},
+        {"accept", "application/json"},
+        {"accept-encoding", "gzip, deflate, br"},
+        {"accept-language", "en-US,en;q=0.8"},
+        {"cookie", "JSESSIONID=0123456789ABCDEF0123456789ABCDEF; theme=dark"},
+        {"referer", "https://www.example.com/items"}
+    };
+
+    static final String[][] RESPONSE_HEADERS = {
+        {":status", "200"},
+        {"date", "Mon, 02 Oct 2017 10:00:00 GMT"},
+        {"server", "Grizzly"},
+        {"content-type", "application/json;charset=UTF-8"},
+        {"content-length", "1043"},
+        {"cache-control", "no-cache"},
+        {"etag", "\"5a1b2c3d-4e5f\""},
+        {"vary", "Accept-Encoding"}
+    };
+
+    @Param({"request", "response"})
+    public String headerSet;
+
+    @Param({"4096", "65536"})
+    public int headerTableSize;
+
+    @Param({"plain", "indexing"})
+    public String encoderPolicy;
+
+    private String[][] headers;
+    private MemoryManager memoryManager;
+    private Encoder encoder;
+    private Decoder decoder;
+    private Buffer encoded;
+
+    @Setup
+    public void setup() {
+        headers = "request".equals(headerSet)
+                ? REQUEST_HEADERS : RESPONSE_HEADERS;
+        memoryManager = new HeapMemoryManager();
+        encoder = "indexing".equals(encoderPolicy)
+                ? new IndexingEncoder(headerTableSize)
+                : new Encoder(headerTableSize);
+        decoder = new Decoder(headerTableSize);
+
+        // the size update and the dynamic table insertions are encoded only
+        // once, make sure they're not the part of the decode() measurement
+        encoded = encodeHeaders();
+        decoder.decode(encoded, true, new DecodingCallback() {
+            @Override
+            public void onDecoded(CharSequence name, CharSequence value) {
+            }
+        });
+        encoded = encodeHeaders();
+    }
+
+    @Benchmark
+    public int encode() {
+        final Buffer buffer = encodeHeaders();
+        final int length = buffer.remaining();
+        buffer.tryDispose();
+        return length;
+    }
+
+    @Benchmark
+    public void decode(final Blackhole bh) {
+        encoded.position(0);
+        decoder.decode(encoded, true, new BlackholeCallback(bh));
+    }
+
+    @Benchmark
+    public void roundTrip(final Blackhole bh) {
+        final Buffer buffer = encodeHeaders();
+        decoder.decode(buffer, true, new BlackholeCallback(bh));
+        buffer.tryDispose();
+    }
+
+    private Buffer encodeHeaders() {
+        final Buffer buffer = memoryManager.allocate(4096);
+        for (String[] header : headers) {
+            encoder.header(header[0], header[1]);
+            if (!encoder.encode(buffer)) {
+                throw new IllegalStateException("Header block is too large");
+            }
+        }
+        buffer.flip();
+        return buffer;
+    }
+
+    private static final class BlackholeCallback extends DecodingCallback {
+        private final Blackhole bh;
+
+        BlackholeCallback(final Blackhole bh) {
+            this.bh = bh;
+        }
+
+        @Override
+        public void onDecoded(final CharSequence name, final CharSequence value) {
+            bh.consume(name);
+            bh.consume(value);
+        }
+    }
+}
@@ -0,0 +1,150 @@
+/*
+ * Copyright (c) 2017 Oracle and/or its affiliates. All rights reserved.
+ *
+ * This program and the accompanying materials are made available under the
+ * terms of the Eclipse Public License v. 2.0, which is available at
+ * http://www.eclipse.org/legal/epl-2.0.
+ *
+ * This Source Code may also be made available under the following Secondary
+ * Licenses when the conditions for such availability set forth in the
+ * Eclipse Public License v. 2.0 are satisfied: GNU General Public License,
+ * version 2 with the GNU Classpath Exception, which is available at
+ * https://www.gnu.org/software/classpath/license.html.
+ *
+ * SPDX-License-Identifier: EPL-2.0 OR GPL-2.0 WITH Classpath-exception-2.0
+ */
+
+package org.glassfish.grizzly.benchmarks;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.util.concurrent.TimeUnit;
+import org.glassfish.grizzly.Buffer;
+import org.glassfish.grizzly.Connection;
+import org.glassfish.grizzly.filterchain.FilterChainContext;
+import org.glassfish.grizzly.http.HttpContent;
+import org.glassfish.grizzly.http.HttpHeader;
+import org.glassfish.grizzly.http.HttpServerFilter;
+import org.glassfish.grizzly.memory.ByteBufferWrapper;
+import org.glassfish.grizzly.memory.HeapMemoryManager;
+import org.glassfish.grizzly.utils.Charsets;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+/**
+ * Measures HTTP/1.1 request-line and header parsing done by
+ * {@link HttpServerFilter} for both the heap (byte[]) and the direct
+ * {@link ByteBuffer} parsing paths.
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class HttpRequestParsingBenchmark {
+
+    static final String SMALL_GET =
+            "GET /plaintext HTTP/1.1\r\n"
+            + "Host: localhost:8080\r\n"
+            + "Accept: */*\r\n"
+            + "\r\n";
+
+    static final String BROWSER_GET =
+            "GET /static/js/app.min.js?v=20170101 HTTP/1.1\r\n"
+            + "Host: www.example.com\r\n"
+            + "Connection: keep-alive\r\n"
+            + "Cache-Control: max-age=0\r\n"
+            + "Upgrade-Insecure-Requests: 1\r\n"
+            + "User-Agent: Mozilla/5.0 (X11; Linux x86_64) AppleWebKit/537.36 (KHTML, like Gecko) Chrome/61.0.3163.100 Safari/537.36\r\n"
+            + "Accept: text/html,application/xhtml+xml,application/xml;q=0.9,image/webp,image/apng,*/*;q=0.8\r\n"
+            + "Referer: https://www.example.com/index.html\r\n"
+            + "Accept-Encoding: gzip, deflate, br\r\n"
+            + "Accept-Language: en-US,en;q=0.8\r\n"
+            + "Cookie: JSESSIONID=0123456789ABCDEF0123456789ABCDEF; theme=dark; tracking=abcdef0123456789\r\n"
+            + "If-None-Match: \"5a1b2c3d-4e5f\"\r\n"
+            + "If-Modified-Since: Mon, 02 Oct 2017 10:00:00 GMT\r\n"
+            + "\r\n";
+
+    static final String CDN_GET = buildCdnRequest();
+
+    @Param({"small", "browser", "cdn"})
+    public String request;
+
+    @Param({"heap", "direct"})
+    public String input;
+
+    private byte[] requestBytes;
+    private ByteBuffer directRequest;
+
+    private HeapMemoryManager heapMemoryManager;
+    private Connection connection;
+    private HttpServerFilter filter;
+
+    @Setup
+    public void setup() {
+        final String r;
+        if ("small".equals(request)) {
+            r = SMALL_GET;
+        } else if ("browser".equals(request)) {
+            r = BROWSER_GET;
+        } else {
+            r = CDN_GET;
+        }
+
+        requestBytes = r.getBytes(Charsets.ASCII_CHARSET);
+        directRequest = ByteBuffer.allocateDirect(requestBytes.length);
+        directRequest.put(requestBytes).flip();
+
+        heapMemoryManager = new HeapMemoryManager();
+        connection = new StandaloneConnection();
+        filter = new HttpServerFilter(true,
+                HttpServerFilter.DEFAULT_MAX_HTTP_PACKET_HEADER_SIZE,
+                null, null);
+    }
+
+    @Benchmark
+    public HttpHeader parse() throws IOException {
+        final Buffer buffer = "heap".equals(input)
+                ? heapMemoryManager.wrap(requestBytes)
+                : new ByteBufferWrapper(directRequest.duplicate());
+
+        final FilterChainContext ctx = FilterChainContext.create(connection);
+        ctx.setMessage(buffer);
+        filter.handleRead(ctx);
+
+        final HttpContent content = ctx.getMessage();
+        final HttpHeader header = content.getHttpHeader();
+        ctx.completeAndRecycle();
+
+        header.setExpectContent(false);
+        content.recycle();
+        header.recycle();
+        return header;
+    }
+
+    private static String buildCdnRequest() {
+        final StringBuilder sb = new StringBuilder(BROWSER_GET.length() * 3);
+        sb.append(BROWSER_GET, 0, BROWSER_GET.length() - 2);
+        sb.append("X-Forwarded-For: 203.0.113.10, 198.51.100.17, 192.0.2.33\r\n");
+        sb.append("X-Forwarded-Proto: https\r\n");
+        sb.append("X-Forwarded-Host: www.example.com\r\n");
+        sb.append("X-Real-IP: 203.0.113.10\r\n");
+        sb.append("Via: 1.1 edge-cache-17, 1.1 shield-cache-03\r\n");
+        for (int i = 0; sb.length() < 4096 && i < 27; i++) {
+            sb.append("X-Cdn-Trace-").append(i).append(": ")
+                    .append("pop=fra").append(i).append(";hit=0;ttl=3600\r\n");
+        }
+        sb.append("\r\n");
+        return sb.toString();
+    }
+}
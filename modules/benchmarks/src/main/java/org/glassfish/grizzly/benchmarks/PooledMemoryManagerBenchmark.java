@@ -0,0 +1,114 @@
+/*
+ * Copyright (c) 2017 Oracle and/or its affiliates. All rights reserved.
+ *
+ * This program and the accompanying materials are made available under the
+ * terms of the Eclipse Public License v. 2.0, which is available at
+ * http://www.eclipse.org/legal/epl-2.0.
+ *
+ * This Source Code may also be made available under the following Secondary
+ * Licenses when the conditions for such availability set forth in the
+ * Eclipse Public License v. 2.0 are satisfied: GNU General Public License,
+ * version 2 with the GNU Classpath Exception, which is available at
+ * https://www.gnu.org/software/classpath/license.html.
+ *
+ * SPDX-License-Identifier: EPL-2.0 OR GPL-2.0 WITH Classpath-exception-2.0
+ */
+
+package org.glassfish.grizzly.benchmarks;
+
+import java.util.concurrent.TimeUnit;
+import org.glassfish.grizzly.Buffer;
+import org.glassfish.grizzly.memory.PooledMemoryManager;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Threads;
+import org.openjdk.jmh.annotations.Warmup;
+
+/**
+ * Measures {@link PooledMemoryManager} allocate/release cycles for the
+ * different pool sizes, including the composite fallback used for the sizes
+ * above the max pooled buffer size.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class PooledMemoryManagerBenchmark {
+
+    @Param({"512", "4096", "16384", "65536", "262144"})
+    public int size;
+
+    @Param({"false", "true"})
+    public boolean direct;
+
+    /**
+     * Thread-affine magazine size, 0 means magazines are disabled.
+     */
+    @Param({"0", "16"})
+    public int magazineSize;
+
+    /**
+     * Memory arena chunk size, 0 means the arena is disabled and the sizes
+     * above the max pooled buffer size are served by composite buffers.
+     */
+    @Param({"0", "4194304"})
+    public int arenaChunkSize;
+
+    private PooledMemoryManager mm;
+
+    @Setup
+    public void setup() {
+        mm = new PooledMemoryManager(
+                PooledMemoryManager.DEFAULT_BASE_BUFFER_SIZE,
+                PooledMemoryManager.DEFAULT_NUMBER_OF_POOLS,
+                PooledMemoryManager.DEFAULT_GROWTH_FACTOR,
+                Runtime.getRuntime().availableProcessors(),
+                PooledMemoryManager.DEFAULT_HEAP_USAGE_PERCENTAGE,
+                PooledMemoryManager.DEFAULT_PREALLOCATED_BUFFERS_PERCENTAGE,
+                direct,
+                magazineSize,
+                arenaChunkSize);
+    }
+
+    @Benchmark
+    public Buffer allocateRelease() {
+        final Buffer buffer = mm.allocate(size);
+        buffer.tryDispose();
+        return buffer;
+    }
+
+    @Benchmark
+    @Threads(4)
+    public Buffer allocateReleaseContended() {
+        final Buffer buffer = mm.allocate(size);
+        buffer.tryDispose();
+        return buffer;
+    }
+
+    @Benchmark
+    public Buffer allocateSplitRelease() {
+        final Buffer buffer = mm.allocate(size);
+        final Buffer tail = buffer.split(size >> 1);
+        tail.tryDispose();
+        buffer.tryDispose();
+        return buffer;
+    }
+
+    @Benchmark
+    public Buffer reallocateRelease() {
+        Buffer buffer = mm.allocate(size >> 1);
+        buffer = mm.reallocate(buffer, size);
+        buffer.tryDispose();
+        return buffer;
+    }
+}
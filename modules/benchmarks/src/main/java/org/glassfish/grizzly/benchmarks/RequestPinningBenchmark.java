@@ -0,0 +1,92 @@
+/*
+ * Copyright (c) 2017 Oracle and/or its affiliates. All rights reserved.
+ *
+ * This program and the accompanying materials are made available under the
+ * terms of the Eclipse Public License v. 2.0, which is available at
+ * http://www.eclipse.org/legal/epl-2.0.
+ *
+ * This Source Code may also be made available under the following Secondary
+ * Licenses when the conditions for such availability set forth in the
+ * Eclipse Public License v. 2.0 are satisfied: GNU General Public License,
+ * version 2 with the GNU Classpath Exception, which is available at
+ * https://www.gnu.org/software/classpath/license.html.
+ *
+ * SPDX-License-Identifier: EPL-2.0 OR GPL-2.0 WITH Classpath-exception-2.0
+ */
+
+package org.glassfish.grizzly.benchmarks;
+
+import java.io.IOException;
+import java.util.concurrent.TimeUnit;
+import org.glassfish.grizzly.Connection;
+import org.glassfish.grizzly.filterchain.FilterChainContext;
+import org.glassfish.grizzly.http.HttpContent;
+import org.glassfish.grizzly.http.HttpHeader;
+import org.glassfish.grizzly.http.HttpServerFilter;
+import org.glassfish.grizzly.memory.HeapMemoryManager;
+import org.glassfish.grizzly.utils.Charsets;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+/**
+ * Compares the per-request cost of the HTTP request/response objects
+ * recycled via the thread-local caches with the objects pinned to the
+ * {@link Connection} (see {@link HttpServerFilter#setPinRequestToConnection(boolean)}).
+ * Run with <tt>-prof gc</tt> to compare the allocation rate per request
+ * (<tt>gc.alloc.rate.norm</tt>).
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class RequestPinningBenchmark {
+
+    @Param({"false", "true"})
+    public boolean pinned;
+
+    private byte[] requestBytes;
+
+    private HeapMemoryManager heapMemoryManager;
+    private Connection connection;
+    private HttpServerFilter filter;
+
+    @Setup
+    public void setup() {
+        requestBytes = HttpRequestParsingBenchmark.SMALL_GET
+                .getBytes(Charsets.ASCII_CHARSET);
+
+        heapMemoryManager = new HeapMemoryManager();
+        connection = new StandaloneConnection();
+        filter = new HttpServerFilter(true,
+                HttpServerFilter.DEFAULT_MAX_HTTP_PACKET_HEADER_SIZE,
+                null, null);
+        filter.setPinRequestToConnection(pinned);
+    }
+
+    @Benchmark
+    public HttpHeader keepAliveRequest() throws IOException {
+        final FilterChainContext ctx = FilterChainContext.create(connection);
+        ctx.setMessage(heapMemoryManager.wrap(requestBytes));
+        filter.handleRead(ctx);
+
+        final HttpContent content = ctx.getMessage();
+        final HttpHeader header = content.getHttpHeader();
+        ctx.completeAndRecycle();
+
+        header.setExpectContent(false);
+        content.recycle();
+        header.recycle();
+        return header;
+    }
+}
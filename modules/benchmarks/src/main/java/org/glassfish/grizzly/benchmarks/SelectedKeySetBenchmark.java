@@ -0,0 +1,109 @@
+/*
+ * Copyright (c) 2017 Oracle and/or its affiliates. All rights reserved.
+ *
+ * This program and the accompanying materials are made available under the
+ * terms of the Eclipse Public License v. 2.0, which is available at
+ * http://www.eclipse.org/legal/epl-2.0.
+ *
+ * This Source Code may also be made available under the following Secondary
+ * Licenses when the conditions for such availability set forth in the
+ * Eclipse Public License v. 2.0 are satisfied: GNU General Public License,
+ * version 2 with the GNU Classpath Exception, which is available at
+ * https://www.gnu.org/software/classpath/license.html.
+ *
+ * SPDX-License-Identifier: EPL-2.0 OR GPL-2.0 WITH Classpath-exception-2.0
+ */
+
+
+package org.glassfish.grizzly.benchmarks;
+
+import java.io.IOException;
+import java.nio.channels.Pipe;
+import java.nio.channels.SelectionKey;
+import java.nio.channels.Selector;
+import java.util.Iterator;
+import java.util.Set;
+import java.util.concurrent.TimeUnit;
+import org.glassfish.grizzly.nio.Selectors;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+
+/**
+ * Measures a selector select cycle - <tt>selectNow()</tt>, ready key
+ * iteration and clearing - over the JDK selected key set and the array-backed
+ * one installed by {@link Selectors#optimizeSelectedKeys(Selector)}. Run with
+ * <tt>-prof gc</tt> to compare the allocation rate per cycle.
+ * 
+ * On JDK 9+ the <tt>array</tt> mode requires
+ * <tt>-jvmArgsAppend --add-opens=java.base/sun.nio.ch=ALL-UNNAMED</tt>.
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class SelectedKeySetBenchmark {
+
+    @Param({"16", "256"})
+    public int channels;
+
+    @Param({"jdk", "array"})
+    public String keySet;
+
+    private Selector selector;
+    private Pipe[] pipes;
+
+    @Setup
+    public void setup() throws IOException {
+        selector = Selector.open();
+        if ("array".equals(keySet) && !Selectors.optimizeSelectedKeys(selector)) {
+            throw new IllegalStateException(
+                    "Can not install SelectedKeySet, on JDK 9+ add "
+                    + "--add-opens=java.base/sun.nio.ch=ALL-UNNAMED");
+        }
+
+        // pipe sinks are always ready for write, so every select cycle
+        // returns all the registered keys
+        pipes = new Pipe[channels];
+        for (int i = 0; i < channels; i++) {
+            pipes[i] = Pipe.open();
+            pipes[i].sink().configureBlocking(false);
+            pipes[i].sink().register(selector, SelectionKey.OP_WRITE);
+        }
+    }
+
+    @TearDown
+    public void tearDown() throws IOException {
+        selector.close();
+        for (Pipe pipe : pipes) {
+            pipe.sink().close();
+            pipe.source().close();
+        }
+    }
+
+    @Benchmark
+    public int selectCycle() throws IOException {
+        selector.selectNow();
+        final Set<SelectionKey> readyKeys = selector.selectedKeys();
+        
+        int readyOps = 0;
+        final Iterator<SelectionKey> it = readyKeys.iterator();
+        while (it.hasNext()) {
+            readyOps += it.next().readyOps();
+        }
+        
+        readyKeys.clear();
+        return readyOps;
+    }
+}
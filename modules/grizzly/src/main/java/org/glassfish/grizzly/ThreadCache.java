@@ -17,12 +17,17 @@
 package org.glassfish.grizzly;
 
 import org.glassfish.grizzly.threadpool.DefaultWorkerThread;
+import org.glassfish.grizzly.threadpool.Threads;
 import java.util.Arrays;
 import java.util.HashMap;
 import java.util.Map;
 
 /**
- *
+ * Per-thread cache of the objects, which are expensive to create.
+ * The objects are not cached by virtual threads, because they are not
+ * reused once their task is completed, so the cached objects would never be
+ * taken from the cache.
+ * 
  * @author oleksiys
  */
 public final class ThreadCache {
@@ -63,6 +68,8 @@ public final class ThreadCache {
             final CachedTypeIndex<E> index, final E o) {
         if (currentThread instanceof DefaultWorkerThread) {
             return ((DefaultWorkerThread) currentThread).putToCache(index, o);
+        } else if (Threads.isVirtual(currentThread)) {
+            return false;
         } else {
             ObjectCache genericCache = genericCacheAttr.get();
             if (genericCache == null) {
@@ -103,6 +110,8 @@ public final class ThreadCache {
         
         if (currentThread instanceof DefaultWorkerThread) {
             return ((DefaultWorkerThread) currentThread).getFromCache(index);
+        } else if (Threads.isVirtual(currentThread)) {
+            return null;
         } else {
             final ObjectCache genericCache = genericCacheAttr.get();
             if (genericCache != null) {
@@ -140,6 +149,8 @@ public final class ThreadCache {
             final CachedTypeIndex<E> index) {
         if (currentThread instanceof DefaultWorkerThread) {
             return ((DefaultWorkerThread) currentThread).takeFromCache(index);
+        } else if (Threads.isVirtual(currentThread)) {
+            return null;
         } else {
             final ObjectCache genericCache = genericCacheAttr.get();
             if (genericCache != null) {
@@ -37,7 +37,7 @@ import org.glassfish.grizzly.monitoring.MonitoringUtils;
  * @author Alexey Stashok
  */
 public class ByteBufferManager extends AbstractMemoryManager<ByteBufferWrapper> implements
-        WrapperAware, ByteBufferAware {
+        WrapperAware, ByteBufferAware, MemoryBudgetAware {
 
     /**
      * TODO: Document
@@ -60,6 +60,11 @@ public class ByteBufferManager extends AbstractMemoryManager<ByteBufferWrapper>
 
     protected final int maxSmallBufferSize;
 
+    /**
+     * The budget the allocated buffers are accounted against, may be null.
+     */
+    private MemoryBudget memoryBudget;
+
     public ByteBufferManager() {
         this(false,
              DEFAULT_MAX_BUFFER_SIZE,
@@ -94,7 +99,7 @@ public class ByteBufferManager extends AbstractMemoryManager<ByteBufferWrapper>
             buffer.limit(size);
             return buffer;
         }
-        return wrap(allocateByteBuffer(size));
+        return reserve(wrap(allocateByteBuffer(size)));
     }
 
     /**
@@ -107,7 +112,7 @@ public class ByteBufferManager extends AbstractMemoryManager<ByteBufferWrapper>
             buffer.limit(size);
             return buffer;
         }
-        return wrap(allocateByteBufferAtLeast(size));
+        return reserve(wrap(allocateByteBufferAtLeast(size)));
     }
 
     /**
@@ -116,7 +121,13 @@ public class ByteBufferManager extends AbstractMemoryManager<ByteBufferWrapper>
     @Override
     public ByteBufferWrapper reallocate(ByteBufferWrapper oldBuffer,
             int newSize) {
-        return wrap(reallocateByteBuffer(oldBuffer.underlying(), newSize));
+        final ByteBufferWrapper newBuffer =
+                wrap(reallocateByteBuffer(oldBuffer.underlying(), newSize));
+        if (oldBuffer instanceof TrimAwareWrapper) {
+            ((TrimAwareWrapper) oldBuffer).releaseReserved();
+        }
+        
+        return reserve(newBuffer);
     }
     
     /**
@@ -149,6 +160,25 @@ public class ByteBufferManager extends AbstractMemoryManager<ByteBufferWrapper>
         this.isDirect = isDirect;
     }
 
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    public MemoryBudget getMemoryBudget() {
+        return memoryBudget;
+    }
+
+    /**
+     * {@inheritDoc}
+     * 
+     * The buffers are accounted by their capacity, the small buffers (up to
+     * {@link #getMaxSmallBufferSize()} bytes) are not accounted.
+     */
+    @Override
+    public void setMemoryBudget(final MemoryBudget memoryBudget) {
+        this.memoryBudget = memoryBudget;
+    }
+
     /**
      * {@inheritDoc}
      */
@@ -358,6 +388,18 @@ public class ByteBufferManager extends AbstractMemoryManager<ByteBufferWrapper>
         return new TrimAwareWrapper(underlyingByteBuffer);
     }
 
+    private ByteBufferWrapper reserve(final ByteBufferWrapper buffer) {
+        final MemoryBudget budget = memoryBudget;
+        if (budget != null && buffer instanceof TrimAwareWrapper) {
+            final TrimAwareWrapper wrapper = (TrimAwareWrapper) buffer;
+            wrapper.memoryBudget = budget;
+            wrapper.reserved = wrapper.capacity();
+            budget.reserve(wrapper.reserved);
+        }
+        
+        return buffer;
+    }
+
     @SuppressWarnings({"unchecked"})
     private void reallocatePoolBuffer() {
         final ByteBuffer byteBuffer =
@@ -508,6 +550,10 @@ public class ByteBufferManager extends AbstractMemoryManager<ByteBufferWrapper>
     private final class TrimAwareWrapper extends ByteBufferWrapper
             implements TrimAware {
 
+        // the budget and the number of bytes accounted for this buffer
+        private MemoryBudget memoryBudget;
+        private int reserved;
+
         private TrimAwareWrapper(ByteBuffer underlyingByteBuffer) {
             super(underlyingByteBuffer);
         }
@@ -557,11 +603,20 @@ public class ByteBufferManager extends AbstractMemoryManager<ByteBufferWrapper>
         @Override
         public void dispose() {
             prepareDispose();
+            releaseReserved();
             ByteBufferManager.this.release(this);
             visible = null;
             recycle();
         }
 
+        private void releaseReserved() {
+            if (memoryBudget != null) {
+                memoryBudget.release(reserved);
+                memoryBudget = null;
+                reserved = 0;
+            }
+        }
+
         @Override
         protected ByteBufferWrapper wrapByteBuffer(ByteBuffer byteBuffer) {
             return ByteBufferManager.this.wrap(byteBuffer);
@@ -43,6 +43,9 @@ public class HeapMemoryManager extends AbstractMemoryManager<HeapBuffer> impleme
             ThreadCache.obtainIndex(RecyclableByteBufferWrapper.class,
                     Integer.getInteger(HeapMemoryManager.class.getName() + ".rbbw-cache-size", 2));
 
+    // samples the allocated buffers to report the ones, which weren't disposed
+    private final LeakDetector leakDetector = new LeakDetector(monitoringConfig);
+
     public HeapMemoryManager() {
         super();
     }
@@ -59,7 +62,7 @@ public class HeapMemoryManager extends AbstractMemoryManager<HeapBuffer> impleme
      */
     @Override
     public HeapBuffer allocate(final int size) {
-        return allocateHeapBuffer(size);
+        return track(allocateHeapBuffer(size));
     }
     
     /**
@@ -67,7 +70,7 @@ public class HeapMemoryManager extends AbstractMemoryManager<HeapBuffer> impleme
      */
     @Override
     public HeapBuffer allocateAtLeast(final int size) {
-        return allocateHeapBufferAtLeast(size);
+        return track(allocateHeapBufferAtLeast(size));
     }
 
     /**
@@ -75,7 +78,15 @@ public class HeapMemoryManager extends AbstractMemoryManager<HeapBuffer> impleme
      */
     @Override
     public HeapBuffer reallocate(final HeapBuffer oldBuffer, final int newSize) {
-        return reallocateHeapBuffer(oldBuffer, newSize);
+        final HeapBuffer newBuffer = reallocateHeapBuffer(oldBuffer, newSize);
+        if (newBuffer != oldBuffer
+                && oldBuffer instanceof TrimmableHeapBuffer
+                && ((TrimmableHeapBuffer) oldBuffer).closeLeakTracker()) {
+            // the old buffer content has been moved, track the new buffer
+            return track(newBuffer);
+        }
+        
+        return newBuffer;
     }
     
     /**
@@ -102,6 +113,33 @@ public class HeapMemoryManager extends AbstractMemoryManager<HeapBuffer> impleme
         return monitoringConfig;
     }
 
+    /**
+     * Returns the leak detection sampling interval: every N-th allocated
+     * {@link HeapBuffer} on average is tracked, and reported via
+     * {@link MemoryProbe#onBufferLeakEvent(int)} if it was garbage collected
+     * without being disposed. 0 means the leak detection is disabled.
+     * 
+     * @return the leak detection sampling interval
+     * @since 2.4.4
+     */
+    public int getLeakDetectionInterval() {
+        return leakDetector.getSamplingInterval();
+    }
+
+    /**
+     * Sets the leak detection sampling interval: every N-th allocated
+     * {@link HeapBuffer} on average is tracked, and reported via
+     * {@link MemoryProbe#onBufferLeakEvent(int)} if it was garbage collected
+     * without being disposed. 1 means every buffer is tracked, 0 disables
+     * the leak detection.
+     * 
+     * @param leakDetectionInterval the leak detection sampling interval
+     * @since 2.4.4
+     */
+    public void setLeakDetectionInterval(final int leakDetectionInterval) {
+        leakDetector.setSamplingInterval(leakDetectionInterval);
+    }
+
     /**
      * {@inheritDoc}
      */
@@ -282,6 +320,20 @@ public class HeapMemoryManager extends AbstractMemoryManager<HeapBuffer> impleme
         return new TrimmableHeapBuffer(this, heap, offset, length);
     }
 
+    private HeapBuffer track(final HeapBuffer buffer) {
+        final LeakDetector.LeakTracker tracker =
+                leakDetector.track(buffer, buffer.capacity());
+        if (tracker != null) {
+            if (buffer instanceof TrimmableHeapBuffer) {
+                ((TrimmableHeapBuffer) buffer).leakTracker = tracker;
+            } else {
+                tracker.close();
+            }
+        }
+        
+        return buffer;
+    }
+
     private ByteBufferWrapper createByteBufferWrapper(
             final ByteBuffer underlyingByteBuffer) {
 
@@ -482,6 +534,9 @@ public class HeapMemoryManager extends AbstractMemoryManager<HeapBuffer> impleme
 
         private HeapMemoryManager mm;
         
+        // not null, if the buffer is sampled by the LeakDetector
+        private LeakDetector.LeakTracker leakTracker;
+        
         private TrimmableHeapBuffer(final HeapMemoryManager mm,
                                     byte[] heap,
                                     int offset,
@@ -532,6 +587,7 @@ public class HeapMemoryManager extends AbstractMemoryManager<HeapBuffer> impleme
         @Override
         public void dispose() {
             prepareDispose();
+            closeLeakTracker();
             mm.release(this);
             mm = null;
 
@@ -549,9 +605,23 @@ public class HeapMemoryManager extends AbstractMemoryManager<HeapBuffer> impleme
         @Override
         protected HeapBuffer createHeapBuffer(final int offs,
                                               final int capacity) {
+            if (leakTracker != null) {
+                leakTracker.touch();
+            }
+            
             return mm.createTrimAwareBuffer(heap, offs + offset, capacity);
         }
 
+        boolean closeLeakTracker() {
+            if (leakTracker != null) {
+                leakTracker.close();
+                leakTracker = null;
+                return true;
+            }
+            
+            return false;
+        }
+
         void initialize(final HeapMemoryManager mm,
                         final byte[] heap,
                         final int offset,
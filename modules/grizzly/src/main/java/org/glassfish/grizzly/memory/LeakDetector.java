@@ -0,0 +1,220 @@
+/*
+ * Copyright (c) 2017 Oracle and/or its affiliates. All rights reserved.
+ *
+ * This program and the accompanying materials are made available under the
+ * terms of the Eclipse Public License v. 2.0, which is available at
+ * http://www.eclipse.org/legal/epl-2.0.
+ *
+ * This Source Code may also be made available under the following Secondary
+ * Licenses when the conditions for such availability set forth in the
+ * Eclipse Public License v. 2.0 are satisfied: GNU General Public License,
+ * version 2 with the GNU Classpath Exception, which is available at
+ * https://www.gnu.org/software/classpath/license.html.
+ *
+ * SPDX-License-Identifier: EPL-2.0 OR GPL-2.0 WITH Classpath-exception-2.0
+ */
+
+
+package org.glassfish.grizzly.memory;
+
+import java.lang.ref.PhantomReference;
+import java.lang.ref.ReferenceQueue;
+import java.util.Collections;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.logging.Level;
+import java.util.logging.Logger;
+import org.glassfish.grizzly.Grizzly;
+import org.glassfish.grizzly.localization.LogMessages;
+import org.glassfish.grizzly.monitoring.DefaultMonitoringConfig;
+
+/**
+ * Sampling detector of the {@link org.glassfish.grizzly.Buffer}s, which
+ * were garbage collected without being disposed.
+ * 
+ * Every N-th allocation (randomly sampled, N is the sampling interval)
+ * gets a {@link LeakTracker}, a phantom reference, which records the
+ * allocation stack trace and the stack traces of the last few accesses
+ * (sharing the buffer content or partial disposal). If the buffer is
+ * disposed - the tracker is closed, otherwise, once the buffer is garbage
+ * collected, the leak is logged and reported via
+ * {@link MemoryProbe#onBufferLeakEvent(int)}.
+ * 
+ * The detector is disabled by default, the default sampling interval could
+ * be set using <tt>org.glassfish.grizzly.memory.MemoryManager.leak-detection-interval</tt>
+ * system property: 1 means every allocation is tracked, 0 disables the
+ * detection. When disabled, the allocation overhead is a single volatile read.
+ * 
+ * @since 2.4.4
+ */
+final class LeakDetector {
+    private static final Logger LOGGER = Grizzly.logger(LeakDetector.class);
+
+    static final int DEFAULT_SAMPLING_INTERVAL = Integer.getInteger(
+            MemoryManager.class.getName() + ".leak-detection-interval", 0);
+
+    // the max number of the recent access records per tracker
+    private static final int MAX_ACCESS_RECORDS = 4;
+    
+    private final ReferenceQueue<Object> referenceQueue =
+            new ReferenceQueue<Object>();
+    
+    // keeps the phantom references reachable till they're closed or enqueued
+    private final Set<LeakTracker> trackers = Collections.newSetFromMap(
+            new ConcurrentHashMap<LeakTracker, Boolean>());
+    
+    private final DefaultMonitoringConfig<MemoryProbe> monitoringConfig;
+    
+    private volatile int samplingInterval = DEFAULT_SAMPLING_INTERVAL;
+
+    LeakDetector(final DefaultMonitoringConfig<MemoryProbe> monitoringConfig) {
+        this.monitoringConfig = monitoringConfig;
+    }
+
+    int getSamplingInterval() {
+        return samplingInterval;
+    }
+
+    void setSamplingInterval(final int samplingInterval) {
+        if (samplingInterval < 0) {
+            throw new IllegalArgumentException("samplingInterval can't be negative");
+        }
+        
+        this.samplingInterval = samplingInterval;
+    }
+
+    /**
+     * Starts tracking the buffer, if it's been sampled.
+     * 
+     * @param buffer the allocated buffer
+     * @param size the number of bytes the buffer holds
+     * @return {@link LeakTracker}, or <tt>null</tt> if the buffer is not
+     *      tracked
+     */
+    LeakTracker track(final Object buffer, final int size) {
+        final int interval = samplingInterval;
+        if (interval == 0 || (interval > 1 &&
+                ThreadLocalRandom.current().nextInt(interval) != 0)) {
+            return null;
+        }
+
+        reportLeaks();
+        
+        final LeakTracker tracker = new LeakTracker(buffer, size);
+        trackers.add(tracker);
+        return tracker;
+    }
+
+    /**
+     * Reports the tracked buffers, which were garbage collected, but not
+     * disposed.
+     * 
+     * @return the number of leaks found
+     */
+    int reportLeaks() {
+        int leaks = 0;
+        LeakTracker tracker;
+        while ((tracker = (LeakTracker) referenceQueue.poll()) != null) {
+            if (trackers.remove(tracker)) {
+                leaks++;
+                
+                if (LOGGER.isLoggable(Level.WARNING)) {
+                    LOGGER.log(Level.WARNING,
+                            LogMessages.WARNING_GRIZZLY_MEMORY_BUFFER_LEAK(
+                            tracker.size, tracker.traces()));
+                }
+                
+                ProbeNotifier.notifyBufferLeaked(monitoringConfig, tracker.size);
+            }
+        }
+        
+        return leaks;
+    }
+
+    /**
+     * Records the allocation and the recent accesses of a tracked buffer.
+     */
+    final class LeakTracker extends PhantomReference<Object> {
+        private final int size;
+        private final Record allocation;
+        
+        // guarded by this
+        private Record lastAccess;
+        private int accessRecordsCount;
+        
+        private LeakTracker(final Object buffer, final int size) {
+            super(buffer, referenceQueue);
+            this.size = size;
+            allocation = new Record(null, "Allocated at:");
+        }
+
+        /**
+         * Records the current stack trace as the buffer's last access.
+         */
+        void touch() {
+            final Record record = new Record(null, "Accessed at:");
+            synchronized (this) {
+                // keep the MAX_ACCESS_RECORDS most recent records
+                if (accessRecordsCount == MAX_ACCESS_RECORDS) {
+                    Record r = lastAccess;
+                    for (int i = 1; i < MAX_ACCESS_RECORDS - 1; i++) {
+                        r = r.previous;
+                    }
+                    r.previous = null;
+                } else {
+                    accessRecordsCount++;
+                }
+                
+                record.previous = lastAccess;
+                lastAccess = record;
+            }
+        }
+        
+        /**
+         * Stops tracking, the buffer has been properly disposed.
+         */
+        void close() {
+            if (trackers.remove(this)) {
+                clear();
+            }
+        }
+
+        private String traces() {
+            final StringBuilder sb = new StringBuilder();
+            synchronized (this) {
+                for (Record r = lastAccess; r != null; r = r.previous) {
+                    r.appendTo(sb);
+                }
+            }
+            
+            allocation.appendTo(sb);
+            return sb.toString();
+        }
+    }
+    
+    private static final class Record extends Throwable {
+        private static final long serialVersionUID = 1L;
+        
+        private Record previous;
+        
+        private Record(final Record previous, final String message) {
+            super(message);
+            this.previous = previous;
+        }
+
+        private void appendTo(final StringBuilder sb) {
+            sb.append('\n').append(getMessage());
+            final StackTraceElement[] elements = getStackTrace();
+            // skip the leak detector frames
+            for (int i = 0; i < elements.length; i++) {
+                final StackTraceElement e = elements[i];
+                if (e.getClassName().startsWith(LeakDetector.class.getName())) {
+                    continue;
+                }
+                
+                sb.append("\n\t").append(e);
+            }
+        }
+    }
+}
@@ -0,0 +1,583 @@
+/*
+ * Copyright (c) 2017 Oracle and/or its affiliates. All rights reserved.
+ *
+ * This program and the accompanying materials are made available under the
+ * terms of the Eclipse Public License v. 2.0, which is available at
+ * http://www.eclipse.org/legal/epl-2.0.
+ *
+ * This Source Code may also be made available under the following Secondary
+ * Licenses when the conditions for such availability set forth in the
+ * Eclipse Public License v. 2.0 are satisfied: GNU General Public License,
+ * version 2 with the GNU Classpath Exception, which is available at
+ * https://www.gnu.org/software/classpath/license.html.
+ *
+ * SPDX-License-Identifier: EPL-2.0 OR GPL-2.0 WITH Classpath-exception-2.0
+ */
+
+
+package org.glassfish.grizzly.memory;
+
+import java.nio.ByteBuffer;
+import org.glassfish.grizzly.Buffer;
+import java.util.ArrayList;
+import java.util.concurrent.atomic.AtomicInteger;
+import org.glassfish.grizzly.monitoring.DefaultMonitoringConfig;
+
+/**
+ * Memory arena, which carves {@link Buffer}s of any page-multiple size out of
+ * large, lazily allocated memory chunks.
+ * 
+ * Every chunk is split into fixed-size pages, a buffer occupies a run of
+ * contiguous pages found using first-fit search over the chunk's page bitmap.
+ * Because runs are tracked by pages, an unshared {@link ArenaBuffer} can be
+ * split or trimmed in place: the released pages become available for other
+ * allocations without copying the data.
+ * 
+ * Chunks are allocated on demand. Once a chunk becomes completely free it
+ * is released, unless it's the only free chunk in the arena.
+ * 
+ * @since 2.4.4
+ */
+final class MemoryArena {
+    private final int pageSize;
+    private final int log2PageSize;
+    private final int pagesInChunk;
+    private final boolean isDirect;
+    
+    private final DefaultMonitoringConfig<MemoryProbe> monitoringConfig;
+    private final LeakDetector leakDetector;
+    
+    // the budget the used pages are accounted against, may be null
+    MemoryBudget memoryBudget;
+    
+    // guarded by this
+    private final ArrayList<Chunk> chunks = new ArrayList<Chunk>(4);
+    
+    MemoryArena(final int pageSize, final int chunkSize,
+            final boolean isDirect,
+            final DefaultMonitoringConfig<MemoryProbe> monitoringConfig,
+            final LeakDetector leakDetector) {
+        this.pageSize = pageSize;
+        this.log2PageSize = Integer.numberOfTrailingZeros(pageSize);
+        this.pagesInChunk = chunkSize / pageSize;
+        this.isDirect = isDirect;
+        this.monitoringConfig = monitoringConfig;
+        this.leakDetector = leakDetector;
+    }
+
+    int getPageSize() {
+        return pageSize;
+    }
+    
+    int getChunkSize() {
+        return pagesInChunk << log2PageSize;
+    }
+    
+    /**
+     * Allocates a new {@link ArenaBuffer} with the capacity of at least
+     * <tt>size</tt> bytes, rounded up to the page size.
+     * 
+     * @param size the min buffer size
+     * @return {@link ArenaBuffer}
+     */
+    ArenaBuffer allocate(final int size) {
+        final int pages = pagesFor(size);
+        assert pages <= pagesInChunk;
+        
+        Chunk chunk = null;
+        int page = -1;
+        long freeBytes = 0;
+        boolean isNewChunk = false;
+        
+        synchronized (this) {
+            for (int i = 0; i < chunks.size(); i++) {
+                final Chunk c = chunks.get(i);
+                if (c.freePages >= pages) {
+                    page = c.allocateRun(pages);
+                    if (page != -1) {
+                        chunk = c;
+                        break;
+                    }
+                    
+                    freeBytes += (long) c.freePages << log2PageSize;
+                }
+            }
+            
+            if (chunk == null) {
+                chunk = new Chunk();
+                chunks.add(chunk);
+                page = chunk.allocateRun(pages);
+                isNewChunk = true;
+            }
+        }
+        
+        if (isNewChunk) {
+            ProbeNotifier.notifyArenaChunkAllocated(monitoringConfig,
+                    getChunkSize(), freeBytes);
+        }
+        
+        ProbeNotifier.notifyBufferAllocatedFromPool(monitoringConfig,
+                pages << log2PageSize);
+        
+        if (memoryBudget != null) {
+            memoryBudget.reserve(pages << log2PageSize);
+        }
+        
+        return new ArenaBuffer(chunk, page, pages);
+    }
+
+    /**
+     * @return the number of bytes reserved by the arena's chunks
+     */
+    synchronized long reservedBytes() {
+        return (long) chunks.size() * getChunkSize();
+    }
+
+    /**
+     * @return the number of bytes in the arena's chunks, which are not used
+     *      by any {@link ArenaBuffer}
+     */
+    synchronized long freeBytes() {
+        long free = 0;
+        for (int i = 0; i < chunks.size(); i++) {
+            free += (long) chunks.get(i).freePages << log2PageSize;
+        }
+        
+        return free;
+    }
+
+    /**
+     * @return the size of the largest {@link ArenaBuffer}, which could be
+     *      allocated without reserving a new chunk
+     */
+    synchronized long largestFreeRunBytes() {
+        int max = 0;
+        for (int i = 0; i < chunks.size(); i++) {
+            max = Math.max(max, chunks.get(i).largestFreeRun());
+        }
+        
+        return (long) max << log2PageSize;
+    }
+
+    private int pagesFor(final int size) {
+        return (size + pageSize - 1) >>> log2PageSize;
+    }
+    
+    private void releaseRun(final Chunk chunk, final int page, final int pages) {
+        boolean isChunkReleased = false;
+        
+        synchronized (this) {
+            chunk.releaseRun(page, pages);
+            
+            if (chunk.freePages == pagesInChunk) {
+                // keep a single free chunk to avoid chunk allocate/release
+                // ping-pong
+                for (int i = 0; i < chunks.size(); i++) {
+                    final Chunk c = chunks.get(i);
+                    if (c != chunk && c.freePages == pagesInChunk) {
+                        chunks.remove(chunk);
+                        isChunkReleased = true;
+                        break;
+                    }
+                }
+            }
+        }
+
+        ProbeNotifier.notifyBufferReleasedToPool(monitoringConfig,
+                pages << log2PageSize);
+        
+        if (memoryBudget != null) {
+            memoryBudget.release(pages << log2PageSize);
+        }
+        
+        if (isChunkReleased) {
+            ProbeNotifier.notifyArenaChunkReleased(monitoringConfig,
+                    getChunkSize());
+        }
+    }
+
+    private boolean extend(final Chunk chunk, final int page, final int pages,
+            final int newPages) {
+        synchronized (this) {
+            if (!chunk.extendRun(page, pages, newPages)) {
+                return false;
+            }
+        }
+        
+        if (memoryBudget != null) {
+            memoryBudget.reserve((newPages - pages) << log2PageSize);
+        }
+        
+        return true;
+    }
+    
+    /*
+     * Memory chunk, all the methods except constructor have to be called
+     * with the arena lock held.
+     */
+    private final class Chunk {
+        private final ByteBuffer memory;
+        
+        // page bitmap, 1 means the page is used
+        private final long[] usedPages;
+        
+        private int freePages;
+        
+        Chunk() {
+            final int chunkSize = getChunkSize();
+            memory = isDirect ?
+                    ByteBuffer.allocateDirect(chunkSize) :
+                    ByteBuffer.allocate(chunkSize);
+            usedPages = new long[(pagesInChunk + 63) >>> 6];
+            freePages = pagesInChunk;
+        }
+
+        /**
+         * Returns the {@link ByteBuffer} representing the pages run.
+         */
+        ByteBuffer slice(final int page, final int pages) {
+            final ByteBuffer dup = memory.duplicate();
+            final int offset = page << log2PageSize;
+            Buffers.setPositionLimit(dup, offset,
+                    offset + (pages << log2PageSize));
+            
+            return dup.slice();
+        }
+        
+        /**
+         * Finds the first run of <tt>pages</tt> free pages and marks it used.
+         * 
+         * @return the index of the first page in the run, or <tt>-1</tt>
+         *      if there is no free run of the requested length
+         */
+        int allocateRun(final int pages) {
+            int runStart = 0;
+            int runLength = 0;
+            
+            for (int i = 0; i < pagesInChunk; i++) {
+                final long word = usedPages[i >>> 6];
+                if (word == -1L) {
+                    // the whole word is used, skip it
+                    i |= 63;
+                    runLength = 0;
+                    continue;
+                }
+                
+                if ((word & (1L << i)) != 0) {
+                    runLength = 0;
+                    continue;
+                }
+                
+                if (runLength++ == 0) {
+                    runStart = i;
+                }
+                
+                if (runLength == pages) {
+                    markRun(runStart, pages, true);
+                    freePages -= pages;
+                    return runStart;
+                }
+            }
+            
+            return -1;
+        }
+
+        void releaseRun(final int page, final int pages) {
+            markRun(page, pages, false);
+            freePages += pages;
+        }
+
+        /**
+         * Extends the run in place, if the pages following the run are free.
+         */
+        boolean extendRun(final int page, final int pages, final int newPages) {
+            final int end = page + newPages;
+            if (end > pagesInChunk) {
+                return false;
+            }
+            
+            for (int i = page + pages; i < end; i++) {
+                if ((usedPages[i >>> 6] & (1L << i)) != 0) {
+                    return false;
+                }
+            }
+            
+            markRun(page + pages, newPages - pages, true);
+            freePages -= newPages - pages;
+            return true;
+        }
+        
+        int largestFreeRun() {
+            int max = 0;
+            int runLength = 0;
+            for (int i = 0; i < pagesInChunk; i++) {
+                if ((usedPages[i >>> 6] & (1L << i)) != 0) {
+                    runLength = 0;
+                } else if (++runLength > max) {
+                    max = runLength;
+                }
+            }
+            
+            return max;
+        }
+        
+        private void markRun(final int page, final int pages,
+                final boolean isUsed) {
+            for (int i = page; i < page + pages; i++) {
+                if (isUsed) {
+                    usedPages[i >>> 6] |= 1L << i;
+                } else {
+                    usedPages[i >>> 6] &= ~(1L << i);
+                }
+            }
+        }
+    }
+    
+    /**
+     * {@link Buffer} occupying a run of pages in a {@link MemoryArena} chunk.
+     * The pages are returned to the arena, once the buffer and all the
+     * buffers derived from it are disposed.
+     */
+    final class ArenaBuffer extends ByteBufferWrapper {
+        
+        // the chunk and pages run, valid for the source buffer only
+        private final Chunk chunk;
+        private int page;
+        private int pages;
+        
+        // When this buffer has been disposed, this flag will be true.
+        private boolean free;
+        
+        // the number of 'child' buffers that have been created using
+        // this as the foundation.
+        private final AtomicInteger shareCount;
+        
+        // the original buffer from the arena
+        private final ArenaBuffer source;
+
+        // true, if the next wrapByteBuffer(..) call is made by split(..),
+        // which has to create an independent buffer
+        private boolean isSplitting;
+        
+        // not null, if the source buffer is sampled by the LeakDetector
+        private LeakDetector.LeakTracker leakTracker;
+        
+        private ArenaBuffer(final Chunk chunk, final int page, final int pages) {
+            super(chunk.slice(page, pages));
+            this.chunk = chunk;
+            this.page = page;
+            this.pages = pages;
+            this.shareCount = new AtomicInteger();
+            this.source = this;
+            allowBufferDispose = true;
+            leakTracker = leakDetector.track(this, pages << log2PageSize);
+        }
+
+        private ArenaBuffer(final ByteBuffer underlyingByteBuffer,
+                final ArenaBuffer source) {
+            super(underlyingByteBuffer);
+            this.chunk = null;
+            this.shareCount = source.shareCount;
+            this.source = source;
+            allowBufferDispose = true;
+        }
+
+        /**
+         * {@inheritDoc}
+         * 
+         * If the buffer is not shared and the split position is page aligned,
+         * the buffer is split in place, so each part could be disposed
+         * independently.
+         */
+        @Override
+        public Buffer split(final int splitPosition) {
+            if (canResize() && splitPosition > 0
+                    && splitPosition < capacity()
+                    && (splitPosition & (pageSize - 1)) == 0) {
+                isSplitting = true;
+                try {
+                    return super.split(splitPosition);
+                } finally {
+                    isSplitting = false;
+                }
+            }
+            
+            return super.split(splitPosition);
+        }
+
+        /**
+         * {@inheritDoc}
+         * 
+         * If the buffer is not shared, the pages outside the
+         * [position, limit] interval are released back to the arena.
+         */
+        @Override
+        public void shrink() {
+            checkDispose();
+            
+            if (!canResize()) {
+                return;
+            }
+            
+            final int pos = visible.position();
+            final int lim = visible.limit();
+            
+            final int firstPage = pos >>> log2PageSize;
+            final int lastPage = Math.max(firstPage + 1, pagesFor(lim));
+            
+            if (firstPage == 0 && lastPage == pages) {
+                return;
+            }
+            
+            if (lastPage < pages) {
+                releaseRun(chunk, page + lastPage, pages - lastPage);
+            }
+            
+            if (firstPage > 0) {
+                releaseRun(chunk, page, firstPage);
+            }
+            
+            page += firstPage;
+            pages = lastPage - firstPage;
+            
+            final int shift = firstPage << log2PageSize;
+            final ByteBuffer newVisible = chunk.slice(page, pages);
+            Buffers.setPositionLimit(newVisible, pos - shift, lim - shift);
+            visible = newVisible;
+            if (mark != -1) {
+                mark = mark >= shift ? mark - shift : -1;
+            }
+        }
+
+        /**
+         * Releases the pages beyond the <tt>newCapacity</tt> back to the
+         * arena, if the buffer is not shared.
+         */
+        void truncate(final int newCapacity) {
+            checkDispose();
+            
+            final int newPages = Math.max(1, pagesFor(newCapacity));
+            if (!canResize() || newPages >= pages) {
+                return;
+            }
+            
+            releaseRun(chunk, page + newPages, pages - newPages);
+            pages = newPages;
+            
+            final ByteBuffer newVisible = chunk.slice(page, pages);
+            final int cap = newVisible.capacity();
+            Buffers.setPositionLimit(newVisible,
+                    Math.min(visible.position(), cap),
+                    Math.min(visible.limit(), cap));
+            visible = newVisible;
+            if (mark > cap) {
+                mark = -1;
+            }
+        }
+        
+        /**
+         * Tries to grow the buffer capacity in place, if the buffer is not
+         * shared and the pages following the buffer are free.
+         * 
+         * @return <tt>true</tt> if the buffer capacity is at least
+         *      <tt>newCapacity</tt> bytes
+         */
+        boolean extend(final int newCapacity) {
+            checkDispose();
+            
+            final int newPages = pagesFor(newCapacity);
+            if (newPages <= pages) {
+                return true;
+            }
+            
+            if (!canResize()
+                    || !MemoryArena.this.extend(chunk, page, pages, newPages)) {
+                return false;
+            }
+
+            pages = newPages;
+            final ByteBuffer newVisible = chunk.slice(page, pages);
+            Buffers.setPositionLimit(newVisible, visible.position(),
+                    visible.limit());
+            visible = newVisible;
+            return true;
+        }
+
+        @Override
+        public void dispose() {
+            if (free) {
+                return;
+            }
+            free = true;
+            
+            dispose0();
+        }
+        
+        private void dispose0() {
+            // check shared counter optimistically
+            boolean isNotShared = shareCount.get() == 0;
+            if (!isNotShared) {
+                // try pessimistic check using CAS loop
+                isNotShared = (shareCount.getAndDecrement() == 0);
+                if (isNotShared) {
+                    // if the former check is true - the shared counter is negative,
+                    // so we have to reset it
+                    shareCount.set(0);
+                }
+            }
+            
+            if (isNotShared) {
+                final LeakDetector.LeakTracker tracker = source.leakTracker;
+                if (tracker != null) {
+                    source.leakTracker = null;
+                    tracker.close();
+                }
+                
+                releaseRun(source.chunk, source.page, source.pages);
+            } else {
+                touch();
+            }
+        }
+
+        @Override
+        protected ByteBufferWrapper wrapByteBuffer(final ByteBuffer buffer) {
+            if (isSplitting) {
+                // in place split, the tail pages become a separate buffer
+                final int headPages = visible.capacity() >>> log2PageSize;
+                final ArenaBuffer tail = new ArenaBuffer(chunk,
+                        page + headPages, pages - headPages);
+                Buffers.setPositionLimit(tail.visible, buffer.position(),
+                        buffer.limit());
+                pages = headPages;
+                
+                return tail;
+            }
+            
+            final ArenaBuffer b = new ArenaBuffer(buffer, source);
+            shareCount.incrementAndGet();
+            touch();
+            
+            return b;
+        }
+
+        @Override
+        protected void checkDispose() {
+            if (free) {
+                throw new IllegalStateException(
+                        "ArenaBuffer has already been disposed",
+                        disposeStackTrace);
+            }
+        }
+
+        private void touch() {
+            final LeakDetector.LeakTracker tracker = source.leakTracker;
+            if (tracker != null) {
+                tracker.touch();
+            }
+        }
+        
+        private boolean canResize() {
+            return source == this && shareCount.get() == 0;
+        }
+    }
+}
@@ -0,0 +1,167 @@
+/*
+ * Copyright (c) 2017 Oracle and/or its affiliates. All rights reserved.
+ *
+ * This program and the accompanying materials are made available under the
+ * terms of the Eclipse Public License v. 2.0, which is available at
+ * http://www.eclipse.org/legal/epl-2.0.
+ *
+ * This Source Code may also be made available under the following Secondary
+ * Licenses when the conditions for such availability set forth in the
+ * Eclipse Public License v. 2.0 are satisfied: GNU General Public License,
+ * version 2 with the GNU Classpath Exception, which is available at
+ * https://www.gnu.org/software/classpath/license.html.
+ *
+ * SPDX-License-Identifier: EPL-2.0 OR GPL-2.0 WITH Classpath-exception-2.0
+ */
+
+
+package org.glassfish.grizzly.memory;
+
+import java.util.Queue;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.logging.Level;
+import java.util.logging.Logger;
+import org.glassfish.grizzly.Grizzly;
+
+/**
+ * The limit of memory, which could be held by the {@link org.glassfish.grizzly.Buffer}s
+ * allocated by a {@link MemoryManager}.
+ * 
+ * The budget doesn't fail allocations, it accounts the bytes held by the
+ * {@link org.glassfish.grizzly.Buffer}s, which were allocated, but not yet
+ * disposed. Once the number of used bytes reaches the limit - the budget is
+ * considered exhausted and the transports, using the {@link MemoryManager},
+ * stop reading data from their connections till enough memory is released.
+ * 
+ * Assigning each transport its own {@link MemoryManager} with a budget
+ * bounds the (direct) memory a single transport may consume. Please note,
+ * the accounting relies on the {@link org.glassfish.grizzly.Buffer}s being
+ * disposed, the memory of a buffer, which is garbage collected without
+ * being disposed, is never returned to the budget.
+ * 
+ * @see MemoryBudgetAware
+ * 
+ * @since 2.4.4
+ */
+public final class MemoryBudget {
+    private static final Logger LOGGER = Grizzly.logger(MemoryBudget.class);
+    
+    private final long limit;
+    
+    private final AtomicLong usedBytes = new AtomicLong();
+    private final AtomicLong exhaustedCount = new AtomicLong();
+    
+    // the tasks waiting for the budget to become available
+    private final Queue<Runnable> waiters = new ConcurrentLinkedQueue<Runnable>();
+
+    /**
+     * Constructs a <tt>MemoryBudget</tt> with the given limit.
+     * 
+     * @param limit the max number of bytes, which could be held by the
+     *      allocated buffers, before the budget is considered exhausted
+     */
+    public MemoryBudget(final long limit) {
+        if (limit <= 0) {
+            throw new IllegalArgumentException("limit must be greater than zero");
+        }
+        
+        this.limit = limit;
+    }
+
+    /**
+     * @return the max number of bytes, which could be held by the
+     *      allocated buffers, before the budget is considered exhausted
+     */
+    public long getLimit() {
+        return limit;
+    }
+
+    /**
+     * @return the number of bytes held by the allocated, but not yet disposed
+     *      buffers
+     */
+    public long getUsedBytes() {
+        return usedBytes.get();
+    }
+
+    /**
+     * @return <tt>true</tt>, if the number of used bytes has reached the limit
+     */
+    public boolean isExhausted() {
+        return usedBytes.get() >= limit;
+    }
+
+    /**
+     * @return the number of times a task had to wait for the budget to
+     *      become available, for example the number of paused reads
+     */
+    public long getExhaustedCount() {
+        return exhaustedCount.get();
+    }
+    
+    /**
+     * @return the number of tasks currently waiting for the budget to
+     *      become available
+     */
+    public int getWaitersCount() {
+        return waiters.size();
+    }
+
+    /**
+     * Registers the task to be run once the budget is not exhausted.
+     * The task is run by the thread, which releases the memory, or by the
+     * current thread, if the budget is not exhausted already, so it should
+     * be fast and non-blocking.
+     * 
+     * @param task the task to run
+     */
+    public void notifyAvailable(final Runnable task) {
+        waiters.offer(task);
+        
+        // recheck, the memory might have been released concurrently
+        if (!isExhausted()) {
+            runWaiters();
+        } else {
+            // count only the tasks, which actually have to wait
+            exhaustedCount.incrementAndGet();
+        }
+    }
+    
+    /**
+     * Accounts the memory held by an allocated buffer.
+     * 
+     * @param size the number of bytes
+     */
+    void reserve(final int size) {
+        usedBytes.addAndGet(size);
+    }
+
+    /**
+     * Returns the memory held by a disposed buffer back to the budget.
+     * 
+     * @param size the number of bytes
+     */
+    void release(final int size) {
+        if (usedBytes.addAndGet(-size) < limit && !waiters.isEmpty()) {
+            runWaiters();
+        }
+    }
+
+    private void runWaiters() {
+        Runnable task;
+        while (!isExhausted() && (task = waiters.poll()) != null) {
+            try {
+                task.run();
+            } catch (Exception e) {
+                LOGGER.log(Level.FINE, "Exception during running MemoryBudget task", e);
+            }
+        }
+    }
+
+    @Override
+    public String toString() {
+        return "MemoryBudget{" + "limit=" + limit
+                + ", usedBytes=" + usedBytes + '}';
+    }
+}
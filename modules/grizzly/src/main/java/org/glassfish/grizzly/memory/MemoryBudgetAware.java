@@ -0,0 +1,45 @@
+/*
+ * Copyright (c) 2017 Oracle and/or its affiliates. All rights reserved.
+ *
+ * This program and the accompanying materials are made available under the
+ * terms of the Eclipse Public License v. 2.0, which is available at
+ * http://www.eclipse.org/legal/epl-2.0.
+ *
+ * This Source Code may also be made available under the following Secondary
+ * Licenses when the conditions for such availability set forth in the
+ * Eclipse Public License v. 2.0 are satisfied: GNU General Public License,
+ * version 2 with the GNU Classpath Exception, which is available at
+ * https://www.gnu.org/software/classpath/license.html.
+ *
+ * SPDX-License-Identifier: EPL-2.0 OR GPL-2.0 WITH Classpath-exception-2.0
+ */
+
+
+package org.glassfish.grizzly.memory;
+
+/**
+ * {@link MemoryManager}s, which implement this interface, are able to account
+ * the memory held by the allocated {@link org.glassfish.grizzly.Buffer}s
+ * against a {@link MemoryBudget}.
+ *
+ * @see MemoryBudget
+ * 
+ * @since 2.4.4
+ */
+public interface MemoryBudgetAware {
+    /**
+     * @return the {@link MemoryBudget} the allocated buffers are accounted
+     *      against, or <tt>null</tt> if the memory is not limited
+     */
+    MemoryBudget getMemoryBudget();
+
+    /**
+     * Sets the {@link MemoryBudget} the allocated buffers are accounted
+     * against. The budget should be set before the {@link MemoryManager}
+     * is used.
+     *
+     * @param memoryBudget the {@link MemoryBudget}, or <tt>null</tt> if the
+     *      memory should not be limited
+     */
+    void setMemoryBudget(MemoryBudget memoryBudget);
+}
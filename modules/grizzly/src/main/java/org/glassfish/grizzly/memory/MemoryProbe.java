@@ -43,6 +43,38 @@ public interface MemoryProbe {
      */
     void onBufferReleaseToPoolEvent(int size);
 
+    /**
+     * Called by {@link MemoryManager}, when a new memory arena chunk gets allocated.
+     * The <tt>freeBytes</tt> value reports the arena fragmentation: the
+     * number of free bytes in the existing chunks, which couldn't serve the
+     * allocation, because there was no contiguous free region big enough.
+     *
+     * @param chunkSize chunk size
+     * @param freeBytes the number of free bytes in the arena's existing chunks
+     * 
+     * @since 2.4.4
+     */
+    void onArenaChunkAllocateEvent(int chunkSize, long freeBytes);
+
+    /**
+     * Called by {@link MemoryManager}, when an unused memory arena chunk gets released.
+     *
+     * @param chunkSize chunk size
+     * 
+     * @since 2.4.4
+     */
+    void onArenaChunkReleaseEvent(int chunkSize);
+
+    /**
+     * Called by {@link MemoryManager}, when a sampled {@link org.glassfish.grizzly.Buffer}
+     * was garbage collected without being disposed.
+     *
+     * @param size the size of the leaked buffer
+     * 
+     * @since 2.4.4
+     */
+    void onBufferLeakEvent(int size);
+
 
     // ---------------------------------------------------------- Nested Classes
 
@@ -76,5 +108,23 @@ public interface MemoryProbe {
         @Override
         public void onBufferReleaseToPoolEvent(int size) {}
 
+        /**
+         * {@inheritDoc}
+         */
+        @Override
+        public void onArenaChunkAllocateEvent(int chunkSize, long freeBytes) {}
+
+        /**
+         * {@inheritDoc}
+         */
+        @Override
+        public void onArenaChunkReleaseEvent(int chunkSize) {}
+
+        /**
+         * {@inheritDoc}
+         */
+        @Override
+        public void onBufferLeakEvent(int size) {}
+
     } // END Adapter
 }
@@ -19,9 +19,11 @@ package org.glassfish.grizzly.memory;
 
 import org.glassfish.grizzly.Buffer;
 
+import java.lang.ref.WeakReference;
 import java.nio.ByteBuffer;
 import java.nio.charset.Charset;
 import java.util.Arrays;
+import java.util.concurrent.ConcurrentLinkedQueue;
 import java.util.concurrent.ThreadLocalRandom;
 import java.util.concurrent.atomic.AtomicInteger;
 import java.util.concurrent.atomic.AtomicReferenceArray;
@@ -30,6 +32,7 @@ import java.util.concurrent.locks.LockSupport;
 import org.glassfish.grizzly.monitoring.DefaultMonitoringConfig;
 import org.glassfish.grizzly.monitoring.MonitoringConfig;
 import org.glassfish.grizzly.monitoring.MonitoringUtils;
+import org.glassfish.grizzly.threadpool.Threads;
 
 /**
  * A {@link MemoryManager} implementation based on a series of shared memory pools.
@@ -44,6 +47,8 @@ import org.glassfish.grizzly.monitoring.MonitoringUtils;
  *     <li>The percentage of the heap that this manager will use when populating the pools</li>
  *     <li>The percentage of buffers to be pre-allocated during MemoryManager initialization</li>
  *     <li>The flag indicating whether direct or heap based {@link Buffer}s will be allocated</li>
+ *     <li>The size of the thread-affine buffer cache (magazine), 0 disables the cache</li>
+ *     <li>The size of the memory arena chunk, used for buffers larger than the max pooled buffer size, 0 disables the arena</li>
  * </ul>
  *
  * If no explicit configuration is provided, the following defaults will be used:
@@ -55,15 +60,36 @@ import org.glassfish.grizzly.monitoring.MonitoringUtils;
  *     <li>Percentage of heap: 3% ({@link #DEFAULT_HEAP_USAGE_PERCENTAGE})</li>
  *     <li>Percentage of buffers to be pre-allocated: 100% ({@link #DEFAULT_PREALLOCATED_BUFFERS_PERCENTAGE})</li>
  *     <li>Heap based {@link Buffer}s will be allocated</li>
+ *     <li>Magazine size: 0, unless set via the <tt>org.glassfish.grizzly.memory.PooledMemoryManager.magazine-size</tt> system property ({@link #DEFAULT_MAGAZINE_SIZE})</li>
  * </ul>
  *
+ * When magazines are enabled, every thread allocating from a pool gets its
+ * own small stack of free buffers, which is refilled from and flushed to
+ * the thread's home {@link PoolSlice} in batches of half the magazine size.
+ * This way the allocate/release hot path doesn't touch the shared slice
+ * indexes, and recently released buffers are reused by the same thread
+ * while they are still in its CPU cache. Buffers cached in a magazine are
+ * not reported by the pool element counters. The magazines are owned by
+ * the pool, the threads reference them weakly, so a discarded manager is
+ * not retained by the threads, which used it, and the buffers cached by
+ * the threads, which have terminated, are returned to the slices.
+ *
+ * When the memory arena is enabled, allocations larger than the max pooled
+ * buffer size, but not larger than the arena chunk size, are served by
+ * contiguous buffers carved out of large arena chunks in multiples of the
+ * base buffer size, instead of {@link CompositeBuffer}s assembled from
+ * the max size pooled buffers. Unshared arena buffers could be split,
+ * shrunk and reallocated in place. The arena fragmentation is reported via
+ * {@link MemoryProbe#onArenaChunkAllocateEvent(int, long)}.
+ *
  * The main advantage of this manager over {@link org.glassfish.grizzly.memory.HeapMemoryManager} or
  * {@link org.glassfish.grizzly.memory.ByteBufferManager} is that this implementation doesn't use ThreadLocal pools
  * and as such, doesn't suffer from the memory fragmentation/reallocation cycle that can impact the ThreadLocal versions.
  *
  * @since 2.3.11
  */
-public class PooledMemoryManager implements MemoryManager<Buffer>, WrapperAware {
+public class PooledMemoryManager implements MemoryManager<Buffer>, WrapperAware,
+        MemoryBudgetAware {
 
     public static final int DEFAULT_BASE_BUFFER_SIZE = 4 * 1024;
     public static final int DEFAULT_NUMBER_OF_POOLS = 3;
@@ -77,6 +103,13 @@ public class PooledMemoryManager implements MemoryManager<Buffer>, WrapperAware
 
     private static final long BACK_OFF_DELAY = Long.getLong(
             PooledMemoryManager.class + ".back-off-delay", 0L);
+
+    public static final int DEFAULT_MAGAZINE_SIZE = Integer.getInteger(
+            PooledMemoryManager.class.getName() + ".magazine-size", 0);
+
+    public static final int DEFAULT_ARENA_CHUNK_SIZE = Integer.getInteger(
+            PooledMemoryManager.class.getName() + ".arena-chunk-size", 0);
+
     /**
      * Basic monitoring support.  Concrete implementations of this class need
      * only to implement the {@link #createJmxManagementObject()}  method
@@ -92,12 +125,25 @@ public class PooledMemoryManager implements MemoryManager<Buffer>, WrapperAware
 
             };
 
+    // samples the allocated buffers to report the ones, which weren't disposed
+    private final LeakDetector leakDetector = new LeakDetector(monitoringConfig);
+    
+    // the budget the allocated buffers are accounted against, may be null
+    private MemoryBudget memoryBudget;
+    
     // number of pools with different buffer sizes
     private final Pool[] pools;
 
     // the max buffer size pooled by this memory manager
     private final int maxPooledBufferSize;
 
+    // the memory arenas for the buffers larger than maxPooledBufferSize,
+    // null if disabled
+    private final MemoryArena[] arenas;
+    
+    // the max buffer size served by the memory arenas
+    private final int maxArenaBufferSize;
+
 
     // ------------------------------------------------------------ Constructors
 
@@ -158,6 +204,76 @@ public class PooledMemoryManager implements MemoryManager<Buffer>, WrapperAware
             final float percentOfHeap,
             final float percentPreallocated,
             final boolean isDirect) {
+        this(baseBufferSize,
+                numberOfPools,
+                growthFactor,
+                numberOfPoolSlices,
+                percentOfHeap,
+                percentPreallocated,
+                isDirect,
+                DEFAULT_MAGAZINE_SIZE,
+                DEFAULT_ARENA_CHUNK_SIZE);
+    }
+
+    /**
+     * Creates a new <code>PooledMemoryManager</code> using the specified parameters for configuration.
+     *
+     * @param baseBufferSize the base size of the buffer for the 1st pool, every next pool n will have buffer size equal to bufferSize(n-1) * 2^growthFactor
+     * @param numberOfPools the number of pools, responsible for allocation of buffers of a pool-specific size
+     * @param growthFactor the buffer size growth factor, that defines 2^x multiplier, used to calculate buffer size for next allocated pool
+     * @param numberOfPoolSlices the number of pool slices that every pool will stripe allocation requests across
+     * @param percentOfHeap percentage of the heap that will be used when populating the pools
+     * @param percentPreallocated percentage of buffers to be pre-allocated during MemoryManager initialization
+     * @param isDirect flag, indicating whether direct or heap based {@link Buffer}s will be allocated
+     * @param magazineSize the max number of free buffers every thread caches per pool, 0 disables the thread-affine cache
+     * 
+     * @since 2.4.4
+     */
+    public PooledMemoryManager(
+            final int baseBufferSize,
+            final int numberOfPools,
+            final int growthFactor,
+            final int numberOfPoolSlices,
+            final float percentOfHeap,
+            final float percentPreallocated,
+            final boolean isDirect,
+            final int magazineSize) {
+        this(baseBufferSize,
+                numberOfPools,
+                growthFactor,
+                numberOfPoolSlices,
+                percentOfHeap,
+                percentPreallocated,
+                isDirect,
+                magazineSize,
+                DEFAULT_ARENA_CHUNK_SIZE);
+    }
+
+    /**
+     * Creates a new <code>PooledMemoryManager</code> using the specified parameters for configuration.
+     *
+     * @param baseBufferSize the base size of the buffer for the 1st pool, every next pool n will have buffer size equal to bufferSize(n-1) * 2^growthFactor
+     * @param numberOfPools the number of pools, responsible for allocation of buffers of a pool-specific size
+     * @param growthFactor the buffer size growth factor, that defines 2^x multiplier, used to calculate buffer size for next allocated pool
+     * @param numberOfPoolSlices the number of pool slices that every pool will stripe allocation requests across
+     * @param percentOfHeap percentage of the heap that will be used when populating the pools
+     * @param percentPreallocated percentage of buffers to be pre-allocated during MemoryManager initialization
+     * @param isDirect flag, indicating whether direct or heap based {@link Buffer}s will be allocated
+     * @param magazineSize the max number of free buffers every thread caches per pool, 0 disables the thread-affine cache
+     * @param arenaChunkSize the memory arena chunk size, has to be a power of two greater than the max pooled buffer size, 0 disables the arena
+     * 
+     * @since 2.4.4
+     */
+    public PooledMemoryManager(
+            final int baseBufferSize,
+            final int numberOfPools,
+            final int growthFactor,
+            final int numberOfPoolSlices,
+            final float percentOfHeap,
+            final float percentPreallocated,
+            final boolean isDirect,
+            final int magazineSize,
+            final int arenaChunkSize) {
         if (baseBufferSize <= 0) {
             throw new IllegalArgumentException("baseBufferSize must be greater than zero");
         }
@@ -186,6 +302,10 @@ public class PooledMemoryManager implements MemoryManager<Buffer>, WrapperAware
             throw new IllegalArgumentException("percentPreallocated must be greater or equal to zero and less or equal to 1");
         }
 
+        if (magazineSize < 0) {
+            throw new IllegalArgumentException("magazineSize must be greater or equal to zero");
+        }
+
         final long heapSize = Runtime.getRuntime().maxMemory();
         final long memoryPerSubPool = (long) (heapSize * percentOfHeap / numberOfPools);
 
@@ -193,9 +313,29 @@ public class PooledMemoryManager implements MemoryManager<Buffer>, WrapperAware
         for (int i = 0, bufferSize = baseBufferSize; i < numberOfPools; i++, bufferSize <<= growthFactor) {
             pools[i] = new Pool(bufferSize, memoryPerSubPool,
                     numberOfPoolSlices, percentPreallocated, isDirect,
-                    monitoringConfig);
+                    magazineSize, monitoringConfig, leakDetector);
         }
         maxPooledBufferSize = pools[numberOfPools - 1].bufferSize;
+        
+        if (arenaChunkSize < 0) {
+            throw new IllegalArgumentException("arenaChunkSize must be greater or equal to zero");
+        }
+        
+        if (arenaChunkSize > 0) {
+            if (!isPowerOfTwo(arenaChunkSize) || arenaChunkSize <= maxPooledBufferSize) {
+                throw new IllegalArgumentException("arenaChunkSize must be a power of two greater than the max pooled buffer size");
+            }
+            
+            arenas = new MemoryArena[numberOfPoolSlices];
+            for (int i = 0; i < numberOfPoolSlices; i++) {
+                arenas[i] = new MemoryArena(baseBufferSize, arenaChunkSize,
+                        isDirect, monitoringConfig, leakDetector);
+            }
+        } else {
+            arenas = null;
+        }
+        
+        maxArenaBufferSize = arenaChunkSize;
     }
 
     
@@ -234,8 +374,12 @@ public class PooledMemoryManager implements MemoryManager<Buffer>, WrapperAware
             return Buffers.EMPTY_BUFFER;
         }
         
-        return size <= maxPooledBufferSize ?
-                getPoolFor(size).allocate() :
+        if (size <= maxPooledBufferSize) {
+            return getPoolFor(size).allocate();
+        }
+        
+        return size <= maxArenaBufferSize ?
+                getArena().allocate(size) :
                 allocateToCompositeBuffer(newCompositeBuffer(), size);
     }
 
@@ -290,6 +434,14 @@ public class PooledMemoryManager implements MemoryManager<Buffer>, WrapperAware
                     oldBuffer.tryDispose();
                     
                     return newPoolBuffer;
+                } else if (newSize <= maxArenaBufferSize) {
+                    final Buffer newArenaBuffer = getArena().allocate(newSize);
+                    newArenaBuffer.put(oldBuffer);
+                    Buffers.setPositionLimit(newArenaBuffer, pos, newSize);
+                    
+                    oldBuffer.tryDispose();
+                    
+                    return newArenaBuffer;
                 } else {
                     final CompositeBuffer cb = newCompositeBuffer();
                     cb.append(oldBuffer);
@@ -298,6 +450,9 @@ public class PooledMemoryManager implements MemoryManager<Buffer>, WrapperAware
                     return cb;
                 }
             }
+        } else if (oldBuffer instanceof MemoryArena.ArenaBuffer) {
+            return reallocateArenaBuffer((MemoryArena.ArenaBuffer) oldBuffer,
+                    newSize);
         } else {
             assert oldBuffer.isComposite();
             final CompositeBuffer oldCompositeBuffer = (CompositeBuffer) oldBuffer;
@@ -340,6 +495,66 @@ public class PooledMemoryManager implements MemoryManager<Buffer>, WrapperAware
     }
 
 
+    /**
+     * Returns the leak detection sampling interval: every N-th allocated
+     * {@link Buffer} on average is tracked, and reported via
+     * {@link MemoryProbe#onBufferLeakEvent(int)} if it was garbage collected
+     * without being disposed. 0 means the leak detection is disabled.
+     * 
+     * @return the leak detection sampling interval
+     * @since 2.4.4
+     */
+    public int getLeakDetectionInterval() {
+        return leakDetector.getSamplingInterval();
+    }
+
+    /**
+     * Sets the leak detection sampling interval: every N-th allocated
+     * {@link Buffer} on average is tracked, and reported via
+     * {@link MemoryProbe#onBufferLeakEvent(int)} if it was garbage collected
+     * without being disposed. 1 means every buffer is tracked, 0 disables
+     * the leak detection.
+     * 
+     * @param leakDetectionInterval the leak detection sampling interval
+     * @since 2.4.4
+     */
+    public void setLeakDetectionInterval(final int leakDetectionInterval) {
+        leakDetector.setSamplingInterval(leakDetectionInterval);
+    }
+
+
+    // ------------------------------------------ Methods from MemoryBudgetAware
+
+
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    public MemoryBudget getMemoryBudget() {
+        return memoryBudget;
+    }
+
+    /**
+     * {@inheritDoc}
+     * 
+     * The pooled and arena buffers are accounted by their full capacity.
+     */
+    @Override
+    public void setMemoryBudget(final MemoryBudget memoryBudget) {
+        this.memoryBudget = memoryBudget;
+        
+        for (Pool pool : pools) {
+            pool.memoryBudget = memoryBudget;
+        }
+        
+        if (arenas != null) {
+            for (MemoryArena arena : arenas) {
+                arena.memoryBudget = memoryBudget;
+            }
+        }
+    }
+
+
     // ----------------------------------------------- Methods from WrapperAware
 
 
@@ -383,10 +598,64 @@ public class PooledMemoryManager implements MemoryManager<Buffer>, WrapperAware
     Pool[] getPools() {
         return Arrays.copyOf(pools, pools.length);
     }
+
+    MemoryArena[] getArenas() {
+        return arenas != null ? Arrays.copyOf(arenas, arenas.length) : null;
+    }
     
     // --------------------------------------------------------- Private Methods
 
 
+    private MemoryArena getArena() {
+        return arenas[ThreadLocalRandom.current().nextInt(arenas.length)];
+    }
+
+    private Buffer reallocateArenaBuffer(final MemoryArena.ArenaBuffer oldBuffer,
+            final int newSize) {
+        final int curBufSize = oldBuffer.capacity();
+        final int pos = oldBuffer.position();
+        
+        if (newSize <= maxPooledBufferSize) {
+            final Buffer newPoolBuffer = getPoolFor(newSize).allocate();
+            Buffers.setPositionLimit(oldBuffer, 0, Math.min(curBufSize, newSize));
+            newPoolBuffer.put(oldBuffer);
+            Buffers.setPositionLimit(newPoolBuffer, Math.min(pos, newSize), newSize);
+            
+            oldBuffer.tryDispose();
+            
+            return newPoolBuffer;
+        }
+
+        if (curBufSize >= newSize) {
+            // release the unused pages, if possible
+            oldBuffer.truncate(newSize);
+            Buffers.setPositionLimit(oldBuffer, Math.min(pos, newSize), newSize);
+            return oldBuffer;
+        }
+        
+        if (newSize <= maxArenaBufferSize) {
+            if (oldBuffer.extend(newSize)) {
+                return oldBuffer.limit(newSize);
+            }
+            
+            final Buffer newArenaBuffer = getArena().allocate(newSize);
+            Buffers.setPositionLimit(oldBuffer, 0, curBufSize);
+            newArenaBuffer.put(oldBuffer);
+            Buffers.setPositionLimit(newArenaBuffer, pos, newSize);
+            
+            oldBuffer.tryDispose();
+            
+            return newArenaBuffer;
+        }
+        
+        Buffers.setPositionLimit(oldBuffer, 0, curBufSize);
+        final CompositeBuffer cb = newCompositeBuffer();
+        cb.append(oldBuffer);
+        allocateToCompositeBuffer(cb, newSize - curBufSize);
+        Buffers.setPositionLimit(cb, pos, newSize);
+        return cb;
+    }
+    
     private Pool getPoolFor(final int size) {
         for (int i = 0; i < pools.length; i++) {
             final Pool pool = pools[i];
@@ -463,12 +732,32 @@ public class PooledMemoryManager implements MemoryManager<Buffer>, WrapperAware
     static final class Pool {
         private final PoolSlice[] slices;
         private final int bufferSize;
+        
+        // per-thread buffer caches, null if magazines are disabled.
+        // The thread local value must not reference the pool, otherwise
+        // the value would keep the thread local key reachable, so the
+        // magazines are referenced weakly and held by the allMagazines
+        private final ThreadLocal<WeakReference<Magazine>> magazines;
+        private final ConcurrentLinkedQueue<Magazine> allMagazines;
+        private final int magazineSize;
+        
+        // used to assign home slices to magazines in round-robin manner
+        private final AtomicInteger magazinesCounter = new AtomicInteger();
+
+        private final DefaultMonitoringConfig<MemoryProbe> monitoringConfig;
+        private final LeakDetector leakDetector;
+        
+        // the budget the allocated buffers are accounted against, may be null
+        MemoryBudget memoryBudget;
 
         public Pool(final int bufferSize, final long memoryPerSubPool,
                 final int numberOfPoolSlices, final float percentPreallocated,
-                final boolean isDirect,
-                final DefaultMonitoringConfig<MemoryProbe> monitoringConfig) {
+                final boolean isDirect, final int magazineSize,
+                final DefaultMonitoringConfig<MemoryProbe> monitoringConfig,
+                final LeakDetector leakDetector) {
             this.bufferSize = bufferSize;
+            this.monitoringConfig = monitoringConfig;
+            this.leakDetector = leakDetector;
             slices = new PoolSlice[numberOfPoolSlices];
             final long memoryPerSlice = memoryPerSubPool / numberOfPoolSlices;
             
@@ -476,6 +765,15 @@ public class PooledMemoryManager implements MemoryManager<Buffer>, WrapperAware
                 slices[i] = new PoolSlice(this, memoryPerSlice, bufferSize,
                         percentPreallocated, isDirect, monitoringConfig);
             }
+            
+            this.magazineSize = magazineSize;
+            if (magazineSize > 0) {
+                magazines = new ThreadLocal<>();
+                allMagazines = new ConcurrentLinkedQueue<>();
+            } else {
+                magazines = null;
+                allMagazines = null;
+            }
         }
 
         public int elementsCount() {
@@ -500,13 +798,23 @@ public class PooledMemoryManager implements MemoryManager<Buffer>, WrapperAware
         }
         
         public Buffer allocate() {
-            final PoolSlice slice = getSlice();
-            PoolBuffer b = slice.poll();
-            if (b == null) {
-                b = slice.allocate();
+            PoolBuffer b;
+            final Magazine magazine = magazine();
+            if (magazine != null) {
+                b = magazine.allocate();
+            } else {
+                final PoolSlice slice = getSlice();
+                b = slice.poll();
+                if (b == null) {
+                    b = slice.allocate();
+                }
+            }
+            
+            if (memoryBudget != null) {
+                memoryBudget.reserve(bufferSize);
             }
             
-            return b.prepare();
+            return b.prepare().track(leakDetector.track(b, bufferSize));
         }
 
         @Override
@@ -529,12 +837,220 @@ public class PooledMemoryManager implements MemoryManager<Buffer>, WrapperAware
             return sb.toString();
         }
         
+        /**
+         * Returns the free {@link PoolBuffer} to the current thread's
+         * {@link Magazine}, or straight to its {@link PoolSlice} if magazines
+         * are disabled.
+         */
+        void release(final PoolBuffer b) {
+            if (memoryBudget != null) {
+                memoryBudget.release(bufferSize);
+            }
+            
+            final Magazine magazine = magazine();
+            if (magazine != null) {
+                magazine.release(b);
+            } else {
+                b.owner().offer(b);
+            }
+        }
+
+        /**
+         * Returns the current thread's {@link Magazine}, or <tt>null</tt> if
+         * magazines are disabled or the current thread is virtual.
+         * Virtual threads are not reused, so the buffers cached in their
+         * magazines would never return to the pool.
+         */
+        private Magazine magazine() {
+            if (magazines == null) {
+                return null;
+            }
+            
+            final Thread thread = Thread.currentThread();
+            if (Threads.isVirtual(thread)) {
+                return null;
+            }
+            
+            final WeakReference<Magazine> ref = magazines.get();
+            Magazine magazine = ref != null ? ref.get() : null;
+            if (magazine == null) {
+                // a new thread might replace a terminated one, so it's
+                // a good time to reclaim the terminated threads' buffers
+                reclaimMagazines();
+                
+                final int homeIdx = (magazinesCounter.getAndIncrement()
+                        & Integer.MAX_VALUE) % slices.length;
+                magazine = new Magazine(this, magazineSize, homeIdx, thread);
+                allMagazines.offer(magazine);
+                magazines.set(new WeakReference<>(magazine));
+            }
+            
+            return magazine;
+        }
+
+        /**
+         * Returns the buffers cached in the magazines of the terminated
+         * threads to their slices and forgets the magazines.
+         *
+         * @return <tt>true</tt> if at least one magazine has been reclaimed
+         */
+        boolean reclaimMagazines() {
+            if (allMagazines == null) {
+                return false;
+            }
+            
+            boolean isReclaimed = false;
+            for (Magazine magazine : allMagazines) {
+                // the thread termination happens-before isAlive() returns
+                // false, only the thread, which removed the magazine, drains it
+                if (!magazine.isOwnerAlive() && allMagazines.remove(magazine)) {
+                    magazine.drain();
+                    isReclaimed = true;
+                }
+            }
+            
+            return isReclaimed;
+        }
+
+        /**
+         * Polls a free buffer from the slices other than the home slice,
+         * starting from the one next to the home slice.
+         */
+        private PoolBuffer pollOtherSlices(final int homeIdx) {
+            for (int i = 1; i < slices.length; i++) {
+                final PoolBuffer b = slices[(homeIdx + i) % slices.length].poll0();
+                if (b != null) {
+                    return b;
+                }
+            }
+            
+            return null;
+        }
+
         @SuppressWarnings("unchecked")
         private PoolSlice getSlice() {
             return slices[ThreadLocalRandom.current().nextInt(slices.length)];
         }
     }
 
+    /*
+     * Thread-affine stack of free buffers. A Magazine is only accessed by
+     * its owner thread, so no synchronization is needed, until the thread
+     * terminates and the pool reclaims the buffers. When the magazine
+     * is empty it's refilled with a batch of buffers from its home slice,
+     * when it's full - the older half of the buffers is flushed back to the
+     * slices they came from.
+     */
+    static final class Magazine {
+        private final Pool owner;
+        private final int homeIdx;
+        private final PoolSlice home;
+        private final WeakReference<Thread> ownerThread;
+        private final PoolBuffer[] buffers;
+        private final int batchSize;
+        private int size;
+
+        Magazine(final Pool owner, final int capacity, final int homeIdx,
+                final Thread ownerThread) {
+            this.owner = owner;
+            this.homeIdx = homeIdx;
+            this.home = owner.slices[homeIdx];
+            this.ownerThread = new WeakReference<>(ownerThread);
+            buffers = new PoolBuffer[capacity];
+            batchSize = Math.max(1, capacity >> 1);
+        }
+
+        PoolBuffer allocate() {
+            if (size == 0) {
+                refill();
+                
+                if (size == 0) {
+                    // the home slice is exhausted - try the other slices
+                    // and the buffers cached by the terminated threads,
+                    // before allocating a buffer outside the pool
+                    PoolBuffer b = owner.pollOtherSlices(homeIdx);
+                    if (b == null && owner.reclaimMagazines()) {
+                        b = owner.pollOtherSlices(homeIdx);
+                        if (b == null) {
+                            b = home.poll0();
+                        }
+                    }
+                    
+                    if (b == null) {
+                        return home.allocate();
+                    }
+                    
+                    ProbeNotifier.notifyBufferAllocatedFromPool(
+                            owner.monitoringConfig, owner.bufferSize);
+                    return b;
+                }
+            }
+            
+            final PoolBuffer b = buffers[--size];
+            buffers[size] = null;
+            ProbeNotifier.notifyBufferAllocatedFromPool(owner.monitoringConfig,
+                    owner.bufferSize);
+            
+            return b;
+        }
+
+        void release(final PoolBuffer b) {
+            if (size == buffers.length) {
+                flush();
+            }
+            
+            buffers[size++] = b;
+            ProbeNotifier.notifyBufferReleasedToPool(owner.monitoringConfig,
+                    owner.bufferSize);
+        }
+
+        int size() {
+            return size;
+        }
+
+        PoolSlice home() {
+            return home;
+        }
+
+        boolean isOwnerAlive() {
+            final Thread thread = ownerThread.get();
+            return thread != null && thread.isAlive();
+        }
+
+        /*
+         * Returns all the cached buffers to the slices they came from.
+         */
+        void drain() {
+            for (int i = 0; i < size; i++) {
+                // if the slice is full - let the buffer be garbage collected
+                buffers[i].owner().offer0(buffers[i]);
+                buffers[i] = null;
+            }
+            
+            size = 0;
+        }
+        
+        private void refill() {
+            PoolBuffer b;
+            while (size < batchSize && (b = home.poll0()) != null) {
+                buffers[size++] = b;
+            }
+        }
+
+        private void flush() {
+            // the buffers at the bottom of the stack are the coldest ones
+            for (int i = 0; i < batchSize; i++) {
+                final PoolBuffer b = buffers[i];
+                // if the slice is full - let the buffer be garbage collected
+                b.owner().offer0(b);
+            }
+            
+            size -= batchSize;
+            System.arraycopy(buffers, batchSize, buffers, 0, size);
+            Arrays.fill(buffers, size, size + batchSize, null);
+        }
+    }
+
     /*
      *   This array backed by this pool can only support
      *   2^30-1 elements instead of the usual 2^32-1.
@@ -640,6 +1156,29 @@ public class PooledMemoryManager implements MemoryManager<Buffer>, WrapperAware
 
 
         public final PoolBuffer poll() {
+            final PoolBuffer pb = poll0();
+            if (pb != null) {
+                ProbeNotifier.notifyBufferAllocatedFromPool(monitoringConfig,
+                                                            bufferSize);
+            }
+            
+            return pb;
+        }
+
+        public final boolean offer(final PoolBuffer b) {
+            if (offer0(b)) {
+                ProbeNotifier.notifyBufferReleasedToPool(monitoringConfig,
+                                                         bufferSize);
+                return true;
+            }
+            
+            return false;
+        }
+
+        /*
+         * poll() without probe notification.
+         */
+        final PoolBuffer poll0() {
             int pollIdx;
             for (;;) {
                 pollIdx = this.pollIdx.get();
@@ -664,8 +1203,6 @@ public class PooledMemoryManager implements MemoryManager<Buffer>, WrapperAware
                 // unmask the current read value to the actual array index.
                 final PoolBuffer pb = pool.getAndSet(unmaskedPollIdx, null);
                 if (pb != null) {
-                    ProbeNotifier.notifyBufferAllocatedFromPool(monitoringConfig,
-                                                                bufferSize);
                     return pb;
                 }
                 
@@ -674,7 +1211,10 @@ public class PooledMemoryManager implements MemoryManager<Buffer>, WrapperAware
             }
         }
 
-        public final boolean offer(final PoolBuffer b) {
+        /*
+         * offer(PoolBuffer) without probe notification.
+         */
+        final boolean offer0(final PoolBuffer b) {
             int offerIdx;
             for (;;) {
                 offerIdx = this.offerIdx.get();
@@ -697,9 +1237,6 @@ public class PooledMemoryManager implements MemoryManager<Buffer>, WrapperAware
             for (;;) {
                 // unmask the current write value to the actual array index.
                 if (pool.compareAndSet(unmaskedOfferIdx, null, b)) {
-                    ProbeNotifier.notifyBufferReleasedToPool(monitoringConfig,
-                                                             bufferSize);
-
                     return true;
                 }
                 // give poll at this index time to complete...
@@ -881,6 +1418,7 @@ public class PooledMemoryManager implements MemoryManager<Buffer>, WrapperAware
         PoolBuffer prepare();
         boolean free();
         PoolBuffer free(boolean free);
+        PoolBuffer track(LeakDetector.LeakTracker leakTracker);
 
         PoolSlice owner();
     }
@@ -904,6 +1442,9 @@ public class PooledMemoryManager implements MemoryManager<Buffer>, WrapperAware
         // non-null in any 'child' buffers created from the original.
         protected final PoolHeapBuffer source;
 
+        // not null, if the source buffer is sampled by the LeakDetector
+        private LeakDetector.LeakTracker leakTracker;
+
         
         // ------------------------------------------------------------ Constructors
 
@@ -977,6 +1518,12 @@ public class PooledMemoryManager implements MemoryManager<Buffer>, WrapperAware
             this.free = free;
             return this;
         }
+
+        @Override
+        public PoolBuffer track(final LeakDetector.LeakTracker leakTracker) {
+            this.leakTracker = leakTracker;
+            return this;
+        }
         
         // ------------------------------------------ Methods from HeapBuffer
 
@@ -1046,17 +1593,20 @@ public class PooledMemoryManager implements MemoryManager<Buffer>, WrapperAware
             if (isNotShared) {
                 // we can now safely return source back to the queue
                 source.returnToPool();
+            } else {
+                touch();
             }
         }
 
 
         private void returnToPool() {
+            closeLeakTracker();
             // restore capacity
             cap = heap.length;
             // clear
             clear();
             
-            owner.offer(this);
+            owner.owner.release(this);
         }
         
         // ----------------------------------------------------- Protected Methods
@@ -1102,6 +1652,21 @@ public class PooledMemoryManager implements MemoryManager<Buffer>, WrapperAware
             super.onShareHeap();
             
             shareCount.incrementAndGet();
+            touch();
+        }
+
+        private void touch() {
+            final LeakDetector.LeakTracker tracker = source.leakTracker;
+            if (tracker != null) {
+                tracker.touch();
+            }
+        }
+
+        private void closeLeakTracker() {
+            if (leakTracker != null) {
+                leakTracker.close();
+                leakTracker = null;
+            }
         }
     } // END PoolBuffer
 
@@ -1125,6 +1690,9 @@ public class PooledMemoryManager implements MemoryManager<Buffer>, WrapperAware
         // non-null in any 'child' buffers created from the original.
         protected final PoolByteBufferWrapper source;
 
+        // not null, if the source buffer is sampled by the LeakDetector
+        private LeakDetector.LeakTracker leakTracker;
+
         // Used for the special case of the split() method.  This maintains
         // the original wrapper from the pool which must ultimately be returned.
         private final ByteBuffer origVisible;
@@ -1203,6 +1771,12 @@ public class PooledMemoryManager implements MemoryManager<Buffer>, WrapperAware
             this.free = free;
             return this;
         }
+
+        @Override
+        public PoolBuffer track(final LeakDetector.LeakTracker leakTracker) {
+            this.leakTracker = leakTracker;
+            return this;
+        }
         
         // ------------------------------------------ Methods from ByteBufferWrapper
         
@@ -1232,6 +1806,8 @@ public class PooledMemoryManager implements MemoryManager<Buffer>, WrapperAware
             if (isNotShared) {
                 // we can now safely return source back to the queue
                 source.returnToPool();
+            } else {
+                touch();
             }
         }
         
@@ -1247,6 +1823,7 @@ public class PooledMemoryManager implements MemoryManager<Buffer>, WrapperAware
                             shareCount); // pass the shareCount
             b.allowBufferDispose(true);
             shareCount.incrementAndGet();
+            touch();
 
             return b;
         }
@@ -1270,9 +1847,24 @@ public class PooledMemoryManager implements MemoryManager<Buffer>, WrapperAware
         
         private void returnToPool() {
             // should be called on "source" only
+            closeLeakTracker();
             visible = origVisible;
             visible.clear();
-            owner.offer(this);
+            owner.owner.release(this);
+        }
+
+        private void touch() {
+            final LeakDetector.LeakTracker tracker = source.leakTracker;
+            if (tracker != null) {
+                tracker.touch();
+            }
+        }
+
+        private void closeLeakTracker() {
+            if (leakTracker != null) {
+                leakTracker.close();
+                leakTracker = null;
+            }
         }
     } // END PoolBuffer    
 }
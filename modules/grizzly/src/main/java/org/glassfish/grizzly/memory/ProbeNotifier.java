@@ -77,4 +77,55 @@ final class ProbeNotifier {
         }
     }
 
+    /**
+     * Notify registered {@link MemoryProbe}s about the "arena chunk allocated" event.
+     *
+     * @param chunkSize chunk size
+     * @param freeBytes the number of free, but fragmented, bytes in the arena
+     */
+    static void notifyArenaChunkAllocated(
+            final DefaultMonitoringConfig<MemoryProbe> config,
+            final int chunkSize, final long freeBytes) {
+
+        final MemoryProbe[] probes = config.getProbesUnsafe();
+        if (probes != null) {
+            for (MemoryProbe probe : probes) {
+                probe.onArenaChunkAllocateEvent(chunkSize, freeBytes);
+            }
+        }
+    }
+
+    /**
+     * Notify registered {@link MemoryProbe}s about the "arena chunk released" event.
+     *
+     * @param chunkSize chunk size
+     */
+    static void notifyArenaChunkReleased(
+            final DefaultMonitoringConfig<MemoryProbe> config,
+            final int chunkSize) {
+
+        final MemoryProbe[] probes = config.getProbesUnsafe();
+        if (probes != null) {
+            for (MemoryProbe probe : probes) {
+                probe.onArenaChunkReleaseEvent(chunkSize);
+            }
+        }
+    }
+
+    /**
+     * Notify registered {@link MemoryProbe}s about the "buffer leaked" event.
+     *
+     * @param size the leaked buffer size
+     */
+    static void notifyBufferLeaked(
+            final DefaultMonitoringConfig<MemoryProbe> config,
+            final int size) {
+
+        final MemoryProbe[] probes = config.getProbesUnsafe();
+        if (probes != null) {
+            for (MemoryProbe probe : probes) {
+                probe.onBufferLeakEvent(size);
+            }
+        }
+    }
 }
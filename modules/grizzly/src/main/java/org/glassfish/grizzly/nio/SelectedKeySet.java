@@ -0,0 +1,182 @@
+/*
+ * Copyright (c) 2017 Oracle and/or its affiliates. All rights reserved.
+ *
+ * This program and the accompanying materials are made available under the
+ * terms of the Eclipse Public License v. 2.0, which is available at
+ * http://www.eclipse.org/legal/epl-2.0.
+ *
+ * This Source Code may also be made available under the following Secondary
+ * Licenses when the conditions for such availability set forth in the
+ * Eclipse Public License v. 2.0 are satisfied: GNU General Public License,
+ * version 2 with the GNU Classpath Exception, which is available at
+ * https://www.gnu.org/software/classpath/license.html.
+ *
+ * SPDX-License-Identifier: EPL-2.0 OR GPL-2.0 WITH Classpath-exception-2.0
+ */
+
+
+package org.glassfish.grizzly.nio;
+
+import java.lang.reflect.Field;
+import java.nio.channels.SelectionKey;
+import java.nio.channels.Selector;
+import java.util.AbstractSet;
+import java.util.Arrays;
+import java.util.Iterator;
+import java.util.NoSuchElementException;
+import java.util.logging.Level;
+import java.util.logging.Logger;
+import org.glassfish.grizzly.Grizzly;
+
+/**
+ * Array-backed selected {@link SelectionKey} set, which replaces the JDK
+ * {@link Selector}'s internal <tt>HashSet</tt>, so the {@link SelectorRunner}
+ * can process ready keys by index without hashing or allocating an
+ * {@link Iterator} on every select cycle.
+ * 
+ * The set is meant to be drained by the selector thread after each
+ * <tt>select(..)</tt>, so it doesn't track duplicates: {@link #contains(java.lang.Object)}
+ * always returns <tt>false</tt>.
+ * 
+ * The optimization is disabled by default and could be enabled using
+ * <tt>org.glassfish.grizzly.nio.SelectorRunner.optimize-selected-keys</tt>
+ * system property. On JDK 9+ it also requires
+ * <tt>--add-opens java.base/sun.nio.ch=ALL-UNNAMED</tt>, otherwise the
+ * {@link SelectorRunner} falls back to the regular selected key set.
+ */
+final class SelectedKeySet extends AbstractSet<SelectionKey> {
+    private static final Logger LOGGER = Grizzly.logger(SelectedKeySet.class);
+
+    static final boolean IS_ENABLED = Boolean.getBoolean(
+            SelectorRunner.class.getName() + ".optimize-selected-keys");
+
+    private static final int DEFAULT_CAPACITY = 1024;
+    
+    private static volatile boolean isWarned;
+    
+    SelectionKey[] keys;
+    int size;
+
+    SelectedKeySet() {
+        keys = new SelectionKey[DEFAULT_CAPACITY];
+    }
+
+    /**
+     * Replaces the passed {@link Selector}'s selected key set with a new
+     * {@link SelectedKeySet}.
+     * 
+     * @param selector {@link Selector}
+     * @return <tt>true</tt> if the selected key set has been replaced, or
+     *      <tt>false</tt> if the {@link Selector} implementation doesn't
+     *      permit that
+     */
+    static boolean install(final Selector selector) {
+        try {
+            final Class<?> selectorImplClass = Class.forName("sun.nio.ch.SelectorImpl",
+                    false, ClassLoader.getSystemClassLoader());
+            if (!selectorImplClass.isInstance(selector)) {
+                return false;
+            }
+
+            final Field selectedKeysField =
+                    selectorImplClass.getDeclaredField("selectedKeys");
+            final Field publicSelectedKeysField =
+                    selectorImplClass.getDeclaredField("publicSelectedKeys");
+            selectedKeysField.setAccessible(true);
+            publicSelectedKeysField.setAccessible(true);
+
+            final SelectedKeySet selectedKeySet = new SelectedKeySet();
+            selectedKeysField.set(selector, selectedKeySet);
+            publicSelectedKeysField.set(selector, selectedKeySet);
+            
+            return true;
+        } catch (Exception e) {
+            // InaccessibleObjectException on JDK 9+ is a RuntimeException
+            if (!isWarned) {
+                isWarned = true;
+                LOGGER.log(Level.WARNING,
+                        "Can not replace the Selector's selected key set, "
+                        + "the default one will be used", e);
+            }
+            
+            return false;
+        }
+    }
+
+    @Override
+    public boolean add(final SelectionKey key) {
+        if (key == null) {
+            return false;
+        }
+
+        if (size == keys.length) {
+            keys = Arrays.copyOf(keys, size << 1);
+        }
+        
+        keys[size++] = key;
+        return true;
+    }
+
+    @Override
+    public boolean remove(final Object o) {
+        for (int i = 0; i < size; i++) {
+            if (keys[i] == o) {
+                removeAt(i);
+                return true;
+            }
+        }
+        
+        return false;
+    }
+
+    @Override
+    public boolean contains(final Object o) {
+        return false;
+    }
+
+    @Override
+    public int size() {
+        return size;
+    }
+
+    @Override
+    public void clear() {
+        Arrays.fill(keys, 0, size, null);
+        size = 0;
+    }
+
+    @Override
+    public Iterator<SelectionKey> iterator() {
+        return new Iterator<SelectionKey>() {
+            private int idx;
+
+            @Override
+            public boolean hasNext() {
+                return idx < size;
+            }
+
+            @Override
+            public SelectionKey next() {
+                if (!hasNext()) {
+                    throw new NoSuchElementException();
+                }
+                
+                return keys[idx++];
+            }
+
+            @Override
+            public void remove() {
+                if (idx == 0) {
+                    throw new IllegalStateException();
+                }
+                
+                removeAt(--idx);
+            }
+        };
+    }
+
+    private void removeAt(final int idx) {
+        System.arraycopy(keys, idx + 1, keys, idx, size - idx - 1);
+        keys[--size] = null;
+    }
+}
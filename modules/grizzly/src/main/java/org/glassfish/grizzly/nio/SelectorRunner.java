@@ -73,17 +73,31 @@ public final class SelectorRunner implements Runnable {
 
     private int lastSelectedKeysCount;
     private Set<SelectionKey> readyKeySet;
+    // null, if readyKeySet is a SelectedKeySet, which is iterated by index
     private Iterator<SelectionKey> iterator;
+    private int readyKeyIdx;
     private SelectionKey key = null;
     private int keyReadyOps;
 
+    // true, if the Selector is going to be woken up, or the runner thread
+    // is not blocked in select(..) - so another wakeup is not required
     private final AtomicBoolean selectorWakeupFlag = new AtomicBoolean();
     private final AtomicInteger runnerThreadActivityCounter = new AtomicInteger();
 
     public static SelectorRunner create(final NIOTransport transport)
             throws IOException {
-        return new SelectorRunner(transport,
-                Selectors.newSelector(transport.getSelectorProvider()));
+        return new SelectorRunner(transport, openSelector(transport));
+    }
+
+    private static Selector openSelector(final NIOTransport transport)
+            throws IOException {
+        final Selector selector =
+                Selectors.newSelector(transport.getSelectorProvider());
+        if (SelectedKeySet.IS_ENABLED) {
+            SelectedKeySet.install(selector);
+        }
+        
+        return selector;
     }
     
     volatile boolean hasPendingTasks;
@@ -312,15 +326,33 @@ public final class SelectorRunner implements Runnable {
                 return false;
             }
 
-            readyKeySet = selectorHandler.select(this);
+            // the runner might block in select(..) from now on, so let other
+            // threads wake it up
             selectorWakeupFlag.set(false);
+            if (hasPendingTasks || isStop()) {
+                // the task (or stop request) came after preSelect(..) had
+                // processed the queue, but before the flag was reset
+                wakeupSelector();
+            }
+            
+            readyKeySet = selectorHandler.select(this);
+            
+            // the runner is awake and will process pending tasks before
+            // the next select(..), so there is no need for Selector.wakeup()
+            // syscalls till then
+            selectorWakeupFlag.set(true);
 
             if (stateHolder.get() == State.STOPPING) return true;
             
             lastSelectedKeysCount = readyKeySet.size();
             
             if (lastSelectedKeysCount != 0) {
-                iterator = readyKeySet.iterator();
+                if (readyKeySet instanceof SelectedKeySet) {
+                    readyKeyIdx = 0;
+                } else {
+                    iterator = readyKeySet.iterator();
+                }
+                
                 if (!iterateKeys()) return false;
                 readyKeySet.clear();
             }
@@ -352,7 +384,10 @@ public final class SelectorRunner implements Runnable {
 
     private boolean iterateKeys() {
         final Iterator<SelectionKey> it = iterator;
-
+        if (it == null) {
+            return iterateKeysByIndex((SelectedKeySet) readyKeySet);
+        }
+        
         while (it.hasNext()) {
             try {
                 key = it.next();
@@ -371,6 +406,28 @@ public final class SelectorRunner implements Runnable {
         return true;
     }
 
+    /**
+     * Allocation-free version of {@link #iterateKeys()} for
+     * the {@link SelectedKeySet}.
+     */
+    private boolean iterateKeysByIndex(final SelectedKeySet keySet) {
+        while (readyKeyIdx < keySet.size) {
+            try {
+                key = keySet.keys[readyKeyIdx++];
+                keyReadyOps = key.readyOps();
+                if (!iterateKeyEvents()) {
+                    return false;
+                }
+            } catch (IOException e) {
+                keyReadyOps = 0;
+                dropConnectionDueToException(key, "Unexpected IOException. Channel " + key.channel() + " will be closed.", e, Level.WARNING, Level.FINE);
+            } catch (CancelledKeyException e) {
+                keyReadyOps = 0;
+                dropConnectionDueToException(key, "Unexpected CancelledKeyException. Channel " + key.channel() + " will be closed.", e, Level.FINE, Level.FINE);
+            }
+        }
+        return true;
+    }
 
     private boolean iterateKeyEvents()
             throws IOException {
@@ -476,7 +533,7 @@ public final class SelectorRunner implements Runnable {
 
     protected final void switchToNewSelector() throws IOException {
         final Selector oldSelector = selector;
-        final Selector newSelector = Selectors.newSelector(transport.getSelectorProvider());
+        final Selector newSelector = openSelector(transport);
 
         final Set<SelectionKey> keys = oldSelector.keys();
         final SelectionKeyHandler selectionKeyHandler =
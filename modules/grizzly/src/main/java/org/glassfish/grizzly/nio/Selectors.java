@@ -50,4 +50,22 @@ public final class Selectors {
             throw new IOException("Can not open Selector due to NPE");
         }
     }
+
+    /**
+     * Replaces the {@link Selector}'s selected key set with the array-backed
+     * one, which is used by the {@link SelectorRunner} when
+     * <tt>org.glassfish.grizzly.nio.SelectorRunner.optimize-selected-keys</tt>
+     * is set. On JDK 9+ it requires
+     * <tt>--add-opens java.base/sun.nio.ch=ALL-UNNAMED</tt>.
+     * 
+     * @param selector {@link Selector}
+     * @return <tt>true</tt> if the selected key set has been replaced, or
+     *      <tt>false</tt> if the {@link Selector} implementation doesn't
+     *      permit that and the default set is kept
+     * 
+     * @since 2.4.4
+     */
+    public static boolean optimizeSelectedKeys(final Selector selector) {
+        return SelectedKeySet.install(selector);
+    }
 }
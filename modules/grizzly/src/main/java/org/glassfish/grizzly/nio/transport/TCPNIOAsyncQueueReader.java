@@ -21,9 +21,11 @@ import java.net.SocketAddress;
 import org.glassfish.grizzly.*;
 import org.glassfish.grizzly.asyncqueue.AsyncQueueReader;
 import org.glassfish.grizzly.asyncqueue.AsyncReadQueueRecord;
+import org.glassfish.grizzly.memory.MemoryBudget;
 import org.glassfish.grizzly.nio.AbstractNIOAsyncQueueReader;
 import org.glassfish.grizzly.nio.NIOConnection;
 import org.glassfish.grizzly.nio.NIOTransport;
+import org.glassfish.grizzly.nio.SelectorHandler;
 
 /**
  * The TCP transport {@link AsyncQueueReader} implementation, based on
@@ -40,6 +42,11 @@ public final class TCPNIOAsyncQueueReader extends AbstractNIOAsyncQueueReader {
     protected int read0(final Connection connection, Buffer buffer,
             final ReadResult<Buffer, SocketAddress> currentResult) throws IOException {
 
+        if (buffer == null && isMemoryExhausted()) {
+            // don't allocate a new buffer till the memory is released
+            return 0;
+        }
+        
         final int oldPosition = buffer != null ? buffer.position() : 0;
         if ((buffer = ((TCPNIOTransport) transport).read(connection, buffer)) != null) {
             final int readBytes = buffer.position() - oldPosition;
@@ -66,6 +73,27 @@ public final class TCPNIOAsyncQueueReader extends AbstractNIOAsyncQueueReader {
     @Override
     protected final void onReadyToRead(Connection connection) throws IOException {
         final NIOConnection nioConnection = (NIOConnection) connection;
+        
+        if (isMemoryExhausted()) {
+            // pause reading till the memory is released
+            final TCPNIOTransport tcpTransport = (TCPNIOTransport) transport;
+            tcpTransport.runWhenMemoryAvailable(tcpTransport.getMemoryBudget(),
+                    (TCPNIOConnection) connection, new SelectorHandler.Task() {
+                        @Override
+                        public boolean run() throws IOException {
+                            nioConnection.enableIOEvent(IOEvent.READ);
+                            return true;
+                        }
+                    });
+            return;
+        }
+        
         nioConnection.enableIOEvent(IOEvent.READ);
     }
+    
+    private boolean isMemoryExhausted() {
+        final MemoryBudget budget =
+                ((TCPNIOTransport) transport).getMemoryBudget();
+        return budget != null && budget.isExhausted();
+    }
 }
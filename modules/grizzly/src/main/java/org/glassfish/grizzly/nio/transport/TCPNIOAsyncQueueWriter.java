@@ -55,10 +55,86 @@ import org.glassfish.grizzly.nio.NIOTransport;
 public final class TCPNIOAsyncQueueWriter extends AbstractNIOAsyncQueueWriter {
     private final static Logger LOGGER = Grizzly.logger(TCPNIOAsyncQueueWriter.class);
 
+    /**
+     * The default max number of bytes written by a single gathering write of
+     * the aggregated queue records. 0 means 3/2 of the connection's write
+     * buffer size.
+     */
+    public static final int DEFAULT_MAX_GATHERING_WRITE_BYTES = Integer.getInteger(
+            TCPNIOAsyncQueueWriter.class.getName() + ".max-gathering-write-bytes", 0);
+
+    /**
+     * The default max number of {@link java.nio.ByteBuffer}s (iovecs) passed
+     * to a single gathering write. The heap buffers are always copied into
+     * a direct buffer, the direct buffers are passed as they are until the
+     * limit is reached and the ones beyond the limit are copied as well.
+     */
+    public static final int DEFAULT_MAX_GATHERING_WRITE_BUFFERS = Integer.getInteger(
+            TCPNIOAsyncQueueWriter.class.getName() + ".max-gathering-write-buffers", 64);
+
+    private volatile int maxGatheringWriteBytes = DEFAULT_MAX_GATHERING_WRITE_BYTES;
+    
+    private volatile int maxGatheringWriteBuffers = DEFAULT_MAX_GATHERING_WRITE_BUFFERS;
+    
     public TCPNIOAsyncQueueWriter(final NIOTransport transport) {
         super(transport);
     }
 
+    /**
+     * @return the max number of bytes written by a single gathering write of
+     *      the aggregated queue records, 0 means 3/2 of the connection's
+     *      write buffer size
+     * 
+     * @since 2.4.4
+     */
+    public int getMaxGatheringWriteBytes() {
+        return maxGatheringWriteBytes;
+    }
+
+    /**
+     * Sets the max number of bytes written by a single gathering write of
+     * the aggregated queue records, 0 means 3/2 of the connection's write
+     * buffer size.
+     * 
+     * @param maxGatheringWriteBytes the max number of bytes
+     * 
+     * @since 2.4.4
+     */
+    public void setMaxGatheringWriteBytes(final int maxGatheringWriteBytes) {
+        if (maxGatheringWriteBytes < 0) {
+            throw new IllegalArgumentException("maxGatheringWriteBytes can't be negative");
+        }
+        
+        this.maxGatheringWriteBytes = maxGatheringWriteBytes;
+    }
+
+    /**
+     * @return the max number of {@link java.nio.ByteBuffer}s (iovecs) passed
+     *      to a single gathering write
+     * 
+     * @since 2.4.4
+     */
+    public int getMaxGatheringWriteBuffers() {
+        return maxGatheringWriteBuffers;
+    }
+
+    /**
+     * Sets the max number of {@link java.nio.ByteBuffer}s (iovecs) passed to
+     * a single gathering write. When the queued records contain more direct
+     * buffers - the rest of them are copied into a single direct buffer.
+     * 
+     * @param maxGatheringWriteBuffers the max number of buffers
+     * 
+     * @since 2.4.4
+     */
+    public void setMaxGatheringWriteBuffers(final int maxGatheringWriteBuffers) {
+        if (maxGatheringWriteBuffers < 1) {
+            throw new IllegalArgumentException("maxGatheringWriteBuffers must be greater than zero");
+        }
+        
+        this.maxGatheringWriteBuffers = maxGatheringWriteBuffers;
+    }
+
     @Override
     @SuppressWarnings("unchecked")
     protected RecordWriteResult write0(final NIOConnection connection,
@@ -103,7 +179,8 @@ public final class TCPNIOAsyncQueueWriter extends AbstractNIOAsyncQueueWriter {
                             (TCPNIOConnection) connection, buffer);
                 } else { // Composite buffer
                     written = TCPNIOUtils.writeCompositeBuffer(
-                            (TCPNIOConnection) connection, (CompositeBuffer) buffer);
+                            (TCPNIOConnection) connection, (CompositeBuffer) buffer,
+                            maxGatheringWriteBuffers);
                 }
 
                 ((TCPNIOConnection) connection).onWrite(buffer, written);
@@ -146,8 +223,10 @@ public final class TCPNIOAsyncQueueWriter extends AbstractNIOAsyncQueueWriter {
         }
         
         if (queueRecord.size > 0) {
-            final int bufferSize = Math.min(queueRecord.size,
-                    connection.getWriteBufferSize() * 3 / 2);
+            final int maxBytes = maxGatheringWriteBytes;
+            final int bufferSize = Math.min(queueRecord.size, maxBytes > 0
+                    ? maxBytes
+                    : connection.getWriteBufferSize() * 3 / 2);
 
             final DirectByteBufferRecord directByteBufferRecord =
                     DirectByteBufferRecord.get();
@@ -155,7 +234,8 @@ public final class TCPNIOAsyncQueueWriter extends AbstractNIOAsyncQueueWriter {
             try {
                 final SocketChannel socketChannel = (SocketChannel) connection.getChannel();
 
-                fill(queueRecord, bufferSize, directByteBufferRecord);
+                fill(queueRecord, bufferSize, maxGatheringWriteBuffers,
+                        directByteBufferRecord);
                 directByteBufferRecord.finishBufferSlice();
 
                 final int arraySize = directByteBufferRecord.getArraySize();
@@ -182,7 +262,7 @@ public final class TCPNIOAsyncQueueWriter extends AbstractNIOAsyncQueueWriter {
     }
     
     private static void fill(final CompositeQueueRecord queueRecord,
-            final int totalBufferSize,            
+            final int totalBufferSize, final int maxBuffers,
             final DirectByteBufferRecord ioRecord) {
         
 //        int dstBufferRemaining = dstByteBuffer.remaining();
@@ -213,7 +293,7 @@ public final class TCPNIOAsyncQueueWriter extends AbstractNIOAsyncQueueWriter {
                     message.toBufferArray(pos, pos + totalRemaining);
 
             savedBufferStates.add(bufferArray);
-            TCPNIOUtils.fill(bufferArray, totalRemaining, ioRecord);
+            TCPNIOUtils.fill(bufferArray, totalRemaining, maxBuffers, ioRecord);
             
             totalRemaining -= messageRemaining;
         }
@@ -39,6 +39,9 @@ import org.glassfish.grizzly.filterchain.Filter;
 import org.glassfish.grizzly.filterchain.FilterChainEnabledTransport;
 import org.glassfish.grizzly.localization.LogMessages;
 import org.glassfish.grizzly.memory.CompositeBuffer;
+import org.glassfish.grizzly.memory.MemoryBudget;
+import org.glassfish.grizzly.memory.MemoryBudgetAware;
+import org.glassfish.grizzly.memory.MemoryManager;
 import org.glassfish.grizzly.monitoring.MonitoringUtils;
 import org.glassfish.grizzly.nio.*;
 import org.glassfish.grizzly.nio.tmpselectors.TemporarySelectorIO;
@@ -560,6 +563,37 @@ public final class TCPNIOTransport extends NIOTransport implements
         }
     }
 
+    /**
+     * Returns the {@link MemoryBudget} of the transport's {@link MemoryManager},
+     * if the manager is {@link MemoryBudgetAware}. When the budget is
+     * exhausted the transport stops reading data from its connections.
+     * 
+     * @return the {@link MemoryBudget}, or <tt>null</tt> if the memory
+     *      is not limited
+     */
+    MemoryBudget getMemoryBudget() {
+        final MemoryManager<?> mm = getMemoryManager();
+        return mm instanceof MemoryBudgetAware
+                ? ((MemoryBudgetAware) mm).getMemoryBudget()
+                : null;
+    }
+
+    /**
+     * Runs the task in the connection's selector thread, once the
+     * {@link MemoryBudget} becomes available.
+     */
+    void runWhenMemoryAvailable(final MemoryBudget budget,
+            final TCPNIOConnection connection,
+            final SelectorHandler.Task task) {
+        budget.notifyAvailable(new Runnable() {
+            @Override
+            public void run() {
+                getSelectorHandler().enque(connection.getSelectorRunner(),
+                        task, null);
+            }
+        });
+    }
+
     public Buffer read(final Connection connection, Buffer buffer)
             throws IOException {
 
@@ -25,6 +25,8 @@ import org.glassfish.grizzly.asyncqueue.MessageCloner;
 import org.glassfish.grizzly.asyncqueue.WritableMessage;
 import org.glassfish.grizzly.filterchain.*;
 import org.glassfish.grizzly.memory.Buffers;
+import org.glassfish.grizzly.memory.MemoryBudget;
+import org.glassfish.grizzly.nio.SelectorHandler;
 
 /**
  * The {@link TCPNIOTransport}'s transport {@link Filter} implementation
@@ -48,6 +50,13 @@ public final class TCPNIOTransportFilter extends BaseFilter {
         
         final Buffer buffer;
         if (!isBlocking) {
+            if (inBuffer == null) {
+                final MemoryBudget budget = transport.getMemoryBudget();
+                if (budget != null && budget.isExhausted()) {
+                    return suspendRead(ctx, connection, budget);
+                }
+            }
+            
             buffer = transport.read(connection, inBuffer);
         } else {
             GrizzlyFuture<ReadResult<Buffer, SocketAddress>> future =
@@ -81,6 +90,28 @@ public final class TCPNIOTransportFilter extends BaseFilter {
         return ctx.getInvokeAction();
     }
 
+    /**
+     * Suspends the read processing, so the connection's OP_READ interest is
+     * disabled, till the {@link MemoryBudget} becomes available.
+     */
+    private NextAction suspendRead(final FilterChainContext ctx,
+            final TCPNIOConnection connection, final MemoryBudget budget) {
+        final NextAction suspendAction = ctx.getSuspendAction();
+        ctx.suspend();
+        
+        transport.runWhenMemoryAvailable(budget, connection,
+                new SelectorHandler.Task() {
+                    @Override
+                    public boolean run() {
+                        // complete the read, OP_READ will be re-enabled
+                        ctx.resume(ctx.getStopAction());
+                        return true;
+                    }
+                });
+        
+        return suspendAction;
+    }
+
     @Override
     @SuppressWarnings("unchecked")
     public NextAction handleWrite(final FilterChainContext ctx)
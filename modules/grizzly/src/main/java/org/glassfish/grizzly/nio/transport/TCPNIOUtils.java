@@ -41,6 +41,19 @@ public class TCPNIOUtils {
     
     public static int writeCompositeBuffer(final TCPNIOConnection connection,
             final CompositeBuffer buffer) throws IOException {
+        return writeCompositeBuffer(connection, buffer,
+                TCPNIOAsyncQueueWriter.DEFAULT_MAX_GATHERING_WRITE_BUFFERS);
+    }
+    
+    /**
+     * Writes the {@link CompositeBuffer} using a single gathering write,
+     * passing at most <tt>maxBuffers</tt> {@link ByteBuffer}s to the channel.
+     * 
+     * @since 2.4.4
+     */
+    public static int writeCompositeBuffer(final TCPNIOConnection connection,
+            final CompositeBuffer buffer, final int maxBuffers)
+            throws IOException {
         
         final int bufferSize = calcWriteBufferSize(connection, buffer.remaining());
         
@@ -55,7 +68,7 @@ public class TCPNIOUtils {
         final DirectByteBufferRecord ioRecord = DirectByteBufferRecord.get();
         
         try {
-            fill(bufferArray, bufferSize, ioRecord);
+            fill(bufferArray, bufferSize, maxBuffers, ioRecord);
             ioRecord.finishBufferSlice();
 
             final int arraySize = ioRecord.getArraySize();
@@ -140,8 +153,16 @@ public class TCPNIOUtils {
         src.position(oldPos);
     }
 
+    /**
+     * Fills the {@link DirectByteBufferRecord} with the {@link ByteBuffer}s
+     * to be passed to a gathering write. The direct buffers are added as they
+     * are, while there is space for at least <tt>maxBuffers</tt>, the heap
+     * buffers (and the direct buffers beyond the limit) are copied into
+     * slices of the record's direct buffer.
+     */
     static void fill(final BufferArray bufferArray,
-            final int totalBufferSize, final DirectByteBufferRecord ioRecord) {
+            final int totalBufferSize, final int maxBuffers,
+            final DirectByteBufferRecord ioRecord) {
         
         final Buffer buffers[] = bufferArray.getArray();
         final int size = bufferArray.size();
@@ -158,7 +179,8 @@ public class TCPNIOUtils {
                 continue;
             }
             
-            if (buffer.isDirect()) {
+            // reserve the space for the pending and the trailing slices
+            if (buffer.isDirect() && ioRecord.getArraySize() + 3 <= maxBuffers) {
                 ioRecord.finishBufferSlice();
                 ioRecord.putToArray(buffer.toByteBuffer());
             } else {
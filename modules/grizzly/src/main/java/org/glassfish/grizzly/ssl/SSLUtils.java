@@ -424,16 +424,34 @@ public final class SSLUtils {
     
     static SSLEngineResult sslEngineWrap(final SSLEngine engine,
             final ByteBuffer in, final ByteBuffer out) throws SSLException {
-        return engine.wrap(in, out);
+        try {
+            return engine.wrap(in, out);
+        } catch (InternalError e) {
+            throw inputAccessError(e);
+        }
     }
     
     static SSLEngineResult sslEngineWrap(final SSLEngine engine,
             final ByteBuffer[] in, final int inOffs, final int inLen,
             final ByteBuffer out)
             throws SSLException {
-        return ANDROID_WORKAROUND_NEEDED
-                ? AndroidWorkAround.wrapArray(engine, in, inOffs, inLen, out)
-                : engine.wrap(in, inOffs, inLen, out);
+        try {
+            return ANDROID_WORKAROUND_NEEDED
+                    ? AndroidWorkAround.wrapArray(engine, in, inOffs, inLen, out)
+                    : engine.wrap(in, inOffs, inLen, out);
+        } catch (InternalError e) {
+            throw inputAccessError(e);
+        }
+    }
+
+    /**
+     * The {@link InternalError} is thrown, if the input is a memory-mapped
+     * file region, which can't be read anymore, because the file has been
+     * truncated (SIGBUS). Report it as the write failure rather than
+     * let it propagate up to the selector thread.
+     */
+    private static SSLException inputAccessError(final InternalError e) {
+        return new SSLException("The SSLEngine failed to read the input", e);
     }
 
     static SSLEngineResult sslEngineUnwrap(final SSLEngine engine,
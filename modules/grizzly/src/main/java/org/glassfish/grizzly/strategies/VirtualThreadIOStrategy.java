@@ -0,0 +1,84 @@
+/*
+ * Copyright (c) 2017 Oracle and/or its affiliates. All rights reserved.
+ *
+ * This program and the accompanying materials are made available under the
+ * terms of the Eclipse Public License v. 2.0, which is available at
+ * http://www.eclipse.org/legal/epl-2.0.
+ *
+ * This Source Code may also be made available under the following Secondary
+ * Licenses when the conditions for such availability set forth in the
+ * Eclipse Public License v. 2.0 are satisfied: GNU General Public License,
+ * version 2 with the GNU Classpath Exception, which is available at
+ * https://www.gnu.org/software/classpath/license.html.
+ *
+ * SPDX-License-Identifier: EPL-2.0 OR GPL-2.0 WITH Classpath-exception-2.0
+ */
+
+
+package org.glassfish.grizzly.strategies;
+
+import java.io.IOException;
+import org.glassfish.grizzly.Connection;
+import org.glassfish.grizzly.IOEvent;
+import org.glassfish.grizzly.Transport;
+import org.glassfish.grizzly.threadpool.ThreadPoolConfig;
+
+/**
+ * {@link org.glassfish.grizzly.IOStrategy}, which executes
+ * {@link org.glassfish.grizzly.Processor}s in worker threads like
+ * {@link WorkerThreadIOStrategy}, but its default worker thread pool runs
+ * each task in a new virtual thread.
+ * So the {@link org.glassfish.grizzly.Processor}s might block (for example
+ * on JDBC calls) without exhausting a bounded thread pool.
+ * 
+ * If the JVM doesn't support virtual threads, the default worker thread pool
+ * falls back to platform threads, see {@link ThreadPoolConfig#setVirtualThreads(boolean)}.
+ * 
+ * @since 2.4.4
+ */
+public final class VirtualThreadIOStrategy extends AbstractIOStrategy {
+
+    private static final VirtualThreadIOStrategy INSTANCE = new VirtualThreadIOStrategy();
+
+    private final WorkerThreadIOStrategy workerThreadStrategy;
+
+
+    // ------------------------------------------------------------ Constructors
+
+
+    private VirtualThreadIOStrategy() {
+        workerThreadStrategy = WorkerThreadIOStrategy.getInstance();
+    }
+
+
+    // ---------------------------------------------------------- Public Methods
+
+
+    public static VirtualThreadIOStrategy getInstance() {
+        return INSTANCE;
+    }
+
+
+    // ------------------------------------------------- Methods from IOStrategy
+
+
+    // overrides the raw-typed IOStrategy method
+    @SuppressWarnings("rawtypes")
+    @Override
+    public boolean executeIoEvent(final Connection connection,
+            final IOEvent ioEvent, final boolean isIoEventEnabled)
+            throws IOException {
+        return workerThreadStrategy.executeIoEvent(connection, ioEvent,
+                isIoEventEnabled);
+    }
+
+    @Override
+    public ThreadPoolConfig createDefaultWorkerPoolConfig(final Transport transport) {
+
+        final ThreadPoolConfig config = super.createDefaultWorkerPoolConfig(transport);
+        config.setPoolName("Grizzly-virtual-worker");
+        config.setVirtualThreads(true);
+        return config;
+
+    }
+}
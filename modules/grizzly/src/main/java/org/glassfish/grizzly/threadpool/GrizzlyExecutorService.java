@@ -18,11 +18,15 @@ package org.glassfish.grizzly.threadpool;
 
 import org.glassfish.grizzly.memory.MemoryManager;
 
+import java.util.ArrayList;
 import java.util.List;
 import java.util.Queue;
 import java.util.concurrent.AbstractExecutorService;
 import java.util.concurrent.BlockingQueue;
 import java.util.concurrent.TimeUnit;
+import java.util.logging.Logger;
+import org.glassfish.grizzly.Grizzly;
+import org.glassfish.grizzly.localization.LogMessages;
 import org.glassfish.grizzly.monitoring.MonitoringAware;
 import org.glassfish.grizzly.monitoring.MonitoringConfig;
 
@@ -33,6 +37,8 @@ import org.glassfish.grizzly.monitoring.MonitoringConfig;
 public class GrizzlyExecutorService extends AbstractExecutorService
         implements MonitoringAware<ThreadPoolProbe> {
 
+    private static final Logger LOGGER = Grizzly.logger(GrizzlyExecutorService.class);
+
     private final Object statelock = new Object();
     private volatile AbstractThreadPool pool;
     protected volatile ThreadPoolConfig config;
@@ -69,8 +75,15 @@ public class GrizzlyExecutorService extends AbstractExecutorService
             cfg.setMemoryManager(MemoryManager.DEFAULT_MEMORY_MANAGER);
         }
         
+        if (cfg.isVirtualThreads() && !Threads.isVirtualThreadSupported()) {
+            LOGGER.warning(LogMessages.WARNING_GRIZZLY_THREADPOOL_VIRTUAL_THREADS_UNSUPPORTED(
+                    cfg.getPoolName()));
+        }
+        
         final Queue<Runnable> queue = cfg.getQueue();
-        if ((queue == null || queue instanceof BlockingQueue) &&
+        if (cfg.isVirtualThreads() && Threads.isVirtualThreadSupported()) {
+            this.pool = new VirtualThreadPool(cfg);
+        } else if ((queue == null || queue instanceof BlockingQueue) &&
                 (cfg.getCorePoolSize() < 0 || cfg.getCorePoolSize() == cfg.getMaxPoolSize())) {
 
             this.pool = cfg.getQueueLimit() < 0
@@ -98,7 +111,16 @@ public class GrizzlyExecutorService extends AbstractExecutorService
             }
 
             setImpl(config);
-            AbstractThreadPool.drain(oldpool.getQueue(), this.pool.getQueue());
+            if (this.pool instanceof VirtualThreadPool) {
+                // the virtual-thread pool doesn't take tasks from its queue
+                final List<Runnable> tasks = new ArrayList<Runnable>();
+                AbstractThreadPool.drain(oldpool.getQueue(), tasks);
+                for (Runnable task : tasks) {
+                    this.pool.execute(task);
+                }
+            } else {
+                AbstractThreadPool.drain(oldpool.getQueue(), this.pool.getQueue());
+            }
             oldpool.shutdown();
         }
         return this;
@@ -73,6 +73,7 @@ public final class ThreadPoolConfig {
     protected DelayedExecutor transactionMonitor;
     protected long transactionTimeoutMillis;
     protected ClassLoader initialClassLoader;
+    protected boolean isVirtualThreads;
 
     /**
      * Thread pool probes
@@ -131,6 +132,7 @@ public final class ThreadPoolConfig {
         this.keepAliveTimeMillis   = cfg.keepAliveTimeMillis;
         this.mm              = cfg.mm;
         this.initialClassLoader = cfg.initialClassLoader;
+        this.isVirtualThreads = cfg.isVirtualThreads;
         
         this.threadPoolMonitoringConfig =
                 new DefaultMonitoringConfig<ThreadPoolProbe>(ThreadPoolProbe.class);
@@ -396,6 +398,37 @@ public final class ThreadPoolConfig {
         return this;
     }
 
+    /**
+     * @return <tt>true</tt> if the thread pool runs each task in a new
+     *          virtual thread, or <tt>false</tt> otherwise
+     *
+     * @since 2.4.4
+     */
+    public boolean isVirtualThreads() {
+        return isVirtualThreads;
+    }
+
+    /**
+     * Configures the thread pool to run each task in a new virtual thread
+     * instead of a bounded set of platform threads, so the tasks blocking
+     * on I/O (like JDBC calls) don't exhaust the pool.
+     * The pool sizes, queue and thread priority are not used by the
+     * virtual-thread pool. If the JVM doesn't support virtual threads
+     * (Java versions before 21), the regular platform-thread pool is created.
+     *
+     * @param isVirtualThreads <tt>true</tt> to run tasks in virtual threads
+     *
+     * @return the {@link ThreadPoolConfig}
+     *
+     * @see Threads#isVirtualThreadSupported()
+     *
+     * @since 2.4.4
+     */
+    public ThreadPoolConfig setVirtualThreads(final boolean isVirtualThreads) {
+        this.isVirtualThreads = isVirtualThreads;
+        return this;
+    }
+
     @Override
     public String toString() {
         return ThreadPoolConfig.class.getSimpleName() + " :\r\n"
@@ -410,6 +443,7 @@ public final class ThreadPoolConfig {
                 + "  transactionTimeoutMillis: " + transactionTimeoutMillis + "\r\n"
                 + "  priority: " + priority + "\r\n"
                 + "  isDaemon: " + isDaemon + "\r\n"
-                + "  initialClassLoader: " + initialClassLoader;
+                + "  initialClassLoader: " + initialClassLoader + "\r\n"
+                + "  isVirtualThreads: " + isVirtualThreads;
     }
 }
@@ -16,6 +16,11 @@
 
 package org.glassfish.grizzly.threadpool;
 
+import java.lang.invoke.MethodHandle;
+import java.lang.invoke.MethodHandles;
+import java.lang.invoke.MethodType;
+import java.util.concurrent.ThreadFactory;
+
 /**
  * Set of {@link Thread} utilities.
  * 
@@ -25,6 +30,33 @@ public class Threads {
     private static final ThreadLocal<Boolean> SERVICE_THREAD =
             new ThreadLocal<Boolean>();
     
+    // Thread.isVirtual(), null if the JVM doesn't support virtual threads
+    private static final MethodHandle IS_VIRTUAL;
+    // the factory of unnamed virtual threads, null if not supported
+    private static final ThreadFactory VIRTUAL_THREAD_FACTORY;
+    
+    static {
+        MethodHandle isVirtual = null;
+        ThreadFactory virtualThreadFactory = null;
+        
+        try {
+            // Thread.ofVirtual().factory()
+            final Object builder = Thread.class.getMethod("ofVirtual").invoke(null);
+            virtualThreadFactory = (ThreadFactory) Class.forName("java.lang.Thread$Builder")
+                    .getMethod("factory").invoke(builder);
+            isVirtual = MethodHandles.publicLookup().findVirtual(
+                    Thread.class, "isVirtual", MethodType.methodType(boolean.class));
+        } catch (Throwable ignored) {
+            // either Java version < 21, or virtual threads are a disabled
+            // preview feature
+            isVirtual = null;
+            virtualThreadFactory = null;
+        }
+        
+        IS_VIRTUAL = isVirtual;
+        VIRTUAL_THREAD_FACTORY = virtualThreadFactory;
+    }
+    
     public static boolean isService() {
         return Boolean.TRUE.equals(SERVICE_THREAD.get());
     }
@@ -37,4 +69,39 @@ public class Threads {
         }
     }
     
+    /**
+     * @return <tt>true</tt> if the JVM supports virtual threads,
+     *          or <tt>false</tt> otherwise
+     * @since 2.4.4
+     */
+    public static boolean isVirtualThreadSupported() {
+        return VIRTUAL_THREAD_FACTORY != null;
+    }
+    
+    /**
+     * @param thread the {@link Thread}
+     * @return <tt>true</tt> if the thread is a virtual thread, which is not
+     *          reused once its task is completed, or <tt>false</tt> otherwise
+     * @since 2.4.4
+     */
+    public static boolean isVirtual(final Thread thread) {
+        if (IS_VIRTUAL == null) {
+            return false;
+        }
+        
+        try {
+            return (boolean) IS_VIRTUAL.invokeExact(thread);
+        } catch (Throwable t) {
+            return false;
+        }
+    }
+    
+    /**
+     * @return the {@link ThreadFactory} creating unnamed virtual threads,
+     *          or <tt>null</tt> if the JVM doesn't support virtual threads
+     * @since 2.4.4
+     */
+    public static ThreadFactory getVirtualThreadFactory() {
+        return VIRTUAL_THREAD_FACTORY;
+    }
 }
@@ -0,0 +1,171 @@
+/*
+ * Copyright (c) 2017 Oracle and/or its affiliates. All rights reserved.
+ *
+ * This program and the accompanying materials are made available under the
+ * terms of the Eclipse Public License v. 2.0, which is available at
+ * http://www.eclipse.org/legal/epl-2.0.
+ *
+ * This Source Code may also be made available under the following Secondary
+ * Licenses when the conditions for such availability set forth in the
+ * Eclipse Public License v. 2.0 are satisfied: GNU General Public License,
+ * version 2 with the GNU Classpath Exception, which is available at
+ * https://www.gnu.org/software/classpath/license.html.
+ *
+ * SPDX-License-Identifier: EPL-2.0 OR GPL-2.0 WITH Classpath-exception-2.0
+ */
+
+
+package org.glassfish.grizzly.threadpool;
+
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * Thread pool, which runs each task in a new virtual thread.
+ * The virtual threads are never reused, so the pool is not bounded by the
+ * configured pool sizes and doesn't queue tasks, which makes it suitable
+ * for tasks blocking on I/O.
+ * 
+ * The pool may be created only if the JVM supports virtual threads,
+ * see {@link Threads#isVirtualThreadSupported()}. A custom
+ * {@link ThreadFactory} set in the {@link ThreadPoolConfig} has to create
+ * virtual threads as well.
+ * 
+ * @since 2.4.4
+ */
+public class VirtualThreadPool extends AbstractThreadPool {
+
+    private static final Runnable NOOP = new Runnable() {
+        @Override
+        public void run() {
+        }
+    };
+
+    public VirtualThreadPool(final ThreadPoolConfig config) {
+        super(withVirtualThreadFactory(config));
+        
+        // the queue is never used, it's only needed to drain/poison the pool
+        if (this.config.getQueue() == null) {
+            this.config.setQueue(new ConcurrentLinkedQueue<Runnable>());
+        }
+        
+        final ThreadFactory threadFactory = this.config.getThreadFactory();
+        if (threadFactory instanceof VirtualThreadFactory) {
+            ((VirtualThreadFactory) threadFactory).pool = this;
+        }
+        
+        ProbeNotifier.notifyThreadPoolStarted(this);
+    }
+
+    @Override
+    public void execute(final Runnable command) {
+        if (command == null) {
+            throw new IllegalArgumentException("Runnable task is null");
+        }
+        
+        if (!running) {
+            throw new RejectedExecutionException("ThreadPool is not running");
+        }
+        
+        // the thread is created and started outside the stateLock, so the
+        // concurrent execute() calls contend only for the workers bookkeeping
+        final VirtualWorker worker = new VirtualWorker(command);
+        worker.t = config.getThreadFactory().newThread(worker);
+        
+        synchronized (stateLock) {
+            // recheck, so shutdownNow() either rejects or interrupts the worker
+            if (!running) {
+                throw new RejectedExecutionException("ThreadPool is not running");
+            }
+            
+            workers.put(worker, System.currentTimeMillis());
+        }
+        
+        onTaskQueued(command);
+        worker.t.start();
+    }
+
+    /**
+     * There are no idle workers waiting for the poison.
+     */
+    @Override
+    protected void poisonAll() {
+    }
+
+    private static ThreadPoolConfig withVirtualThreadFactory(
+            final ThreadPoolConfig config) {
+        final ThreadFactory virtualThreadFactory = Threads.getVirtualThreadFactory();
+        if (virtualThreadFactory == null) {
+            throw new IllegalStateException(
+                    "Virtual threads are not supported by the JVM");
+        }
+        
+        // the pool adjusts its config, don't change the caller's instance
+        final ThreadPoolConfig poolConfig = config.copy();
+        final ThreadFactory threadFactory = poolConfig.getThreadFactory();
+        
+        if (threadFactory == null
+                || threadFactory instanceof VirtualThreadFactory) {
+            // the factory copied from another pool config is bound to that pool
+            poolConfig.setThreadFactory(
+                    new VirtualThreadFactory(poolConfig, virtualThreadFactory));
+        } else if (!Threads.isVirtual(threadFactory.newThread(NOOP))) {
+            // the pool isn't bounded, it can't start a platform thread per task
+            throw new IllegalArgumentException(
+                    "The ThreadFactory has to create virtual threads");
+        }
+        
+        return poolConfig;
+    }
+
+    private final class VirtualWorker extends Worker {
+        private Runnable task;
+
+        private VirtualWorker(final Runnable task) {
+            this.task = task;
+        }
+        
+        @Override
+        protected Runnable getTask() {
+            // the task is run once, then the thread completes
+            final Runnable r = task;
+            task = null;
+            return r;
+        }
+    }
+    
+    private static final class VirtualThreadFactory implements ThreadFactory {
+        private final AtomicInteger counter = new AtomicInteger();
+        private final ThreadPoolConfig config;
+        private final ThreadFactory virtualThreadFactory;
+        
+        private volatile VirtualThreadPool pool;
+
+        private VirtualThreadFactory(final ThreadPoolConfig config,
+                final ThreadFactory virtualThreadFactory) {
+            this.config = config;
+            this.virtualThreadFactory = virtualThreadFactory;
+        }
+        
+        @Override
+        public Thread newThread(final Runnable r) {
+            // virtual threads are always daemons and have normal priority
+            final Thread thread = virtualThreadFactory.newThread(r);
+            thread.setName(config.getPoolName() + '(' + counter.incrementAndGet() + ')');
+            
+            final VirtualThreadPool p = pool;
+            if (p != null) {
+                thread.setUncaughtExceptionHandler(p);
+            }
+            
+            final ClassLoader initial = config.getInitialClassLoader();
+            if (initial != null) {
+                thread.setContextClassLoader(initial);
+            }
+            
+            return thread;
+        }
+    }
+}
@@ -18,6 +18,7 @@ package org.glassfish.grizzly;
 
 import java.io.IOException;
 import java.net.SocketAddress;
+import java.nio.ByteBuffer;
 import java.util.ArrayList;
 import java.util.Arrays;
 import java.util.Collection;
@@ -42,8 +43,10 @@ import org.glassfish.grizzly.filterchain.TransportFilter;
 import org.glassfish.grizzly.impl.FutureImpl;
 import org.glassfish.grizzly.impl.SafeFutureImpl;
 import org.glassfish.grizzly.memory.Buffers;
+import org.glassfish.grizzly.memory.ByteBufferWrapper;
 import org.glassfish.grizzly.memory.MemoryManager;
 import org.glassfish.grizzly.nio.NIOConnection;
+import org.glassfish.grizzly.nio.transport.TCPNIOAsyncQueueWriter;
 import org.glassfish.grizzly.nio.transport.TCPNIOConnectorHandler;
 import org.glassfish.grizzly.nio.transport.TCPNIOTransport;
 import org.glassfish.grizzly.nio.transport.TCPNIOTransportBuilder;
@@ -366,6 +369,92 @@ public class AsyncWriteQueueTest {
         }
     }
 
+    @Test
+    public void testGatheringWriteLimits() throws Exception {
+        Connection connection = null;
+
+        final int recordsNumber = 200;
+        final int recordSize = 100;
+        final int size = recordsNumber * recordSize;
+
+        FilterChainBuilder filterChainBuilder = FilterChainBuilder.stateless();
+        filterChainBuilder.add(new TransportFilter());
+        filterChainBuilder.add(new EchoFilter());
+
+        TCPNIOTransport transport = createTransport(isOptimizedForMultiplexing);
+        transport.setProcessor(filterChainBuilder.build());
+
+        try {
+            final TCPNIOAsyncQueueWriter asyncQueueWriter =
+                    (TCPNIOAsyncQueueWriter) transport.getAsyncQueueIO().getWriter();
+            asyncQueueWriter.setMaxPendingBytesPerConnection(-1);
+            // queue all the records, so they're aggregated
+            asyncQueueWriter.setAllowDirectWrite(false);
+            asyncQueueWriter.setMaxGatheringWriteBuffers(4);
+            asyncQueueWriter.setMaxGatheringWriteBytes(1000);
+
+            transport.bind(PORT);
+            transport.start();
+
+            Future<Connection> future = transport.connect("localhost", PORT);
+            connection = future.get(10, TimeUnit.SECONDS);
+            assertTrue(connection != null);
+
+            connection.configureStandalone(true);
+
+            final StreamReader reader =
+                    ((StandaloneProcessor) connection.getProcessor()).getStreamReader(connection);
+
+            final MemoryManager mm = transport.getMemoryManager();
+            final byte[] data = new byte[size];
+            for (int i = 0; i < size; i++) {
+                data[i] = (byte) (i % 251);
+            }
+
+            // mix heap, direct and composite records
+            for (int i = 0; i < recordsNumber; i++) {
+                final int offset = i * recordSize;
+                final Buffer buffer;
+                switch (i % 3) {
+                    case 0:
+                        buffer = Buffers.wrap(mm, data, offset, recordSize);
+                        break;
+                    case 1:
+                        buffer = wrapDirect(data, offset, recordSize);
+                        break;
+                    default:
+                        buffer = Buffers.appendBuffers(mm,
+                                wrapDirect(data, offset, recordSize / 2),
+                                Buffers.wrap(mm, data, offset + recordSize / 2,
+                                        recordSize - recordSize / 2));
+                }
+                
+                asyncQueueWriter.write(connection, buffer);
+            }
+
+            final Future<Integer> readFuture = reader.notifyAvailable(size);
+            assertNotNull(readFuture.get(10, TimeUnit.SECONDS));
+
+            final byte[] echo = new byte[size];
+            reader.readByteArray(echo);
+            assertArrayEquals(data, echo);
+        } finally {
+            if (connection != null) {
+                connection.closeSilently();
+            }
+
+            transport.shutdownNow();
+        }
+    }
+
+    private static Buffer wrapDirect(final byte[] data, final int offset,
+            final int length) {
+        final ByteBuffer byteBuffer = ByteBuffer.allocateDirect(length);
+        byteBuffer.put(data, offset, length);
+        byteBuffer.flip();
+        return new ByteBufferWrapper(byteBuffer);
+    }
+
     @Test
     public void testQueueNotification() throws Exception {
 
@@ -23,7 +23,9 @@ import java.util.LinkedList;
 import java.util.concurrent.CountDownLatch;
 import java.util.concurrent.Executors;
 import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
 import org.glassfish.grizzly.threadpool.ThreadPoolProbe;
+import org.glassfish.grizzly.threadpool.Threads;
 import org.glassfish.grizzly.utils.DelayedExecutor;
 
 /**
@@ -149,6 +151,45 @@ public class GrizzlyExecutorServiceTest extends GrizzlyTestCase {
         assertTrue(r.isTerminated());
     }
     
+    public void testVirtualThreads() throws Exception {
+        final ThreadPoolConfig cfg = ThreadPoolConfig.defaultConfig()
+                .setPoolName("test-virtual")
+                .setVirtualThreads(true);
+        assertTrue(cfg.copy().isVirtualThreads());
+
+        final GrizzlyExecutorService r = GrizzlyExecutorService.createInstance(cfg);
+        final int tasks = 1000;
+        final CountDownLatch cl = new CountDownLatch(tasks);
+        final AtomicInteger virtualTasks = new AtomicInteger();
+        for (int i = 0; i < tasks; i++) {
+            r.execute(new Runnable() {
+                @Override
+                public void run() {
+                    if (Threads.isVirtual(Thread.currentThread())) {
+                        virtualTasks.incrementAndGet();
+                    }
+
+                    try {
+                        // block, the task mustn't hold a pooled thread
+                        Thread.sleep(50);
+                    } catch (InterruptedException ignore) {
+                    }
+
+                    cl.countDown();
+                }
+            });
+        }
+
+        assertTrue("latch timed out", cl.await(30, TimeUnit.SECONDS));
+        // falls back to platform threads, if virtual threads are not supported
+        assertEquals(Threads.isVirtualThreadSupported() ? tasks : 0,
+                virtualTasks.get());
+
+        r.shutdown();
+        assertTrue(r.awaitTermination(10, TimeUnit.SECONDS));
+        assertTrue(r.isTerminated());
+    }
+
     public void testMonitoringProbesCopying() {
         final ThreadPoolProbe probe = new ThreadPoolProbe.Adapter();
         
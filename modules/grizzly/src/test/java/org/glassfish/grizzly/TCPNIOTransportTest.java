@@ -40,7 +40,10 @@ import org.glassfish.grizzly.filterchain.NextAction;
 import org.glassfish.grizzly.filterchain.TransportFilter;
 import org.glassfish.grizzly.impl.FutureImpl;
 import org.glassfish.grizzly.impl.SafeFutureImpl;
+import org.glassfish.grizzly.memory.Buffers;
 import org.glassfish.grizzly.memory.ByteBufferWrapper;
+import org.glassfish.grizzly.memory.MemoryBudget;
+import org.glassfish.grizzly.memory.PooledMemoryManager;
 import org.glassfish.grizzly.nio.AbstractNIOConnectionDistributor;
 import org.glassfish.grizzly.nio.NIOConnection;
 import org.glassfish.grizzly.nio.NIOTransport;
@@ -564,6 +567,82 @@ public class TCPNIOTransportTest {
         }
     }
     
+
+    @Test
+    public void testMemoryBudgetPausesReads() throws Exception {
+        final int bufferSize = 4096;
+        final int size = bufferSize * 16;
+        
+        final PooledMemoryManager mm = new PooledMemoryManager(bufferSize,
+                1, 0, 1, PooledMemoryManager.DEFAULT_HEAP_USAGE_PERCENTAGE,
+                PooledMemoryManager.DEFAULT_PREALLOCATED_BUFFERS_PERCENTAGE,
+                true);
+        final MemoryBudget budget = new MemoryBudget(bufferSize * 2);
+        mm.setMemoryBudget(budget);
+        
+        // the filter holds the read buffers, so the budget gets exhausted
+        final BlockingQueue<Buffer> heldBuffers = new LinkedTransferQueue<Buffer>();
+        final AtomicInteger receivedBytes = new AtomicInteger();
+        
+        FilterChainBuilder filterChainBuilder = FilterChainBuilder.stateless();
+        filterChainBuilder.add(new TransportFilter());
+        filterChainBuilder.add(new BaseFilter() {
+            @Override
+            public NextAction handleRead(final FilterChainContext ctx) {
+                final Buffer buffer = ctx.getMessage();
+                receivedBytes.addAndGet(buffer.remaining());
+                heldBuffers.offer(buffer);
+                return ctx.getStopAction();
+            }
+        });
+
+        final TCPNIOTransport transport =
+                TCPNIOTransportBuilder.newInstance()
+                .setMemoryManager(mm)
+                .setReadBufferSize(bufferSize)
+                .build();
+        transport.setProcessor(filterChainBuilder.build());
+
+        Connection connection = null;
+        try {
+            transport.bind(PORT);
+            transport.start();
+
+            final Future<Connection> future =
+                    transport.connect("localhost", PORT);
+            connection = future.get(10, TimeUnit.SECONDS);
+            
+            final byte[] data = new byte[size];
+            connection.write(Buffers.wrap(transport.getMemoryManager(), data));
+            
+            // wait till the reads get paused
+            for (int i = 0; i < 100 && budget.getExhaustedCount() == 0; i++) {
+                Thread.sleep(50);
+            }
+            
+            assertTrue(budget.isExhausted());
+            Thread.sleep(200);
+            assertTrue(receivedBytes.get() <= bufferSize * 2);
+            
+            // releasing the memory resumes reading
+            final long deadline = System.currentTimeMillis() + 10000;
+            while (receivedBytes.get() < size
+                    && System.currentTimeMillis() < deadline) {
+                final Buffer buffer = heldBuffers.poll(100, TimeUnit.MILLISECONDS);
+                if (buffer != null) {
+                    buffer.tryDispose();
+                }
+            }
+            
+            assertEquals(size, receivedBytes.get());
+        } finally {
+            if (connection != null) {
+                connection.closeSilently();
+            }
+
+            transport.shutdownNow();
+        }
+    }
     
     // ---------------------------------------------------------- Nested Classes
 
@@ -16,6 +16,8 @@
 
 package org.glassfish.grizzly;
 
+import java.util.concurrent.atomic.AtomicReference;
+import org.glassfish.grizzly.threadpool.Threads;
 import org.junit.Test;
 import static org.junit.Assert.*;
 
@@ -61,4 +63,32 @@ public class ThreadCacheTest {
 
     }
 
+    @Test
+    public void testVirtualThreadIsNotCached() throws Exception {
+        if (!Threads.isVirtualThreadSupported()) {
+            return;
+        }
+
+        final ThreadCache.CachedTypeIndex<Object> CACHE_IDX =
+            ThreadCache.obtainIndex("testVirtualThreadIsNotCached", Object.class, 1);
+
+        final AtomicReference<Object> result = new AtomicReference<Object>();
+        final Thread thread = Threads.getVirtualThreadFactory().newThread(
+                new Runnable() {
+            @Override
+            public void run() {
+                final boolean isCached =
+                        ThreadCache.putToCache(CACHE_IDX, new Object());
+                result.set(isCached
+                        ? "cached"
+                        : ThreadCache.takeFromCache(CACHE_IDX));
+            }
+        });
+
+        result.set("not run");
+        thread.start();
+        thread.join(10000);
+
+        assertNull(result.get());
+    }
 }
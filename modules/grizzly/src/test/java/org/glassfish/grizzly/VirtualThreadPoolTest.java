@@ -0,0 +1,165 @@
+/*
+ * Copyright (c) 2017 Oracle and/or its affiliates. All rights reserved.
+ *
+ * This program and the accompanying materials are made available under the
+ * terms of the Eclipse Public License v. 2.0, which is available at
+ * http://www.eclipse.org/legal/epl-2.0.
+ *
+ * This Source Code may also be made available under the following Secondary
+ * Licenses when the conditions for such availability set forth in the
+ * Eclipse Public License v. 2.0 are satisfied: GNU General Public License,
+ * version 2 with the GNU Classpath Exception, which is available at
+ * https://www.gnu.org/software/classpath/license.html.
+ *
+ * SPDX-License-Identifier: EPL-2.0 OR GPL-2.0 WITH Classpath-exception-2.0
+ */
+
+
+package org.glassfish.grizzly;
+
+import java.io.IOException;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+import org.glassfish.grizzly.filterchain.BaseFilter;
+import org.glassfish.grizzly.filterchain.FilterChainBuilder;
+import org.glassfish.grizzly.filterchain.FilterChainContext;
+import org.glassfish.grizzly.filterchain.NextAction;
+import org.glassfish.grizzly.filterchain.TransportFilter;
+import org.glassfish.grizzly.impl.FutureImpl;
+import org.glassfish.grizzly.impl.SafeFutureImpl;
+import org.glassfish.grizzly.nio.transport.TCPNIOConnectorHandler;
+import org.glassfish.grizzly.nio.transport.TCPNIOTransport;
+import org.glassfish.grizzly.nio.transport.TCPNIOTransportBuilder;
+import org.glassfish.grizzly.strategies.VirtualThreadIOStrategy;
+import org.glassfish.grizzly.threadpool.ThreadPoolConfig;
+import org.glassfish.grizzly.threadpool.Threads;
+import org.glassfish.grizzly.threadpool.VirtualThreadPool;
+import org.glassfish.grizzly.utils.Charsets;
+import org.glassfish.grizzly.utils.StringFilter;
+import org.junit.Test;
+import static org.junit.Assert.*;
+
+/**
+ * {@link VirtualThreadPool} and {@link VirtualThreadIOStrategy} tests.
+ */
+public class VirtualThreadPoolTest {
+    private static final int PORT = 7790;
+
+    @Test
+    public void testConfigIsNotModified() {
+        if (!Threads.isVirtualThreadSupported()) {
+            return;
+        }
+
+        final ThreadPoolConfig config = ThreadPoolConfig.defaultConfig().copy()
+                .setPoolName("test-virtual");
+        final VirtualThreadPool pool = new VirtualThreadPool(config);
+        try {
+            assertNull(config.getThreadFactory());
+            assertNull(config.getQueue());
+            assertNotNull(pool.getConfig().getThreadFactory());
+            assertNotNull(pool.getQueue());
+        } finally {
+            pool.shutdownNow();
+        }
+    }
+
+    @Test
+    public void testPlatformThreadFactoryIsRejected() {
+        if (!Threads.isVirtualThreadSupported()) {
+            return;
+        }
+
+        final ThreadPoolConfig config = ThreadPoolConfig.defaultConfig().copy()
+                .setThreadFactory(Executors.defaultThreadFactory());
+        try {
+            new VirtualThreadPool(config);
+            fail("IllegalArgumentException is expected");
+        } catch (IllegalArgumentException expected) {
+        }
+    }
+
+    @Test
+    public void testVirtualThreadFactoryIsAccepted() throws Exception {
+        if (!Threads.isVirtualThreadSupported()) {
+            return;
+        }
+
+        final ThreadPoolConfig config = ThreadPoolConfig.defaultConfig().copy()
+                .setThreadFactory(Threads.getVirtualThreadFactory());
+        final VirtualThreadPool pool = new VirtualThreadPool(config);
+        try {
+            final FutureImpl<Boolean> isVirtual = SafeFutureImpl.create();
+            pool.execute(new Runnable() {
+                @Override
+                public void run() {
+                    isVirtual.result(Threads.isVirtual(Thread.currentThread()));
+                }
+            });
+
+            assertTrue(isVirtual.get(10, TimeUnit.SECONDS));
+        } finally {
+            pool.shutdownNow();
+        }
+    }
+
+    @Test
+    public void testVirtualThreadIOStrategy() throws Exception {
+        final AtomicBoolean isVirtual = new AtomicBoolean();
+
+        final TCPNIOTransport transport = TCPNIOTransportBuilder.newInstance()
+                .setIOStrategy(VirtualThreadIOStrategy.getInstance())
+                .build();
+        assertTrue(transport.getWorkerThreadPoolConfig().isVirtualThreads());
+
+        transport.setProcessor(FilterChainBuilder.stateless()
+                .add(new TransportFilter())
+                .add(new StringFilter(Charsets.UTF8_CHARSET))
+                .add(new BaseFilter() {
+                    @Override
+                    public NextAction handleRead(final FilterChainContext ctx)
+                            throws IOException {
+                        isVirtual.set(Threads.isVirtual(Thread.currentThread()));
+                        ctx.write(ctx.getMessage());
+                        return ctx.getStopAction();
+                    }
+                }).build());
+
+        Connection connection = null;
+        try {
+            transport.bind(PORT);
+            transport.start();
+
+            final FutureImpl<String> echo = SafeFutureImpl.create();
+            final Future<Connection> connectFuture = TCPNIOConnectorHandler.builder(transport)
+                    .processor(FilterChainBuilder.stateless()
+                            .add(new TransportFilter())
+                            .add(new StringFilter(Charsets.UTF8_CHARSET))
+                            .add(new BaseFilter() {
+                                @Override
+                                public NextAction handleRead(final FilterChainContext ctx)
+                                        throws IOException {
+                                    echo.result(ctx.<String>getMessage());
+                                    return ctx.getStopAction();
+                                }
+                            }).build())
+                    .build()
+                    .connect("localhost", PORT);
+
+            connection = connectFuture.get(10, TimeUnit.SECONDS);
+            connection.write("ping");
+
+            assertEquals("ping", echo.get(10, TimeUnit.SECONDS));
+            // falls back to platform threads, if virtual threads are not supported
+            assertEquals(Threads.isVirtualThreadSupported(), isVirtual.get());
+        } finally {
+            if (connection != null) {
+                connection.closeSilently();
+            }
+
+            transport.shutdownNow();
+        }
+    }
+}
@@ -29,6 +29,7 @@ import java.util.concurrent.ThreadFactory;
 import java.util.concurrent.TimeUnit;
 import java.util.concurrent.atomic.AtomicBoolean;
 import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
 import java.util.logging.Level;
 import java.util.logging.Logger;
 import org.glassfish.grizzly.Buffer;
@@ -808,6 +809,511 @@ public class PooledMemoryManagerTest {
     }
 
 
+    @Test
+    public void testMagazineAllocationAndDispose() {
+        final PooledMemoryManager mm =
+                new PooledMemoryManager(DEFAULT_BASE_BUFFER_SIZE,
+                                        1,
+                                        0,
+                                        1,
+                                        DEFAULT_HEAP_USAGE_PERCENTAGE,
+                                        DEFAULT_PREALLOCATED_BUFFERS_PERCENTAGE,
+                                        isDirect,
+                                        8);
+        final TestProbe probe = new TestProbe();
+        mm.getMonitoringConfig().addProbes(probe);
+
+        final PooledMemoryManager.PoolSlice slice0 = mm.getPools()[0].getSlices()[0];
+        final int elementCount = slice0.elementsCount();
+
+        // the first allocation refills the magazine with a half-size batch
+        final Buffer b = mm.allocate(4096);
+        assertEquals(elementCount - 4, slice0.elementsCount());
+        assertEquals(0, probe.bufferAllocated.get());
+        assertEquals(1, probe.bufferAllocatedFromPool.get());
+
+        // the released buffer goes to the magazine and is reused by the
+        // same thread
+        b.tryDispose();
+        assertEquals(1, probe.bufferReleasedToPool.get());
+        final Buffer b2 = mm.allocate(4096);
+        assertSame(b, b2);
+        assertEquals(elementCount - 4, slice0.elementsCount());
+        assertEquals(2, probe.bufferAllocatedFromPool.get());
+        b2.tryDispose();
+        assertEquals(2, probe.bufferReleasedToPool.get());
+    }
+
+    @Test
+    public void testMagazineFlush() {
+        final PooledMemoryManager mm =
+                new PooledMemoryManager(DEFAULT_BASE_BUFFER_SIZE,
+                                        1,
+                                        0,
+                                        1,
+                                        DEFAULT_HEAP_USAGE_PERCENTAGE,
+                                        DEFAULT_PREALLOCATED_BUFFERS_PERCENTAGE,
+                                        isDirect,
+                                        8);
+        final PooledMemoryManager.PoolSlice slice0 = mm.getPools()[0].getSlices()[0];
+        final int elementCount = slice0.elementsCount();
+
+        final Buffer[] buffers = new Buffer[20];
+        for (int i = 0; i < buffers.length; i++) {
+            buffers[i] = mm.allocate(4096);
+        }
+        // 5 refills of 4 buffers each
+        assertEquals(elementCount - 20, slice0.elementsCount());
+
+        for (Buffer buffer : buffers) {
+            buffer.tryDispose();
+        }
+        // 8 buffers fill the magazine, then every 4 extra buffers
+        // flush 4 back to the slice, so 4 + 8 remain in the magazine
+        assertEquals(elementCount - 8, slice0.elementsCount());
+    }
+
+    @Test
+    public void testMagazineOfTerminatedThreadIsReclaimed() throws Exception {
+        final PooledMemoryManager mm =
+                new PooledMemoryManager(DEFAULT_BASE_BUFFER_SIZE,
+                                        1,
+                                        0,
+                                        1,
+                                        DEFAULT_HEAP_USAGE_PERCENTAGE,
+                                        DEFAULT_PREALLOCATED_BUFFERS_PERCENTAGE,
+                                        isDirect,
+                                        8);
+        final PooledMemoryManager.PoolSlice slice0 = mm.getPools()[0].getSlices()[0];
+        final int elementCount = slice0.elementsCount();
+
+        final Thread thread = new Thread(new Runnable() {
+            @Override
+            public void run() {
+                mm.allocate(4096).tryDispose();
+            }
+        });
+        thread.start();
+        thread.join(TimeUnit.SECONDS.toMillis(10));
+
+        // the terminated thread's magazine keeps a batch of 4 buffers
+        assertEquals(elementCount - 4, slice0.elementsCount());
+
+        // the new thread's magazine reclaims the terminated thread's buffers
+        // before it's refilled from the slice
+        final Buffer b = mm.allocate(4096);
+        assertEquals(elementCount - 4, slice0.elementsCount());
+        b.tryDispose();
+    }
+
+    @Test
+    public void testMagazineFallsBackToOtherSlices() {
+        final PooledMemoryManager mm =
+                new PooledMemoryManager(DEFAULT_BASE_BUFFER_SIZE,
+                                        1,
+                                        0,
+                                        2,
+                                        0.001f,
+                                        DEFAULT_PREALLOCATED_BUFFERS_PERCENTAGE,
+                                        isDirect,
+                                        8);
+        final TestProbe probe = new TestProbe();
+        mm.getMonitoringConfig().addProbes(probe);
+
+        final PooledMemoryManager.PoolSlice[] slices = mm.getPools()[0].getSlices();
+        final int slice0Count = slices[0].elementsCount();
+        final int slice1Count = slices[1].elementsCount();
+
+        // the first magazine's home slice is slice 0, exhaust it
+        final Buffer[] buffers = new Buffer[slice0Count + 1];
+        for (int i = 0; i < slice0Count; i++) {
+            buffers[i] = mm.allocate(4096);
+        }
+        assertEquals(0, slices[0].elementsCount());
+        assertEquals(slice1Count, slices[1].elementsCount());
+
+        // the next buffer comes from slice 1, not from outside the pool
+        buffers[slice0Count] = mm.allocate(4096);
+        assertEquals(slice1Count - 1, slices[1].elementsCount());
+        assertEquals(0, probe.bufferAllocated.get());
+
+        for (Buffer buffer : buffers) {
+            buffer.tryDispose();
+        }
+    }
+
+    @Test
+    public void testMagazinesDontRetainDiscardedManager() throws Exception {
+        PooledMemoryManager mm =
+                new PooledMemoryManager(DEFAULT_BASE_BUFFER_SIZE,
+                                        1,
+                                        0,
+                                        1,
+                                        0.001f,
+                                        DEFAULT_PREALLOCATED_BUFFERS_PERCENTAGE,
+                                        isDirect,
+                                        8);
+        // the current thread outlives the manager
+        mm.allocate(4096).tryDispose();
+
+        final java.lang.ref.WeakReference<PooledMemoryManager> ref =
+                new java.lang.ref.WeakReference<>(mm);
+        //noinspection UnusedAssignment
+        mm = null;
+
+        for (int i = 0; i < 50 && ref.get() != null; i++) {
+            System.gc();
+            Thread.sleep(20);
+        }
+
+        assertNull(ref.get());
+    }
+
+    @Test
+    public void magazineStressTest() throws Exception {
+        final PooledMemoryManager mm = new PooledMemoryManager(
+                4096, 3, 1, Runtime.getRuntime().availableProcessors(), .10f,
+                DEFAULT_PREALLOCATED_BUFFERS_PERCENTAGE, isDirect, 16);
+        multiThreadedAllocateAndDispose(mm, 20000);
+    }
+
+    @Test
+    public void arenaStressTest() throws Exception {
+        final PooledMemoryManager mm = new PooledMemoryManager(
+                4096, 1, 0, 2, .10f,
+                DEFAULT_PREALLOCATED_BUFFERS_PERCENTAGE, isDirect, 0, 64 * 1024);
+        multiThreadedAllocateAndDispose(mm, 64 * 1024);
+        
+        for (MemoryArena arena : mm.getArenas()) {
+            assertEquals(0, arena.reservedBytes() - arena.freeBytes());
+        }
+    }
+
+    private static void multiThreadedAllocateAndDispose(
+            final PooledMemoryManager mm, final int maxSize) throws Exception {
+        final int numTestThreads =
+                Runtime.getRuntime().availableProcessors() * 4;
+        final AtomicInteger errors = new AtomicInteger();
+        final Thread[] threads = new Thread[numTestThreads];
+        for (int i = 0; i < numTestThreads; i++) {
+            threads[i] = new Thread(new Runnable() {
+                final Random random = new Random(hashCode());
+
+                @Override
+                public void run() {
+                    final Buffer[] buffers = new Buffer[32];
+                    try {
+                        for (int i = 0; i < 10000; i++) {
+                            for (int j = 0; j < buffers.length; j++) {
+                                buffers[j] = mm.allocate(random.nextInt(maxSize - 4) + 4);
+                                buffers[j].putInt(0, j);
+                            }
+                            for (int j = 0; j < buffers.length; j++) {
+                                assertEquals(j, buffers[j].getInt(0));
+                                assertTrue(buffers[j].tryDispose());
+                            }
+                        }
+                    } catch (Throwable t) {
+                        t.printStackTrace();
+                        errors.incrementAndGet();
+                    }
+                }
+            });
+            threads[i].start();
+        }
+
+        for (Thread thread : threads) {
+            thread.join(TimeUnit.MINUTES.toMillis(10));
+        }
+        
+        assertEquals(0, errors.get());
+    }
+
+    @Test
+    public void testArenaAllocationAndDispose() {
+        final PooledMemoryManager mm = newArenaMemoryManager();
+        final TestProbe probe = new TestProbe();
+        mm.getMonitoringConfig().addProbes(probe);
+        final MemoryArena arena = mm.getArenas()[0];
+
+        // 4 KiB pages, so 20000 bytes occupy 5 pages
+        final Buffer b = mm.allocate(20000);
+        assertFalse(b.isComposite());
+        assertEquals(20000, b.remaining());
+        assertEquals(20480, b.capacity());
+        assertEquals(isDirect, b.isDirect());
+        assertEquals(1, probe.arenaChunkAllocated.get());
+        assertEquals(64 * 1024, arena.reservedBytes());
+        assertEquals(64 * 1024 - 20480, arena.freeBytes());
+
+        b.tryDispose();
+        assertEquals(64 * 1024, arena.freeBytes());
+        // the only free chunk is kept
+        assertEquals(64 * 1024, arena.reservedBytes());
+        assertEquals(0, probe.arenaChunkReleased.get());
+
+        // allocations beyond the chunk size still produce composite buffers
+        final Buffer composite = mm.allocate(64 * 1024 + 1);
+        assertTrue(composite.isComposite());
+        composite.tryDispose();
+    }
+
+    @Test
+    public void testArenaFragmentation() {
+        final PooledMemoryManager mm = newArenaMemoryManager();
+        final TestProbe probe = new TestProbe();
+        mm.getMonitoringConfig().addProbes(probe);
+        final MemoryArena arena = mm.getArenas()[0];
+
+        // fill the chunk with 16 KiB buffers
+        final Buffer[] buffers = new Buffer[4];
+        for (int i = 0; i < buffers.length; i++) {
+            buffers[i] = mm.allocate(16384);
+        }
+        assertEquals(0, arena.freeBytes());
+        
+        // free two non-adjacent buffers: 32 KiB are free, but the largest
+        // contiguous region is 16 KiB
+        buffers[0].tryDispose();
+        buffers[2].tryDispose();
+        assertEquals(32768, arena.freeBytes());
+        assertEquals(16384, arena.largestFreeRunBytes());
+
+        final Buffer b = mm.allocate(32768);
+        assertEquals(2, probe.arenaChunkAllocated.get());
+        assertEquals(32768, probe.arenaFreeBytes.get());
+
+        b.tryDispose();
+        buffers[1].tryDispose();
+        buffers[3].tryDispose();
+        
+        // one of the two free chunks gets released
+        assertEquals(1, probe.arenaChunkReleased.get());
+        assertEquals(64 * 1024, arena.reservedBytes());
+    }
+
+    @Test
+    public void testArenaInPlaceSplitAndShrink() {
+        final PooledMemoryManager mm = newArenaMemoryManager();
+        final MemoryArena arena = mm.getArenas()[0];
+
+        final Buffer b = mm.allocate(32768);
+        for (int i = 0; i < 32768; i++) {
+            b.put(i, (byte) i);
+        }
+
+        // page aligned split produces two independent buffers
+        final Buffer tail = b.split(16384);
+        assertEquals(16384, b.capacity());
+        assertEquals(16384, tail.capacity());
+        assertEquals((byte) 16384, tail.get(0));
+        tail.tryDispose();
+        assertEquals(64 * 1024 - 16384, arena.freeBytes());
+
+        // shrink releases the pages outside [position, limit]
+        Buffers.setPositionLimit(b, 4096 + 10, 8192 + 10);
+        b.shrink();
+        assertEquals(8192, b.capacity());
+        assertEquals(10, b.position());
+        assertEquals(4096 + 10, b.limit());
+        assertEquals((byte) (4096 + 10), b.get());
+        assertEquals(64 * 1024 - 8192, arena.freeBytes());
+
+        // shared buffers are not resized in place
+        final Buffer duplicate = b.duplicate();
+        b.clear();
+        b.shrink();
+        assertEquals(8192, b.capacity());
+        b.tryDispose();
+        assertEquals(64 * 1024 - 8192, arena.freeBytes());
+        duplicate.tryDispose();
+        assertEquals(64 * 1024, arena.freeBytes());
+    }
+
+    @Test
+    public void testArenaReallocate() {
+        final PooledMemoryManager mm = newArenaMemoryManager();
+        final MemoryArena arena = mm.getArenas()[0];
+
+        Buffer b = mm.allocate(8192);
+        b.putInt(0, 0xCAFEBABE);
+        b.position(4);
+
+        // the following pages are free, so the buffer grows in place
+        final Buffer grown = mm.reallocate(b, 32768);
+        assertSame(b, grown);
+        assertEquals(32768, b.capacity());
+        assertEquals(32768, b.limit());
+        assertEquals(4, b.position());
+        assertEquals(0xCAFEBABE, b.getInt(0));
+        
+        // block the in place growth, so the buffer gets moved to a new chunk
+        final Buffer blocker = mm.allocate(8192);
+        
+        b = mm.reallocate(b, 40000);
+        assertEquals(40000, b.limit());
+        assertEquals(4, b.position());
+        assertEquals(0xCAFEBABE, b.getInt(0));
+        assertEquals(8192 + 40960, arena.reservedBytes() - arena.freeBytes());
+
+        // shrinking the buffer releases the tail pages in place
+        b = mm.reallocate(b, 9000);
+        assertEquals(12288, b.capacity());
+        assertEquals(9000, b.limit());
+        assertEquals(8192 + 12288, arena.reservedBytes() - arena.freeBytes());
+
+        // the small sizes are moved to the pools
+        b = mm.reallocate(b, 100);
+        assertEquals(4096, b.capacity());
+        assertEquals(0xCAFEBABE, b.getInt(0));
+        assertEquals(8192, arena.reservedBytes() - arena.freeBytes());
+
+        b.tryDispose();
+        blocker.tryDispose();
+        assertEquals(0, arena.reservedBytes() - arena.freeBytes());
+    }
+
+    @Test
+    public void testInvalidArenaChunkSize() {
+        try {
+            new PooledMemoryManager(4096, 1, 0, 1, DEFAULT_HEAP_USAGE_PERCENTAGE,
+                    DEFAULT_PREALLOCATED_BUFFERS_PERCENTAGE, isDirect, 0, 4096);
+            fail();
+        } catch (IllegalArgumentException ignored) {
+        }
+        
+        try {
+            new PooledMemoryManager(4096, 1, 0, 1, DEFAULT_HEAP_USAGE_PERCENTAGE,
+                    DEFAULT_PREALLOCATED_BUFFERS_PERCENTAGE, isDirect, 0, 65535);
+            fail();
+        } catch (IllegalArgumentException ignored) {
+        }
+        
+        try {
+            new PooledMemoryManager(4096, 1, 0, 1, DEFAULT_HEAP_USAGE_PERCENTAGE,
+                    DEFAULT_PREALLOCATED_BUFFERS_PERCENTAGE, isDirect, 0, -1);
+            fail();
+        } catch (IllegalArgumentException ignored) {
+        }
+    }
+
+    @Test
+    public void testLeakDetection() throws Exception {
+        final PooledMemoryManager mm = newArenaMemoryManager();
+        final TestProbe probe = new TestProbe();
+        mm.getMonitoringConfig().addProbes(probe);
+        mm.setLeakDetectionInterval(1);
+
+        // disposed buffers, including the shared ones, are not reported
+        final Buffer disposed = mm.allocate(1024);
+        final Buffer slice = disposed.slice();
+        disposed.tryDispose();
+        slice.tryDispose();
+        mm.allocate(20000).tryDispose();
+        
+        leakBuffer(mm, 1024);
+        leakBuffer(mm, 20000);
+        
+        // the leaks are reported by the following sampled allocations
+        for (int i = 0; i < 100 && probe.bufferLeaked.get() < 2; i++) {
+            System.gc();
+            Thread.sleep(10);
+            mm.allocate(1024).tryDispose();
+        }
+        
+        assertEquals(2, probe.bufferLeaked.get());
+        
+        mm.setLeakDetectionInterval(0);
+        leakBuffer(mm, 1024);
+        for (int i = 0; i < 5; i++) {
+            System.gc();
+            Thread.sleep(10);
+            mm.allocate(1024).tryDispose();
+        }
+        
+        assertEquals(2, probe.bufferLeaked.get());
+        
+        try {
+            mm.setLeakDetectionInterval(-1);
+            fail();
+        } catch (IllegalArgumentException ignored) {
+        }
+    }
+
+    @Test
+    public void testMemoryBudget() {
+        final PooledMemoryManager mm = newArenaMemoryManager();
+        final MemoryBudget budget = new MemoryBudget(4096 + 20480);
+        mm.setMemoryBudget(budget);
+        assertSame(budget, mm.getMemoryBudget());
+
+        final Buffer pooled = mm.allocate(100);
+        assertEquals(4096, budget.getUsedBytes());
+        assertFalse(budget.isExhausted());
+
+        // arena buffers are accounted by the number of pages
+        final Buffer arenaBuffer = mm.allocate(20000);
+        assertEquals(4096 + 20480, budget.getUsedBytes());
+        assertTrue(budget.isExhausted());
+
+        final AtomicInteger notified = new AtomicInteger();
+        final Runnable task = new Runnable() {
+            @Override
+            public void run() {
+                notified.incrementAndGet();
+            }
+        };
+        
+        budget.notifyAvailable(task);
+        assertEquals(0, notified.get());
+        assertEquals(1, budget.getWaitersCount());
+        assertEquals(1, budget.getExhaustedCount());
+
+        // in place growth is accounted too
+        final Buffer grown = mm.reallocate(arenaBuffer, 24576);
+        assertSame(arenaBuffer, grown);
+        assertEquals(4096 + 24576, budget.getUsedBytes());
+
+        pooled.tryDispose();
+        assertTrue(budget.isExhausted());
+        assertEquals(0, notified.get());
+
+        grown.tryDispose();
+        assertEquals(0, budget.getUsedBytes());
+        assertEquals(1, notified.get());
+        assertEquals(0, budget.getWaitersCount());
+
+        // the task is run immediately, if the budget is available
+        budget.notifyAvailable(task);
+        assertEquals(2, notified.get());
+        assertEquals(1, budget.getExhaustedCount());
+        
+        try {
+            new MemoryBudget(0);
+            fail();
+        } catch (IllegalArgumentException ignored) {
+        }
+    }
+
+    private static void leakBuffer(final PooledMemoryManager mm, final int size) {
+        // touch the buffer, so the access record gets reported
+        final Buffer b = mm.allocate(size);
+        b.duplicate().tryDispose();
+    }
+
+    private PooledMemoryManager newArenaMemoryManager() {
+        // a single 4 KiB pool and a single arena with 64 KiB chunks
+        return new PooledMemoryManager(4096,
+                                       1,
+                                       0,
+                                       1,
+                                       DEFAULT_HEAP_USAGE_PERCENTAGE,
+                                       DEFAULT_PREALLOCATED_BUFFERS_PERCENTAGE,
+                                       isDirect,
+                                       0,
+                                       64 * 1024);
+    }
+
     // ---------------------------------------------------------- Nested Classes
 
 
@@ -815,6 +1321,10 @@ public class PooledMemoryManagerTest {
         final AtomicInteger bufferAllocated = new AtomicInteger();
         final AtomicInteger bufferAllocatedFromPool = new AtomicInteger();
         final AtomicInteger bufferReleasedToPool = new AtomicInteger();
+        final AtomicInteger arenaChunkAllocated = new AtomicInteger();
+        final AtomicInteger arenaChunkReleased = new AtomicInteger();
+        final AtomicLong arenaFreeBytes = new AtomicLong();
+        final AtomicInteger bufferLeaked = new AtomicInteger();
 
         @Override
         public void onBufferAllocateEvent(int size) {
@@ -830,5 +1340,21 @@ public class PooledMemoryManagerTest {
         public void onBufferReleaseToPoolEvent(int size) {
             bufferReleasedToPool.incrementAndGet();
         }
+
+        @Override
+        public void onArenaChunkAllocateEvent(int chunkSize, long freeBytes) {
+            arenaChunkAllocated.incrementAndGet();
+            arenaFreeBytes.set(freeBytes);
+        }
+
+        @Override
+        public void onArenaChunkReleaseEvent(int chunkSize) {
+            arenaChunkReleased.incrementAndGet();
+        }
+
+        @Override
+        public void onBufferLeakEvent(int size) {
+            bufferLeaked.incrementAndGet();
+        }
     }
 }
@@ -405,5 +405,20 @@ public class ThreadLocalMemoryManagerTest extends AbstractThreadLocalMemoryManag
         public void onBufferReleaseToPoolEvent(int size) {
             LOGGER.log(Level.INFO, "releaseBufferToPoolEvent: {0}", size);
         }
+
+        @Override
+        public void onArenaChunkAllocateEvent(int chunkSize, long freeBytes) {
+            LOGGER.log(Level.INFO, "arenaChunkAllocateEvent: {0}", chunkSize);
+        }
+
+        @Override
+        public void onArenaChunkReleaseEvent(int chunkSize) {
+            LOGGER.log(Level.INFO, "arenaChunkReleaseEvent: {0}", chunkSize);
+        }
+
+        @Override
+        public void onBufferLeakEvent(int size) {
+            LOGGER.log(Level.INFO, "bufferLeakEvent: {0}", size);
+        }
     }
 }
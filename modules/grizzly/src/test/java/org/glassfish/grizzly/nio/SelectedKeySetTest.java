@@ -0,0 +1,203 @@
+/*
+ * Copyright (c) 2017 Oracle and/or its affiliates. All rights reserved.
+ *
+ * This program and the accompanying materials are made available under the
+ * terms of the Eclipse Public License v. 2.0, which is available at
+ * http://www.eclipse.org/legal/epl-2.0.
+ *
+ * This Source Code may also be made available under the following Secondary
+ * Licenses when the conditions for such availability set forth in the
+ * Eclipse Public License v. 2.0 are satisfied: GNU General Public License,
+ * version 2 with the GNU Classpath Exception, which is available at
+ * https://www.gnu.org/software/classpath/license.html.
+ *
+ * SPDX-License-Identifier: EPL-2.0 OR GPL-2.0 WITH Classpath-exception-2.0
+ */
+
+
+package org.glassfish.grizzly.nio;
+
+import java.io.IOException;
+import java.lang.reflect.Field;
+import java.nio.channels.Pipe;
+import java.nio.channels.SelectableChannel;
+import java.nio.channels.SelectionKey;
+import java.nio.channels.Selector;
+import java.util.Iterator;
+import java.util.NoSuchElementException;
+import java.util.Set;
+import org.junit.Test;
+
+import static org.junit.Assert.*;
+
+/**
+ * {@link SelectedKeySet} tests.
+ */
+public class SelectedKeySetTest {
+
+    // ----------------------------------------------------------- Test Methods
+
+    @Test
+    public void testAddAndIterate() {
+        final SelectedKeySet keySet = new SelectedKeySet();
+        // more keys than the default capacity, so the array has to grow
+        final SelectionKey[] keys = newKeys(keySet.keys.length + 1);
+
+        for (SelectionKey key : keys) {
+            assertTrue(keySet.add(key));
+        }
+        assertFalse(keySet.add(null));
+        assertEquals(keys.length, keySet.size());
+
+        final Iterator<SelectionKey> it = keySet.iterator();
+        for (SelectionKey key : keys) {
+            assertTrue(it.hasNext());
+            assertSame(key, it.next());
+        }
+        assertFalse(it.hasNext());
+
+        try {
+            it.next();
+            fail("NoSuchElementException is expected");
+        } catch (NoSuchElementException expected) {
+        }
+    }
+
+    @Test
+    public void testRemove() {
+        final SelectedKeySet keySet = new SelectedKeySet();
+        final SelectionKey[] keys = newKeys(4);
+        for (SelectionKey key : keys) {
+            keySet.add(key);
+        }
+
+        assertTrue(keySet.remove(keys[1]));
+        assertFalse(keySet.remove(keys[1]));
+
+        final Iterator<SelectionKey> it = keySet.iterator();
+        assertSame(keys[0], it.next());
+        assertSame(keys[2], it.next());
+        it.remove();
+        assertSame(keys[3], it.next());
+        assertFalse(it.hasNext());
+
+        assertEquals(2, keySet.size());
+        assertSame(keys[0], keySet.keys[0]);
+        assertSame(keys[3], keySet.keys[1]);
+        assertNull(keySet.keys[2]);
+    }
+
+    @Test
+    public void testClear() {
+        final SelectedKeySet keySet = new SelectedKeySet();
+        final SelectionKey[] keys = newKeys(3);
+        for (SelectionKey key : keys) {
+            keySet.add(key);
+        }
+
+        keySet.clear();
+
+        assertEquals(0, keySet.size());
+        assertFalse(keySet.iterator().hasNext());
+        // the cleared slots must not retain the keys
+        for (int i = 0; i < keys.length; i++) {
+            assertNull(keySet.keys[i]);
+        }
+
+        // the set is reused by the next select cycle
+        keySet.add(keys[2]);
+        assertEquals(1, keySet.size());
+        assertSame(keys[2], keySet.iterator().next());
+    }
+
+    @Test
+    public void testInstall() throws IOException {
+        final Selector selector = Selector.open();
+        final Pipe pipe = Pipe.open();
+        try {
+            final boolean isInstalled = SelectedKeySet.install(selector);
+            // if the reflection is denied, the default set has to be kept
+            assertEquals(isReflectionPermitted(), isInstalled);
+            assertEquals(isInstalled,
+                    selector.selectedKeys() instanceof SelectedKeySet);
+
+            // the pipe sink is always ready for write
+            pipe.sink().configureBlocking(false);
+            final SelectionKey key =
+                    pipe.sink().register(selector, SelectionKey.OP_WRITE);
+
+            assertEquals(1, selector.selectNow());
+            final Set<SelectionKey> selectedKeys = selector.selectedKeys();
+            assertEquals(1, selectedKeys.size());
+            assertSame(key, selectedKeys.iterator().next());
+
+            selectedKeys.clear();
+            assertEquals(0, selector.selectedKeys().size());
+        } finally {
+            pipe.sink().close();
+            pipe.source().close();
+            selector.close();
+        }
+    }
+
+
+    // -------------------------------------------------------- Private Methods
+
+    private static boolean isReflectionPermitted() {
+        try {
+            final Class<?> selectorImplClass = Class.forName("sun.nio.ch.SelectorImpl");
+            final Field selectedKeysField =
+                    selectorImplClass.getDeclaredField("selectedKeys");
+            selectedKeysField.setAccessible(true);
+            return true;
+        } catch (Exception e) {
+            return false;
+        }
+    }
+
+    private static SelectionKey[] newKeys(final int count) {
+        final SelectionKey[] keys = new SelectionKey[count];
+        for (int i = 0; i < count; i++) {
+            keys[i] = new StubSelectionKey();
+        }
+
+        return keys;
+    }
+
+    private static final class StubSelectionKey extends SelectionKey {
+
+        @Override
+        public SelectableChannel channel() {
+            return null;
+        }
+
+        @Override
+        public Selector selector() {
+            return null;
+        }
+
+        @Override
+        public boolean isValid() {
+            return true;
+        }
+
+        @Override
+        public void cancel() {
+        }
+
+        @Override
+        public int interestOps() {
+            return 0;
+        }
+
+        @Override
+        public SelectionKey interestOps(final int ops) {
+            return this;
+        }
+
+        @Override
+        public int readyOps() {
+            return 0;
+        }
+    }
+}
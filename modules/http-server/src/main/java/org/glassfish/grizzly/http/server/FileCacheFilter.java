@@ -107,10 +107,18 @@ public class FileCacheFilter extends BaseFilter {
                     return flush(ctx);
                 }
                 
-                return fileCache.isFileSendEnabled() && !request.isSecure()
-                        ? sendFileZeroCopy(ctx, response, cacheEntry,
-                            isServeCompressed)
-                        : sendFileUsingBuffers(ctx, response, cacheEntry,
+                if (!fileCache.isFileSendEnabled()) {
+                    return sendFileUsingBuffers(ctx, response, cacheEntry,
+                            isServeCompressed, false);
+                }
+                
+                // transferTo() can't be used for secure connections, the
+                // payload has to be encrypted
+                return request.isSecure()
+                        ? sendFileUsingBuffers(ctx, response, cacheEntry,
+                            isServeCompressed,
+                            fileCache.isMappedFileSendEnabled())
+                        : sendFileZeroCopy(ctx, response, cacheEntry,
                             isServeCompressed);
             }
         }
@@ -154,11 +162,11 @@ public class FileCacheFilter extends BaseFilter {
 
     private NextAction sendFileUsingBuffers(final FilterChainContext ctx,
             final HttpResponsePacket response, final FileCacheEntry cacheEntry,
-            final boolean isServeCompressed) {
+            final boolean isServeCompressed, final boolean isMapped) {
         try {
             final FileSendEntry sendEntry = FileSendEntry.create(ctx, response,
                     cacheEntry.getFile(isServeCompressed),
-                    cacheEntry.getFileSize(isServeCompressed));
+                    cacheEntry.getFileSize(isServeCompressed), isMapped);
             
             ctx.suspend();
             sendEntry.send();
@@ -233,29 +241,34 @@ public class FileCacheFilter extends BaseFilter {
         private final FileInputStream fis;
         private final HttpResponsePacket response;
         private final OutputSink output;
+        // not null, if the file chunks are memory-mapped rather than read
+        private final MappedFileReader mappedFileReader;
         
         private long remaining;
 
         public static FileSendEntry create(final FilterChainContext ctx,
                 final HttpResponsePacket response,
-                final File file, final long size) throws IOException {
+                final File file, final long size,
+                final boolean isMapped) throws IOException {
             
             final FileInputStream fis = new FileInputStream(file);
             final FileChannel fc = fis.getChannel();
             
-            return new FileSendEntry(ctx, response, fis, fc, size);
+            return new FileSendEntry(ctx, response, fis, fc, size,
+                    isMapped ? new MappedFileReader(fc, 0, size) : null);
         }
         
         public FileSendEntry(final FilterChainContext ctx,
                 final HttpResponsePacket response,
                 final FileInputStream fis, final FileChannel fc,
-                final long size) {
+                final long size, final MappedFileReader mappedFileReader) {
 
             this.ctx = ctx;
             this.response = response;
             this.fis = fis;
             this.fc = fc;
             this.remaining = size;
+            this.mappedFileReader = mappedFileReader;
             
             final HttpContext httpContext = response.getProcessingState().getHttpContext();
             assert httpContext != null;
@@ -276,13 +289,24 @@ public class FileCacheFilter extends BaseFilter {
             try {
                 boolean isLast;
                 do {
-                    final Buffer buffer = ctx.getMemoryManager().allocate(chunkSize);
-                    buffer.allowBufferDispose(true);
+                    final Buffer buffer;
+                    final long readNow;
+                    
+                    if (mappedFileReader != null) {
+                        // slice the mapped file, no copy is made
+                        final Buffer chunk = mappedFileReader.next();
+                        buffer = chunk != null ? chunk : Buffers.EMPTY_BUFFER;
+                        readNow = chunk != null ? chunk.remaining() : -1;
+                    } else {
+                        buffer = ctx.getMemoryManager().allocate(chunkSize);
+                        buffer.allowBufferDispose(true);
+
+                        readNow = Buffers.readFromFileChannel(fc, buffer);
+                        buffer.trim();
+                    }
                     
-                    final long readNow = Buffers.readFromFileChannel(fc, buffer);
                     isLast = readNow <= 0 || (remaining -= readNow) <= 0;
 
-                    buffer.trim();
                     ctx.write(HttpContent.builder(response)
                             .content(buffer)
                             .last(isLast)
@@ -655,6 +655,13 @@ public class HttpServer {
                     serverConfig.isAllowPayloadForUndefinedHttpMethods());
             httpServerCodecFilter.setMaxPayloadRemainderToSkip(
                     serverConfig.getMaxPayloadRemainderToSkip());
+            httpServerCodecFilter.setPinRequestToConnection(
+                    serverConfig.isPinRequestToConnection());
+            if (serverConfig.isServerHeaderEnabled()) {
+                httpServerCodecFilter.setServerHeader(
+                        serverConfig.getHttpServerName() + ' '
+                        + serverConfig.getHttpServerVersion());
+            }
             
             httpServerCodecFilter.getMonitoringConfig().addProbes(
                     serverConfig.getMonitoringConfig().getHttpConfig().getProbes());
@@ -679,6 +686,11 @@ public class HttpServer {
                 fileCache.setFileSendEnabled(listener.isSendFileEnabled());
             }
             
+            if (listener.isMappedFileSendEnabled()) {
+                config.setMappedFileSendEnabled(true);
+                fileCache.setMappedFileSendEnabled(true);
+            }
+            
             if (listener.getBackendConfiguration() != null) {
                 config.setBackendConfiguration(listener.getBackendConfiguration());
             }
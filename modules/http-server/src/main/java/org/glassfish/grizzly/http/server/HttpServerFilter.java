@@ -78,6 +78,11 @@ public class HttpServerFilter extends BaseFilter
      */
     private final Attribute<Request> httpRequestInProgress;
     
+    /**
+     * Attribute, which holds the {@link Request} pinned to a {@link Connection}
+     */
+    private final Attribute<Request> pinnedRequestAttr;
+    
     /**
      * Delay queue to control suspended request/response processing timeouts
      */
@@ -131,6 +136,8 @@ public class HttpServerFilter extends BaseFilter
         suspendedResponseQueue = Response.createDelayQueue(delayedExecutor);
         httpRequestInProgress = Grizzly.DEFAULT_ATTRIBUTE_BUILDER.
                         createAttribute("HttpServerFilter.Request");
+        pinnedRequestAttr = Grizzly.DEFAULT_ATTRIBUTE_BUILDER.
+                        createAttribute("HttpServerFilter.PinnedRequest");
     }
 
     @SuppressWarnings({"UnusedDeclaration"})
@@ -173,8 +180,11 @@ public class HttpServerFilter extends BaseFilter
                 final HttpRequestPacket request = (HttpRequestPacket) httpContent.getHttpHeader();
                 final HttpResponsePacket response = request.getResponse();
                 
-                handlerRequest = Request.create();
+                handlerRequest = config.isPinRequestToConnection()
+                        ? obtainPinnedRequest(connection)
+                        : Request.create();
                 handlerRequest.parameters.setLimit(config.getMaxRequestParameters());
+                handlerRequest.parameters.setLazy(config.isLazyParameterParsing());
                 httpRequestInProgress.set(context, handlerRequest);
                 final Response handlerResponse = handlerRequest.getResponse();
 
@@ -359,6 +369,21 @@ public class HttpServerFilter extends BaseFilter
     // --------------------------------------------------------- Private Methods
 
 
+    /**
+     * Returns the {@link Request} pinned to the {@link Connection}, or
+     * creates a new one, which will be pinned once recycled.
+     */
+    private Request obtainPinnedRequest(final Connection<?> connection) {
+        final Request request = pinnedRequestAttr.remove(connection);
+        if (request != null) {
+            return request;
+        }
+        
+        final Request newRequest = new Request(new Response());
+        newRequest.isPinned = true;
+        return newRequest;
+    }
+
     private NextAction afterService(
             final FilterChainContext ctx,
             final Connection connection,
@@ -384,6 +409,10 @@ public class HttpServerFilter extends BaseFilter
         if (response.suspendState != Response.SuspendState.CANCELLED) {
             response.recycle();
             request.recycle();
+            
+            if (request.isPinned && connection.isOpen()) {
+                pinnedRequestAttr.set(connection, request);
+            }
         }
         
         if (isBroken) {
@@ -0,0 +1,120 @@
+/*
+ * Copyright (c) 2017 Oracle and/or its affiliates. All rights reserved.
+ *
+ * This program and the accompanying materials are made available under the
+ * terms of the Eclipse Public License v. 2.0, which is available at
+ * http://www.eclipse.org/legal/epl-2.0.
+ *
+ * This Source Code may also be made available under the following Secondary
+ * Licenses when the conditions for such availability set forth in the
+ * Eclipse Public License v. 2.0 are satisfied: GNU General Public License,
+ * version 2 with the GNU Classpath Exception, which is available at
+ * https://www.gnu.org/software/classpath/license.html.
+ *
+ * SPDX-License-Identifier: EPL-2.0 OR GPL-2.0 WITH Classpath-exception-2.0
+ */
+
+
+package org.glassfish.grizzly.http.server;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import org.glassfish.grizzly.Buffer;
+import org.glassfish.grizzly.memory.ByteBufferWrapper;
+
+/**
+ * Reads a file as a sequence of {@link Buffer} chunks, which are slices of
+ * read-only memory-mapped windows of the file.
+ * 
+ * The reader is used to send files over secure connections, where
+ * {@link FileChannel#transferTo(long, long, java.nio.channels.WritableByteChannel)}
+ * can't be used, because the payload has to be encrypted by the
+ * {@link javax.net.ssl.SSLEngine}. The chunks are not copied to the heap,
+ * so the engine encrypts them straight from the page cache, and the
+ * default chunk size matches the max TLS record payload, so every chunk
+ * is encrypted into exactly one record.
+ * 
+ * The mapped windows can't be unmapped explicitly, they are released only,
+ * when all their chunks are garbage collected. If the file is truncated,
+ * while it's mapped, reading the missing part of a chunk raises an
+ * {@link InternalError} (SIGBUS), which the SSL filter reports as a write
+ * failure, so the response fails and the connection is closed.
+ * 
+ * @since 2.4.4
+ */
+final class MappedFileReader {
+    /**
+     * The max TLS record payload size.
+     */
+    static final int TLS_RECORD_SIZE = 16384;
+
+    /**
+     * The default size of the file window mapped at once.
+     */
+    static final int DEFAULT_WINDOW_SIZE = Integer.getInteger(
+            MappedFileReader.class.getName() + ".window-size", 1024 * 1024);
+
+    private final FileChannel fileChannel;
+    private final int chunkSize;
+    private final int windowSize;
+    private final long limit;
+
+    private long position;
+    private ByteBuffer window;
+
+    MappedFileReader(final FileChannel fileChannel, final long position,
+            final long count) {
+        this(fileChannel, position, count, TLS_RECORD_SIZE, DEFAULT_WINDOW_SIZE);
+    }
+
+    MappedFileReader(final FileChannel fileChannel, final long position,
+            final long count, final int chunkSize, final int windowSize) {
+        if (chunkSize <= 0) {
+            throw new IllegalArgumentException("chunkSize must be positive");
+        }
+
+        this.fileChannel = fileChannel;
+        this.position = position;
+        this.limit = position + count;
+        this.chunkSize = chunkSize;
+        // keep the window aligned to the chunk size, so chunks don't span windows
+        this.windowSize = Math.max(chunkSize, windowSize - windowSize % chunkSize);
+    }
+
+    /**
+     * @return the number of bytes, which haven't been returned by
+     *          {@link #next()} yet
+     */
+    long remaining() {
+        return limit - position + (window != null ? window.remaining() : 0);
+    }
+
+    /**
+     * Returns the next file chunk, or <tt>null</tt> if the whole file region
+     * has been read.
+     * The returned {@link Buffer} refers the mapped memory, so its disposal
+     * is a no-op and the mapping is released, once all the chunks of the
+     * window are garbage collected.
+     */
+    Buffer next() throws IOException {
+        if (window == null || !window.hasRemaining()) {
+            if (position >= limit) {
+                window = null;
+                return null;
+            }
+
+            final long size = Math.min(windowSize, limit - position);
+            window = fileChannel.map(FileChannel.MapMode.READ_ONLY,
+                    position, size);
+            position += size;
+        }
+
+        final int length = Math.min(chunkSize, window.remaining());
+        final ByteBuffer chunk = window.slice();
+        chunk.limit(length);
+        window.position(window.position() + length);
+
+        return new ByteBufferWrapper(chunk);
+    }
+}
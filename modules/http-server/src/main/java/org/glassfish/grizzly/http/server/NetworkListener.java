@@ -215,6 +215,7 @@ public class NetworkListener {
     private boolean traceEnabled;
     private String uriEncoding;
     private Boolean sendFileEnabled;
+    private boolean mappedFileSendEnabled;
     
     /**
      * The auxiliary configuration, which might be used, when Grizzly HttpServer
@@ -1143,6 +1144,25 @@ public class NetworkListener {
         this.sendFileEnabled = sendFileEnabled;
     }
 
+    /**
+     * @see ServerFilterConfiguration#isMappedFileSendEnabled()
+     *
+     * @since 2.4.4
+     */
+    public boolean isMappedFileSendEnabled() {
+        return mappedFileSendEnabled;
+    }
+
+    /**
+     * @see ServerFilterConfiguration#setMappedFileSendEnabled(boolean)
+     * @see FileCache#setMappedFileSendEnabled(boolean)
+     *
+     * @since 2.4.4
+     */
+    public void setMappedFileSendEnabled(boolean mappedFileSendEnabled) {
+        this.mappedFileSendEnabled = mappedFileSendEnabled;
+    }
+
     /**
      * @return the <tt>NetworkListener</tt> default {@link ErrorPageGenerator}.
      */
@@ -22,6 +22,7 @@ import java.io.IOException;
 import java.io.InputStream;
 import java.io.Reader;
 import java.io.UnsupportedEncodingException;
+import java.nio.channels.WritableByteChannel;
 import java.nio.charset.Charset;
 import java.security.Principal;
 import java.security.cert.X509Certificate;
@@ -38,7 +39,9 @@ import java.util.logging.Level;
 import java.util.logging.Logger;
 import javax.security.auth.Subject;
 import org.glassfish.grizzly.Buffer;
+import org.glassfish.grizzly.CompletionHandler;
 import org.glassfish.grizzly.Grizzly;
+import org.glassfish.grizzly.GrizzlyFuture;
 import org.glassfish.grizzly.ReadHandler;
 import org.glassfish.grizzly.ThreadCache;
 import org.glassfish.grizzly.WriteHandler;
@@ -66,8 +69,10 @@ import org.glassfish.grizzly.http.util.FastHttpDateFormat;
 import org.glassfish.grizzly.http.util.Header;
 import org.glassfish.grizzly.http.util.MimeHeaders;
 import org.glassfish.grizzly.http.util.Parameters;
+import org.glassfish.grizzly.impl.FutureImpl;
 import org.glassfish.grizzly.localization.LogMessages;
 import org.glassfish.grizzly.utils.Charsets;
+import org.glassfish.grizzly.utils.Futures;
 import org.glassfish.grizzly.utils.JdkVersion;
 
 import static org.glassfish.grizzly.http.util.Constants.FORM_POST_CONTENT_TYPE;
@@ -411,6 +416,13 @@ public class Request {
      */
     protected Map<String,String> trailers;
 
+    /**
+     * <tt>true</tt>, if this Request is pinned to a connection, and is
+     * reused for the requests coming on it instead of going to the
+     * {@link ThreadCache}.
+     */
+    boolean isPinned;
+
     // ----------------------------------------------------------- Constructors
     /**
      * Temporarily introduce public constructor to fix GRIZZLY-1782.
@@ -661,7 +673,9 @@ public class Request {
             cachedMappingData.recycle();
         }
 
-        ThreadCache.putToCache(CACHE_IDX, this);
+        if (!isPinned) {
+            ThreadCache.putToCache(CACHE_IDX, this);
+        }
     }
 
 
@@ -1018,6 +1032,62 @@ public class Request {
     }
 
 
+    /**
+     * Asynchronously transfers the request body to the passed
+     * {@link WritableByteChannel}, for example a
+     * {@link java.nio.channels.FileChannel}, as the body chunks arrive,
+     * without buffering the entire body in memory. The body is decoded
+     * according to its transfer encoding (fixed-length or chunked),
+     * the next chunk is read only after the previous one is written.
+     * <p>
+     * NOTE: the {@link Response} has to be suspended until the returned
+     * {@link GrizzlyFuture} is completed.
+     *
+     * @param channel the blocking {@link WritableByteChannel} to transfer
+     *        the body to
+     * @return the {@link GrizzlyFuture}, which will be completed with the
+     *         number of transferred bytes
+     *
+     * @exception IllegalStateException if {@link #getReader()} or
+     *  {@link #getNIOReader()} has already been called for this request.
+     * @since 2.4.4
+     */
+    public GrizzlyFuture<Long> transferTo(final WritableByteChannel channel) {
+        final FutureImpl<Long> future = Futures.createSafeFuture();
+        transferTo(channel, Futures.toCompletionHandler(future));
+        return future;
+    }
+
+    /**
+     * Asynchronously transfers the request body to the passed
+     * {@link WritableByteChannel}, for example a
+     * {@link java.nio.channels.FileChannel}, as the body chunks arrive,
+     * without buffering the entire body in memory. The body is decoded
+     * according to its transfer encoding (fixed-length or chunked),
+     * the next chunk is read only after the previous one is written.
+     * <p>
+     * NOTE: the {@link Response} has to be suspended until the
+     * {@link CompletionHandler} is notified.
+     *
+     * @param channel the blocking {@link WritableByteChannel} to transfer
+     *        the body to
+     * @param completionHandler the {@link CompletionHandler} to be notified
+     *        with the number of transferred bytes, or the error
+     *
+     * @exception IllegalStateException if {@link #getReader()} or
+     *  {@link #getNIOReader()} has already been called for this request.
+     * @since 2.4.4
+     */
+    public void transferTo(final WritableByteChannel channel,
+            final CompletionHandler<Long> completionHandler) {
+        if (usingReader)
+            throw new IllegalStateException("Illegal attempt to call transferTo() after getReader() has already been called.");
+
+        usingInputStream = true;
+        inputBuffer.transferTo(channel, completionHandler);
+    }
+
+
     /**
      * @return <code>true</code> if the current input source is operating in
      * non-blocking mode. In other words {@link #getNIOInputStream()} or
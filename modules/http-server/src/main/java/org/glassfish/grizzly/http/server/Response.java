@@ -213,6 +213,7 @@ public class Response {
 
     private SuspendStatus suspendStatus;
     private boolean sendFileEnabled;
+    private boolean mappedFileSendEnabled;
     
     private ErrorPageGenerator errorPageGenerator;
     
@@ -227,6 +228,8 @@ public class Response {
         this.response = response;
         sendFileEnabled = ((serverFilter != null)
                 && serverFilter.getConfiguration().isSendFileEnabled());
+        mappedFileSendEnabled = sendFileEnabled
+                && serverFilter.getConfiguration().isMappedFileSendEnabled();
         outputBuffer.initialize(this, ctx);
         this.ctx = ctx;
         this.httpContext = HttpContext.get(ctx);
@@ -271,6 +274,7 @@ public class Response {
         request = null;
         response.recycle();
         sendFileEnabled = false;
+        mappedFileSendEnabled = false;
         response = null;
         ctx = null;
         suspendState = SuspendState.NONE;
@@ -1967,6 +1971,10 @@ public class Response {
         return sendFileEnabled;
     }
 
+    boolean isMappedFileSendEnabled() {
+        return mappedFileSendEnabled;
+    }
+
     public final class SuspendedContextImpl implements SuspendContext {
 
         private int modCount;
@@ -33,10 +33,14 @@ public class ServerFilterConfiguration {
     private String httpServerName;
     private String httpServerVersion;
     private boolean sendFileEnabled;
+    private boolean mappedFileSendEnabled;
     
     private boolean traceEnabled;
     private boolean passTraceRequest;
     private int maxRequestParameters = MAX_REQUEST_PARAMETERS;
+    private boolean isLazyParameterParsing;
+    private boolean isServerHeaderEnabled;
+    private boolean isPinRequestToConnection;
     
     private long maxPostSize = -1L;
     private int maxFormPostSize = 2 * 1024 * 1024;
@@ -87,10 +91,14 @@ public class ServerFilterConfiguration {
         this.httpServerName = configuration.httpServerName;
         this.httpServerVersion = configuration.httpServerVersion;
         this.sendFileEnabled = configuration.sendFileEnabled;
+        this.mappedFileSendEnabled = configuration.mappedFileSendEnabled;
         this.backendConfiguration = configuration.backendConfiguration;
         this.traceEnabled = configuration.traceEnabled;
         this.passTraceRequest = configuration.passTraceRequest;
         this.maxRequestParameters = configuration.maxRequestParameters;
+        this.isLazyParameterParsing = configuration.isLazyParameterParsing;
+        this.isServerHeaderEnabled = configuration.isServerHeaderEnabled;
+        this.isPinRequestToConnection = configuration.isPinRequestToConnection;
         this.maxFormPostSize = configuration.maxFormPostSize;
         this.maxBufferedPostSize = configuration.maxBufferedPostSize;
         this.defaultQueryEncoding = configuration.defaultQueryEncoding;
@@ -136,6 +144,28 @@ public class ServerFilterConfiguration {
         this.httpServerVersion = httpServerVersion;
     }
 
+    /**
+     * @return <tt>true</tt> if the Server header, composed of the server name
+     *          and version, is added to the responses, which don't have it set
+     * @since 2.4.4
+     */
+    public boolean isServerHeaderEnabled() {
+        return isServerHeaderEnabled;
+    }
+
+    /**
+     * Enables or disables the Server header, composed of the server name and
+     * version, to be added to the responses, which don't have it set.
+     * The header is encoded once, when the server is started.
+     * By default the Server header is not added.
+     *
+     * @param isServerHeaderEnabled <tt>true</tt> to add the Server header
+     * @since 2.4.4
+     */
+    public void setServerHeaderEnabled(final boolean isServerHeaderEnabled) {
+        this.isServerHeaderEnabled = isServerHeaderEnabled;
+    }
+
     /**
      * <p>
      * Returns <code>true</code> if File resources may be be sent using
@@ -183,6 +213,40 @@ public class ServerFilterConfiguration {
         this.sendFileEnabled = sendFileEnabled;
     }
 
+    /**
+     * @return <code>true</code> if File resources may be sent over secure
+     *         connections as memory-mapped chunks, or <code>false</code> otherwise.
+     *         The default value is <code>false</code>.
+     * @see #setMappedFileSendEnabled(boolean)
+     * @since 2.4.4
+     */
+    public boolean isMappedFileSendEnabled() {
+        return mappedFileSendEnabled;
+    }
+
+    /**
+     * Configure whether File resources may be sent over secure connections
+     * as read-only memory-mapped chunks, if send-file support is enabled
+     * (see {@link #setSendFileEnabled(boolean)}). The content has to pass
+     * through the SSL engine, so it can't be sent via
+     * {@link java.nio.channels.FileChannel#transferTo(long, long, java.nio.channels.WritableByteChannel)},
+     * but the mapped chunks are encrypted without being copied to the heap.
+     * If disabled, the content is copied to the heap and then encrypted.
+     * <p>
+     * The chunk mappings are released only, when the chunk buffers are garbage
+     * collected, so sending many large files at once may keep a lot of
+     * virtual memory mapped. If a file gets truncated, while it's being sent,
+     * the response fails and the connection is closed.
+     * </p>
+     *
+     * @param mappedFileSendEnabled <code>true</code> to send File resources
+     *                              over secure connections as memory-mapped chunks.
+     * @since 2.4.4
+     */
+    public void setMappedFileSendEnabled(boolean mappedFileSendEnabled) {
+        this.mappedFileSendEnabled = mappedFileSendEnabled;
+    }
+
     /**
      * Get the HTTP request scheme, which if non-null overrides default one
      * picked up by framework during runtime.
@@ -323,6 +387,61 @@ public class ServerFilterConfiguration {
         }
     }
 
+    /**
+     * Returns <tt>true</tt> if the request parameters are parsed lazily,
+     * or <tt>false</tt> otherwise.
+     *
+     * @see #setLazyParameterParsing(boolean)
+     * @since 2.4.4
+     */
+    public boolean isLazyParameterParsing() {
+        return isLazyParameterParsing;
+    }
+
+    /**
+     * Enables or disables the lazy request parameters parsing. If enabled,
+     * the query string and form parameters are only indexed, and a parameter
+     * is URL-decoded when it is requested, which is cheaper for the requests
+     * with many parameters, where just a few of them are used.
+     * By default the lazy parsing is disabled.
+     *
+     * @param isLazyParameterParsing <tt>true</tt> to enable the lazy parsing
+     * @see org.glassfish.grizzly.http.util.Parameters#setLazy(boolean)
+     * @since 2.4.4
+     */
+    public void setLazyParameterParsing(final boolean isLazyParameterParsing) {
+        this.isLazyParameterParsing = isLazyParameterParsing;
+    }
+
+    /**
+     * Returns <tt>true</tt> if the request/response objects are pinned to
+     * the connection and reused for all the requests coming on it, or
+     * <tt>false</tt> otherwise.
+     *
+     * @see #setPinRequestToConnection(boolean)
+     * @since 2.4.4
+     */
+    public boolean isPinRequestToConnection() {
+        return isPinRequestToConnection;
+    }
+
+    /**
+     * Enables or disables pinning of the request/response object graph
+     * ({@link Request}, {@link Response}, their input/output buffers and the
+     * underlying HTTP packets) to the connection. If enabled, the objects
+     * are reused for all the requests coming on a keep-alive connection and
+     * never go through the thread-local object caches, which is useful when
+     * the requests are processed by worker threads.
+     * By default the pinning is disabled.
+     *
+     * @param isPinRequestToConnection <tt>true</tt> to pin the request/response
+     *        objects to the connection
+     * @since 2.4.4
+     */
+    public void setPinRequestToConnection(final boolean isPinRequestToConnection) {
+        this.isPinRequestToConnection = isPinRequestToConnection;
+    }
+
     /**
      * Returns the "reuse session IDs when creating sessions"
      * 
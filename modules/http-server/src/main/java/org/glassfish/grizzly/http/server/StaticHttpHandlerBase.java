@@ -99,8 +99,15 @@ public abstract class StaticHttpHandlerBase extends HttpHandler {
         final long length = file.length();
         response.setContentLengthLong(length);
         response.addDateHeader(Header.Date, System.currentTimeMillis());
-        if (!response.isSendFileEnabled() || response.getRequest().isSecure()) {
+        if (!response.isSendFileEnabled()) {
             sendUsingBuffers(response, file);
+        } else if (response.getRequest().isSecure()) {
+            // transferTo() can't be used, the payload has to be encrypted
+            if (response.isMappedFileSendEnabled()) {
+                sendUsingMappedFile(response, file);
+            } else {
+                sendUsingBuffers(response, file);
+            }
         } else {
             sendZeroCopy(response, file);
         }
@@ -116,8 +123,19 @@ public abstract class StaticHttpHandlerBase extends HttpHandler {
         
         outputStream.notifyCanWrite(
                 new NonBlockingDownloadHandler(response, outputStream,
-                        file, chunkSize));
+                        file, chunkSize, false));
+
+    }
 
+    private static void sendUsingMappedFile(final Response response,
+            final File file) throws IOException {
+        response.suspend();
+        
+        final NIOOutputStream outputStream = response.getNIOOutputStream();
+        
+        outputStream.notifyCanWrite(
+                new NonBlockingDownloadHandler(response, outputStream,
+                        file, MappedFileReader.TLS_RECORD_SIZE, true));
     }
 
     private static void sendZeroCopy(final Response response, final File file)
@@ -288,10 +306,12 @@ public abstract class StaticHttpHandlerBase extends HttpHandler {
         private final FileChannel fileChannel;
         private final MemoryManager mm;
         private final int chunkSize;
+        // not null, if the file chunks are memory-mapped rather than read
+        private final MappedFileReader mappedFileReader;
         
         NonBlockingDownloadHandler(final Response response,
                 final NIOOutputStream outputStream, final File file,
-                final int chunkSize) {
+                final int chunkSize, final boolean isMapped) {
             
             try {
                 fileChannel = new FileInputStream(file).getChannel();
@@ -305,6 +325,10 @@ public abstract class StaticHttpHandlerBase extends HttpHandler {
             this.outputStream = outputStream;
             mm = response.getRequest().getContext().getMemoryManager();
             this.chunkSize = chunkSize;
+            mappedFileReader = isMapped
+                    ? new MappedFileReader(fileChannel, 0, size,
+                            chunkSize, MappedFileReader.DEFAULT_WINDOW_SIZE)
+                    : null;
         }
         
         @Override
@@ -330,23 +354,32 @@ public abstract class StaticHttpHandlerBase extends HttpHandler {
          * Send next CHUNK_SIZE of file
          */
         private boolean sendChunk() throws IOException {
-            // allocate Buffer
-            final Buffer buffer = mm.allocate(chunkSize);
-            // mark it available for disposal after content is written
-            buffer.allowBufferDispose(true);
-
-            // read file to the Buffer
-            final int justReadBytes = (int) Buffers.readFromFileChannel(
-                    fileChannel, buffer);
+            final Buffer buffer;
+            final int justReadBytes;
+            
+            if (mappedFileReader != null) {
+                // slice the mapped file, no copy is made
+                buffer = mappedFileReader.next();
+                justReadBytes = buffer != null ? buffer.remaining() : -1;
+            } else {
+                // allocate Buffer
+                buffer = mm.allocate(chunkSize);
+                // mark it available for disposal after content is written
+                buffer.allowBufferDispose(true);
+
+                // read file to the Buffer
+                justReadBytes = (int) Buffers.readFromFileChannel(
+                        fileChannel, buffer);
+
+                // prepare buffer to be written
+                buffer.trim();
+            }
             
             if (justReadBytes <= 0) {
                 complete(false);
                 return false;
             }
 
-            // prepare buffer to be written
-            buffer.trim();
-
             // write the Buffer
             outputStream.write(buffer);
             size -= justReadBytes;
@@ -155,6 +155,12 @@ public class FileCache implements MonitoringAware<FileCacheProbe> {
      */
     private boolean fileSendEnabled;
     
+    /**
+     * <tt>true</tt>, if the files could be sent over secure connections as
+     * memory-mapped chunks, or <tt>false</tt> otherwise.
+     */
+    private boolean mappedFileSendEnabled;
+    
     /**
      * File cache probes
      */
@@ -630,6 +636,37 @@ public class FileCache implements MonitoringAware<FileCacheProbe> {
     public void setFileSendEnabled(boolean fileSendEnabled) {
         this.fileSendEnabled = fileSendEnabled;
     }
+
+    /**
+     * @return <code>true</code> if the cached files may be sent over secure
+     *         connections as memory-mapped chunks, or <code>false</code> otherwise.
+     *         The default value is <code>false</code>.
+     * @see #setMappedFileSendEnabled(boolean)
+     * @since 2.4.4
+     */
+    public boolean isMappedFileSendEnabled() {
+        return mappedFileSendEnabled;
+    }
+
+    /**
+     * Configure whether the files, which are not mapped by the cache, may be
+     * sent over secure connections as read-only memory-mapped chunks, if
+     * send-file support is enabled (see {@link #setFileSendEnabled(boolean)}).
+     * If disabled, the file content is copied to the heap and then encrypted.
+     * <p>
+     * The chunk mappings are released only, when the chunk buffers are garbage
+     * collected, so sending many large files at once may keep a lot of
+     * virtual memory mapped. If a file gets truncated, while it's being sent,
+     * the response fails and the connection is closed.
+     * </p>
+     *
+     * @param mappedFileSendEnabled <code>true</code> to send the files over
+     *                              secure connections as memory-mapped chunks.
+     * @since 2.4.4
+     */
+    public void setMappedFileSendEnabled(boolean mappedFileSendEnabled) {
+        this.mappedFileSendEnabled = mappedFileSendEnabled;
+    }
     
     /**
      * Creates a temporary compressed representation of the given cache entry.
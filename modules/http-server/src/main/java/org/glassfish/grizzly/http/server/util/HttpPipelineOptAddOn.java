@@ -18,6 +18,7 @@ package org.glassfish.grizzly.http.server.util;
 
 import java.io.IOException;
 import java.util.Arrays;
+import java.util.concurrent.atomic.LongAdder;
 import org.glassfish.grizzly.Buffer;
 import org.glassfish.grizzly.CompletionHandler;
 import org.glassfish.grizzly.Connection;
@@ -31,16 +32,29 @@ import org.glassfish.grizzly.attributes.AttributeBuilder;
 import org.glassfish.grizzly.filterchain.BaseFilter;
 import org.glassfish.grizzly.filterchain.FilterChainBuilder;
 import org.glassfish.grizzly.filterchain.FilterChainContext;
+import org.glassfish.grizzly.filterchain.FilterChainEvent;
 import org.glassfish.grizzly.filterchain.NextAction;
 import org.glassfish.grizzly.filterchain.TransportFilter;
+import org.glassfish.grizzly.http.HttpEvents;
 import org.glassfish.grizzly.http.server.AddOn;
+import org.glassfish.grizzly.http.server.HttpServerFilter;
 import org.glassfish.grizzly.http.server.NetworkListener;
 import org.glassfish.grizzly.memory.CompositeBuffer;
+import org.glassfish.grizzly.ssl.SSLBaseFilter;
 
 /**
  * The plugin, that optimizes processing of pipelined HTTP requests by
  * buffering HTTP responses and then writing them as one operation.
  * 
+ * In the adaptive mode the plugin counts the complete HTTP requests, which
+ * came in the current read buffer, and sizes the write batch accordingly:
+ * a single (not pipelined) request is written straight away without
+ * buffering, and the pipelined responses are flushed as soon as all the
+ * requests from the read buffer are answered, or once
+ * <tt>maxBufferSize</tt> is reached. If the read data is encrypted, the
+ * requests can't be counted and the plugin works the same way as in the
+ * non-adaptive mode.
+ * 
  * Please note, this addon is not thread-safe, so it can't be used with HTTP
  * requests, that require asynchronous processing.
  * 
@@ -54,6 +68,23 @@ public class HttpPipelineOptAddOn implements AddOn {
      */
     private final int maxBufferSize;
 
+    /**
+     * <tt>true</tt>, if the write batch is sized based on the number of
+     * pipelined requests in the read buffer
+     */
+    private final boolean isAdaptive;
+
+    /**
+     * the number of completed HTTP responses (the counters are shared by
+     * all the connections, so they're striped to not contend on each write)
+     */
+    private final LongAdder responsesCount = new LongAdder();
+
+    /**
+     * the number of write operations passed down to the transport
+     */
+    private final LongAdder writesCount = new LongAdder();
+
     /**
      * Constructs <tt>HttpPipelineOptAddOn</tt>.
      */
@@ -67,16 +98,112 @@ public class HttpPipelineOptAddOn implements AddOn {
      * @param maxBufferSize the max number of response bytes to buffer before flush
      */
     public HttpPipelineOptAddOn(final int maxBufferSize) {
+        this(maxBufferSize, false);
+    }
+    
+    /**
+     * Constructs <tt>HttpPipelineOptAddOn</tt>.
+     * 
+     * @param maxBufferSize the max number of response bytes to buffer before flush
+     * @param isAdaptive <tt>true</tt>, if the write batch has to be sized
+     *  based on the number of pipelined requests in the read buffer
+     *
+     * @since 2.4.4
+     */
+    public HttpPipelineOptAddOn(final int maxBufferSize,
+            final boolean isAdaptive) {
         this.maxBufferSize = maxBufferSize;
+        this.isAdaptive = isAdaptive;
     }
     
+    /**
+     * @return the max number of response bytes to buffer before flush
+     *
+     * @since 2.4.4
+     */
+    public int getMaxBufferSize() {
+        return maxBufferSize;
+    }
+
+    /**
+     * @return <tt>true</tt>, if the write batch is sized based on the number
+     *  of pipelined requests in the read buffer
+     *
+     * @since 2.4.4
+     */
+    public boolean isAdaptive() {
+        return isAdaptive;
+    }
+
+    /**
+     * @return the number of completed HTTP responses
+     *
+     * @since 2.4.4
+     */
+    public long getResponsesCount() {
+        return responsesCount.sum();
+    }
+
+    /**
+     * @return the number of write operations passed down to the transport
+     *
+     * @since 2.4.4
+     */
+    public long getWritesCount() {
+        return writesCount.sum();
+    }
+
+    /**
+     * @return the average number of HTTP responses sent per write operation
+     *
+     * @since 2.4.4
+     */
+    public double getAverageResponsesPerWrite() {
+        final long writes = writesCount.sum();
+        return writes == 0 ? 0 : (double) responsesCount.sum() / writes;
+    }
+
     @Override
     public void setup(final NetworkListener networkListener,
             final FilterChainBuilder builder) {
+        // the requests can be counted only if the read data is not encrypted
+        final boolean isCountRequests = isAdaptive
+                && builder.indexOfType(SSLBaseFilter.class) < 0;
+        
+        final PlugFilter plugFilter = new PlugFilter(this, isCountRequests,
+                networkListener.getTransport().getAttributeBuilder());
+        
+        final int httpServerFilterIdx = builder.indexOfType(HttpServerFilter.class);
+        if (httpServerFilterIdx >= 0) {
+            // Insert the ResponseCompleteFilter right before HttpServerFilter
+            builder.add(httpServerFilterIdx,
+                    new ResponseCompleteFilter(plugFilter));
+        }
+        
         final int tfIdx = builder.indexOfType(TransportFilter.class);
-        builder.add(tfIdx + 1,
-                new PlugFilter(maxBufferSize,
-                        networkListener.getTransport().getAttributeBuilder()));
+        builder.add(tfIdx + 1, plugFilter);
+    }
+    
+    /**
+     * The filter, that intercepts the response complete event and lets
+     * the {@link PlugFilter} know that one more HTTP response is ready.
+     */
+    private static class ResponseCompleteFilter extends BaseFilter {
+        private final PlugFilter plugFilter;
+
+        public ResponseCompleteFilter(final PlugFilter plugFilter) {
+            this.plugFilter = plugFilter;
+        }
+
+        @Override
+        public NextAction handleEvent(final FilterChainContext ctx,
+                final FilterChainEvent event) throws IOException {
+            if (event.type() == HttpEvents.ResponseCompleteEvent.TYPE) {
+                plugFilter.onResponseComplete(ctx);
+            }
+            
+            return ctx.getInvokeAction();
+        }
     }
     
     /**
@@ -87,10 +214,15 @@ public class HttpPipelineOptAddOn implements AddOn {
     private static class PlugFilter extends BaseFilter {
 
         private final Attribute<Plug> plugAttr;
+        private final HttpPipelineOptAddOn addOn;
         private final int maxBufferSize;
+        private final boolean isCountRequests;
 
-        public PlugFilter(final int maxBufferSize, final AttributeBuilder builder) {
-            this.maxBufferSize = maxBufferSize;
+        public PlugFilter(final HttpPipelineOptAddOn addOn,
+                final boolean isCountRequests, final AttributeBuilder builder) {
+            this.addOn = addOn;
+            this.maxBufferSize = addOn.maxBufferSize;
+            this.isCountRequests = isCountRequests;
             plugAttr = builder.createAttribute(PlugFilter.class + ".plug");
         }
 
@@ -98,8 +230,19 @@ public class HttpPipelineOptAddOn implements AddOn {
         public NextAction handleRead(final FilterChainContext ctx) throws IOException {
             // blocking mode means this read is initiated from HttpHandler
             if (!ctx.getTransportContext().isBlocking()) {
+                final int requestsCount;
+                if (isCountRequests) {
+                    requestsCount = countRequests(ctx.getMessage());
+                    if (requestsCount <= 1) {
+                        // no pipelining - nothing to batch
+                        return ctx.getInvokeAction();
+                    }
+                } else {
+                    requestsCount = -1;
+                }
+                
                 // create a plug for this FilterChainContext
-                final Plug plug = Plug.create(ctx, this);
+                final Plug plug = Plug.create(ctx, this, requestsCount);
 
                 ctx.getInternalContext().addLifeCycleListener(plug);
                 plugAttr.set(ctx, plug);
@@ -137,23 +280,72 @@ public class HttpPipelineOptAddOn implements AddOn {
                     plug.flush();
                 }
             }
+            
+            addOn.writesCount.increment();
             return ctx.getInvokeAction();
         }
 
+        /**
+         * Called when the HTTP response is complete.
+         */
+        private void onResponseComplete(final FilterChainContext ctx) {
+            addOn.responsesCount.increment();
+            
+            final Plug plug = plugAttr.get(ctx);
+            if (plug != null && plug.isPlugged
+                    && ++plug.responsesCount == plug.requestsCount) {
+                // all the requests from the read buffer are answered
+                plug.flush();
+            }
+        }
+
+        /**
+         * Counts the complete HTTP request headers (terminated with
+         * <tt>CRLFCRLF</tt>) in the read buffer.
+         */
+        private static int countRequests(final Object message) {
+            if (!(message instanceof Buffer)) {
+                return 0;
+            }
+            
+            final Buffer buffer = (Buffer) message;
+            final int limit = buffer.limit();
+            
+            int count = 0;
+            int state = 0;
+            for (int i = buffer.position(); i < limit; i++) {
+                final byte b = buffer.get(i);
+                if (b == '\r') {
+                    state = (state == 2) ? 3 : 1;
+                } else if (b == '\n' && (state == 1 || state == 3)) {
+                    if (state == 3) {
+                        count++;
+                        state = 0;
+                    } else {
+                        state = 2;
+                    }
+                } else {
+                    state = 0;
+                }
+            }
+            
+            return count;
+        }
+
         public static class Plug extends IOEventLifeCycleListener.Adapter {
 
             private static final ThreadCache.CachedTypeIndex<Plug> CACHE_IDX
                     = ThreadCache.obtainIndex(Plug.class, 4);
 
             public static Plug create(final FilterChainContext ctx,
-                    final PlugFilter plugFilter) {
+                    final PlugFilter plugFilter, final int requestsCount) {
                 Plug plug = ThreadCache.takeFromCache(CACHE_IDX);
 
                 if (plug == null) {
                     plug = new Plug();
                 }
 
-                return plug.init(ctx, plugFilter);
+                return plug.init(ctx, plugFilter, requestsCount);
             }
 
             // if this cloner is not called - it means the message has reached the network
@@ -177,9 +369,17 @@ public class HttpPipelineOptAddOn implements AddOn {
             // optimization flag used to cache (or not) AggrCompletionHandler
             private boolean isWrittenInThisThread;
 
-            Plug init(final FilterChainContext ctx, final PlugFilter plugFilter) {
+            // the number of requests in the read buffer, -1 if unknown
+            private int requestsCount;
+            // the number of responses completed
+            private int responsesCount;
+
+            Plug init(final FilterChainContext ctx, final PlugFilter plugFilter,
+                    final int requestsCount) {
                 this.ctx = ctx.copy();
                 this.plugFilter = plugFilter;
+                this.requestsCount = requestsCount;
+                responsesCount = 0;
 
                 isPlugged = true;
 
@@ -263,6 +463,7 @@ public class HttpPipelineOptAddOn implements AddOn {
             @SuppressWarnings("unchecked")
             private void flush() {
                 if (isPlugged && buffer != null) {
+                    plugFilter.addOn.writesCount.increment();
                     isWrittenInThisThread = true;
                     ctx.write(null, buffer, aggrCompletionHandler, cloner);
                     buffer = null;
@@ -57,6 +57,12 @@ public class Mapper {
 
     private static final CharChunk SLASH = new CharChunk();
 
+    /**
+     * The default number of entries in the mapping result cache.
+     */
+    public static final int DEFAULT_MAPPING_CACHE_SIZE = Integer.getInteger(
+            Mapper.class.getName() + ".mapping-cache-size", 256);
+
     /**
      * Allow replacement of already added {@link Host}, {@link Context}
      * and {@link Wrapper}
@@ -100,6 +106,16 @@ public class Mapper {
      */
     private int port = 0;
 
+    /**
+     * Direct-mapped cache of the recent host+URI mapping results, or
+     * <tt>null</tt> if the cache is disabled. The array is replaced (never
+     * cleared in place) every time the mapping configuration changes, so
+     * the mapping operation, which ran against a stale configuration, can
+     * only pollute an array, which is not used anymore.
+     */
+    private volatile MappingCacheEntry[] mappingCache =
+            newMappingCache(DEFAULT_MAPPING_CACHE_SIZE);
+
 
     // --------------------------------------------------------- Public Methods
 
@@ -140,6 +156,36 @@ public class Mapper {
     }
 
 
+    /**
+     * @return the number of entries in the mapping result cache,
+     *         <tt>0</tt> if the cache is disabled.
+     */
+    public int getMappingCacheSize() {
+        final MappingCacheEntry[] cache = mappingCache;
+        return cache != null ? cache.length : 0;
+    }
+
+
+    /**
+     * Sets the number of entries in the mapping result cache. The size will
+     * be rounded up to the nearest power of two, <tt>0</tt> disables the cache.
+     *
+     * The cache keeps the results of the recent {@link #map(DataChunk, DataChunk, MappingData)}
+     * and {@link #map(HttpRequestPacket, DataChunk, MappingData)} operations,
+     * so the repeated requests to the same URI don't have to pass through
+     * all the host, context and wrapper mapping rules again.
+     *
+     * @param size the number of entries in the mapping result cache.
+     */
+    public void setMappingCacheSize(final int size) {
+        if (size < 0) {
+            throw new IllegalArgumentException("size can't be negative");
+        }
+
+        mappingCache = newMappingCache(size);
+    }
+
+
     /**
      * @return Default host name
      */
@@ -155,6 +201,7 @@ public class Mapper {
      */
     public void setDefaultHostName(String defaultHostName) {
         this.defaultHostName = defaultHostName;
+        invalidateMappingCache();
     }
 
     /**
@@ -204,6 +251,8 @@ public class Mapper {
         if (defaultContextPath != null) {
             newHost.defaultContextPaths[0] = defaultContextPath;
         }
+
+        invalidateMappingCache();
     }
 
 
@@ -236,6 +285,8 @@ public class Mapper {
         // START GlassFish 1024
         defaultContextPathsMap.remove(name);
         // END GlassFish 1024
+
+        invalidateMappingCache();
     }
 
     public String[] getHosts() {
@@ -335,6 +386,8 @@ public class Mapper {
                     oldElem.resources = resources;
                 }
             }
+
+            invalidateMappingCache();
         }
     }
 
@@ -372,6 +425,8 @@ public class Mapper {
                     }
                 }
             }
+
+            invalidateMappingCache();
         }
     }
 
@@ -571,6 +626,8 @@ public class Mapper {
                 }
             }
         }
+
+        invalidateMappingCache();
     }
 
 
@@ -654,6 +711,8 @@ public class Mapper {
                 }
             }
         }
+
+        invalidateMappingCache();
     }
 
     public String getWrappersString( String host, String context ) {
@@ -722,11 +781,15 @@ public class Mapper {
 
         hosts[pos].defaultContextPaths[0] = defaultContextPath;
 
-        if (defaultContextPath != null) {
-            addDefaultContext(hosts[pos], defaultContextPath);
-        } else {
-            hosts[pos].defaultContexts[0] = null;
-            defaultContextPathsMap.remove(hostName);
+        try {
+            if (defaultContextPath != null) {
+                addDefaultContext(hosts[pos], defaultContextPath);
+            } else {
+                hosts[pos].defaultContexts[0] = null;
+                defaultContextPathsMap.remove(hostName);
+            }
+        } finally {
+            invalidateMappingCache();
         }
     }
 
@@ -868,7 +931,7 @@ public class Mapper {
         host.toChars(Constants.DEFAULT_HTTP_CHARSET);
         uri.toChars(Charsets.UTF8_CHARSET);
         
-        internalMap(host.getCharChunk(), uri.getCharChunk(), mappingData);
+        internalMapCached(host.getCharChunk(), uri.getCharChunk(), mappingData);
 
     }
 
@@ -902,9 +965,9 @@ public class Mapper {
         }
         
         uri.toChars(Charsets.UTF8_CHARSET);
-        internalMap(hostCC,
-                    uri.getCharChunk(),
-                    mappingData);
+        internalMapCached(hostCC,
+                          uri.getCharChunk(),
+                          mappingData);
 
     }
 
@@ -931,10 +994,76 @@ public class Mapper {
     // -------------------------------------------------------- Private Methods
 
 
+    /**
+     * Drops all the cached mapping results.
+     */
+    private void invalidateMappingCache() {
+        final MappingCacheEntry[] cache = mappingCache;
+        if (cache != null) {
+            mappingCache = new MappingCacheEntry[cache.length];
+        }
+    }
+
+
+    private static MappingCacheEntry[] newMappingCache(final int size) {
+        if (size <= 0) {
+            return null;
+        }
+
+        int capacity = 1;
+        while (capacity < size) {
+            capacity <<= 1;
+        }
+
+        return new MappingCacheEntry[capacity];
+    }
+
+
+    /**
+     * Map the specified URI using the mapping result cache.
+     */
+    private void internalMapCached(final CharChunk host, final CharChunk uri,
+                                   final MappingData mappingData)
+        throws Exception {
+
+        final MappingCacheEntry[] cache = mappingCache;
+        if (cache == null || uri.isNull() || mappingData.host != null
+                || mappingData.context != null || mappingData.wrapper != null) {
+            internalMap(host, uri, mappingData);
+            return;
+        }
+
+        final int hash = MappingCacheEntry.hash(host, uri);
+        final int idx = hash & (cache.length - 1);
+        final MappingCacheEntry entry = cache[idx];
+        if (entry != null && entry.matches(hash, host, uri)) {
+            entry.apply(mappingData);
+            return;
+        }
+
+        final int uriStart = uri.getStart();
+        final int uriEnd = uri.getEnd();
+
+        final Context ctx = internalMap(host, uri, mappingData);
+
+        // The results, which depend on the context static resources
+        // (folder redirects, welcome files), or which mutated the URI
+        // are not cacheable
+        if ((ctx == null || ctx.resources == null)
+                && mappingData.redirectPath.isNull()
+                && uri.getStart() == uriStart && uri.getEnd() == uriEnd) {
+            cache[idx] = new MappingCacheEntry(hash, host, uri, mappingData);
+        }
+    }
+
+
     /**
      * Map the specified URI.
+     *
+     * @return the mapped {@link Context}, or <tt>null</tt> if no context
+     *         was mapped by this call.
      */
-    private void internalMap(CharChunk host, CharChunk uri,
+    private Context internalMap(CharChunk host, CharChunk uri,
                                    MappingData mappingData)
         throws Exception {
 
@@ -959,7 +1088,7 @@ public class Mapper {
                 nesting = newHosts[pos].contextList.nesting;
             } else {
                 if (defaultHostName == null) {
-                    return;
+                    return null;
                 }
                 pos = findIgnoreCase(newHosts, defaultHostName);
                 if (pos != -1 && defaultHostName.equalsIgnoreCase(newHosts[pos].name)) {
@@ -968,7 +1097,7 @@ public class Mapper {
                     contexts = newHosts[pos].contextList.contexts;
                     nesting = newHosts[pos].contextList.nesting;
                 } else {
-                    return;
+                    return null;
                 }
             }
         }
@@ -985,7 +1114,7 @@ public class Mapper {
                 // START GlassFish 1024
                 if (hosts[hostPos].defaultContexts[0] == null) {
                 // END GlassFish 1024
-                    return;
+                    return null;
                 // START GlassFish 1024
                 }
                 ctx = hosts[hostPos].defaultContexts[0];
@@ -1050,6 +1179,7 @@ public class Mapper {
             internalMapWrapper(ctx, uri, mappingData);
         }
 
+        return ctx;
     }
 
 
@@ -1992,6 +2122,123 @@ public class Mapper {
     }
 
 
+    // ------------------------------------------ MappingCacheEntry Inner Class
+
+
+    /**
+     * Immutable snapshot of the host+URI mapping result.
+     */
+    private static final class MappingCacheEntry {
+
+        private final int hash;
+        private final char[] host;
+        private final char[] uri;
+
+        private final Object hostObject;
+        private final Object context;
+        private final Object wrapper;
+        private final String servletName;
+        private final String descriptorPath;
+        private final String matchedPath;
+        private final boolean jspWildCard;
+        private final boolean isDefaultContext;
+        private final byte mappingType;
+        private final String contextPath;
+        private final String requestPath;
+        private final String wrapperPath;
+        private final String pathInfo;
+
+        MappingCacheEntry(final int hash, final CharChunk host,
+                final CharChunk uri, final MappingData mappingData) {
+            this.hash = hash;
+            this.host = toChars(host);
+            this.uri = toChars(uri);
+
+            hostObject = mappingData.host;
+            context = mappingData.context;
+            wrapper = mappingData.wrapper;
+            servletName = mappingData.servletName;
+            descriptorPath = mappingData.descriptorPath;
+            matchedPath = mappingData.matchedPath;
+            jspWildCard = mappingData.jspWildCard;
+            isDefaultContext = mappingData.isDefaultContext;
+            mappingType = mappingData.mappingType;
+            contextPath = toString(mappingData.contextPath);
+            requestPath = toString(mappingData.requestPath);
+            wrapperPath = toString(mappingData.wrapperPath);
+            pathInfo = toString(mappingData.pathInfo);
+        }
+
+        static int hash(final CharChunk host, final CharChunk uri) {
+            int h = host == null || host.isNull() ? 0 : host.hash();
+            h = 31 * h + uri.hash();
+            return h ^ (h >>> 16);
+        }
+
+        boolean matches(final int hash, final CharChunk host,
+                final CharChunk uri) {
+            return this.hash == hash
+                    && equals(this.uri, uri)
+                    && (this.host == null
+                            ? host == null || host.isNull()
+                            : equals(this.host, host));
+        }
+
+        void apply(final MappingData mappingData) {
+            mappingData.host = hostObject;
+            mappingData.context = context;
+            mappingData.wrapper = wrapper;
+            mappingData.servletName = servletName;
+            mappingData.descriptorPath = descriptorPath;
+            mappingData.matchedPath = matchedPath;
+            mappingData.jspWildCard = jspWildCard;
+            mappingData.isDefaultContext = isDefaultContext;
+            mappingData.mappingType = mappingType;
+            apply(mappingData.contextPath, contextPath);
+            apply(mappingData.requestPath, requestPath);
+            apply(mappingData.wrapperPath, wrapperPath);
+            apply(mappingData.pathInfo, pathInfo);
+        }
+
+        private static void apply(final DataChunk dc, final String value) {
+            if (value != null) {
+                dc.setString(value);
+            }
+        }
+
+        private static String toString(final DataChunk dc) {
+            return dc.isNull() ? null : dc.toString();
+        }
+
+        private static char[] toChars(final CharChunk cc) {
+            if (cc == null || cc.isNull()) {
+                return null;
+            }
+
+            final char[] chars = new char[cc.getLength()];
+            System.arraycopy(cc.getBuffer(), cc.getStart(), chars, 0,
+                    chars.length);
+            return chars;
+        }
+
+        private static boolean equals(final char[] chars, final CharChunk cc) {
+            if (cc == null || cc.isNull() || chars.length != cc.getLength()) {
+                return false;
+            }
+
+            final char[] buffer = cc.getBuffer();
+            final int start = cc.getStart();
+            for (int i = 0; i < chars.length; i++) {
+                if (chars[i] != buffer[start + i]) {
+                    return false;
+                }
+            }
+
+            return true;
+        }
+    }
+
+
     // -------------------------------------------------------- Testing Methods
 
     // FIXME: Externalize this
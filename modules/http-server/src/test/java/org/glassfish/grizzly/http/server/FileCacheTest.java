@@ -1094,6 +1094,126 @@ public class FileCacheTest {
     }
 
 
+    @Test
+    public void testFileSendNotMappedFile() throws Exception {
+        // the file is larger than several TLS records
+        final File file = createTempFile(100000);
+
+        final FileCache fileCache = httpServer.getListener("grizzly").getFileCache();
+        // the file is not mapped by the cache, so it's sent from the file system
+        fileCache.setMaxEntrySize(1);
+        fileCache.setFileSendEnabled(true);
+
+        startHttpServer(new StaticHttpHandler() {
+
+            @Override
+            protected void onMissingResource(final Request req, final Response res) {
+                try {
+                    res.setHeader("Content-Type", "text/plain");
+                    addToFileCache(req, null, file);
+
+                    final NIOWriter writer = res.getNIOWriter();
+                    writer.write("Hello not cached data");
+                    writer.close();
+                } catch (Exception ex) {
+                    ex.printStackTrace();
+                }
+            }
+        });
+
+        final HttpRequestPacket.Builder builder = HttpRequestPacket.builder()
+                .method(Method.GET)
+                .uri("/somedata")
+                .protocol(Protocol.HTTP_1_1)
+                .host("localhost:" + PORT);
+
+        final ReusableFuture<HttpContent> responseFuture =
+                new ReusableFuture<HttpContent>();
+        final Connection c = getConnection("localhost", PORT, responseFuture);
+        c.write(builder.build());
+        final HttpContent response1 = responseFuture.get(10, TimeUnit.SECONDS);
+        assertEquals("Hello not cached data", response1.getContent().toStringContent());
+
+        final InputStream fis = new FileInputStream(file);
+        final byte[] data = new byte[(int) file.length()];
+        fis.read(data);
+        fis.close();
+
+        responseFuture.reset();
+        c.write(builder.build());
+        final HttpContent response2 = responseFuture.get(10, TimeUnit.SECONDS);
+        assertEquals(file.length(), response2.getHttpHeader().getContentLength());
+        assertEquals(new String(data), response2.getContent().toStringContent());
+    }
+
+
+    @Test
+    public void testMappedFileSend() throws Exception {
+        // the file spans several mapped windows
+        final File file = createTempFile(3 * 1024 * 1024);
+
+        final NetworkListener listener = httpServer.getListener("grizzly");
+        // the file is not mapped by the cache, so it's sent from the file system
+        listener.getFileCache().setMaxEntrySize(1);
+        listener.setSendFileEnabled(true);
+        listener.setMappedFileSendEnabled(true);
+
+        startHttpServer(new StaticHttpHandler() {
+
+            @Override
+            protected void onMissingResource(final Request req, final Response res) {
+                try {
+                    addToFileCache(req, res, file);
+                    sendFile(res, file);
+                } catch (Exception ex) {
+                    ex.printStackTrace();
+                }
+            }
+        });
+
+        assertTrue(listener.getFileCache().isMappedFileSendEnabled());
+
+        final HttpRequestPacket.Builder builder = HttpRequestPacket.builder()
+                .method(Method.GET)
+                .uri("/somedata")
+                .protocol(Protocol.HTTP_1_1)
+                .host("localhost:" + PORT);
+
+        final InputStream fis = new FileInputStream(file);
+        final byte[] data = new byte[(int) file.length()];
+        fis.read(data);
+        fis.close();
+
+        final ReusableFuture<HttpContent> responseFuture =
+                new ReusableFuture<HttpContent>();
+        final Connection c = getConnection("localhost", PORT, responseFuture);
+
+        // sent by the StaticHttpHandler
+        c.write(builder.build());
+        final HttpContent response1 = responseFuture.get(30, TimeUnit.SECONDS);
+        assertEquals(file.length(), response1.getHttpHeader().getContentLength());
+        assertEquals(new String(data), response1.getContent().toStringContent());
+
+        // sent by the FileCacheFilter
+        responseFuture.reset();
+        c.write(builder.build());
+        final HttpContent response2 = responseFuture.get(30, TimeUnit.SECONDS);
+        assertEquals(file.length(), response2.getHttpHeader().getContentLength());
+        assertEquals(new String(data), response2.getContent().toStringContent());
+    }
+
+    @Test
+    public void testMappedFileSendIsDisabledByDefault() throws Exception {
+        final NetworkListener listener = httpServer.getListener("grizzly");
+        listener.setSendFileEnabled(true);
+
+        startHttpServer(new StaticHttpHandler());
+
+        assertFalse(listener.getFileCache().isMappedFileSendEnabled());
+        assertFalse(httpServer.getServerConfiguration().isMappedFileSendEnabled());
+    }
+
+
     private void configureHttpServer() throws Exception {
         httpServer = new HttpServer();
         final NetworkListener listener =
@@ -1166,13 +1286,17 @@ public class FileCacheTest {
     }
 
     private static File createTempFile() throws IOException {
+        return createTempFile(0);
+    }
+
+    private static File createTempFile(final int minSize) throws IOException {
         final File f = File.createTempFile("grizzly-file-cache", ".txt");
         f.deleteOnExit();
         FileOutputStream out = null;
         try {
             out = new FileOutputStream(f);
             Random r = new Random(System.currentTimeMillis());
-            for (int i = 0; i < 100; i++) {
+            for (int i = 0; i < 100 || f.length() < minSize; i++) {
                 out.write(Long.toString(r.nextLong()).getBytes());
             }
         } finally {
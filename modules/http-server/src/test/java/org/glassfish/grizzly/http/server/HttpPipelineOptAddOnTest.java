@@ -0,0 +1,144 @@
+/*
+ * Copyright (c) 2017 Oracle and/or its affiliates. All rights reserved.
+ *
+ * This program and the accompanying materials are made available under the
+ * terms of the Eclipse Public License v. 2.0, which is available at
+ * http://www.eclipse.org/legal/epl-2.0.
+ *
+ * This Source Code may also be made available under the following Secondary
+ * Licenses when the conditions for such availability set forth in the
+ * Eclipse Public License v. 2.0 are satisfied: GNU General Public License,
+ * version 2 with the GNU Classpath Exception, which is available at
+ * https://www.gnu.org/software/classpath/license.html.
+ *
+ * SPDX-License-Identifier: EPL-2.0 OR GPL-2.0 WITH Classpath-exception-2.0
+ */
+
+package org.glassfish.grizzly.http.server;
+
+import java.io.BufferedReader;
+import java.io.IOException;
+import java.io.InputStreamReader;
+import java.io.OutputStream;
+import java.net.Socket;
+import org.glassfish.grizzly.http.server.util.HttpPipelineOptAddOn;
+import org.junit.Test;
+
+import static org.junit.Assert.*;
+
+/**
+ * Test {@link HttpPipelineOptAddOn}.
+ */
+public class HttpPipelineOptAddOnTest {
+    private static final int PORT = 18908;
+    
+    private static final RequestExecutorProvider SAME_THREAD_PROVIDER =
+            new RequestExecutorProvider.SameThreadProvider();
+    
+    private static final String REQUEST =
+            "GET / HTTP/1.1\r\n" +
+            "Host: localhost:" + PORT + "\r\n" +
+            "\r\n";
+    
+    @Test
+    public void testPipelinedRequests() throws Exception {
+        final HttpPipelineOptAddOn addOn = new HttpPipelineOptAddOn();
+        doTest(addOn, 4);
+        assertEquals(4, addOn.getResponsesCount());
+    }
+
+    @Test
+    public void testAdaptivePipelinedRequests() throws Exception {
+        final HttpPipelineOptAddOn addOn = new HttpPipelineOptAddOn(16384, true);
+        doTest(addOn, 4);
+        
+        assertEquals(4, addOn.getResponsesCount());
+        assertTrue("Responses are not batched: " + addOn.getWritesCount(),
+                addOn.getWritesCount() < 4);
+        assertTrue(addOn.getAverageResponsesPerWrite() > 1);
+    }
+
+    @Test
+    public void testAdaptiveSingleRequest() throws Exception {
+        final HttpPipelineOptAddOn addOn = new HttpPipelineOptAddOn(16384, true);
+        doTest(addOn, 1);
+        
+        assertEquals(1, addOn.getWritesCount());
+    }
+
+    private void doTest(final HttpPipelineOptAddOn addOn,
+            final int requestsCount) throws Exception {
+        final HttpServer server = createWebServer(addOn);
+        server.start();
+
+        Socket s = null;
+        
+        try {
+            final StringBuilder requests = new StringBuilder();
+            for (int i = 0; i < requestsCount; i++) {
+                requests.append(REQUEST);
+            }
+            
+            s = new Socket("localhost", PORT);
+            s.setSoTimeout(10000);
+            
+            final OutputStream os = s.getOutputStream();
+            os.write(requests.toString().getBytes());
+            os.flush();
+            
+            final BufferedReader in = new BufferedReader(
+                    new InputStreamReader(s.getInputStream()));
+            
+            for (int i = 0; i < requestsCount; i++) {
+                final String statusLine = in.readLine();
+                assertTrue(statusLine, statusLine.startsWith("HTTP/1.1 200"));
+                
+                String line;
+                while ((line = in.readLine()).length() > 0) {
+                    // iterating till "\r\n"
+                }
+                
+                final char[] body = new char[2];
+                assertEquals(2, in.read(body));
+                assertEquals("ok", new String(body));
+            }
+        } finally {
+            if (s != null) {
+                try {
+                    s.close();
+                } catch (IOException e) {
+                }
+            }
+            
+            server.shutdownNow();
+        }
+    }
+    
+    private HttpServer createWebServer(final HttpPipelineOptAddOn addOn) {
+
+        final HttpServer server = new HttpServer();
+        final NetworkListener listener =
+                new NetworkListener("grizzly",
+                        NetworkListener.DEFAULT_NETWORK_HOST,
+                        PORT);
+        listener.registerAddOn(addOn);
+        server.addListener(listener);
+        server.getServerConfiguration().addHttpHandler(new HttpHandler() {
+
+            @Override
+            public void service(Request request, Response response) throws Exception {
+                response.setContentLength(2);
+                response.getWriter().write("ok");
+            }
+
+            @Override
+            public RequestExecutorProvider getRequestExecutorProvider() {
+                // the addon works only for the requests processed
+                // in the same thread
+                return SAME_THREAD_PROVIDER;
+            }
+        }, "/");
+
+        return server;
+    }
+}
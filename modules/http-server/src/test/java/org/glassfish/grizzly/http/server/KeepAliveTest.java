@@ -18,6 +18,9 @@ package org.glassfish.grizzly.http.server;
 
 import java.io.IOException;
 import java.net.InetSocketAddress;
+import java.util.Collections;
+import java.util.IdentityHashMap;
+import java.util.Set;
 import java.util.concurrent.CountDownLatch;
 import java.util.concurrent.ExecutionException;
 import java.util.concurrent.Future;
@@ -107,6 +110,60 @@ public class KeepAliveTest extends TestCase {
         }
     }
 
+    public void testHttp11KeepAlivePinnedRequest() throws Exception {
+        final Set<Object> requests = Collections.newSetFromMap(
+                new IdentityHashMap<Object, Boolean>());
+        final Set<Object> httpRequests = Collections.newSetFromMap(
+                new IdentityHashMap<Object, Boolean>());
+        
+        HttpServer server = createServer(new HttpHandler() {
+            private final AtomicInteger ai = new AtomicInteger();
+            
+            @Override
+            public void service(Request request,
+                    Response response) throws Exception {
+                requests.add(request);
+                httpRequests.add(request.getRequest());
+                response.setContentType("text/plain");
+                response.getWriter().write("Hello world #" + ai.getAndIncrement());
+            }
+
+        }, "/path");
+        server.getServerConfiguration().setPinRequestToConnection(true);
+
+        final TCPNIOTransport clientTransport = TCPNIOTransportBuilder.newInstance().build();
+        final HttpClient client = new HttpClient(clientTransport);
+
+        try {
+            server.start();
+            clientTransport.start();
+
+            Future<Connection> connectFuture = client.connect("localhost", PORT);
+            connectFuture.get(10, TimeUnit.SECONDS);
+
+            for (int i = 0; i < 3; i++) {
+                Future<Buffer> resultFuture = client.get(HttpRequestPacket.builder().method("GET")
+                            .uri("/path").protocol(Protocol.HTTP_1_1)
+                            .header("Host", "localhost:" + PORT).build());
+
+                Buffer buffer = resultFuture.get(10, TimeUnit.SECONDS);
+
+                assertEquals("Hello world #" + i, buffer.toStringContent());
+                
+                // let the server recycle the request
+                Thread.sleep(50);
+            }
+
+            // the same objects have to be reused for all the requests
+            assertEquals(1, requests.size());
+            assertEquals(1, httpRequests.size());
+        } finally {
+            client.close();
+            clientTransport.shutdownNow();
+            server.shutdownNow();
+        }
+    }
+
     public void testHttp11KeepAliveWithConnectionCloseHeader() throws Exception {
         final String msg = "Hello world #";
 
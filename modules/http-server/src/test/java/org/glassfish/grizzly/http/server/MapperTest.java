@@ -95,4 +95,78 @@ public class MapperTest {
         assertEquals(wrapper21, md.wrapper);
         
     }
+
+    @Test
+    public void testMappingCache() throws Exception {
+        final Object host = new Object();
+        final Mapper mapper = new Mapper();
+        mapper.setMappingCacheSize(16);
+        mapper.setDefaultHostName("default");
+        mapper.addHost("default", new String[] {"default"}, host);
+
+        final Object context = new Object();
+        mapper.addContext("default", "/context", context, null, null);
+
+        final Object wrapper = new Object();
+        mapper.addWrapper("default", "/context", "/wrapper", wrapper);
+
+        // Miss and hit have to produce the same result
+        for (int i = 0; i < 2; i++) {
+            final MappingData md = map(mapper, "/context/wrapper/info");
+            assertEquals(host, md.host);
+            assertEquals(context, md.context);
+            assertNull(md.wrapper);
+            assertEquals("/context", md.contextPath.toString());
+        }
+
+        for (int i = 0; i < 2; i++) {
+            final MappingData md = map(mapper, "/context/wrapper");
+            assertEquals(context, md.context);
+            assertEquals(wrapper, md.wrapper);
+            assertEquals(MappingData.EXACT, md.mappingType);
+            assertEquals("/context", md.contextPath.toString());
+            assertEquals("/wrapper", md.wrapperPath.toString());
+            assertEquals("/wrapper", md.requestPath.toString());
+            assertTrue(md.pathInfo.isNull());
+        }
+
+        // Registration changes have to invalidate the cached results
+        final Object wildcardWrapper = new Object();
+        mapper.addWrapper("default", "/context", "/wrapper/*", wildcardWrapper);
+
+        for (int i = 0; i < 2; i++) {
+            final MappingData md = map(mapper, "/context/wrapper/info");
+            assertEquals(wildcardWrapper, md.wrapper);
+            assertEquals(MappingData.PATH, md.mappingType);
+            assertEquals("/wrapper", md.wrapperPath.toString());
+            assertEquals("/info", md.pathInfo.toString());
+        }
+
+        // The redirect to the context root mutates the URI and is never cached
+        for (int i = 0; i < 2; i++) {
+            final MappingData md = map(mapper, "/context");
+            assertEquals(context, md.context);
+            assertEquals("/context/", md.redirectPath.toString());
+        }
+
+        mapper.removeContext("default", "/context");
+
+        final MappingData md = map(mapper, "/context/wrapper/info");
+        assertEquals(host, md.host);
+        assertNull(md.context);
+        assertNull(md.wrapper);
+    }
+
+    private static MappingData map(final Mapper mapper, final String uriStr)
+            throws Exception {
+        final DataChunk host = DataChunk.newInstance();
+        host.setBytes("default".getBytes());
+
+        final DataChunk uri = DataChunk.newInstance();
+        uri.setBytes(uriStr.getBytes());
+
+        final MappingData md = new MappingData();
+        mapper.map(host, uri, md);
+        return md;
+    }
 }
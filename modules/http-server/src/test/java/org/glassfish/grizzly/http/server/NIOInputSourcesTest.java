@@ -17,6 +17,10 @@
 package org.glassfish.grizzly.http.server;
 
 import java.io.EOFException;
+import java.io.File;
+import java.io.RandomAccessFile;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
 import org.glassfish.grizzly.Buffer;
 import org.glassfish.grizzly.Connection;
 import org.glassfish.grizzly.Grizzly;
@@ -114,6 +118,65 @@ public class NIOInputSourcesTest {
 
     }
 
+    /*
+     * <em>POST</em> a chunked message body with a length of 5000 bytes,
+     * which is transferred to a file.
+     */
+    @Test
+    public void testTransferToFileChunked() throws Throwable {
+
+        final FutureImpl<String> testResult = SafeFutureImpl.create();
+        final EchoHandler httpHandler = new TransferToFileHttpHandler(testResult);
+        final String expected = buildString(5000);
+        final HttpPacket request = createRequest("POST", expected, null);
+        doTest(httpHandler, request, expected, testResult, null, 10);
+
+    }
+
+    /*
+     * <em>POST</em> a fixed-length message body with a length of 5000 bytes,
+     * which is sent by a slow client and transferred to a file.
+     */
+    @Test
+    public void testTransferToFileSlowClient() throws Throwable {
+
+        final FutureImpl<String> testResult = SafeFutureImpl.create();
+        final EchoHandler httpHandler = new TransferToFileHttpHandler(testResult);
+        final String expected = buildString(5000);
+
+        final HttpRequestPacket.Builder b = HttpRequestPacket.builder();
+        b.method("POST").protocol(Protocol.HTTP_1_1).uri("/path").chunked(false).header("Host", "localhost:" + PORT);
+        b.contentLength(expected.length());
+        final HttpRequestPacket request = b.build();
+
+        final WriteStrategy strategy = new WriteStrategy() {
+            @Override
+            public void doWrite(FilterChainContext ctx) throws IOException {
+
+                ctx.write(request);
+                MemoryManager mm = ctx.getMemoryManager();
+
+                for (int i = 0; i < 5; i++) {
+                    String content = expected.substring(i * 1000, (i + 1) * 1000);
+                    Buffer buf = mm.allocate(content.length());
+                    buf.put(content.getBytes());
+                    buf.flip();
+                    HttpContent.Builder cb = request.httpContentBuilder();
+                    cb.content(buf);
+                    ctx.write(cb.build());
+                    try {
+                        Thread.sleep(100);
+                    } catch (InterruptedException ie) {
+                        testResult.failure(ie);
+                        break;
+                    }
+                }
+            }
+        };
+        doTest(httpHandler, request, expected, testResult, strategy, 30);
+
+    }
+
     @Test
     public void testBasicAsyncReadSlowClient() throws Throwable {
 
@@ -815,6 +878,71 @@ public class NIOInputSourcesTest {
 
     } // END EchoHttpHandler
 
+    private static class TransferToFileHttpHandler extends EchoHandler {
+
+        private final FutureImpl<String> testResult;
+
+        private final StringBuffer echoedString = new StringBuffer();
+
+        // -------------------------------------------------------- Constructors
+
+
+        TransferToFileHttpHandler(final FutureImpl<String> testResult) {
+
+            this.testResult = testResult;
+
+        }
+
+
+        // ----------------------------------------- Methods from HttpHandler
+
+        @Override
+        public void service(final Request req,
+                            final Response res)
+                throws Exception {
+
+            final File file = File.createTempFile("grizzly-transfer", ".tmp");
+            file.deleteOnExit();
+            final FileChannel channel = new RandomAccessFile(file, "rw").getChannel();
+
+            res.suspend();
+
+            req.transferTo(channel, new EmptyCompletionHandler<Long>() {
+
+                @Override
+                public void completed(final Long transferred) {
+                    try {
+                        final ByteBuffer bb = ByteBuffer.allocate(transferred.intValue());
+                        channel.read(bb, 0);
+                        channel.close();
+                        final byte[] b = bb.array();
+                        echoedString.append(new String(b));
+                        res.getOutputStream().write(b);
+                    } catch (Exception e) {
+                        testResult.failure(e);
+                    } finally {
+                        file.delete();
+                        res.resume();
+                    }
+                }
+
+                @Override
+                public void failed(final Throwable t) {
+                    testResult.failure(t);
+                    res.resume();
+                }
+            });
+
+        }
+
+        @Override
+        public String getEchoedString() {
+            return echoedString.toString();
+        }
+
+
+    } // END TransferToFileHttpHandler
+
     private static class EchoHttpHandler2 extends EchoHandler {
 
         private final FutureImpl<String> testResult;
@@ -17,6 +17,7 @@
 package org.glassfish.grizzly.http;
 
 import java.io.IOException;
+import java.nio.ByteBuffer;
 import java.util.Arrays;
 import java.util.List;
 import java.util.logging.Level;
@@ -33,7 +34,10 @@ import org.glassfish.grizzly.http.util.CacheableDataChunk;
 import org.glassfish.grizzly.http.util.Constants;
 import org.glassfish.grizzly.http.util.DataChunk;
 import org.glassfish.grizzly.http.util.Header;
+import org.glassfish.grizzly.http.util.KnownHeaders;
 import org.glassfish.grizzly.http.util.MimeHeaders;
+import org.glassfish.grizzly.http.util.PreEncodedHeader;
+import org.glassfish.grizzly.http.util.SwarScanner;
 import org.glassfish.grizzly.memory.Buffers;
 import org.glassfish.grizzly.memory.CompositeBuffer;
 import org.glassfish.grizzly.memory.CompositeBuffer.DisposeOrder;
@@ -129,6 +133,11 @@ public abstract class HttpCodecFilter extends HttpBaseFilter
      * @see #setRemoveHandledContentEncodingHeaders
      */
     private boolean removeHandledContentEncodingHeaders = false;
+
+    /**
+     * @see #setHeadersMemoryManager(MemoryManager)
+     */
+    private MemoryManager<?> headersMemoryManager;
     
     /**
      * File cache probes
@@ -380,6 +389,34 @@ public abstract class HttpCodecFilter extends HttpBaseFilter
         this.maxPayloadRemainderToSkip = maxPayloadRemainderToSkip;
     }
 
+    /**
+     * @return the {@link MemoryManager} used to allocate the buffers the
+     *          HTTP message headers are serialized to, or <tt>null</tt> if
+     *          the {@link Connection}'s {@link MemoryManager} is used
+     * @since 2.4.4
+     */
+    public MemoryManager<?> getHeadersMemoryManager() {
+        return headersMemoryManager;
+    }
+
+    /**
+     * Sets the {@link MemoryManager} used to allocate the buffers the
+     * HTTP message headers are serialized to. If the {@link MemoryManager}
+     * allocates direct buffers, like a direct
+     * {@link org.glassfish.grizzly.memory.PooledMemoryManager}, the headers
+     * are serialized right into the pooled direct memory and written to
+     * the channel without being copied to a temporary direct buffer first,
+     * even if the {@link Connection}'s {@link MemoryManager} works with heap
+     * buffers.
+     *
+     * @param headersMemoryManager the {@link MemoryManager}, or <tt>null</tt>
+     *        to use the {@link Connection}'s {@link MemoryManager} (default)
+     * @since 2.4.4
+     */
+    public void setHeadersMemoryManager(final MemoryManager<?> headersMemoryManager) {
+        this.headersMemoryManager = headersMemoryManager;
+    }
+
     /**
      * @return <code>true</code> if header case will be preserved, otherwise <code>false</code>.
      *  Default is <code>false</code>.
@@ -862,17 +899,18 @@ public abstract class HttpCodecFilter extends HttpBaseFilter
         
         final int limit = Math.min(end, arrayOffs + parsingState.packetLimit);
         final int start = arrayOffs + parsingState.start;
-        int offset = arrayOffs + parsingState.offset;
+        int offset = SwarScanner.skipHeaderName(parsingState.arrayView(input),
+                arrayOffs + parsingState.offset, limit, !preserveHeaderCase);
 
         while(offset < limit) {
             byte b = input[offset];
             if (b == Constants.COLON) {
 
-                parsingState.headerValueStorage =
-                        mimeHeaders.addValue(input, start, offset - start);
+                final Header header = KnownHeaders.find(input, start, offset);
+                parsingState.headerValueStorage = mimeHeaders.addValue(
+                        input, start, offset - start, header);
                 parsingState.offset = offset + 1 - arrayOffs;
-                finalizeKnownHeaderNames(httpHeader, parsingState, input,
-                        start, offset);
+                finalizeKnownHeaderNames(httpHeader, parsingState, header);
 
                 return true;
             } else if ((b >= Constants.A) && (b <= Constants.Z)) {
@@ -900,6 +938,24 @@ public abstract class HttpCodecFilter extends HttpBaseFilter
 
         final boolean hasShift = (offset != (arrayOffs + parsingState.checkpoint));
         
+        if (!hasShift) {
+            // the value bytes stay in place, so skip them up to the line end
+            // word-by-word and only track the last non-space byte
+            final int eol = SwarScanner.skipToEOL(
+                    parsingState.arrayView(input), offset, limit);
+            if (eol > offset) {
+                parsingState.checkpoint += eol - offset;
+                int last = eol - 1;
+                while (last >= offset && input[last] == Constants.SP) {
+                    last--;
+                }
+                if (last >= offset) {
+                    parsingState.checkpoint2 = last + 1 - arrayOffs;
+                }
+                offset = eol;
+            }
+        }
+        
         while (offset < limit) {
             final byte b = input[offset];
             if (b == Constants.CR) {
@@ -919,6 +975,7 @@ public abstract class HttpCodecFilter extends HttpBaseFilter
                         parsingState.headerValueStorage.setBytes(input,
                                 arrayOffs + parsingState.start,
                                 arrayOffs + parsingState.checkpoint2);
+                        KnownHeaders.internValue(parsingState.headerValueStorage);
                         return 0;
                     }
                 }
@@ -947,30 +1004,26 @@ public abstract class HttpCodecFilter extends HttpBaseFilter
     }
     
     private static void finalizeKnownHeaderNames(final HttpHeader httpHeader,
-            final HeaderParsingState parsingState, final byte[] input,
-            final int start, final int end) {
+            final HeaderParsingState parsingState, final Header header) {
+        
+        if (header == null) {
+            return;
+        }
         
-        final int size = end - start;
-        if (size == Header.ContentLength.getLowerCaseBytes().length) {
-            if (ByteChunk.equalsIgnoreCaseLowerCase(input, start, end,
-                    Header.ContentLength.getLowerCaseBytes())) {
+        switch (header) {
+            case ContentLength:
                 parsingState.isContentLengthHeader = true;
-            }
-        } else if (size == Header.TransferEncoding.getLowerCaseBytes().length) {
-            if (ByteChunk.equalsIgnoreCaseLowerCase(input, start, end,
-                    Header.TransferEncoding.getLowerCaseBytes())) {
+                break;
+            case TransferEncoding:
                 parsingState.isTransferEncodingHeader = true;
-            }
-        } else if (size == Header.Upgrade.getLowerCaseBytes().length) {
-            if (ByteChunk.equalsIgnoreCaseLowerCase(input, start, end,
-                    Header.Upgrade.getLowerCaseBytes())) {
+                break;
+            case Upgrade:
                 parsingState.isUpgradeHeader = true;
-            }
-        } else if (size == Header.Expect.getLowerCaseBytes().length) {
-            if (ByteChunk.equalsIgnoreCaseLowerCase(input, start, end,
-                    Header.Expect.getLowerCaseBytes())) {
+                break;
+            case Expect:
                 ((HttpRequestPacket) httpHeader).requiresAcknowledgement(true);
-            }
+                break;
+            default:
         }
     }
 
@@ -1141,17 +1194,18 @@ public abstract class HttpCodecFilter extends HttpBaseFilter
             final Buffer input) {
         final int limit = Math.min(input.limit(), parsingState.packetLimit);
         final int start = parsingState.start;
-        int offset = parsingState.offset;
+        int offset = SwarScanner.skipHeaderName(input, parsingState.offset,
+                limit, !preserveHeaderCase);
 
         while(offset < limit) {
             byte b = input.get(offset);
             if (b == Constants.COLON) {
 
-                parsingState.headerValueStorage =
-                        mimeHeaders.addValue(input, start, offset - start);
+                final Header header = KnownHeaders.find(input, start, offset);
+                parsingState.headerValueStorage = mimeHeaders.addValue(
+                        input, start, offset - start, header);
                 parsingState.offset = offset + 1;
-                finalizeKnownHeaderNames(httpHeader, parsingState, input,
-                        start, offset);
+                finalizeKnownHeaderNames(httpHeader, parsingState, header);
 
                 return true;
             } else if ((b >= Constants.A) && (b <= Constants.Z)) {
@@ -1177,6 +1231,23 @@ public abstract class HttpCodecFilter extends HttpBaseFilter
 
         final boolean hasShift = (offset != parsingState.checkpoint);
         
+        if (!hasShift) {
+            // the value bytes stay in place, so skip them up to the line end
+            // word-by-word and only track the last non-space byte
+            final int eol = SwarScanner.skipToEOL(input, offset, limit);
+            if (eol > offset) {
+                parsingState.checkpoint += eol - offset;
+                int last = eol - 1;
+                while (last >= offset && input.get(last) == Constants.SP) {
+                    last--;
+                }
+                if (last >= offset) {
+                    parsingState.checkpoint2 = last + 1;
+                }
+                offset = eol;
+            }
+        }
+        
         while(offset < limit) {
             final byte b = input.get(offset);
             if (b == Constants.CR) {
@@ -1194,6 +1265,7 @@ public abstract class HttpCodecFilter extends HttpBaseFilter
                                 parsingState.start, parsingState.checkpoint2);
                         parsingState.headerValueStorage.setBuffer(input,
                                 parsingState.start, parsingState.checkpoint2);
+                        KnownHeaders.internValue(parsingState.headerValueStorage);
                         return 0;
                     }
                 }
@@ -1221,34 +1293,6 @@ public abstract class HttpCodecFilter extends HttpBaseFilter
         return -1;
     }
 
-    private static void finalizeKnownHeaderNames(final HttpHeader httpHeader,
-            final HeaderParsingState parsingState, final Buffer input,
-            final int start, final int end) {
-        
-        final int size = end - start;
-        if (size == Header.ContentLength.getLowerCaseBytes().length) {
-            if (BufferChunk.equalsIgnoreCaseLowerCase(input, start, end,
-                    Header.ContentLength.getLowerCaseBytes())) {
-                parsingState.isContentLengthHeader = true;
-            }
-        } else if (size == Header.TransferEncoding.getLowerCaseBytes().length) {
-            if (BufferChunk.equalsIgnoreCaseLowerCase(input, start, end,
-                    Header.TransferEncoding.getLowerCaseBytes())) {
-                parsingState.isTransferEncodingHeader = true;
-            }
-        } else if (size == Header.Upgrade.getLowerCaseBytes().length) {
-            if (BufferChunk.equalsIgnoreCaseLowerCase(input, start, end,
-                    Header.Upgrade.getLowerCaseBytes())) {
-                parsingState.isUpgradeHeader = true;
-            }
-        } else if (size == Header.Expect.getLowerCaseBytes().length) {
-            if (BufferChunk.equalsIgnoreCaseLowerCase(input, start, end,
-                    Header.Expect.getLowerCaseBytes())) {
-                ((HttpRequestPacket) httpHeader).requiresAcknowledgement(true);
-            }
-        }
-    }
-
     private static void finalizeKnownHeaderValues(final HttpHeader httpHeader,
             final HeaderParsingState parsingState, final Buffer input,
             final int start, final int end) {
@@ -1537,6 +1581,10 @@ public abstract class HttpCodecFilter extends HttpBaseFilter
         Buffer encodedBuffer = null;
         
         if (!httpHeader.isCommitted()) {
+            final MemoryManager<?> headersMemoryManagerLocal =
+                    headersMemoryManager != null
+                            ? headersMemoryManager
+                            : memoryManager;
             
             if (httpHeader.isUpgrade()) {
                 onOutgoingUpgrade(ctx, httpHeader);
@@ -1545,14 +1593,14 @@ public abstract class HttpCodecFilter extends HttpBaseFilter
             if (!httpHeader.isRequest()) {
                 final HttpResponsePacket response = (HttpResponsePacket) httpHeader;
                 if (response.isAcknowledgement()) {
-                    encodedBuffer = memoryManager.allocate(128);
+                    encodedBuffer = headersMemoryManagerLocal.allocate(128);
                     encodedBuffer = encodeInitialLine(httpHeader,
                                                       encodedBuffer,
-                                                      memoryManager);
-                    encodedBuffer = put(memoryManager,
+                                                      headersMemoryManagerLocal);
+                    encodedBuffer = put(headersMemoryManagerLocal,
                                         encodedBuffer,
                                         CRLF_BYTES);
-                    encodedBuffer = put(memoryManager,
+                    encodedBuffer = put(headersMemoryManagerLocal,
                                         encodedBuffer,
                                         CRLF_BYTES);
                     onInitialLineEncoded(httpHeader, ctx);
@@ -1574,20 +1622,22 @@ public abstract class HttpCodecFilter extends HttpBaseFilter
                                                  httpContent);
             }
 
-            encodedBuffer = memoryManager.allocateAtLeast(2048);
+            encodedBuffer = headersMemoryManagerLocal.allocateAtLeast(2048);
 
-            encodedBuffer = encodeInitialLine(httpHeader, encodedBuffer, memoryManager);
-            encodedBuffer = put(memoryManager, encodedBuffer, CRLF_BYTES);
+            encodedBuffer = encodeInitialLine(httpHeader, encodedBuffer,
+                    headersMemoryManagerLocal);
+            encodedBuffer = put(headersMemoryManagerLocal, encodedBuffer, CRLF_BYTES);
             onInitialLineEncoded(httpHeader, ctx);
 
-            encodedBuffer = encodeKnownHeaders(memoryManager, encodedBuffer,
-                    httpHeader);
+            encodedBuffer = encodeKnownHeaders(headersMemoryManagerLocal,
+                    encodedBuffer, httpHeader);
 
             final MimeHeaders mimeHeaders = httpHeader.getHeaders();
             final byte[] tempEncodingBuffer = httpHeader.getTempHeaderEncodingBuffer();
-            encodedBuffer = encodeMimeHeaders(memoryManager, encodedBuffer, mimeHeaders, tempEncodingBuffer);
+            encodedBuffer = encodeMimeHeaders(headersMemoryManagerLocal,
+                    encodedBuffer, mimeHeaders, tempEncodingBuffer);
             onHttpHeadersEncoded(httpHeader, ctx);
-            encodedBuffer = put(memoryManager, encodedBuffer, CRLF_BYTES);
+            encodedBuffer = put(headersMemoryManagerLocal, encodedBuffer, CRLF_BYTES);
             encodedBuffer.trim();
             encodedBuffer.allowBufferDispose(true);
             
@@ -1693,14 +1743,33 @@ public abstract class HttpCodecFilter extends HttpBaseFilter
 
         for (int i = 0; i < mimeHeadersNum; i++) {
             if (!mimeHeaders.setSerialized(i, true)) {
+                final PreEncodedHeader preEncoded = mimeHeaders.getPreEncoded(i);
+                if (preEncoded != null) {
+                    buffer = put(memoryManager, buffer,
+                            preEncoded.getEncodedBytes());
+                    continue;
+                }
+
                 final DataChunk value = mimeHeaders.getValue(i);
                 if (!value.isNull()) {
-                    buffer = encodeMimeHeader(memoryManager,
-                                              buffer,
-                                              mimeHeaders.getName(i),
-                                              value,
-                                              tempEncodingBuffer,
-                                              true);
+                    final DataChunk name = mimeHeaders.getName(i);
+                    final Header header = mimeHeaders.getHeaderId(i);
+                    if (header != null
+                            && name.getType() == DataChunk.Type.String
+                            && header.toString().equals(name.toString())) {
+                        // the well-known name in canonical case
+                        buffer = put(memoryManager, buffer, header.toByteArray());
+                        buffer = put(memoryManager, buffer, HttpCodecFilter.COLON_BYTES);
+                        buffer = put(memoryManager, buffer, tempEncodingBuffer, value);
+                        buffer = put(memoryManager, buffer, CRLF_BYTES);
+                    } else {
+                        buffer = encodeMimeHeader(memoryManager,
+                                                  buffer,
+                                                  name,
+                                                  value,
+                                                  tempEncodingBuffer,
+                                                  true);
+                    }
                 }
             }
         }
@@ -2023,6 +2092,8 @@ public abstract class HttpCodecFilter extends HttpBaseFilter
         public boolean isTransferEncodingHeader;
         public boolean isUpgradeHeader;
 
+        private ByteBuffer arrayView;
+
         public void initialize(final HttpCodecFilter codecFilter,
                                final int initialOffset,
                                final int maxHeaderSize) {
@@ -2049,6 +2120,19 @@ public abstract class HttpCodecFilter extends HttpBaseFilter
             parsingNumericValue = 0;
             contentLengthHeadersCount = 0;
             contentLengthsDiffer = false;
+            arrayView = null;
+        }
+
+        /**
+         * @return the {@link ByteBuffer} view of the parsed array, which is
+         *          used to scan the header bytes word-by-word
+         */
+        ByteBuffer arrayView(final byte[] input) {
+            if (arrayView == null || arrayView.array() != input) {
+                arrayView = ByteBuffer.wrap(input);
+            }
+            
+            return arrayView;
         }
 
         public final void checkOverflow(final int pos,
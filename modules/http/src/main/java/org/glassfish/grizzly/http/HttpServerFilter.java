@@ -30,6 +30,7 @@ import org.glassfish.grizzly.http.util.FastHttpDateFormat;
 import org.glassfish.grizzly.http.util.Header;
 import org.glassfish.grizzly.http.util.HttpStatus;
 import org.glassfish.grizzly.http.util.MimeHeaders;
+import org.glassfish.grizzly.http.util.PreEncodedHeader;
 import org.glassfish.grizzly.memory.MemoryManager;
 import org.glassfish.grizzly.utils.DelayedExecutor;
 
@@ -40,6 +41,7 @@ import org.glassfish.grizzly.ThreadCache;
 import static org.glassfish.grizzly.http.Method.PayloadExpectation;
 import static org.glassfish.grizzly.http.util.HttpCodecUtils.*;
 import org.glassfish.grizzly.http.util.HttpUtils;
+import org.glassfish.grizzly.utils.Charsets;
 
 /**
  * Server side {@link HttpCodecFilter} implementation, which is responsible for
@@ -63,6 +65,7 @@ public class HttpServerFilter extends HttpCodecFilter {
     
     private final Attribute<ServerHttpRequestImpl> httpRequestInProcessAttr;
     private final Attribute<KeepAliveContext> keepAliveContextAttr;
+    private final Attribute<ServerHttpRequestImpl> pinnedHttpRequestAttr;
 
     private final DelayedExecutor.DelayQueue<KeepAliveContext> keepAliveQueue;
 
@@ -71,6 +74,8 @@ public class HttpServerFilter extends HttpCodecFilter {
     private String defaultResponseContentType;
     private byte[] defaultResponseContentTypeBytes;
     private byte[] defaultResponseContentTypeBytesNoCharset;
+
+    private PreEncodedHeader serverHeader;
     
     private final boolean allowKeepAlive;
     private final int maxRequestHeaders;
@@ -81,6 +86,10 @@ public class HttpServerFilter extends HttpCodecFilter {
     // Known "undefined" methods are: GET, HEAD, DELETE
     private boolean allowPayloadForUndefinedHttpMethods;
     
+    // flag, which enables/disables reusing the same HTTP request/response
+    // objects for all the requests coming on a keep-alive connection
+    private boolean pinRequestToConnection;
+    
     /**
      * Constructor, which creates <tt>HttpServerFilter</tt> instance
      *
@@ -180,6 +189,8 @@ public class HttpServerFilter extends HttpCodecFilter {
                         createAttribute(HTTP_SERVER_REQUEST_ATTR_NAME);
         this.keepAliveContextAttr = Grizzly.DEFAULT_ATTRIBUTE_BUILDER.
                 createAttribute("HttpServerFilter.KeepAliveContext");
+        this.pinnedHttpRequestAttr = Grizzly.DEFAULT_ATTRIBUTE_BUILDER.
+                createAttribute("HttpServerFilter.PinnedHttpRequest");
 
         keepAliveQueue = executor != null ?
                 executor.createDelayQueue(
@@ -215,6 +226,61 @@ public class HttpServerFilter extends HttpCodecFilter {
         }
     }
 
+    /**
+     * @return the value of the Server header added to every response, which
+     *          doesn't have it set, or <tt>null</tt> if the Server header
+     *          isn't added
+     * @since 2.4.4
+     */
+    public String getServerHeader() {
+        final PreEncodedHeader serverHeaderLocal = serverHeader;
+        return serverHeaderLocal != null
+                ? new String(serverHeaderLocal.getValueBytes(), Charsets.ASCII_CHARSET)
+                : null;
+    }
+
+    /**
+     * Sets the value of the Server header to be added to every response,
+     * which doesn't have it set. The header is encoded once and copied
+     * into the output buffer as it is.
+     *
+     * @param serverHeader the Server header value, or <tt>null</tt> if
+     *        the Server header shouldn't be added (default)
+     * @since 2.4.4
+     */
+    public void setServerHeader(final String serverHeader) {
+        this.serverHeader = serverHeader != null
+                ? new PreEncodedHeader(Header.Server, serverHeader)
+                : null;
+    }
+
+    /**
+     * @return <tt>true</tt>, if the HTTP request/response objects are pinned
+     *          to the {@link Connection} and reused for all the requests
+     *          coming on it, or <tt>false</tt> if the objects are recycled
+     *          via {@link ThreadCache}
+     * @since 2.4.4
+     */
+    public boolean isPinRequestToConnection() {
+        return pinRequestToConnection;
+    }
+
+    /**
+     * If <tt>true</tt>, the HTTP request/response objects will be pinned
+     * to the {@link Connection} for its keep-alive lifetime and reused for
+     * all the requests coming on it, without going through {@link ThreadCache}.
+     * It is useful when requests are processed in worker threads, so the
+     * objects recycled in one thread don't overflow its {@link ThreadCache}
+     * while the other threads allocate new ones.
+     *
+     * @param pinRequestToConnection <tt>true</tt> to pin the HTTP
+     *        request/response objects to the {@link Connection}
+     * @since 2.4.4
+     */
+    public void setPinRequestToConnection(final boolean pinRequestToConnection) {
+        this.pinRequestToConnection = pinRequestToConnection;
+    }
+
     /**
      * The flag, which enables/disables payload support for HTTP methods,
      * for which HTTP spec doesn't clearly state whether they support payload.
@@ -265,7 +331,9 @@ public class HttpServerFilter extends HttpCodecFilter {
         
         if (httpRequest == null) {
             final boolean isSecureLocal = isSecure(connection);
-            httpRequest = ServerHttpRequestImpl.create();
+            httpRequest = pinRequestToConnection
+                    ? obtainPinnedHttpRequest(connection)
+                    : ServerHttpRequestImpl.create();
             httpRequest.initialize(connection, this, input.position(), maxHeadersSize, maxRequestHeaders);
             httpRequest.setSecure(isSecureLocal);
             final HttpResponsePacket response = httpRequest.getResponse();
@@ -274,9 +342,8 @@ public class HttpServerFilter extends HttpCodecFilter {
             httpRequest.setResponse(response);
             response.setRequest(httpRequest);
             
-            final HttpContext httpContext = HttpContext.newInstance(
-                    connection, connection, connection, httpRequest)
-                    .attach(ctx);
+            final HttpContext httpContext = httpRequest.obtainHttpContext(
+                    connection).attach(ctx);
             
             httpRequest.getProcessingState().setHttpContext(httpContext);
 
@@ -941,8 +1008,14 @@ public class HttpServerFilter extends HttpCodecFilter {
         }
 
         if (!response.containsHeader(Header.Date)) {
-            response.getHeaders().addValue(Header.Date)
-                    .setBytes(FastHttpDateFormat.getCurrentDateBytes());
+            response.getHeaders().addValue(
+                    FastHttpDateFormat.getCurrentDateHeader());
+        }
+
+        final PreEncodedHeader serverHeaderLocal = serverHeader;
+        if (serverHeaderLocal != null
+                && !response.containsHeader(Header.Server)) {
+            response.getHeaders().addValue(serverHeaderLocal);
         }
 
         final ProcessingState state = response.getProcessingState();
@@ -985,6 +1058,16 @@ public class HttpServerFilter extends HttpCodecFilter {
     @Override
     Buffer encodeInitialLine(HttpPacket httpPacket, Buffer output, MemoryManager memoryManager) {
         final HttpResponsePacket httpResponse = (HttpResponsePacket) httpPacket;
+        final HttpStatus httpStatus = httpResponse.getHttpStatus();
+        if (httpResponse.getProtocol() == Protocol.HTTP_1_1
+                && (!httpResponse.isCustomReasonPhraseSet()
+                    || httpResponse.getReasonPhraseRawDC().equals(
+                            httpStatus.getReasonPhraseBytes()))) {
+            // the status line is pre-encoded
+            return put(memoryManager, output,
+                    httpStatus.getHttp11StatusLineBytes());
+        }
+
         output = put(memoryManager, output, httpResponse.getProtocol().getProtocolBytes());
         output = put(memoryManager, output, Constants.SP);
         output = put(memoryManager, output, httpResponse.getHttpStatus().getStatusBytes());
@@ -1242,6 +1325,23 @@ public class HttpServerFilter extends HttpCodecFilter {
 
     } // END KeepAliveResolver
 
+    /**
+     * Returns the HTTP request object pinned to the {@link Connection},
+     * or creates a new one, which will be pinned once recycled.
+     */
+    private ServerHttpRequestImpl obtainPinnedHttpRequest(
+            final Connection<?> connection) {
+        final ServerHttpRequestImpl httpRequest =
+                pinnedHttpRequestAttr.remove(connection);
+        if (httpRequest != null) {
+            return httpRequest;
+        }
+
+        final ServerHttpRequestImpl httpRequestImpl = new ServerHttpRequestImpl();
+        httpRequestImpl.pinnedHttpRequestAttr = pinnedHttpRequestAttr;
+        return httpRequestImpl;
+    }
+
     private static final class ServerHttpRequestImpl extends HttpRequestPacket
             implements HttpPacketParsing {
 
@@ -1258,6 +1358,19 @@ public class HttpServerFilter extends HttpCodecFilter {
             return new ServerHttpRequestImpl();
         }
         
+        /**
+         * The {@link Connection} attribute this object is returned to once
+         * recycled, or <tt>null</tt> if the object is recycled via
+         * {@link ThreadCache}.
+         */
+        private Attribute<ServerHttpRequestImpl> pinnedHttpRequestAttr;
+        
+        /**
+         * {@link HttpContext} kept for the pinned object, it's the same
+         * for all the requests coming on the {@link Connection}.
+         */
+        private HttpContext pinnedHttpContext;
+        
         /**
          * Char encoding parsed flag.
          */
@@ -1330,6 +1443,20 @@ public class HttpServerFilter extends HttpCodecFilter {
             }
         }
         
+        HttpContext obtainHttpContext(final Connection<?> connection) {
+            if (pinnedHttpRequestAttr == null) {
+                return HttpContext.newInstance(
+                        connection, connection, connection, this);
+            }
+            
+            if (pinnedHttpContext == null) {
+                pinnedHttpContext = HttpContext.newInstance(
+                        connection, connection, connection, this);
+            }
+            
+            return pinnedHttpContext;
+        }
+
         @Override
         public ProcessingState getProcessingState() {
             return processingState;
@@ -1386,6 +1513,18 @@ public class HttpServerFilter extends HttpCodecFilter {
             if (isExpectContent()) {
                 return;
             }
+            
+            if (pinnedHttpRequestAttr != null) {
+                final Connection<?> connection = getConnection();
+                reset();
+                
+                if (connection != null && connection.isOpen()) {
+                    pinnedHttpRequestAttr.set(connection, this);
+                }
+                
+                return;
+            }
+            
             reset();
             ThreadCache.putToCache(CACHE_IDX, this);
         }
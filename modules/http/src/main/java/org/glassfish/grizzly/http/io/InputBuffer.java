@@ -21,6 +21,7 @@ import org.glassfish.grizzly.http.HttpHeader;
 import org.glassfish.grizzly.http.HttpTrailer;
 import java.io.EOFException;
 import org.glassfish.grizzly.Buffer;
+import org.glassfish.grizzly.CompletionHandler;
 import org.glassfish.grizzly.Connection;
 import org.glassfish.grizzly.ReadResult;
 import org.glassfish.grizzly.ReadHandler;
@@ -33,6 +34,8 @@ import org.glassfish.grizzly.utils.Charsets;
 import java.io.IOException;
 import java.nio.ByteBuffer;
 import java.nio.CharBuffer;
+import java.nio.channels.SelectableChannel;
+import java.nio.channels.WritableByteChannel;
 import java.nio.charset.Charset;
 import java.nio.charset.CharsetDecoder;
 import java.nio.charset.CoderResult;
@@ -47,6 +50,7 @@ import java.util.logging.Level;
 import java.util.logging.Logger;
 import org.glassfish.grizzly.Grizzly;
 import org.glassfish.grizzly.http.HttpBrokenContentException;
+import org.glassfish.grizzly.memory.ByteBufferArray;
 import org.glassfish.grizzly.memory.Buffers;
 import org.glassfish.grizzly.memory.CompositeBuffer;
 import org.glassfish.grizzly.utils.Exceptions;
@@ -906,6 +910,44 @@ public class InputBuffer {
     }
 
 
+    /**
+     * Asynchronously transfers the remaining message payload to the passed
+     * {@link WritableByteChannel}. The payload {@link Buffer}s are written
+     * to the channel as they arrive and released right after that, so the
+     * payload is never accumulated in memory. The next payload chunk is not
+     * requested from the peer until the previous one is written, so a slow
+     * channel throttles the reading side.
+     * <p>
+     * The channel has to be in blocking mode, for example
+     * a {@link java.nio.channels.FileChannel}.
+     *
+     * @param channel the {@link WritableByteChannel} to transfer the payload to
+     * @param completionHandler the {@link CompletionHandler} to be notified
+     *        with the number of transferred bytes, once the entire payload is
+     *        transferred, or with the error, if the transfer failed
+     *
+     * @throws IllegalArgumentException if the channel is in non-blocking mode
+     * @throws IllegalStateException if the payload is being read as characters,
+     *         or if there is a {@link ReadHandler} already registered
+     * @since 2.4.4
+     */
+    public void transferTo(final WritableByteChannel channel,
+            final CompletionHandler<Long> completionHandler) {
+        if (channel == null) {
+            throw new IllegalArgumentException("channel cannot be null.");
+        }
+        if (channel instanceof SelectableChannel
+                && !((SelectableChannel) channel).isBlocking()) {
+            throw new IllegalArgumentException("channel has to be in blocking mode.");
+        }
+        if (processingChars) {
+            throw new IllegalStateException("Illegal attempt to transfer the payload bytes, when it's being read as characters.");
+        }
+
+        notifyAvailable(new TransferReadHandler(channel, completionHandler));
+    }
+
+
     /**
      * Appends the specified {@link Buffer} to the internal composite
      * {@link Buffer}.
@@ -1039,6 +1081,100 @@ public class InputBuffer {
     
     // --------------------------------------------------------- Private Methods
 
+    /**
+     * Writes the currently available payload to the channel.
+     *
+     * @return the number of bytes written
+     */
+    private long transferAvailable(final WritableByteChannel channel)
+            throws IOException {
+        if (available() == 0) {
+            return 0;
+        }
+
+        final Buffer buffer = readBuffer();
+        long written = 0;
+        try {
+            if (!buffer.isComposite()) {
+                final ByteBuffer byteBuffer = buffer.toByteBuffer();
+                while (byteBuffer.hasRemaining()) {
+                    written += channel.write(byteBuffer);
+                }
+            } else {
+                final ByteBufferArray array = buffer.toByteBufferArray();
+                try {
+                    final ByteBuffer[] byteBuffers = array.getArray();
+                    for (int i = 0, size = array.size(); i < size; i++) {
+                        final ByteBuffer byteBuffer = byteBuffers[i];
+                        while (byteBuffer.hasRemaining()) {
+                            written += channel.write(byteBuffer);
+                        }
+                    }
+                } finally {
+                    array.restore();
+                    array.recycle();
+                }
+            }
+        } finally {
+            buffer.tryDispose();
+        }
+
+        return written;
+    }
+
+    /**
+     * {@link ReadHandler}, which transfers the payload to a
+     * {@link WritableByteChannel}.
+     */
+    private final class TransferReadHandler implements ReadHandler {
+        private final WritableByteChannel channel;
+        private final CompletionHandler<Long> completionHandler;
+
+        private long transferred;
+        private boolean isDone;
+
+        private TransferReadHandler(final WritableByteChannel channel,
+                final CompletionHandler<Long> completionHandler) {
+            this.channel = channel;
+            this.completionHandler = completionHandler;
+        }
+
+        @Override
+        public void onDataAvailable() throws Exception {
+            if (isDone) {
+                return;
+            }
+
+            transferred += transferAvailable(channel);
+            notifyAvailable(this);
+        }
+
+        @Override
+        public void onAllDataRead() throws Exception {
+            if (isDone) {
+                return;
+            }
+
+            transferred += transferAvailable(channel);
+            isDone = true;
+            if (completionHandler != null) {
+                completionHandler.completed(transferred);
+            }
+        }
+
+        @Override
+        public void onError(final Throwable t) {
+            if (isDone) {
+                return;
+            }
+
+            isDone = true;
+            if (completionHandler != null) {
+                completionHandler.failed(t);
+            }
+        }
+    }
+
     /**
      * @return {@link Executor}, which will be used for notifying user
      * registered {@link ReadHandler}.
@@ -492,6 +492,15 @@ public class BufferChunk implements Chunk {
         cachedString = null;
         cachedStringCharset = null;
     }
+
+    /**
+     * Sets the already known {@link String} representation of the chunk
+     * content, so it doesn't have to be decoded.
+     */
+    final void presetStringCache(final String value) {
+        cachedString = value;
+        cachedStringCharset = DEFAULT_CHARSET;
+    }
     
     protected final void reset() {
         buffer = null;        
@@ -155,6 +155,15 @@ public final class ByteChunk implements Chunk, Cloneable, Serializable {
         cachedString = null;
         cachedStringCharset = null;
     }
+
+    /**
+     * Sets the already known {@link String} representation of the chunk
+     * content, so it doesn't have to be decoded.
+     */
+    final void presetStringCache(final String value) {
+        cachedString = value;
+        cachedStringCharset = DEFAULT_CHARSET;
+    }
     
     // -------------------- Setup --------------------
 
@@ -29,7 +29,6 @@ import java.util.concurrent.ConcurrentHashMap;
 import java.util.concurrent.ConcurrentMap;
 import java.util.concurrent.atomic.AtomicBoolean;
 
-import static org.glassfish.grizzly.http.util.HttpCodecUtils.*;
 import org.glassfish.grizzly.utils.Charsets;
 
 /**
@@ -115,9 +114,9 @@ public final class FastHttpDateFormat {
     private static final StringBuffer currentDateBuffer = new StringBuffer();
     
     /**
-     * Current formatted date as byte[].
+     * Current formatted date as pre-encoded Date header.
      */
-    private static byte[] currentDateBytes;
+    private static volatile PreEncodedHeader currentDateHeader;
 
     /**
      * Current formatted date.
@@ -164,6 +163,17 @@ public final class FastHttpDateFormat {
      * Get the current date in HTTP format.
      */
     public static byte[] getCurrentDateBytes() {
+        return getCurrentDateHeader().getValueBytes();
+    }
+
+    /**
+     * Get the current date as pre-encoded Date header. The header is
+     * regenerated at most once a second, so the returned value could be
+     * added to the response headers and serialized as it is.
+     *
+     * @since 2.4.4
+     */
+    public static PreEncodedHeader getCurrentDateHeader() {
         final long now = System.currentTimeMillis();
         final long diff = now - nextGeneration;
         
@@ -175,14 +185,15 @@ public final class FastHttpDateFormat {
                 if (now > nextGeneration) {
                     currentDateBuffer.setLength(0);
                     FORMATTER.formatTo(now, currentDateBuffer);
-                    currentDateBytes = toCheckedByteArray(currentDateBuffer);
+                    currentDateHeader = new PreEncodedHeader(Header.Date,
+                            currentDateBuffer);
                     nextGeneration = now + 1000;
                 }
                 
                 isGeneratingNow.set(false);
             }
         }
-        return currentDateBytes;
+        return currentDateHeader;
     }
     
     /**
@@ -110,12 +110,15 @@ public class HttpStatus {
     private final String reasonPhrase;
     private final byte[] reasonPhraseBytes;
     private final byte[] statusBytes;
+    private final byte[] http11StatusLineBytes;
 
     private HttpStatus(final int status, final String reasonPhrase) {
         this.status = status;
         this.reasonPhrase = reasonPhrase;
         reasonPhraseBytes = reasonPhrase.getBytes(Charsets.ASCII_CHARSET);
         statusBytes = Integer.toString(status).getBytes(Charsets.ASCII_CHARSET);
+        http11StatusLineBytes = ("HTTP/1.1 " + status + ' ' + reasonPhrase)
+                .getBytes(Charsets.ASCII_CHARSET);
     }
 
     // ---------------------------------------------------------- Public Methods
@@ -139,6 +142,16 @@ public class HttpStatus {
         return statusBytes;
     }
 
+    /**
+     * @return the "<tt>HTTP/1.1 [status] [reason phrase]</tt>" status line
+     *          bytes (without the trailing CRLF). The array must not be
+     *          modified.
+     * @since 2.4.4
+     */
+    public byte[] getHttp11StatusLineBytes() {
+        return http11StatusLineBytes;
+    }
+
     /**
      * @return the {@link String} representation of the reason phrase.
      */
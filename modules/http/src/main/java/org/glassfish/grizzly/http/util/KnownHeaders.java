@@ -0,0 +1,357 @@
+/*
+ * Copyright (c) 2017 Oracle and/or its affiliates. All rights reserved.
+ *
+ * This program and the accompanying materials are made available under the
+ * terms of the Eclipse Public License v. 2.0, which is available at
+ * http://www.eclipse.org/legal/epl-2.0.
+ *
+ * This Source Code may also be made available under the following Secondary
+ * Licenses when the conditions for such availability set forth in the
+ * Eclipse Public License v. 2.0 are satisfied: GNU General Public License,
+ * version 2 with the GNU Classpath Exception, which is available at
+ * https://www.gnu.org/software/classpath/license.html.
+ *
+ * SPDX-License-Identifier: EPL-2.0 OR GPL-2.0 WITH Classpath-exception-2.0
+ */
+
+
+package org.glassfish.grizzly.http.util;
+
+import org.glassfish.grizzly.Buffer;
+import org.glassfish.grizzly.utils.Charsets;
+
+/**
+ * Perfect hash tables of the well-known {@link Header} names and the common
+ * header values, which let the HTTP parser identify a header with a single
+ * table probe and one bytes comparison.
+ *
+ * Header names are matched case-insensitively and resolved to the
+ * {@link Header} constant, which {@link MimeHeaders} uses to tag the header
+ * field, so the lookups by a well-known name compare the tags instead of the
+ * name bytes. Header values are matched case-sensitively and resolved to
+ * the interned {@link String}, so a value like "keep-alive" or "gzip" is
+ * never decoded.
+ *
+ * @since 2.4.4
+ */
+public final class KnownHeaders {
+
+    private static final String[] COMMON_VALUES = {
+            "0", "1", "?0", "?1",
+            "close", "Close", "keep-alive", "Keep-Alive", "upgrade", "Upgrade",
+            "chunked", "identity", "trailers", "100-continue",
+            "gzip", "deflate", "br", "gzip, deflate", "gzip, deflate, br",
+            "*/*", "text/html", "text/plain", "text/css", "application/json",
+            "application/javascript", "application/octet-stream",
+            "application/x-www-form-urlencoded",
+            "text/html,application/xhtml+xml,application/xml;q=0.9,*/*;q=0.8",
+            "no-cache", "no-store", "max-age=0", "bytes", "none",
+            "h2c", "websocket", "XMLHttpRequest",
+            "same-origin", "same-site", "cross-site",
+            "cors", "no-cors", "navigate", "document", "empty"
+    };
+
+    private static final Table NAMES;
+    private static final Table VALUES;
+
+    static {
+        final Header[] headers = Header.values();
+        final byte[][] names = new byte[headers.length][];
+        for (int i = 0; i < headers.length; i++) {
+            names[i] = headers[i].getLowerCaseBytes();
+        }
+        NAMES = Table.create(names, headers, true);
+
+        final byte[][] values = new byte[COMMON_VALUES.length][];
+        for (int i = 0; i < COMMON_VALUES.length; i++) {
+            values[i] = COMMON_VALUES[i].getBytes(Charsets.ASCII_CHARSET);
+        }
+        VALUES = Table.create(values, COMMON_VALUES, false);
+    }
+
+    private KnownHeaders() {
+    }
+
+    /**
+     * Finds the {@link Header}, whose name matches the passed bytes ignoring
+     * the case.
+     *
+     * @return the {@link Header}, or <tt>null</tt> if the name isn't
+     *          well-known
+     */
+    public static Header find(final byte[] name, final int start,
+            final int end) {
+        return (Header) NAMES.get(name, start, end);
+    }
+
+    /**
+     * Finds the {@link Header}, whose name matches the passed {@link Buffer}
+     * content ignoring the case.
+     *
+     * @return the {@link Header}, or <tt>null</tt> if the name isn't
+     *          well-known
+     */
+    public static Header find(final Buffer name, final int start,
+            final int end) {
+        return (Header) NAMES.get(name, start, end);
+    }
+
+    /**
+     * Finds the {@link Header}, whose name matches the passed {@link String}
+     * ignoring the case.
+     *
+     * @return the {@link Header}, or <tt>null</tt> if the name isn't
+     *          well-known
+     */
+    public static Header find(final String name) {
+        return name != null ? (Header) NAMES.get(name) : null;
+    }
+
+    /**
+     * Finds the interned {@link String}, which is equal to the passed header
+     * value bytes.
+     *
+     * @return the interned value, or <tt>null</tt> if the value isn't common
+     */
+    public static String findValue(final byte[] value, final int start,
+            final int end) {
+        return (String) VALUES.get(value, start, end);
+    }
+
+    /**
+     * Finds the interned {@link String}, which is equal to the passed header
+     * value {@link Buffer} content.
+     *
+     * @return the interned value, or <tt>null</tt> if the value isn't common
+     */
+    public static String findValue(final Buffer value, final int start,
+            final int end) {
+        return (String) VALUES.get(value, start, end);
+    }
+
+    /**
+     * Presets the interned {@link String} representation of the parsed
+     * header value, if the value is common, so {@link DataChunk#toString()}
+     * doesn't decode it.
+     *
+     * @param value the parsed header value
+     */
+    public static void internValue(final DataChunk value) {
+        switch (value.getType()) {
+            case Bytes: {
+                final ByteChunk bc = value.getByteChunk();
+                final String s = findValue(bc.getBuffer(), bc.getStart(),
+                        bc.getEnd());
+                if (s != null) {
+                    bc.presetStringCache(s);
+                }
+                break;
+            }
+            case Buffer: {
+                final BufferChunk bc = value.getBufferChunk();
+                final String s = findValue(bc.getBuffer(), bc.getStart(),
+                        bc.getEnd());
+                if (s != null) {
+                    bc.presetStringCache(s);
+                }
+                break;
+            }
+            default:
+        }
+    }
+
+    /**
+     * Open-addressing table without collisions: the multiplier of the
+     * multiplicative hash is chosen so that every key gets its own slot.
+     */
+    private static final class Table {
+        private static final int MAX_EXTRA_BITS = 4;
+        private static final int MAX_ATTEMPTS = 1 << 16;
+        private static final int GOLDEN_RATIO = 0x9E3779B9;
+
+        private final byte[][] keys;
+        private final Object[] values;
+        private final boolean ignoreCase;
+        private final int multiplier;
+        private final int shift;
+        private final int maxLength;
+
+        private Table(final byte[][] keys, final Object[] values,
+                final boolean ignoreCase, final int multiplier,
+                final int shift, final int maxLength) {
+            this.keys = keys;
+            this.values = values;
+            this.ignoreCase = ignoreCase;
+            this.multiplier = multiplier;
+            this.shift = shift;
+            this.maxLength = maxLength;
+        }
+
+        static Table create(final byte[][] keys, final Object[] values,
+                final boolean ignoreCase) {
+            int maxLength = 0;
+            final int[] hashes = new int[keys.length];
+            for (int i = 0; i < keys.length; i++) {
+                maxLength = Math.max(maxLength, keys[i].length);
+                hashes[i] = hash(keys[i], ignoreCase);
+            }
+
+            final int minBits = 32 - Integer.numberOfLeadingZeros(
+                    keys.length * 2 - 1);
+            for (int bits = minBits; bits <= minBits + MAX_EXTRA_BITS; bits++) {
+                final int shift = 32 - bits;
+                int multiplier = GOLDEN_RATIO;
+                for (int attempt = 0; attempt < MAX_ATTEMPTS; attempt++) {
+                    final byte[][] tableKeys = new byte[1 << bits][];
+                    final Object[] tableValues = new Object[1 << bits];
+                    if (fill(keys, values, hashes, multiplier, shift,
+                            tableKeys, tableValues)) {
+                        return new Table(tableKeys, tableValues, ignoreCase,
+                                multiplier, shift, maxLength);
+                    }
+
+                    // keep the multiplier odd
+                    multiplier += 0x6C8E9CF6;
+                }
+            }
+
+            throw new IllegalStateException("Can't build the perfect hash table");
+        }
+
+        private static boolean fill(final byte[][] keys, final Object[] values,
+                final int[] hashes, final int multiplier, final int shift,
+                final byte[][] tableKeys, final Object[] tableValues) {
+            for (int i = 0; i < keys.length; i++) {
+                final int idx = (hashes[i] * multiplier) >>> shift;
+                if (tableKeys[idx] != null) {
+                    return false;
+                }
+                tableKeys[idx] = keys[i];
+                tableValues[idx] = values[i];
+            }
+
+            return true;
+        }
+
+        private static int hash(final byte[] key, final boolean ignoreCase) {
+            int h = 0;
+            for (byte b : key) {
+                h = 31 * h + (ignoreCase ? Ascii.toLower(b) : (b & 0xFF));
+            }
+            return h;
+        }
+
+        Object get(final byte[] input, final int start, final int end) {
+            final int length = end - start;
+            if (input == null || length <= 0 || length > maxLength) {
+                return null;
+            }
+
+            int h = 0;
+            if (ignoreCase) {
+                for (int i = start; i < end; i++) {
+                    h = 31 * h + Ascii.toLower(input[i]);
+                }
+            } else {
+                for (int i = start; i < end; i++) {
+                    h = 31 * h + (input[i] & 0xFF);
+                }
+            }
+
+            final int idx = (h * multiplier) >>> shift;
+            final byte[] key = keys[idx];
+            if (key == null || key.length != length) {
+                return null;
+            }
+
+            if (ignoreCase) {
+                for (int i = 0; i < length; i++) {
+                    if (Ascii.toLower(input[start + i]) != key[i]) {
+                        return null;
+                    }
+                }
+            } else {
+                for (int i = 0; i < length; i++) {
+                    if (input[start + i] != key[i]) {
+                        return null;
+                    }
+                }
+            }
+
+            return values[idx];
+        }
+
+        Object get(final Buffer input, final int start, final int end) {
+            final int length = end - start;
+            if (input == null || length <= 0 || length > maxLength) {
+                return null;
+            }
+
+            int h = 0;
+            if (ignoreCase) {
+                for (int i = start; i < end; i++) {
+                    h = 31 * h + Ascii.toLower(input.get(i));
+                }
+            } else {
+                for (int i = start; i < end; i++) {
+                    h = 31 * h + (input.get(i) & 0xFF);
+                }
+            }
+
+            final int idx = (h * multiplier) >>> shift;
+            final byte[] key = keys[idx];
+            if (key == null || key.length != length) {
+                return null;
+            }
+
+            if (ignoreCase) {
+                for (int i = 0; i < length; i++) {
+                    if (Ascii.toLower(input.get(start + i)) != key[i]) {
+                        return null;
+                    }
+                }
+            } else {
+                for (int i = 0; i < length; i++) {
+                    if (input.get(start + i) != key[i]) {
+                        return null;
+                    }
+                }
+            }
+
+            return values[idx];
+        }
+
+        Object get(final String input) {
+            final int length = input.length();
+            if (length == 0 || length > maxLength) {
+                return null;
+            }
+
+            int h = 0;
+            for (int i = 0; i < length; i++) {
+                final char c = input.charAt(i);
+                if (c > 0x7F) {
+                    return null;
+                }
+                h = 31 * h + (ignoreCase ? Ascii.toLower(c) : c);
+            }
+
+            final int idx = (h * multiplier) >>> shift;
+            final byte[] key = keys[idx];
+            if (key == null || key.length != length) {
+                return null;
+            }
+
+            for (int i = 0; i < length; i++) {
+                final int c = ignoreCase
+                        ? Ascii.toLower(input.charAt(i))
+                        : input.charAt(i);
+                if (c != key[i]) {
+                    return null;
+                }
+            }
+
+            return values[idx];
+        }
+    }
+}
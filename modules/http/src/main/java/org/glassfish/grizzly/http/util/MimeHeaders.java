@@ -77,7 +77,6 @@ servlet needs direct access to headers).
  *  XXX one-buffer parsing - for HTTP ( other protocols don't need that )
  *  XXX remove unused methods
  *  XXX External enumerations, with 0 GC.
- *  XXX use HeaderName ID
  *
  *
  * @author dac@eng.sun.com
@@ -124,6 +123,20 @@ servlet needs direct access to headers).
      */
     public static final int DEFAULT_HEADER_SIZE = 8;
 
+    /**
+     * The default number of header fields, starting from which the name
+     * lookups use the hashed index.
+     */
+    public static final int DEFAULT_INDEX_THRESHOLD = 16;
+
+    /**
+     * The number of header fields, starting from which the name lookups use
+     * the hashed index; a non-positive value disables the index.
+     */
+    private static final int INDEX_THRESHOLD = Integer.getInteger(
+            MimeHeaders.class.getName() + ".index-threshold",
+            DEFAULT_INDEX_THRESHOLD);
+
     public static DataChunk NOOP_CHUNK = new DataChunk.Immutable(null);
 
     /**
@@ -139,6 +152,21 @@ servlet needs direct access to headers).
 
     private int maxNumHeaders = MAX_NUM_HEADERS_DEFAULT;
 
+    /**
+     * The hashed index of the header names: open-addressing table of the
+     * header field index + 1 (0 is an empty slot), built lazily once the
+     * number of header fields reaches {@link #INDEX_THRESHOLD}.
+     */
+    private int[] indexSlots;
+    /**
+     * The name hashes of the fields referenced by {@link #indexSlots}.
+     */
+    private int[] indexHashes;
+    /**
+     * The header fields [0, indexedCount) are added to the index.
+     */
+    private int indexedCount;
+
     /**
      * The header names {@link Iterable}.
      */
@@ -181,7 +209,7 @@ servlet needs direct access to headers).
         count = 0;
         mark = 0;
         marked = false;
-
+        resetIndex();
     }
 
     /**
@@ -209,6 +237,7 @@ servlet needs direct access to headers).
         }
         this.maxNumHeaders = source.maxNumHeaders;
         this.count = source.count;
+        resetIndex();
         if (headers.length < count) {
             MimeHeaderField tmp[] = new MimeHeaderField[count * 2];
             System.arraycopy(headers, 0, tmp, 0, headers.length);
@@ -236,6 +265,8 @@ servlet needs direct access to headers).
             } else {
                 f.valueB.set(sourceField.valueB);
             }
+            f.header = sourceField.header;
+            f.preEncoded = sourceField.preEncoded;
         }
 
     }
@@ -318,17 +349,56 @@ servlet needs direct access to headers).
         return value;
     }
 
+    /**
+     * Returns the Nth header well-known {@link Header}, or null if there is
+     * no such header, or its name isn't well-known.
+     */
+    public Header getHeaderId(int n) {
+        return n >= 0 && n < count ? headers[n].header : null;
+    }
+
+    /**
+     * Returns the {@link PreEncodedHeader} the Nth header was added from, if
+     * its value wasn't changed since then, or null otherwise.
+     *
+     * @since 2.4.4
+     */
+    public PreEncodedHeader getPreEncoded(int n) {
+        if (n >= 0 && n < count) {
+            final MimeHeaderField field = headers[n];
+            final PreEncodedHeader preEncoded = field.preEncoded;
+            if (preEncoded != null && preEncoded.isValueOf(field.valueB)) {
+                return preEncoded;
+            }
+        }
+
+        return null;
+    }
+
     /**
      * Find the index of a header with the given name.
      */
     public int indexOf(String name, int fromIndex) {
-        // We can use a hash - but it's not clear how much
-        // benefit you can get - there is an  overhead
-        // and the number of headers is small (4-5 ?)
-        // Another problem is that we'll pay the overhead
-        // of constructing the hashtable
+        final Header header = KnownHeaders.find(name);
+        if (header != null) {
+            return indexOf(header, fromIndex);
+        }
+
+        if (isIndexed()) {
+            final int hash = hashIgnoreCase(name);
+            final int mask = indexSlots.length - 1;
+            for (int slot = spread(hash) & mask; indexSlots[slot] != 0;
+                    slot = (slot + 1) & mask) {
+                final int i = indexSlots[slot] - 1;
+                if (i >= fromIndex && indexHashes[slot] == hash
+                        && headers[i].header == null
+                        && headers[i].getName().equalsIgnoreCase(name)) {
+                    return i;
+                }
+            }
+            return -1;
+        }
 
-        // A custom search tree may be better
         for (int i = fromIndex; i < count; i++) {
             if (headers[i].getName().equalsIgnoreCase(name)) {
                 return i;
@@ -341,16 +411,23 @@ servlet needs direct access to headers).
      * Find the index of a header with the given name.
      */
     public int indexOf(final Header header, final int fromIndex) {
-        // We can use a hash - but it's not clear how much
-        // benefit you can get - there is an  overhead
-        // and the number of headers is small (4-5 ?)
-        // Another problem is that we'll pay the overhead
-        // of constructing the hashtable
-
-        // A custom search tree may be better
-        final byte[] bytes = header.getLowerCaseBytes();
+        // every header field with a well-known name is tagged with its
+        // Header when added, so the tags are compared instead of the names
+        if (isIndexed()) {
+            final int hash = hash(header);
+            final int mask = indexSlots.length - 1;
+            for (int slot = spread(hash) & mask; indexSlots[slot] != 0;
+                    slot = (slot + 1) & mask) {
+                final int i = indexSlots[slot] - 1;
+                if (i >= fromIndex && headers[i].header == header) {
+                    return i;
+                }
+            }
+            return -1;
+        }
+
         for (int i = fromIndex; i < count; i++) {
-            if (headers[i].getName().equalsIgnoreCaseLowerCase(bytes)) {
+            if (headers[i].header == header) {
                 return i;
             }
         }
@@ -453,6 +530,7 @@ servlet needs direct access to headers).
         }
         MimeHeaderField mh = createHeader();
         mh.getName().setString(name);
+        mh.header = KnownHeaders.find(name);
         return mh.getValue();
     }
 
@@ -465,20 +543,52 @@ servlet needs direct access to headers).
         }
         MimeHeaderField mh = createHeader();
         mh.getName().setBytes(header.toByteArray());
+        mh.header = header;
         return mh.getValue();
     }
 
+    /**
+     * Adds the {@link PreEncodedHeader}. The header name and value refer
+     * to the {@link PreEncodedHeader} bytes, and, unless the value is changed,
+     * the header is serialized using {@link PreEncodedHeader#getEncodedBytes()}.
+     *
+     * @param preEncoded the {@link PreEncodedHeader}
+     * @since 2.4.4
+     */
+    public void addValue(final PreEncodedHeader preEncoded) {
+        final Header header = preEncoded.getHeader();
+        if (!isValidName(header)) {
+            return;
+        }
+        MimeHeaderField mh = createHeader();
+        mh.getName().setBytes(header.toByteArray());
+        mh.getValue().setBytes(preEncoded.getValueBytes());
+        mh.header = header;
+        mh.preEncoded = preEncoded;
+    }
+
     /** Create a new named header using un-translated byte[].
     The conversion to chars can be delayed until
     encoding is known.
      */
     public DataChunk addValue(final byte[] buffer, final int startN,
             final int len) {
+        return addValue(buffer, startN, len,
+                KnownHeaders.find(buffer, startN, startN + len));
+    }
+
+    /** Create a new named header using un-translated byte[], which has
+    already been identified as the well-known {@link Header}
+    (<tt>null</tt> if the name isn't well-known).
+     */
+    public DataChunk addValue(final byte[] buffer, final int startN,
+            final int len, final Header header) {
         if (!isValidName(buffer)) {
             return NOOP_CHUNK;
         }
         MimeHeaderField mhf = createHeader();
         mhf.getName().setBytes(buffer, startN, startN + len);
+        mhf.header = header;
         return mhf.getValue();
     }
 
@@ -488,11 +598,22 @@ servlet needs direct access to headers).
      */
     public DataChunk addValue(final Buffer buffer, final int startN,
             final int len) {
+        return addValue(buffer, startN, len,
+                KnownHeaders.find(buffer, startN, startN + len));
+    }
+
+    /** Create a new named header using un-translated Buffer, which has
+    already been identified as the well-known {@link Header}
+    (<tt>null</tt> if the name isn't well-known).
+     */
+    public DataChunk addValue(final Buffer buffer, final int startN,
+            final int len, final Header header) {
         if (!isValidName(buffer)) {
             return NOOP_CHUNK;
         }
         MimeHeaderField mhf = createHeader();
         mhf.getName().setBuffer(buffer, startN, startN + len);
+        mhf.header = header;
         return mhf.getValue();
     }
 
@@ -506,18 +627,16 @@ servlet needs direct access to headers).
         if (!isValidName(name)) {
             return NOOP_CHUNK;
         }
-        for (int i = 0; i < count; i++) {
-            if (headers[i].getName().equalsIgnoreCase(name)) {
-                for (int j = i + 1; j < count; j++) {
-                    if (headers[j].getName().equalsIgnoreCase(name)) {
-                        removeHeader(j--);
-                    }
-                }
-                return headers[i].getValue();
+        final int i = indexOf(name, 0);
+        if (i >= 0) {
+            for (int j = indexOf(name, i + 1); j >= 0; j = indexOf(name, j)) {
+                removeHeader(j);
             }
+            return headers[i].getValue();
         }
         MimeHeaderField mh = createHeader();
         mh.getName().setString(name);
+        mh.header = KnownHeaders.find(name);
         return mh.getValue();
     }
 
@@ -531,19 +650,16 @@ servlet needs direct access to headers).
         if (!isValidName(header)) {
             return NOOP_CHUNK;
         }
-        final byte[] bytes = header.getLowerCaseBytes();
-        for (int i = 0; i < count; i++) {
-            if (headers[i].getName().equalsIgnoreCaseLowerCase(bytes)) {
-                for (int j = i + 1; j < count; j++) {
-                    if (headers[j].getName().equalsIgnoreCaseLowerCase(bytes)) {
-                        removeHeader(j--);
-                    }
-                }
-                return headers[i].getValue();
+        final int i = indexOf(header, 0);
+        if (i >= 0) {
+            for (int j = indexOf(header, i + 1); j >= 0; j = indexOf(header, j)) {
+                removeHeader(j);
             }
+            return headers[i].getValue();
         }
         MimeHeaderField mh = createHeader();
         mh.getName().setBytes(header.toByteArray());
+        mh.header = header;
 
         return mh.getValue();
     }
@@ -555,12 +671,8 @@ servlet needs direct access to headers).
      * in the header, an arbitrary one is returned.
      */
     public DataChunk getValue(String name) {
-        for (int i = 0; i < count; i++) {
-            if (headers[i].getName().equalsIgnoreCase(name)) {
-                return headers[i].getValue();
-            }
-        }
-        return null;
+        final int idx = indexOf(name, 0);
+        return idx >= 0 ? headers[idx].getValue() : null;
     }
 
     /**
@@ -569,13 +681,8 @@ servlet needs direct access to headers).
      * in the header, an arbitrary one is returned.
      */
     public DataChunk getValue(final Header header) {
-        final byte[] bytes = header.getLowerCaseBytes();
-        for (int i = 0; i < count; i++) {
-            if (headers[i].getName().equalsIgnoreCaseLowerCase(bytes)) {
-                return headers[i].getValue();
-            }
-        }
-        return null;
+        final int idx = indexOf(header, 0);
+        return idx >= 0 ? headers[idx].getValue() : null;
     }
 
     // bad shortcut - it'll convert to string ( too early probably,
@@ -600,8 +707,9 @@ servlet needs direct access to headers).
         // XXX
         // warning: rather sticky code; heavily tuned
 
+        final Header header = KnownHeaders.find(name);
         for (int i = 0; i < count; i++) {
-            if (headers[i].getName().equalsIgnoreCase(name)) {
+            if (nameEquals(i, name, header)) {
                 removeHeader(i--);
             }
         }
@@ -610,7 +718,7 @@ servlet needs direct access to headers).
     public void removeHeader(final Header header) {
 
         for (int i = 0; i < count; i++) {
-            if (headers[i].getName().equalsIgnoreCase(header.getBytes())) {
+            if (headers[i].header == header) {
                 removeHeader(i--);
             }
         }
@@ -665,8 +773,7 @@ servlet needs direct access to headers).
      */
     public void removeHeaderMatches(final Header header, final String regex) {
         for (int i = 0; i < count; i++) {
-            if (headers[i].getName().equalsIgnoreCaseLowerCase(
-                    header.getLowerCaseBytes())
+            if (headers[i].header == header
                     && getValue(i) != null
                     && getValue(i).toString() != null
                     && getValue(i).toString().matches(regex)) {
@@ -675,6 +782,17 @@ servlet needs direct access to headers).
         }
     }
 
+    /**
+     * Checks if the Nth header has the given name. If the name is
+     * a well-known {@link Header} - the header tags are compared.
+     */
+    private boolean nameEquals(final int n, final String name,
+            final Header header) {
+        return header != null
+                ? headers[n].header == header
+                : headers[n].getName().equalsIgnoreCase(name);
+    }
+
     /**
      * reset and swap with last header
      * @param idx the index of the header to remove.
@@ -686,6 +804,120 @@ servlet needs direct access to headers).
         headers[idx] = headers[count - 1];
         headers[count - 1] = mh;
         count--;
+        resetIndex();
+    }
+
+
+    // ------------------------------------------------------------ Name Index
+
+
+    /**
+     * Brings the hashed index up to date, if the number of header fields
+     * reached the threshold.
+     *
+     * @return <tt>true</tt> if the index can be used for the lookup
+     */
+    private boolean isIndexed() {
+        if (INDEX_THRESHOLD <= 0 || count < INDEX_THRESHOLD) {
+            return false;
+        }
+
+        if (indexSlots == null || indexSlots.length < count * 2) {
+            // keep the load factor <= 0.5
+            final int size = Integer.highestOneBit(count * 4 - 1) << 1;
+            indexSlots = new int[size];
+            indexHashes = new int[size];
+            indexedCount = 0;
+        }
+
+        // the fields are added in order, so the same name fields are met
+        // in the ascending order when probing
+        final int mask = indexSlots.length - 1;
+        for (; indexedCount < count; indexedCount++) {
+            final MimeHeaderField field = headers[indexedCount];
+            final int hash = field.header != null
+                    ? hash(field.header)
+                    : hashIgnoreCase(field.getName());
+            int slot = spread(hash) & mask;
+            while (indexSlots[slot] != 0) {
+                slot = (slot + 1) & mask;
+            }
+            indexSlots[slot] = indexedCount + 1;
+            indexHashes[slot] = hash;
+        }
+
+        return true;
+    }
+
+    /**
+     * Drops the index content, keeping the allocated tables; the index will
+     * be rebuilt on the next lookup.
+     */
+    private void resetIndex() {
+        if (indexedCount > 0) {
+            Arrays.fill(indexSlots, 0);
+            indexedCount = 0;
+        }
+    }
+
+    private static int spread(final int hash) {
+        return hash ^ (hash >>> 16);
+    }
+
+    private static int hash(final Header header) {
+        return (header.ordinal() + 1) * 0x9E3779B9;
+    }
+
+    /**
+     * Folds the character case for hashing; all the non-ASCII characters
+     * get the same hash code, so the hash is consistent with any
+     * case-insensitive names comparison.
+     */
+    private static int fold(final int c) {
+        return c < 0x80 ? Ascii.toLower(c) : 0x80;
+    }
+
+    private static int hashIgnoreCase(final String name) {
+        int h = 0;
+        for (int i = 0; i < name.length(); i++) {
+            h = 31 * h + fold(name.charAt(i));
+        }
+        return h;
+    }
+
+    private static int hashIgnoreCase(final DataChunk name) {
+        int h = 0;
+        switch (name.getType()) {
+            case Bytes: {
+                final ByteChunk bc = name.getByteChunk();
+                final byte[] bytes = bc.getBuffer();
+                for (int i = bc.getStart(); i < bc.getEnd(); i++) {
+                    h = 31 * h + fold(bytes[i] & 0xFF);
+                }
+                break;
+            }
+            case Buffer: {
+                final BufferChunk bc = name.getBufferChunk();
+                final Buffer buffer = bc.getBuffer();
+                for (int i = bc.getStart(); i < bc.getEnd(); i++) {
+                    h = 31 * h + fold(buffer.get(i) & 0xFF);
+                }
+                break;
+            }
+            case Chars: {
+                final CharChunk cc = name.getCharChunk();
+                final char[] chars = cc.getBuffer();
+                for (int i = cc.getStart(); i < cc.getEnd(); i++) {
+                    h = 31 * h + fold(chars[i]);
+                }
+                break;
+            }
+            case String:
+                h = hashIgnoreCase(name.toString());
+                break;
+            default:
+        }
+        return h;
     }
 
 
@@ -825,11 +1057,13 @@ final class ValuesIterator extends BaseIterator {
 
     protected void findNext() {
         next = null;
-        for (; pos < size; pos++) {
-            final DataChunk n1 = headers.getName(pos);
-            if (n1.equalsIgnoreCase(name)) {
-                next = headers.getValue(pos);
-                break;
+        if (pos < size) {
+            final int idx = headers.indexOf(name, pos);
+            if (idx >= 0 && idx < size) {
+                next = headers.getValue(idx);
+                pos = idx;
+            } else {
+                pos = size;
             }
         }
         pos++;
@@ -855,6 +1089,17 @@ final class MimeHeaderField {
     protected final DataChunk nameB = DataChunk.newInstance();
     protected final DataChunk valueB = DataChunk.newInstance();
 
+    /**
+     * The well-known {@link Header} of the field name, or <tt>null</tt>
+     * if the name isn't well-known.
+     */
+    Header header;
+
+    /**
+     * The {@link PreEncodedHeader} the field was added from, or <tt>null</tt>.
+     */
+    PreEncodedHeader preEncoded;
+
     private boolean isSerialized;
     /**
      * Creates a new, uninitialized header field.
@@ -863,6 +1108,8 @@ final class MimeHeaderField {
     }
 
     public void recycle() {
+        header = null;
+        preEncoded = null;
         isSerialized = false;
         nameB.recycle();
         valueB.recycle();
@@ -21,8 +21,11 @@ import java.io.CharConversionException;
 import java.io.IOException;
 import java.nio.charset.Charset;
 import java.util.ArrayList;
+import java.util.Arrays;
 import java.util.Collections;
+import java.util.Iterator;
 import java.util.LinkedHashMap;
+import java.util.Map;
 import java.util.Set;
 import java.util.logging.Level;
 import java.util.logging.Logger;
@@ -31,6 +34,7 @@ import org.glassfish.grizzly.Buffer;
 import org.glassfish.grizzly.Grizzly;
 
 import org.glassfish.grizzly.localization.LogMessages;
+import org.glassfish.grizzly.memory.Buffers;
 
 /**
  * @author Costin Manolache
@@ -67,6 +71,42 @@ public final class Parameters {
     private int limit = -1;
     private int parameterCount = 0;
 
+    // -------------------- Lazy parsing --------------------
+    // In the lazy mode the parameters are not decoded, but indexed:
+    // the parameter name/value offsets in the source Buffers are stored in
+    // the lazyEntries array, the names and values are decoded and cached
+    // only when requested. The index is used while the parameters map is
+    // empty, once the map is required (parameter names, sub-requests, adding
+    // the parameters) the index gets materialized into the map.
+    private static final int ENTRY_SIZE = 6;
+    private static final int SOURCE = 0;
+    private static final int NAME_START = 1;
+    private static final int NAME_END = 2;
+    private static final int VALUE_START = 3;
+    private static final int VALUE_END = 4;
+    private static final int FLAGS = 5;
+
+    private static final int DECODE_NAME = 1;
+    private static final int DECODE_VALUE = 2;
+    private static final int INVALID = 4;
+
+    private boolean isLazy;
+    private int[] lazyEntries = new int[INITIAL_SIZE * ENTRY_SIZE];
+    private String[] lazyNames = new String[INITIAL_SIZE];
+    private String[] lazyValues = new String[INITIAL_SIZE];
+    private int lazyCount;
+
+    private Buffer[] lazySources = new Buffer[2];
+    private Charset[] lazyCharsets = new Charset[2];
+    private int lazySourcesCount;
+
+    // the bytes of the copied source (form parameters), reused between requests
+    private byte[] copyBytes;
+    private boolean isCopyBytesUsed;
+
+    private final BufferChunk decodeChunk = new BufferChunk();
+    private final ParameterIterator parameterIterator = new ParameterIterator();
+
     public void setQuery(final DataChunk queryBC) {
         this.queryDC = queryBC;
     }
@@ -102,6 +142,32 @@ public final class Parameters {
         return queryStringEncoding;
     }
 
+    /**
+     * @return <tt>true</tt> if the parameters are parsed lazily
+     * @see #setLazy(boolean)
+     * @since 2.4.4
+     */
+    public boolean isLazy() {
+        return isLazy;
+    }
+
+    /**
+     * Enables or disables the lazy parameters parsing. In the lazy mode the
+     * query string and form parameters are not decoded when processed, only
+     * their offsets are indexed; a parameter name and value are URL-decoded
+     * and converted to {@link String}s only when looked up by
+     * {@link #getParameter(String)}, {@link #getParameterValues(String)} or
+     * walked by {@link #iterator()}. The parameters are materialized into
+     * the name/values map only when the map is required, for example by
+     * {@link #getParameterNames()}.
+     *
+     * @param isLazy <tt>true</tt> to enable the lazy mode
+     * @since 2.4.4
+     */
+    public void setLazy(final boolean isLazy) {
+        this.isLazy = isLazy;
+    }
+
     public void recycle() {
 
         paramHashValues.clear();
@@ -112,6 +178,8 @@ public final class Parameters {
         queryStringEncoding = null;
         parameterCount = 0;
         decodedQuery.recycle();
+        recycleLazy();
+        parameterIterator.reset(null);
 
     }
     // -------------------- Sub-request support --------------------
@@ -176,6 +244,7 @@ public final class Parameters {
         if (key == null) {
             return;
         }
+        materialize();
         ArrayList<String> values;
         if (paramHashValues.containsKey(key)) {
             values = paramHashValues.get(key);
@@ -191,7 +260,9 @@ public final class Parameters {
         handleQueryParameters();
         final ArrayList<String> values;
         // sub-request
-        if (currentChild != null) {
+        if (currentChild == null && lazyCount > 0) {
+            return getLazyParameterValues(name);
+        } else if (currentChild != null) {
             currentChild.merge();
             values = currentChild.paramHashValues.get(name);
         } else {
@@ -203,6 +274,7 @@ public final class Parameters {
 
     public Set<String> getParameterNames() {
         handleQueryParameters();
+        materialize();
         // Slow - the original code
         if (currentChild != null) {
             currentChild.merge();
@@ -235,6 +307,7 @@ public final class Parameters {
 
         // Local parameters first - they take precedence as in spec.
         handleQueryParameters();
+        materialize();
         // we already merged with the parent
         if (didMerge) {
             return;
@@ -260,6 +333,17 @@ public final class Parameters {
 
     // Shortcut.
     public String getParameter(final String name) {
+        if (lazyCount > 0) {
+            for (int i = 0; i < lazyCount; i++) {
+                if (lazyNameEquals(i, name)) {
+                    final String value = getLazyValue(i);
+                    if (value != null) {
+                        return value;
+                    }
+                }
+            }
+            return null;
+        }
         ArrayList<String> values = paramHashValues.get(name);
         if (values != null) {
             if (values.isEmpty()) {
@@ -288,6 +372,15 @@ public final class Parameters {
                        new Object[]{queryDC, queryStringEncoding});
         }
         
+        if (isLazyIndexing() && queryDC.getType() == DataChunk.Type.Buffer) {
+            // the query string is decoded on demand into a separate buffer,
+            // so it's safe to index the original chunk
+            final BufferChunk bc = queryDC.getBufferChunk();
+            parseParameters(bc.getBuffer(), bc.getStart(), bc.getLength(),
+                    queryStringEncoding, true);
+            return;
+        }
+
         decodedQuery.duplicate(queryDC);
         
         processParameters(decodedQuery, queryStringEncoding);
@@ -337,6 +430,8 @@ public final class Parameters {
             return;
         }
 
+        materialize();
+
         parameterCount++;
         if (limit > -1 && parameterCount > limit) {
             // Processing this parameter will push us over the limit. ISE is
@@ -379,6 +474,36 @@ public final class Parameters {
 
     public void processParameters(final Buffer buffer, final int start, final int len,
         final Charset enc) {
+        if (isLazyIndexing() && len > 0) {
+            // the passed buffer might be released by the caller,
+            // so the lazy index refers to the copy of its content
+            final byte[] bytes;
+            if (!isCopyBytesUsed && copyBytes != null && copyBytes.length >= len) {
+                bytes = copyBytes;
+            } else {
+                bytes = new byte[len];
+                if (!isCopyBytesUsed) {
+                    copyBytes = bytes;
+                }
+            }
+            isCopyBytesUsed |= bytes == copyBytes;
+
+            final int oldPos = buffer.position();
+            try {
+                buffer.position(start);
+                buffer.get(bytes, 0, len);
+            } finally {
+                buffer.position(oldPos);
+            }
+            parseParameters(Buffers.wrap(null, bytes, 0, len), 0, len, enc, true);
+            return;
+        }
+
+        parseParameters(buffer, start, len, enc, false);
+    }
+
+    private void parseParameters(final Buffer buffer, final int start,
+            final int len, final Charset enc, final boolean index) {
 
         if (LOGGER.isLoggable(Level.FINEST)) {
             LOGGER.log(Level.FINEST,
@@ -480,6 +605,14 @@ public final class Parameters {
                 continue;
                 // invalid chunk - it's better to ignore
             }
+
+            if (index) {
+                addLazyEntry(buffer, enc, nameStart, nameEnd, valueStart,
+                        valueEnd, (decodeName ? DECODE_NAME : 0)
+                                | (decodeValue ? DECODE_VALUE : 0));
+                continue;
+            }
+
             tmpName.setBufferChunk(buffer, nameStart, nameEnd);
             tmpValue.setBufferChunk(buffer, valueStart, valueEnd);
 
@@ -713,10 +846,36 @@ public final class Parameters {
         }
     }
 
+    /**
+     * Returns the {@link ParameterIterator}, which walks all the parameters.
+     * In the lazy mode the iterator doesn't materialize the parameters map,
+     * decodes only the names and values it is asked for, and walks the
+     * parameters in the order they were processed. Otherwise the parameters
+     * are walked in the parameters map order: grouped by name, the names in
+     * the order of their first occurrence, and the values of each name in
+     * the order they were processed.
+     *
+     * The returned iterator is reused by this <tt>Parameters</tt>, so only
+     * one iteration may be in progress.
+     *
+     * @return the {@link ParameterIterator}
+     * @since 2.4.4
+     */
+    public ParameterIterator iterator() {
+        handleQueryParameters();
+        if (currentChild != null) {
+            currentChild.merge();
+            return parameterIterator.reset(currentChild);
+        }
+
+        return parameterIterator.reset(this);
+    }
+
     /**
      * Debug purpose
      */
     public String paramsAsString() {
+        materialize();
         StringBuilder sb = new StringBuilder();
         for (final String s : paramHashValues.keySet()) {
             // END PWC 6057385
@@ -730,6 +889,292 @@ public final class Parameters {
         return sb.toString();
     }
 
+    // -------------------- Lazy parsing --------------------
+
+    private boolean isLazyIndexing() {
+        return isLazy && paramHashValues.isEmpty();
+    }
+
+    private void addLazyEntry(final Buffer source, final Charset enc,
+            final int nameStart, final int nameEnd,
+            final int valueStart, final int valueEnd, final int flags) {
+        int sourceIdx = lazySourcesCount - 1;
+        if (sourceIdx < 0 || lazySources[sourceIdx] != source) {
+            sourceIdx = lazySourcesCount++;
+            if (sourceIdx == lazySources.length) {
+                lazySources = Arrays.copyOf(lazySources, sourceIdx * 2);
+                lazyCharsets = Arrays.copyOf(lazyCharsets, sourceIdx * 2);
+            }
+            lazySources[sourceIdx] = source;
+            lazyCharsets[sourceIdx] = enc;
+        }
+
+        if (lazyCount == lazyNames.length) {
+            final int newSize = lazyCount * 2;
+            lazyEntries = Arrays.copyOf(lazyEntries, newSize * ENTRY_SIZE);
+            lazyNames = Arrays.copyOf(lazyNames, newSize);
+            lazyValues = Arrays.copyOf(lazyValues, newSize);
+        }
+
+        final int offs = lazyCount * ENTRY_SIZE;
+        lazyEntries[offs + SOURCE] = sourceIdx;
+        lazyEntries[offs + NAME_START] = nameStart;
+        lazyEntries[offs + NAME_END] = nameEnd;
+        lazyEntries[offs + VALUE_START] = valueStart;
+        lazyEntries[offs + VALUE_END] = valueEnd;
+        lazyEntries[offs + FLAGS] = flags;
+        lazyCount++;
+        parameterCount++;
+    }
+
+    /**
+     * Checks if the Nth indexed parameter has the given name. The parameter
+     * name is decoded only if it has escaped or non-ASCII characters.
+     */
+    private boolean lazyNameEquals(final int n, final String name) {
+        final int offs = n * ENTRY_SIZE;
+        final int flags = lazyEntries[offs + FLAGS];
+        if ((flags & INVALID) != 0) {
+            return false;
+        }
+
+        if (lazyNames[n] == null && (flags & DECODE_NAME) == 0) {
+            final Buffer source = lazySources[lazyEntries[offs + SOURCE]];
+            final int start = lazyEntries[offs + NAME_START];
+            final int end = lazyEntries[offs + NAME_END];
+            if (end - start != name.length()) {
+                return false;
+            }
+
+            boolean isAscii = true;
+            for (int i = start; i < end; i++) {
+                final byte b = source.get(i);
+                if (b < 0) {
+                    isAscii = false;
+                    break;
+                }
+
+                if (b != name.charAt(i - start)) {
+                    return false;
+                }
+            }
+
+            if (isAscii) {
+                return true;
+            }
+        }
+
+        return name.equals(getLazyName(n));
+    }
+
+    private String getLazyName(final int n) {
+        String name = lazyNames[n];
+        if (name == null) {
+            final int offs = n * ENTRY_SIZE;
+            name = decodeLazy(n, lazyEntries[offs + NAME_START],
+                    lazyEntries[offs + NAME_END],
+                    (lazyEntries[offs + FLAGS] & DECODE_NAME) != 0);
+            lazyNames[n] = name;
+        }
+
+        return name;
+    }
+
+    private String getLazyValue(final int n) {
+        String value = lazyValues[n];
+        if (value == null) {
+            final int offs = n * ENTRY_SIZE;
+            final int valueStart = lazyEntries[offs + VALUE_START];
+            value = valueStart != -1
+                    ? decodeLazy(n, valueStart, lazyEntries[offs + VALUE_END],
+                            (lazyEntries[offs + FLAGS] & DECODE_VALUE) != 0)
+                    : "";
+            lazyValues[n] = value;
+        }
+
+        return value;
+    }
+
+    /**
+     * Decodes the part of the Nth indexed parameter, if the decoding fails -
+     * the parameter is marked invalid and skipped, like in the eager mode.
+     */
+    private String decodeLazy(final int n, final int start, final int end,
+            final boolean urlDecode) {
+        final int offs = n * ENTRY_SIZE;
+        if ((lazyEntries[offs + FLAGS] & INVALID) != 0) {
+            return null;
+        }
+
+        final Buffer source = lazySources[lazyEntries[offs + SOURCE]];
+        final Charset enc = lazyCharsets[lazyEntries[offs + SOURCE]];
+        tmpName.setBufferChunk(source, start, end);
+        try {
+            if (urlDecode) {
+                // decode the copy, so the original query string is untouched
+                decodeChunk.allocate(end - start);
+                decodeChunk.append(tmpName);
+                return urlDecode(decodeChunk, enc);
+            }
+
+            return tmpName.toString(enc);
+        } catch (Exception e) {
+            lazyEntries[offs + FLAGS] |= INVALID;
+            if (LOGGER.isLoggable(Level.INFO)) {
+                LOGGER.log(Level.INFO,
+                        LogMessages.INFO_GRIZZLY_HTTP_PARAMETERS_DECODE_FAIL_INFO(
+                                e.getMessage(), tmpName.toString(), "unavailable"));
+                LOGGER.log(Level.FINE, "Decoding stacktrace.", e);
+            }
+            return null;
+        } finally {
+            tmpName.recycle();
+        }
+    }
+
+    private String[] getLazyParameterValues(final String name) {
+        String[] values = null;
+        int count = 0;
+        for (int i = 0; i < lazyCount; i++) {
+            if (lazyNameEquals(i, name)) {
+                final String value = getLazyValue(i);
+                if (value != null) {
+                    if (values == null) {
+                        values = new String[1];
+                    } else if (count == values.length) {
+                        values = Arrays.copyOf(values, count * 2);
+                    }
+                    values[count++] = value;
+                }
+            }
+        }
+
+        return values == null || count == values.length
+                ? values
+                : Arrays.copyOf(values, count);
+    }
+
+    /**
+     * Decodes all the indexed parameters into the parameters map.
+     */
+    private void materialize() {
+        if (lazyCount == 0) {
+            return;
+        }
+
+        for (int i = 0; i < lazyCount; i++) {
+            final String name = getLazyName(i);
+            final String value = name != null ? getLazyValue(i) : null;
+            if (value != null) {
+                ArrayList<String> values = paramHashValues.get(name);
+                if (values == null) {
+                    values = new ArrayList<String>(1);
+                    paramHashValues.put(name, values);
+                }
+                values.add(value);
+            }
+        }
+
+        recycleLazy();
+    }
+
+    private void recycleLazy() {
+        Arrays.fill(lazyNames, 0, lazyCount, null);
+        Arrays.fill(lazyValues, 0, lazyCount, null);
+        Arrays.fill(lazySources, 0, lazySourcesCount, null);
+        Arrays.fill(lazyCharsets, 0, lazySourcesCount, null);
+        lazyCount = 0;
+        lazySourcesCount = 0;
+        isCopyBytesUsed = false;
+    }
+
+    /**
+     * Walks the parameters without materializing the parameters map in the
+     * lazy mode.
+     *
+     * @since 2.4.4
+     */
+    public static final class ParameterIterator {
+        private Parameters parameters;
+        private int lazyIdx;
+        private Iterator<Map.Entry<String, ArrayList<String>>> entries;
+        private Map.Entry<String, ArrayList<String>> entry;
+        private int valueIdx;
+
+        private String name;
+        private String value;
+
+        ParameterIterator reset(final Parameters parameters) {
+            this.parameters = parameters;
+            lazyIdx = 0;
+            entries = null;
+            entry = null;
+            valueIdx = 0;
+            name = null;
+            value = null;
+            return this;
+        }
+
+        /**
+         * Moves to the next parameter.
+         *
+         * @return <tt>true</tt> if there is the next parameter, or
+         *          <tt>false</tt> if all the parameters were walked
+         */
+        public boolean next() {
+            name = null;
+            value = null;
+            if (parameters == null) {
+                return false;
+            }
+
+            if (parameters.lazyCount > 0) {
+                while (lazyIdx < parameters.lazyCount) {
+                    name = parameters.getLazyName(lazyIdx++);
+                    if (name != null) {
+                        return true;
+                    }
+                }
+                return false;
+            }
+
+            if (entries == null) {
+                entries = parameters.paramHashValues.entrySet().iterator();
+            }
+
+            while (entry == null || valueIdx >= entry.getValue().size()) {
+                if (!entries.hasNext()) {
+                    return false;
+                }
+                entry = entries.next();
+                valueIdx = 0;
+            }
+
+            name = entry.getKey();
+            value = entry.getValue().get(valueIdx++);
+            return true;
+        }
+
+        /**
+         * @return the current parameter name
+         */
+        public String getName() {
+            return name;
+        }
+
+        /**
+         * @return the current parameter value; in the lazy mode the value is
+         *          decoded on the first call, and <tt>null</tt> is returned
+         *          if the value can't be decoded
+         */
+        public String getValue() {
+            if (value == null && name != null && parameters.lazyCount > 0) {
+                value = parameters.getLazyValue(lazyIdx - 1);
+            }
+            return value;
+        }
+    }
+
     // -------------------- Old code, needs rewrite --------------------
 
 
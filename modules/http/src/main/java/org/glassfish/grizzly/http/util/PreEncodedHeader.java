@@ -0,0 +1,110 @@
+/*
+ * Copyright (c) 2017 Oracle and/or its affiliates. All rights reserved.
+ *
+ * This program and the accompanying materials are made available under the
+ * terms of the Eclipse Public License v. 2.0, which is available at
+ * http://www.eclipse.org/legal/epl-2.0.
+ *
+ * This Source Code may also be made available under the following Secondary
+ * Licenses when the conditions for such availability set forth in the
+ * Eclipse Public License v. 2.0 are satisfied: GNU General Public License,
+ * version 2 with the GNU Classpath Exception, which is available at
+ * https://www.gnu.org/software/classpath/license.html.
+ *
+ * SPDX-License-Identifier: EPL-2.0 OR GPL-2.0 WITH Classpath-exception-2.0
+ */
+
+
+package org.glassfish.grizzly.http.util;
+
+import org.glassfish.grizzly.utils.Charsets;
+
+/**
+ * Immutable HTTP header, whose value and complete
+ * "<tt>name: value\r\n</tt>" line are encoded once, so the header can be
+ * added to {@link MimeHeaders} without copying and serialized with a
+ * single bulk put.
+ *
+ * @see MimeHeaders#addValue(PreEncodedHeader)
+ * @since 2.4.4
+ */
+public final class PreEncodedHeader {
+    private final Header header;
+    private final byte[] value;
+    private final byte[] encoded;
+
+    /**
+     * Creates a pre-encoded header.
+     * All the unprintable US-ASCII symbols of the value will be replaced
+     * with spaces (' ').
+     *
+     * @param header the well-known {@link Header}
+     * @param value the header value
+     */
+    public PreEncodedHeader(final Header header, final CharSequence value) {
+        if (header == null || value == null) {
+            throw new NullPointerException();
+        }
+
+        this.header = header;
+        this.value = HttpCodecUtils.toCheckedByteArray(value);
+
+        final byte[] name = header.toByteArray();
+        encoded = new byte[name.length + 2 + this.value.length + 2];
+        System.arraycopy(name, 0, encoded, 0, name.length);
+        int offs = name.length;
+        encoded[offs++] = ':';
+        encoded[offs++] = ' ';
+        System.arraycopy(this.value, 0, encoded, offs, this.value.length);
+        offs += this.value.length;
+        encoded[offs++] = Constants.CR;
+        encoded[offs] = Constants.LF;
+    }
+
+    /**
+     * @return the {@link Header}
+     */
+    public Header getHeader() {
+        return header;
+    }
+
+    /**
+     * @return the encoded header value. The array must not be modified.
+     */
+    public byte[] getValueBytes() {
+        return value;
+    }
+
+    /**
+     * @return the encoded "<tt>name: value\r\n</tt>" header line.
+     *          The array must not be modified.
+     */
+    public byte[] getEncodedBytes() {
+        return encoded;
+    }
+
+    /**
+     * Returns <tt>true</tt> if the passed {@link DataChunk} still refers
+     * to this header value bytes, i.e. it wasn't changed after the header
+     * was added.
+     *
+     * @param valueChunk the header value {@link DataChunk}
+     * @return <tt>true</tt> if the {@link DataChunk} refers to this header
+     *          value bytes, or <tt>false</tt> otherwise
+     */
+    public boolean isValueOf(final DataChunk valueChunk) {
+        if (valueChunk.getType() != DataChunk.Type.Bytes) {
+            return false;
+        }
+
+        final ByteChunk bc = valueChunk.getByteChunk();
+        return bc.getBuffer() == value
+                && bc.getStart() == 0 && bc.getEnd() == value.length;
+    }
+
+    @Override
+    public String toString() {
+        return header.toString() + ": "
+                + new String(value, Charsets.ASCII_CHARSET);
+    }
+}
@@ -0,0 +1,236 @@
+/*
+ * Copyright (c) 2017 Oracle and/or its affiliates. All rights reserved.
+ *
+ * This program and the accompanying materials are made available under the
+ * terms of the Eclipse Public License v. 2.0, which is available at
+ * http://www.eclipse.org/legal/epl-2.0.
+ *
+ * This Source Code may also be made available under the following Secondary
+ * Licenses when the conditions for such availability set forth in the
+ * Eclipse Public License v. 2.0 are satisfied: GNU General Public License,
+ * version 2 with the GNU Classpath Exception, which is available at
+ * https://www.gnu.org/software/classpath/license.html.
+ *
+ * SPDX-License-Identifier: EPL-2.0 OR GPL-2.0 WITH Classpath-exception-2.0
+ */
+
+
+package org.glassfish.grizzly.http.util;
+
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import org.glassfish.grizzly.Buffer;
+
+/**
+ * Word-at-a-time (SWAR - SIMD within a register) scanning of HTTP header
+ * bytes. Eight bytes are read as one <tt>long</tt> and checked for the
+ * delimiters at once, so the byte-by-byte parsing loops only have to process
+ * the word containing the delimiter and the tail, which is shorter than a word.
+ *
+ * The <tt>skip*</tt> methods process only whole words and return the offset of
+ * the first byte, which has to be processed by the caller: either the offset
+ * of the found delimiter, or the offset of the first byte of the incomplete
+ * word at the end of the scanned range.
+ *
+ * @since 2.4.4
+ */
+public final class SwarScanner {
+    private static final long ONES = 0x0101010101010101L;
+    private static final long LOW_BITS = 0x7F7F7F7F7F7F7F7FL;
+    private static final long HIGH_BITS = 0x8080808080808080L;
+
+    private static final long COLONS = ONES * Constants.COLON;
+    private static final long CRS = ONES * Constants.CR;
+    private static final long LFS = ONES * Constants.LF;
+
+    // the bytes >= 'A' get the high bit set
+    private static final long UPPER_FROM = ONES * (0x80 - 'A');
+    // the bytes > 'Z' get the high bit set
+    private static final long UPPER_TO = ONES * (0x80 - 'Z' - 1);
+
+    private SwarScanner() {
+    }
+
+    /**
+     * Skips the header name bytes, which precede the ':' delimiter, converting
+     * them to the lower case if required.
+     *
+     * @param view the bytes to scan
+     * @param offset the offset to start scanning from
+     * @param limit the scanned range limit
+     * @param toLowerCase <tt>true</tt> if the skipped A-Z bytes have to be
+     *          converted to the lower case
+     * @return the offset of the ':' delimiter, or of the first byte, which
+     *          hasn't been scanned
+     */
+    public static int skipHeaderName(final ByteBuffer view, int offset,
+            final int limit, final boolean toLowerCase) {
+        final boolean bigEndian = view.order() == ByteOrder.BIG_ENDIAN;
+        
+        while (offset + 8 <= limit) {
+            final long word = view.getLong(offset);
+            final long colons = match(word, COLONS);
+            
+            if (toLowerCase) {
+                final long upperCase = upperCase(word)
+                        & precedingBytes(colons, bigEndian);
+                if (upperCase != 0) {
+                    // 0x80 >>> 2 == 0x20, the ASCII lower case bit
+                    view.putLong(offset, word | (upperCase >>> 2));
+                }
+            }
+            
+            if (colons != 0) {
+                return offset + firstIndex(colons, bigEndian);
+            }
+            
+            offset += 8;
+        }
+        
+        return offset;
+    }
+
+    /**
+     * Skips the header name bytes, which precede the ':' delimiter, converting
+     * them to the lower case if required.
+     *
+     * @param input the {@link Buffer} to scan
+     * @param offset the offset to start scanning from
+     * @param limit the scanned range limit
+     * @param toLowerCase <tt>true</tt> if the skipped A-Z bytes have to be
+     *          converted to the lower case
+     * @return the offset of the ':' delimiter, or of the first byte, which
+     *          hasn't been scanned
+     */
+    public static int skipHeaderName(final Buffer input, int offset,
+            final int limit, final boolean toLowerCase) {
+        if (input.isComposite()) {
+            // reading words across the composite buffer parts isn't cheaper
+            return offset;
+        }
+        
+        final boolean bigEndian = input.order() == ByteOrder.BIG_ENDIAN;
+        
+        while (offset + 8 <= limit) {
+            final long word = input.getLong(offset);
+            final long colons = match(word, COLONS);
+            
+            if (toLowerCase) {
+                final long upperCase = upperCase(word)
+                        & precedingBytes(colons, bigEndian);
+                if (upperCase != 0) {
+                    input.putLong(offset, word | (upperCase >>> 2));
+                }
+            }
+            
+            if (colons != 0) {
+                return offset + firstIndex(colons, bigEndian);
+            }
+            
+            offset += 8;
+        }
+        
+        return offset;
+    }
+
+    /**
+     * Skips the bytes, which precede CR or LF.
+     *
+     * @param view the bytes to scan
+     * @param offset the offset to start scanning from
+     * @param limit the scanned range limit
+     * @return the offset of the first CR or LF, or of the first byte, which
+     *          hasn't been scanned
+     */
+    public static int skipToEOL(final ByteBuffer view, int offset,
+            final int limit) {
+        final boolean bigEndian = view.order() == ByteOrder.BIG_ENDIAN;
+        
+        while (offset + 8 <= limit) {
+            final long word = view.getLong(offset);
+            final long eols = match(word, CRS) | match(word, LFS);
+            if (eols != 0) {
+                return offset + firstIndex(eols, bigEndian);
+            }
+            
+            offset += 8;
+        }
+        
+        return offset;
+    }
+
+    /**
+     * Skips the bytes, which precede CR or LF.
+     *
+     * @param input the {@link Buffer} to scan
+     * @param offset the offset to start scanning from
+     * @param limit the scanned range limit
+     * @return the offset of the first CR or LF, or of the first byte, which
+     *          hasn't been scanned
+     */
+    public static int skipToEOL(final Buffer input, int offset,
+            final int limit) {
+        if (input.isComposite()) {
+            return offset;
+        }
+        
+        final boolean bigEndian = input.order() == ByteOrder.BIG_ENDIAN;
+        
+        while (offset + 8 <= limit) {
+            final long word = input.getLong(offset);
+            final long eols = match(word, CRS) | match(word, LFS);
+            if (eols != 0) {
+                return offset + firstIndex(eols, bigEndian);
+            }
+            
+            offset += 8;
+        }
+        
+        return offset;
+    }
+
+    /**
+     * @return the word with the high bit set in every byte, which is equal
+     *          to the pattern byte
+     */
+    static long match(final long word, final long pattern) {
+        final long x = word ^ pattern;
+        return ~(((x & LOW_BITS) + LOW_BITS) | x | LOW_BITS);
+    }
+
+    /**
+     * @return the word with the high bit set in every byte, which is in
+     *          the 'A'-'Z' range
+     */
+    static long upperCase(final long word) {
+        final long low = word & LOW_BITS;
+        return (low + UPPER_FROM) & ~(low + UPPER_TO) & ~word & HIGH_BITS;
+    }
+
+    /**
+     * @return the index of the first matched byte in the word
+     */
+    private static int firstIndex(final long matches, final boolean bigEndian) {
+        return (bigEndian
+                ? Long.numberOfLeadingZeros(matches)
+                : Long.numberOfTrailingZeros(matches)) >>> 3;
+    }
+
+    /**
+     * @return the mask of the bytes preceding the first matched byte,
+     *          or all the bytes if there is no match
+     */
+    private static long precedingBytes(final long matches,
+            final boolean bigEndian) {
+        if (matches == 0) {
+            return -1L;
+        }
+        
+        final int bits = firstIndex(matches, bigEndian) << 3;
+        if (bits == 0) {
+            return 0;
+        }
+        
+        return bigEndian ? -1L << (64 - bits) : -1L >>> (64 - bits);
+    }
+}
@@ -181,9 +181,40 @@ public class HttpRequestParseTest extends TestCase {
                 "POST /index.html HTTP/1.1\nHost: localhost\nTransfer-Encoding: CHUNked\r\n\r\n0\r\n\r\n", 4096);
         assertTrue(packet.getHttpHeader().isChunked());
     }
-    
+
+    public void testLongHeadersWordScan() {
+        HttpPacket packet = doTestDecoder(
+                "GET /index.html HTTP/1.1\r\n"
+                + "Host: localhost\r\n"
+                + "X-Long-MIXED-Case-Header-NAME: some value with   trailing spaces    \r\n"
+                + "X-Multi-Line-Header-Name: first line of the value\r\n"
+                + "    second line of the value  \r\n"
+                + "Accept-Encoding: gzip, deflate, br\r\n\r\n", 4096);
+        final MimeHeaders headers = packet.getHttpHeader().getHeaders();
+        assertEquals("x-long-mixed-case-header-name", headers.getName(1).toString());
+        assertEquals("some value with   trailing spaces",
+                headers.getHeader("X-Long-Mixed-Case-Header-Name"));
+        assertEquals("first line of the value second line of the value",
+                headers.getHeader("X-Multi-Line-Header-Name"));
+        assertEquals("gzip, deflate, br", headers.getHeader("Accept-Encoding"));
+    }
+
+    public void testLongHeadersWordScanPreserveCase() {
+        HttpPacket packet = doTestDecoder(
+                "GET /index.html HTTP/1.1\r\n"
+                + "Host: localhost\r\n"
+                + "X-Long-MIXED-Case-Header-NAME: value\r\n\r\n", 4096, true);
+        assertEquals("X-Long-MIXED-Case-Header-NAME",
+                packet.getHttpHeader().getHeaders().getName(1).toString());
+    }
+
     @SuppressWarnings({"unchecked"})
     private HttpPacket doTestDecoder(String request, int limit) {
+        return doTestDecoder(request, limit, false);
+    }
+
+    private HttpPacket doTestDecoder(String request, int limit,
+            boolean preserveHeaderCase) {
 
         MemoryManager mm = MemoryManager.DEFAULT_MEMORY_MANAGER;
         Buffer input = Buffers.wrap(mm, request);
@@ -197,6 +228,7 @@ public class HttpRequestParseTest extends TestCase {
                 throw new IllegalStateException(t);
             }
         };
+        filter.setPreserveHeaderCase(preserveHeaderCase);
         FilterChainContext ctx = FilterChainContext.create(new StandaloneConnection());
         ctx.setMessage(input);
 
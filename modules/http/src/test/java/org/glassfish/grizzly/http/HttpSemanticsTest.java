@@ -50,8 +50,10 @@ import java.util.logging.Level;
 import java.util.logging.Logger;
 import org.glassfish.grizzly.Buffer;
 import org.glassfish.grizzly.http.HttpRequestPacket.Builder;
+import org.glassfish.grizzly.http.util.FastHttpDateFormat;
 import org.glassfish.grizzly.http.util.Header;
 import org.glassfish.grizzly.memory.Buffers;
+import org.glassfish.grizzly.memory.ByteBufferManager;
 import org.glassfish.grizzly.nio.transport.TCPNIOConnection;
 
 
@@ -850,9 +852,89 @@ public class HttpSemanticsTest extends TestCase {
         assertFalse(response.getProcessingState().isKeepAlive());
     }
     
+    public void testPreEncodedDateAndServerHeaders() throws Throwable {
+        @SuppressWarnings("deprecation")
+        final HttpServerFilter serverFilter =
+                new HttpServerFilter(false, MAX_HEADERS_SIZE, new KeepAlive(), null);
+        serverFilter.setServerHeader("Test/1.0");
+        assertEquals("Test/1.0", serverFilter.getServerHeader());
+
+        final String response1 = encodeEmptyResponse(serverFilter, null);
+        assertTrue(response1, response1.contains("\r\nServer: Test/1.0\r\n"));
+        assertTrue(response1, response1.contains("\r\nDate: "
+                + FastHttpDateFormat.getCurrentDate().substring(0, 5)));
+
+        // the explicitly set Server header has to be preserved
+        final String response2 = encodeEmptyResponse(serverFilter, "Custom");
+        assertTrue(response2, response2.contains("\r\nServer: Custom\r\n"));
+        assertFalse(response2, response2.contains("Test/1.0"));
+
+        serverFilter.setServerHeader(null);
+        assertNull(serverFilter.getServerHeader());
+        final String response3 = encodeEmptyResponse(serverFilter, null);
+        assertFalse(response3, response3.contains("Server:"));
+        assertTrue(response3, response3.contains("\r\nDate: "));
+    }
+
+    public void testHeadersEncodedToDirectBuffer() throws Throwable {
+        @SuppressWarnings("deprecation")
+        final HttpServerFilter serverFilter =
+                new HttpServerFilter(false, MAX_HEADERS_SIZE, new KeepAlive(), null);
+        final String heapResponse = encodeResponse(serverFilter, "Test",
+                HttpStatus.NOT_FOUND_404).toStringContent(Charsets.ASCII_CHARSET);
+        assertTrue(heapResponse, heapResponse.startsWith("HTTP/1.1 404 Not Found\r\n"));
+
+        serverFilter.setHeadersMemoryManager(new ByteBufferManager(true));
+        final Buffer directBuffer = encodeResponse(serverFilter, "Test",
+                HttpStatus.NOT_FOUND_404);
+        assertTrue(directBuffer.isDirect());
+        final String directResponse =
+                directBuffer.toStringContent(Charsets.ASCII_CHARSET);
+        // the responses might differ by date only
+        assertEquals(heapResponse.replaceAll("Date: [^\r]*", ""),
+                directResponse.replaceAll("Date: [^\r]*", ""));
+        assertTrue(directResponse, directResponse.contains("\r\nServer: Test\r\n"));
+    }
+
     // --------------------------------------------------------- Private Methods
 
 
+    private static String encodeEmptyResponse(final HttpServerFilter serverFilter,
+            final String serverHeader) throws IOException {
+        return encodeResponse(serverFilter, serverHeader, null)
+                .toStringContent(Charsets.ASCII_CHARSET);
+    }
+
+    private static Buffer encodeResponse(final HttpServerFilter serverFilter,
+            final String serverHeader, final HttpStatus status)
+            throws IOException {
+        final TCPNIOConnection connection = new TCPNIOConnection(
+                TCPNIOTransportBuilder.newInstance().build(), null);
+
+        Buffer requestBuf = Buffers.wrap(connection.getMemoryManager(),
+                "GET /path HTTP/1.1\n"
+                        + "Host: localhost:" + PORT + '\n'
+                        + '\n');
+
+        FilterChainContext ctx = FilterChainContext.create(connection);
+        ctx.setMessage(requestBuf);
+        serverFilter.handleRead(ctx);
+
+        final HttpRequestPacket request =
+                (HttpRequestPacket) ((HttpContent) ctx.getMessage())
+                        .getHttpHeader();
+        final HttpResponsePacket response = request.getResponse();
+        response.setContentLength(0);
+        if (serverHeader != null) {
+            response.setHeader(Header.Server, serverHeader);
+        }
+        if (status != null) {
+            status.setValues(response);
+        }
+
+        return serverFilter.encodeHttpPacket(ctx, response);
+    }
+
     private static HttpRequestPacket createHttpRequest() {
         return HttpRequestPacket.builder()
                 .method("GET")
@@ -19,8 +19,10 @@ package org.glassfish.grizzly.http;
 
 import java.io.UnsupportedEncodingException;
 import java.nio.charset.Charset;
+import java.util.Arrays;
 import java.util.Iterator;
 import java.util.Set;
+import org.glassfish.grizzly.Buffer;
 import org.glassfish.grizzly.http.util.Constants;
 
 import org.glassfish.grizzly.http.util.DataChunk;
@@ -350,6 +352,101 @@ public class ParametersTest {
         params.processParameters(request);
     }
 
+    @Test
+    public void testLazyQueryParameters() {
+        final String query = "a=1&p%C3%A4rameter=%C3%A4&b=x+y&a=2&c";
+        final Buffer queryBuffer =
+                Buffers.wrap(MemoryManager.DEFAULT_MEMORY_MANAGER, query);
+
+        Parameters p = new Parameters();
+        p.setLazy(true);
+        p.setQueryStringEncoding(Charsets.UTF8_CHARSET);
+        DataChunk queryStringDataChunk = DataChunk.newInstance();
+        queryStringDataChunk.setBuffer(queryBuffer);
+        p.setQuery(queryStringDataChunk);
+        p.handleQueryParameters();
+
+        assertEquals("1", p.getParameter("a"));
+        assertArrayEquals(new String[] {"1", "2"}, p.getParameterValues("a"));
+        assertEquals("\u00e4", p.getParameter("p\u00e4rameter"));
+        assertEquals("x y", p.getParameter("b"));
+        assertEquals("", p.getParameter("c"));
+        assertNull(p.getParameter("d"));
+        assertNull(p.getParameterValues("d"));
+
+        // the query is indexed in place and must stay undecoded
+        assertEquals(query, queryBuffer.toStringContent(Charsets.ASCII_CHARSET));
+
+        final Parameters.ParameterIterator it = p.iterator();
+        final StringBuilder sb = new StringBuilder();
+        while (it.next()) {
+            sb.append(it.getName()).append('=').append(it.getValue()).append(';');
+        }
+        assertEquals("a=1;p\u00e4rameter=\u00e4;b=x y;a=2;c=;", sb.toString());
+
+        // the map is materialized on demand
+        final Set<String> names = p.getParameterNames();
+        assertEquals(4, names.size());
+        assertTrue(names.contains("p\u00e4rameter"));
+        assertArrayEquals(new String[] {"1", "2"}, p.getParameterValues("a"));
+
+        queryStringDataChunk.recycle();
+        p.recycle();
+        assertFalse(p.iterator().next());
+        assertNull(p.getParameter("a"));
+    }
+
+    @Test
+    public void testLazyQueryParametersLimit() {
+        Parameters p = new Parameters();
+        p.setLazy(true);
+        p.setLimit(2);
+        p.setQueryStringEncoding(Charsets.UTF8_CHARSET);
+        DataChunk queryStringDataChunk = DataChunk.newInstance();
+        queryStringDataChunk.setBuffer(
+                Buffers.wrap(MemoryManager.DEFAULT_MEMORY_MANAGER, "a=1&b=2&c=3"));
+        p.setQuery(queryStringDataChunk);
+        p.handleQueryParameters();
+
+        assertEquals("1", p.getParameter("a"));
+        assertEquals("2", p.getParameter("b"));
+        assertNull(p.getParameter("c"));
+    }
+
+    @Test
+    public void testLazyFormParametersAreCopied() {
+        final byte[] data = "foo=bar%21&foo=baz".getBytes();
+        final Buffer buffer =
+                Buffers.wrap(MemoryManager.DEFAULT_MEMORY_MANAGER, data);
+
+        Parameters p = new Parameters();
+        p.setLazy(true);
+        p.setEncoding(Charsets.UTF8_CHARSET);
+        p.processParameters(buffer, 0, data.length);
+
+        // the source buffer may be released by the caller right after
+        // processing, so the lazy index must not refer to it
+        Arrays.fill(data, (byte) 'x');
+
+        assertArrayEquals(new String[] {"bar!", "baz"},
+                p.getParameterValues("foo"));
+        assertEquals("bar!", p.getParameter("foo"));
+    }
+
+    @Test
+    public void testLazyAddParameterMaterializes() {
+        Parameters p = new Parameters();
+        p.setLazy(true);
+        p.setQueryStringEncoding(Charsets.UTF8_CHARSET);
+        DataChunk queryStringDataChunk = DataChunk.newInstance();
+        queryStringDataChunk.setString("a=1");
+        p.setQuery(queryStringDataChunk);
+        p.handleQueryParameters();
+
+        p.addParameter("a", "2");
+        assertArrayEquals(new String[] {"1", "2"}, p.getParameterValues("a"));
+    }
+
     private void validateParameters(Parameter[] parameters, Parameters p) {
         Iterator<String> names = p.getParameterNames().iterator();
 
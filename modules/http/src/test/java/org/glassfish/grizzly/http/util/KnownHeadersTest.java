@@ -0,0 +1,106 @@
+/*
+ * Copyright (c) 2017 Oracle and/or its affiliates. All rights reserved.
+ *
+ * This program and the accompanying materials are made available under the
+ * terms of the Eclipse Public License v. 2.0, which is available at
+ * http://www.eclipse.org/legal/epl-2.0.
+ *
+ * This Source Code may also be made available under the following Secondary
+ * Licenses when the conditions for such availability set forth in the
+ * Eclipse Public License v. 2.0 are satisfied: GNU General Public License,
+ * version 2 with the GNU Classpath Exception, which is available at
+ * https://www.gnu.org/software/classpath/license.html.
+ *
+ * SPDX-License-Identifier: EPL-2.0 OR GPL-2.0 WITH Classpath-exception-2.0
+ */
+
+
+package org.glassfish.grizzly.http.util;
+
+import org.glassfish.grizzly.Buffer;
+import org.glassfish.grizzly.memory.Buffers;
+import org.glassfish.grizzly.memory.MemoryManager;
+import org.glassfish.grizzly.utils.Charsets;
+import org.junit.Assert;
+import org.junit.Test;
+
+public class KnownHeadersTest {
+
+    @Test
+    public void testFindAllHeaders() throws Exception {
+        for (Header header : Header.values()) {
+            final String name = header.toString();
+            final byte[] upperCase = name.toUpperCase().getBytes(Charsets.ASCII_CHARSET);
+            final byte[] padded = ("x" + header.getLowerCase() + ":")
+                    .getBytes(Charsets.ASCII_CHARSET);
+            final Buffer buffer = Buffers.wrap(
+                    MemoryManager.DEFAULT_MEMORY_MANAGER, padded);
+
+            Assert.assertSame(header, KnownHeaders.find(name));
+            Assert.assertSame(header, KnownHeaders.find(upperCase, 0, upperCase.length));
+            Assert.assertSame(header, KnownHeaders.find(padded, 1, padded.length - 1));
+            Assert.assertSame(header, KnownHeaders.find(buffer, 1, padded.length - 1));
+        }
+    }
+
+    @Test
+    public void testUnknownNames() throws Exception {
+        Assert.assertNull(KnownHeaders.find("X-Custom"));
+        Assert.assertNull(KnownHeaders.find("Hos"));
+        Assert.assertNull(KnownHeaders.find("Hosts"));
+        Assert.assertNull(KnownHeaders.find("Höst"));
+        Assert.assertNull(KnownHeaders.find(""));
+        Assert.assertNull(KnownHeaders.find((String) null));
+
+        final byte[] bytes = "Content-Lengtj".getBytes(Charsets.ASCII_CHARSET);
+        Assert.assertNull(KnownHeaders.find(bytes, 0, bytes.length));
+    }
+
+    @Test
+    public void testFindValue() throws Exception {
+        final byte[] bytes = " keep-alive Keep-alive".getBytes(Charsets.ASCII_CHARSET);
+        Assert.assertSame("keep-alive", KnownHeaders.findValue(bytes, 1, 11));
+        // values are case-sensitive
+        Assert.assertNull(KnownHeaders.findValue(bytes, 12, bytes.length));
+
+        final DataChunk value = DataChunk.newInstance();
+        value.setBytes(bytes, 1, 11);
+        KnownHeaders.internValue(value);
+        Assert.assertSame("keep-alive", value.toString());
+
+        value.setBytes(bytes, 12, bytes.length);
+        KnownHeaders.internValue(value);
+        Assert.assertEquals("Keep-alive", value.toString());
+    }
+
+    @Test
+    public void testTaggedLookups() throws Exception {
+        final MimeHeaders headers = new MimeHeaders();
+        final byte[] bytes = "content-typex-customhost".getBytes(Charsets.ASCII_CHARSET);
+        headers.addValue(bytes, 0, 12).setString("text/plain");
+        headers.addValue(bytes, 12, 8).setString("custom");
+        headers.addValue(bytes, 20, 4).setString("localhost");
+
+        Assert.assertSame(Header.ContentType, headers.getHeaderId(0));
+        Assert.assertNull(headers.getHeaderId(1));
+        Assert.assertSame(Header.Host, headers.getHeaderId(2));
+
+        Assert.assertEquals("text/plain", headers.getHeader(Header.ContentType));
+        Assert.assertEquals("text/plain", headers.getHeader("Content-Type"));
+        Assert.assertEquals("custom", headers.getHeader("X-CUSTOM"));
+        Assert.assertEquals(2, headers.indexOf("HOST", 0));
+
+        headers.setValue("Host").setString("example.com");
+        Assert.assertEquals(3, headers.size());
+        Assert.assertEquals("example.com", headers.getHeader(Header.Host));
+
+        headers.removeHeader(Header.ContentType);
+        Assert.assertFalse(headers.contains("content-type"));
+        Assert.assertEquals(2, headers.size());
+
+        headers.recycle();
+        headers.addValue("X-Custom").setString("custom");
+        Assert.assertNull(headers.getHeaderId(0));
+        Assert.assertFalse(headers.contains(Header.ContentType));
+    }
+}
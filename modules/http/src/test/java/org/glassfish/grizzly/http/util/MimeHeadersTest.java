@@ -143,4 +143,88 @@ public class MimeHeadersTest {
         Assert.assertArrayEquals(expectedValuesSet2, list.toArray(new String[list.size()]));
     }
 
+    @Test
+    public void testIndexedLookups() throws Exception {
+        final MimeHeaders headers = new MimeHeaders();
+        for (int iteration = 0; iteration < 2; iteration++) {
+            final byte[] bytes = "Accept-Encoding".getBytes();
+            headers.addValue(Header.Host).setString("localhost");
+            for (int i = 0; i < MimeHeaders.DEFAULT_INDEX_THRESHOLD * 2; i++) {
+                headers.addValue("X-Custom-" + i).setString("value-" + i);
+            }
+            headers.addValue("x-custom-7").setString("value-7-2");
+            headers.addValue(bytes, 0, bytes.length).setString("gzip");
+
+            Assert.assertEquals("localhost", headers.getHeader("HOST"));
+            Assert.assertEquals("gzip", headers.getHeader(Header.AcceptEncoding));
+            Assert.assertEquals("value-20", headers.getHeader("x-CUSTOM-20"));
+            Assert.assertNull(headers.getHeader("X-Custom-100"));
+            Assert.assertNull(headers.getHeader(Header.Cookie));
+
+            // insertion order is kept for the same name headers
+            Assert.assertEquals(8, headers.indexOf("X-Custom-7", 0));
+            Assert.assertEquals(headers.size() - 2, headers.indexOf("X-Custom-7", 9));
+            List<String> list = new ArrayList<>();
+            for (String s : headers.values("X-Custom-7")) {
+                list.add(s);
+            }
+            Assert.assertArrayEquals(new String[] {"value-7", "value-7-2"},
+                    list.toArray(new String[list.size()]));
+
+            // the headers added after the index is built are found
+            headers.addValue("X-Late").setString("late");
+            Assert.assertEquals("late", headers.getHeader("x-late"));
+
+            // setValue removes the duplicates and keeps the first header
+            headers.setValue("X-Custom-7").setString("value-7-3");
+            Assert.assertEquals(8, headers.indexOf("X-Custom-7", 0));
+            Assert.assertEquals(-1, headers.indexOf("X-Custom-7", 9));
+            Assert.assertEquals("value-7-3", headers.getHeader("X-Custom-7"));
+
+            headers.removeHeader("X-Custom-3");
+            headers.removeHeader(Header.Host);
+            Assert.assertNull(headers.getHeader("X-Custom-3"));
+            Assert.assertNull(headers.getHeader(Header.Host));
+            for (int i = 0; i < MimeHeaders.DEFAULT_INDEX_THRESHOLD * 2; i++) {
+                if (i != 3 && i != 7) {
+                    Assert.assertEquals("value-" + i,
+                            headers.getHeader("X-Custom-" + i));
+                }
+            }
+            Assert.assertEquals("late", headers.getHeader("x-late"));
+            Assert.assertEquals("gzip", headers.getHeader("accept-encoding"));
+
+            // the recycled headers have to be re-indexed
+            headers.recycle();
+            Assert.assertNull(headers.getHeader("X-Custom-1"));
+        }
+    }
+
+
+    @Test
+    public void testPreEncodedHeader() throws Exception {
+        final PreEncodedHeader server =
+                new PreEncodedHeader(Header.Server, "Test/1.0");
+        Assert.assertArrayEquals("Server: Test/1.0\r\n".getBytes(),
+                server.getEncodedBytes());
+
+        final MimeHeaders headers = new MimeHeaders();
+        headers.addValue(Header.Host).setString("localhost");
+        headers.addValue(server);
+        Assert.assertNull(headers.getPreEncoded(0));
+        Assert.assertSame(server, headers.getPreEncoded(1));
+        Assert.assertEquals("Test/1.0", headers.getHeader("server"));
+
+        final MimeHeaders copy = new MimeHeaders();
+        copy.copyFrom(headers);
+        Assert.assertSame(server, copy.getPreEncoded(1));
+
+        // once the value is changed the pre-encoded bytes are not used
+        headers.setValue(Header.Server).setString("Custom");
+        Assert.assertNull(headers.getPreEncoded(1));
+
+        headers.recycle();
+        headers.addValue(Header.Server).setBytes(server.getValueBytes());
+        Assert.assertNull(headers.getPreEncoded(0));
+    }
 }
@@ -17,10 +17,7 @@
 package org.glassfish.grizzly.http2;
 
 import java.io.IOException;
-import java.util.ArrayList;
-import java.util.HashMap;
 import java.util.List;
-import java.util.Map;
 import java.util.concurrent.atomic.AtomicInteger;
 import java.util.logging.Level;
 import java.util.logging.Logger;
@@ -41,7 +38,6 @@ import org.glassfish.grizzly.http.HttpTrailer;
 import org.glassfish.grizzly.http2.frames.ErrorCode;
 import org.glassfish.grizzly.http2.frames.HeadersFrame;
 import org.glassfish.grizzly.http2.frames.Http2Frame;
-import org.glassfish.grizzly.http2.frames.PushPromiseFrame;
 import org.glassfish.grizzly.http2.utils.ChunkedCompletionHandler;
 import org.glassfish.grizzly.memory.Buffers;
 
@@ -98,6 +94,11 @@ class DefaultOutputSink implements StreamOutputSink {
     // flush handlers queue
     private BundleQueue<CompletionHandler<Http2Stream>> flushHandlersQueue;
     
+    // sync object to order this stream writes, passed to the HeadersEncodingQueue
+    private final Object encodingTasksSync = new Object();
+    // the number of this stream writes waiting in the HeadersEncodingQueue
+    private int encodingTasksCount;
+    
     DefaultOutputSink(final Http2Stream stream) {
         this.stream = stream;
         http2Session = stream.getHttp2Session();
@@ -248,199 +249,174 @@ class DefaultOutputSink implements StreamOutputSink {
         final HttpHeader httpHeader = stream.getOutputHttpHeader();
         final HttpContent httpContent = HttpContent.isContent(httpPacket) ? (HttpContent) httpPacket : null;
         
-        List<Http2Frame> headerFrames = null;
+        HeaderBlock headerBlock = null;
         OutputQueueRecord outputQueueRecord = null;
         
-        boolean isDeflaterLocked = false;
-        
-        try { // try-finally block to release deflater lock if needed
+        // If HTTP header hasn't been committed - commit it
+        if (!httpHeader.isCommitted()) {
+            // do we expect any HTTP payload?
+            final boolean isNoPayload = !httpHeader.isExpectContent() ||
+                    (httpContent != null && httpContent.isLast() &&
+                    !httpContent.getContent().hasRemaining());
             
-            // If HTTP header hasn't been committed - commit it
-            if (!httpHeader.isCommitted()) {
-                // do we expect any HTTP payload?
-                final boolean isNoPayload = !httpHeader.isExpectContent() ||
-                        (httpContent != null && httpContent.isLast() &&
-                        !httpContent.getContent().hasRemaining());
-                
-                // !!!!! LOCK the deflater
-                isDeflaterLocked = true;
-                http2Session.getDeflaterLock().lock();
-                final boolean logging = NetLogger.isActive();
-                final Map<String,String> capture = ((logging) ? new HashMap<>() : null);
-                headerFrames = http2Session.encodeHttpHeaderAsHeaderFrames(
-                        ctx, httpHeader, stream.getId(), isNoPayload, null, capture);
-                if (logging) {
-                    for (Http2Frame http2Frame : headerFrames) {
-                        if (http2Frame.getType() == PushPromiseFrame.TYPE) {
-                            NetLogger.log(NetLogger.Context.TX, http2Session, (HeadersFrame) http2Frame, capture);
-                            break;
-                        }
-                    }
-                }
-                stream.onSndHeaders(isNoPayload);
-
-                // 100-Continue block
-                if (!httpHeader.isRequest()) {
-                    HttpResponsePacket response = (HttpResponsePacket) httpHeader;
-                    if (response.isAcknowledgement()) {
-                        response.acknowledged();
-                        response.getHeaders().clear();
-                        unflushedWritesCounter.incrementAndGet();
-                        flushToConnectionOutputSink(headerFrames, null,
-                                new FlushCompletionHandler(completionHandler),
-                                messageCloner, false);
-                        return;
-                    }
-                }
-                
-                httpHeader.setCommitted(true);
-
-                if (isNoPayload || httpContent == null) {
-                    // if we don't expect any HTTP payload, mark this frame as
-                    // last and return
+            // capture the headers now, they will be encoded by the
+            // session HeadersEncodingQueue
+            headerBlock = http2Session.encodeHttpHeaderAsHeaderBlock(
+                    ctx, httpHeader);
+            stream.onSndHeaders(isNoPayload);
+
+            // 100-Continue block
+            if (!httpHeader.isRequest()) {
+                HttpResponsePacket response = (HttpResponsePacket) httpHeader;
+                if (response.isAcknowledgement()) {
+                    response.acknowledged();
+                    response.getHeaders().clear();
                     unflushedWritesCounter.incrementAndGet();
-                    flushToConnectionOutputSink(headerFrames, null,
+                    flushToConnectionOutputSink(headerBlock, null,
                             new FlushCompletionHandler(completionHandler),
-                            messageCloner, isNoPayload);
+                            messageCloner, false);
                     return;
                 }
             }
-
-            // if there is nothing to write - return
-            if (httpContent == null) {
-                return;
-            }
             
-            http2Session.handlerFilter.onHttpContentEncoded(httpContent, ctx);
-
-            Buffer dataToSend = null;
-            boolean isLast = httpContent.isLast();
-            final boolean isTrailer = HttpTrailer.isTrailer(httpContent);
-            Buffer data = httpContent.getContent();
-            final int dataSize = data.remaining();
-
-            if (isLast && dataSize == 0) {
-                if (isTrailer) {
-                    // !!!!! LOCK the deflater
-                    isDeflaterLocked = true;
-                    sendTrailers(completionHandler, messageCloner, (HttpTrailer) httpContent);
-                }
-                close();
+            httpHeader.setCommitted(true);
+
+            if (isNoPayload || httpContent == null) {
+                // if we don't expect any HTTP payload, mark this frame as
+                // last and return
+                unflushedWritesCounter.incrementAndGet();
+                flushToConnectionOutputSink(headerBlock, null,
+                        new FlushCompletionHandler(completionHandler),
+                        messageCloner, isNoPayload);
                 return;
             }
+        }
 
-            unflushedWritesCounter.incrementAndGet();
-            final FlushCompletionHandler flushCompletionHandler =
-                    new FlushCompletionHandler(completionHandler);
-
-            boolean isDataCloned = false;
+        // if there is nothing to write - return
+        if (httpContent == null) {
+            return;
+        }
+        
+        http2Session.handlerFilter.onHttpContentEncoded(httpContent, ctx);
 
-            final boolean isZeroSizeData = (dataSize == 0);
-            final int spaceToReserve = isZeroSizeData ? ZERO_QUEUE_RECORD_SIZE : dataSize;
+        Buffer dataToSend = null;
+        boolean isLast = httpContent.isLast();
+        final boolean isTrailer = HttpTrailer.isTrailer(httpContent);
+        Buffer data = httpContent.getContent();
+        final int dataSize = data.remaining();
 
-            // Check if output queue is not empty - add new element
-            if (reserveWriteQueueSpace(spaceToReserve) > spaceToReserve) {
-                // if the queue is not empty - the headers should have been sent
-                assert headerFrames == null;
+        if (isLast && dataSize == 0) {
+            if (isTrailer) {
+                sendTrailers(completionHandler, messageCloner, (HttpTrailer) httpContent);
+            }
+            close();
+            return;
+        }
 
-                if (messageCloner != null) {
-                    data = messageCloner.clone(
-                            http2Session.getConnection(), data);
-                    isDataCloned = true;
-                }
+        unflushedWritesCounter.incrementAndGet();
+        final FlushCompletionHandler flushCompletionHandler =
+                new FlushCompletionHandler(completionHandler);
 
-                outputQueueRecord = new OutputQueueRecord(
-                        Source.factory(stream)
-                            .createBufferSource(data),
-                        flushCompletionHandler, isLast, isZeroSizeData);
+        boolean isDataCloned = false;
 
-                outputQueue.offer(outputQueueRecord);
+        final boolean isZeroSizeData = (dataSize == 0);
+        final int spaceToReserve = isZeroSizeData ? ZERO_QUEUE_RECORD_SIZE : dataSize;
 
-                // check if our element wasn't forgotten (async)
-                if (outputQueue.size() != spaceToReserve ||
-                        !outputQueue.remove(outputQueueRecord)) {
-                    // if not - return
-                    return;
-                }
+        // Check if output queue is not empty - add new element
+        if (reserveWriteQueueSpace(spaceToReserve) > spaceToReserve) {
+            // if the queue is not empty - the headers should have been sent
+            assert headerBlock == null;
 
-                outputQueueRecord = null;
+            if (messageCloner != null) {
+                data = messageCloner.clone(
+                        http2Session.getConnection(), data);
+                isDataCloned = true;
             }
 
-            // our element is first in the output queue
+            outputQueueRecord = new OutputQueueRecord(
+                    Source.factory(stream)
+                        .createBufferSource(data),
+                    flushCompletionHandler, isLast, isZeroSizeData);
 
-            final int remaining = data.remaining();
+            outputQueue.offer(outputQueueRecord);
 
-            // check if output record's buffer is fitting into window size
-            // if not - split it into 2 parts: part to send, part to keep in the queue
-            final int fitWindowLen = checkOutputWindow(remaining);
+            // check if our element wasn't forgotten (async)
+            if (outputQueue.size() != spaceToReserve ||
+                    !outputQueue.remove(outputQueueRecord)) {
+                // if not - return
+                return;
+            }
 
-            // if there is a chunk to store
-            if (fitWindowLen < remaining) {
-                if (!isDataCloned && messageCloner != null) {
-                    data = messageCloner.clone(
-                            http2Session.getConnection(), data);
-                    isDataCloned = true;
-                }
+            outputQueueRecord = null;
+        }
 
-                final Buffer dataChunkToStore = splitOutputBufferIfNeeded(
-                        data, fitWindowLen);
+        // our element is first in the output queue
 
-                // Create output record for the chunk to be stored
-                outputQueueRecord = new OutputQueueRecord(
-                        Source.factory(stream)
-                            .createBufferSource(dataChunkToStore),
-                        flushCompletionHandler,
-                        isLast, isZeroSizeData);
+        final int remaining = data.remaining();
 
-                // reset completion handler and isLast for the current chunk
-                isLast = false;
+        // check if output record's buffer is fitting into window size
+        // if not - split it into 2 parts: part to send, part to keep in the queue
+        final int fitWindowLen = checkOutputWindow(remaining);
+
+        // if there is a chunk to store
+        if (fitWindowLen < remaining) {
+            if (!isDataCloned && messageCloner != null) {
+                data = messageCloner.clone(
+                        http2Session.getConnection(), data);
+                isDataCloned = true;
             }
 
-            // if there is a chunk to send
-            if (data != null &&
-                    (data.hasRemaining() || isLast)) {
+            final Buffer dataChunkToStore = splitOutputBufferIfNeeded(
+                    data, fitWindowLen);
 
-                final int dataChunkToSendSize = data.remaining();
+            // Create output record for the chunk to be stored
+            outputQueueRecord = new OutputQueueRecord(
+                    Source.factory(stream)
+                        .createBufferSource(dataChunkToStore),
+                    flushCompletionHandler,
+                    isLast, isZeroSizeData);
 
-                // update the available window size bytes counter
-                availStreamWindowSize.addAndGet(-dataChunkToSendSize);
-                releaseWriteQueueSpace(dataChunkToSendSize,
-                        isZeroSizeData, outputQueueRecord == null);
+            // reset completion handler and isLast for the current chunk
+            isLast = false;
+        }
 
-                dataToSend = data;
-            }
+        // if there is a chunk to send
+        if (data != null &&
+                (data.hasRemaining() || isLast)) {
 
-            // if there's anything to send - send it
-            if (headerFrames != null || dataToSend != null) {
-                
-                // if another part of data is stored in the queue -
-                // we have to increase CompletionHandler counter to avoid
-                // premature notification
-                if (outputQueueRecord != null) {
-                    outputQueueRecord.incChunksCounter();
-                }
-                
-                flushToConnectionOutputSink(headerFrames, dataToSend, flushCompletionHandler,
-                        isDataCloned ? null : messageCloner,
-                        isLast && !isTrailer);
-            }
+            final int dataChunkToSendSize = data.remaining();
 
-            if (isLast) {
-                if (isTrailer) {
-                    // !!!!! LOCK the deflater
-                    isDeflaterLocked = true;
-                    sendTrailers(completionHandler, messageCloner, (HttpTrailer) httpContent);
-                }
-                close();
-                return;
+            // update the available window size bytes counter
+            availStreamWindowSize.addAndGet(-dataChunkToSendSize);
+            releaseWriteQueueSpace(dataChunkToSendSize,
+                    isZeroSizeData, outputQueueRecord == null);
+
+            dataToSend = data;
+        }
+
+        // if there's anything to send - send it
+        if (headerBlock != null || dataToSend != null) {
+            
+            // if another part of data is stored in the queue -
+            // we have to increase CompletionHandler counter to avoid
+            // premature notification
+            if (outputQueueRecord != null) {
+                outputQueueRecord.incChunksCounter();
             }
-        
-        } finally {
-            if (isDeflaterLocked) {
-                http2Session.getDeflaterLock().unlock();
+            
+            flushToConnectionOutputSink(headerBlock, dataToSend, flushCompletionHandler,
+                    isDataCloned ? null : messageCloner,
+                    isLast && !isTrailer);
+        }
+
+        if (isLast) {
+            if (isTrailer) {
+                sendTrailers(completionHandler, messageCloner, (HttpTrailer) httpContent);
             }
+            close();
+            return;
         }
-        
+
         if (outputQueueRecord == null) {
             return;
         }
@@ -511,7 +487,72 @@ class DefaultOutputSink implements StreamOutputSink {
         return buffer.split(buffer.position() + length);
     }
 
+    /**
+     * Passes the header block and/or data to the connection output sink.
+     * 
+     * The header block is encoded and written by the session
+     * {@link HeadersEncodingQueue}, possibly by another thread. Until it's
+     * done, the following writes of this stream are queued there as well, so
+     * the frames keep their order.
+     */
+    // the completion handler is passed to the raw-typed FilterChainContext.write(...)
+    @SuppressWarnings("rawtypes")
     private void flushToConnectionOutputSink(
+            final HeaderBlock headerBlock,
+            final Buffer data,
+            final CompletionHandler<WriteResult> completionHandler,
+            final MessageCloner<Buffer> messageCloner,
+            final boolean isLast) {
+        
+        if (isLast) {
+            // the FIN frame might be written asynchronously, make sure
+            // close() won't queue one more
+            isLastFrameQueued = true;
+        }
+        
+        final HeadersEncodingQueue encodingQueue =
+                http2Session.getHeadersEncodingQueue();
+        final boolean isQueued;
+        HeadersEncodingQueue.Task firstTask = null;
+        
+        synchronized (encodingTasksSync) {
+            isQueued = headerBlock != null || encodingTasksCount > 0;
+            if (isQueued) {
+                encodingTasksCount++;
+                firstTask = encodingQueue.add(new StreamWriteTask(headerBlock,
+                        data, completionHandler, messageCloner, isLast));
+            }
+        }
+        
+        if (!isQueued) {
+            writeToConnectionOutputSink(null, data, completionHandler,
+                    messageCloner, isLast);
+        } else if (firstTask != null) {
+            encodingQueue.drain(firstTask);
+        }
+    }
+
+    /**
+     * Adds the task, which writes a frame on behalf of this stream (for example
+     * PUSH_PROMISE), to the session {@link HeadersEncodingQueue}. Until the task
+     * is run, the following writes of this stream are queued behind it, so
+     * they can't overtake the frame.
+     * 
+     * @param task the {@link HeadersEncodingQueue.Task} to add
+     * @return the {@link HeadersEncodingQueue.Task} the caller has to pass to
+     *          {@link HeadersEncodingQueue#drain(HeadersEncodingQueue.Task)},
+     *          or <tt>null</tt>, see {@link HeadersEncodingQueue#add(HeadersEncodingQueue.Task)}
+     */
+    HeadersEncodingQueue.Task addEncodingTask(final HeadersEncodingQueue.Task task) {
+        synchronized (encodingTasksSync) {
+            encodingTasksCount++;
+            return http2Session.getHeadersEncodingQueue().add(
+                    new StreamEncodingTask(task));
+        }
+    }
+
+    @SuppressWarnings("rawtypes")
+    private void writeToConnectionOutputSink(
             final List<Http2Frame> headerFrames,
             final Buffer data,
             final CompletionHandler<WriteResult> completionHandler,
@@ -688,27 +729,114 @@ class DefaultOutputSink implements StreamOutputSink {
                               final MessageCloner<Buffer> messageCloner,
                               final HttpTrailer httpContent)
     throws IOException {
-        http2Session.getDeflaterLock().lock();
-        final boolean logging = NetLogger.isActive();
-        final Map<String,String> capture = ((logging) ? new HashMap<>() : null);
-        List<Http2Frame> trailerFrames =
-                http2Session.encodeTrailersAsHeaderFrames(stream.getId(),
-                        new ArrayList<>(4),
-                        httpContent.getHeaders(), capture);
-        if (logging) {
-            for (Http2Frame http2Frame : trailerFrames) {
-                if (http2Frame.getType() == PushPromiseFrame.TYPE) {
-                    NetLogger.log(NetLogger.Context.TX, http2Session, (HeadersFrame) http2Frame, capture);
-                    break;
-                }
-            }
-        }
+        final HeaderBlock trailerBlock =
+                http2Session.encodeTrailersAsHeaderBlock(httpContent.getHeaders());
         unflushedWritesCounter.incrementAndGet();
-        flushToConnectionOutputSink(trailerFrames, null,
+        flushToConnectionOutputSink(trailerBlock, null,
                 new FlushCompletionHandler(completionHandler),
                 messageCloner, true);
     }
 
+    /**
+     * {@link HeadersEncodingQueue} task, which encodes the header block (if any)
+     * and writes it along with the data to the connection output sink.
+     */
+    @SuppressWarnings("rawtypes")
+    private final class StreamWriteTask extends HeadersEncodingQueue.Task {
+        private final HeaderBlock headerBlock;
+        private Buffer data;
+        private final CompletionHandler<WriteResult> completionHandler;
+        private MessageCloner<Buffer> messageCloner;
+        private final boolean isLast;
+
+        private StreamWriteTask(final HeaderBlock headerBlock,
+                final Buffer data,
+                final CompletionHandler<WriteResult> completionHandler,
+                final MessageCloner<Buffer> messageCloner,
+                final boolean isLast) {
+            this.headerBlock = headerBlock;
+            this.data = data;
+            this.completionHandler = completionHandler;
+            this.messageCloner = messageCloner;
+            this.isLast = isLast;
+        }
+
+        @Override
+        protected void onDeferred() {
+            // the data buffer might be reused once the write method returns
+            if (data != null && messageCloner != null) {
+                data = messageCloner.clone(http2Session.getConnection(), data);
+                messageCloner = null;
+            }
+        }
+
+        @Override
+        protected void run() {
+            try {
+                List<Http2Frame> headerFrames = null;
+                if (headerBlock != null) {
+                    headerFrames = http2Session.encodeHeaderBlockAsHeaderFrames(
+                            headerBlock, stream.getId(), data == null && isLast, null);
+                    if (NetLogger.isActive()) {
+                        for (Http2Frame http2Frame : headerFrames) {
+                            if (http2Frame.getType() == HeadersFrame.TYPE) {
+                                NetLogger.log(NetLogger.Context.TX, http2Session,
+                                        (HeadersFrame) http2Frame, headerBlock.toMap());
+                                break;
+                            }
+                        }
+                    }
+                }
+
+                writeToConnectionOutputSink(headerFrames, data,
+                        completionHandler, messageCloner, isLast);
+            } finally {
+                synchronized (encodingTasksSync) {
+                    encodingTasksCount--;
+                }
+            }
+        }
+
+        @Override
+        protected void onFailure(final Throwable t) {
+            if (completionHandler != null) {
+                completionHandler.failed(t);
+            }
+        }
+    }
+
+    /**
+     * Counts the foreign {@link HeadersEncodingQueue.Task} as this stream write.
+     */
+    private final class StreamEncodingTask extends HeadersEncodingQueue.Task {
+        private final HeadersEncodingQueue.Task task;
+
+        private StreamEncodingTask(final HeadersEncodingQueue.Task task) {
+            this.task = task;
+        }
+
+        @Override
+        protected void onDeferred() {
+            task.onDeferred();
+        }
+
+        @Override
+        protected void run() throws Exception {
+            try {
+                task.run();
+            } finally {
+                synchronized (encodingTasksSync) {
+                    encodingTasksCount--;
+                }
+            }
+        }
+
+        @Override
+        protected void onFailure(final Throwable t) {
+            task.onFailure(t);
+        }
+    }
+
     private static class OutputQueueRecord extends AsyncQueueRecord<WriteResult> {
         private Source resource;
         private FlushCompletionHandler chunkedCompletionHandler;
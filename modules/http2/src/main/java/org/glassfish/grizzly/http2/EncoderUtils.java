@@ -17,7 +17,6 @@
 package org.glassfish.grizzly.http2;
 
 import java.io.IOException;
-import java.util.Map;
 
 import org.glassfish.grizzly.Buffer;
 import org.glassfish.grizzly.http.HttpRequestPacket;
@@ -38,6 +37,9 @@ import org.glassfish.grizzly.utils.Charsets;
 
 /**
  * HTTP Packet -> HTTP/2 frames encoder utils.
+ *
+ * The HTTP packet headers are captured into a {@link HeaderBlock}, which
+ * is HPACK encoded later by the {@link HeadersEncodingQueue}.
  * 
  * @author Grizzly team
  */
@@ -46,13 +48,9 @@ class EncoderUtils extends EncoderDecoderUtilsBase {
     private static final String HTTPS = "https";
 
     @SuppressWarnings("unchecked")
-    static Buffer encodeResponseHeaders(final Http2Session http2Session,
-                                        final HttpResponsePacket response,
-                                        final Map<String,String> capture)
+    static HeaderBlock encodeResponseHeaders(final HttpResponsePacket response)
             throws IOException {
         
-        assert http2Session.getDeflaterLock().isLocked();
-        
         final MimeHeaders headers = response.getHeaders();
         
         headers.removeHeader(Header.Connection);
@@ -61,27 +59,24 @@ class EncoderUtils extends EncoderDecoderUtilsBase {
         headers.removeHeader(Header.TransferEncoding);
         headers.removeHeader(Header.Upgrade);
         
-        final HeadersEncoder encoder = http2Session.getHeadersEncoder();
+        final HeaderBlock headerBlock = new HeaderBlock();
 
 //        encoder.encodeHeader(Constants.STATUS_HEADER_BYTES,
 //                response.getHttpStatus().getStatusBytes(), false);
         
-        encoder.encodeHeader(STATUS_HEADER,
-                String.valueOf(response.getHttpStatus().getStatusCode()), capture);
+        headerBlock.add(STATUS_HEADER,
+                String.valueOf(response.getHttpStatus().getStatusCode()));
 
-        encodeUserHeaders(headers, encoder, capture);
+        encodeUserHeaders(headers, headerBlock);
 
-        return encoder.flushHeaders();
+        return headerBlock;
     }
     
     @SuppressWarnings("unchecked")
-    static Buffer encodeRequestHeaders(
+    static HeaderBlock encodeRequestHeaders(
             final Http2Session http2Session,
-            final HttpRequestPacket request,
-            final Map<String,String> capture) throws IOException {
+            final HttpRequestPacket request) throws IOException {
 
-        assert http2Session.getDeflaterLock().isLocked();
-        
         // ----------------- Parse URI scheme and path ----------------
 //        int schemeStart = -1;
 //        int schemeLen = -1;
@@ -155,24 +150,23 @@ class EncoderUtils extends EncoderDecoderUtilsBase {
         headers.removeHeader(Header.TransferEncoding);
         headers.removeHeader(Header.Upgrade);
         
-        final HeadersEncoder encoder = http2Session.getHeadersEncoder();
+        final HeaderBlock headerBlock = new HeaderBlock();
 
-        encoder.encodeHeader(METHOD_HEADER,
-                request.getMethod().toString(), capture);
+        headerBlock.add(METHOD_HEADER,
+                request.getMethod().toString());
 
         if (schemeLen > 0) {
-            encoder.encodeHeader(SCHEMA_HEADER,
-                    requestURI.substring(0, schemeLen), capture);
+            headerBlock.add(SCHEMA_HEADER,
+                    requestURI.substring(0, schemeLen));
         } else {
             // guess
-            encoder.encodeHeader(SCHEMA_HEADER,
+            headerBlock.add(SCHEMA_HEADER,
                     ((SSLUtils.getSSLEngine(http2Session.getConnection()) == null)
                         ? HTTP
-                        : HTTPS),
-                    capture);
+                        : HTTPS));
         }
 
-        encoder.encodeHeader(AUTHORITY_HEADER, hostHeader, capture);
+        headerBlock.add(AUTHORITY_HEADER, hostHeader);
 
         String path = (pathLen == requestURI.length())
                 ? requestURI
@@ -181,34 +175,30 @@ class EncoderUtils extends EncoderDecoderUtilsBase {
         if (!query.isNull()) {
             path += '?' + query.toString(Charsets.UTF8_CHARSET);
         }
-        encoder.encodeHeader(PATH_HEADER, path, capture);
+        headerBlock.add(PATH_HEADER, path);
         
-        encodeUserHeaders(headers, encoder, capture);
+        encodeUserHeaders(headers, headerBlock);
 
-        return encoder.flushHeaders();
+        return headerBlock;
     }
 
-    static Buffer encodeTrailerHeaders(final Http2Session http2Session,
-                                       final MimeHeaders trailers,
-                                       final Map<String,String> capture) {
-        assert http2Session.getDeflaterLock().isLocked();
+    static HeaderBlock encodeTrailerHeaders(final MimeHeaders trailers) {
+        final HeaderBlock headerBlock = new HeaderBlock();
 
         if (trailers == null || trailers.size() == 0) {
-            return Buffers.EMPTY_BUFFER;
+            return headerBlock;
         }
 
-        final HeadersEncoder encoder = http2Session.getHeadersEncoder();
         for (final String name : trailers.names()) {
-            encoder.encodeHeader(name, trailers.getHeader(name), capture);
+            headerBlock.add(name, trailers.getHeader(name));
         }
 
-        return encoder.flushHeaders();
+        return headerBlock;
     }
 
     @SuppressWarnings("unchecked")
     private static void encodeUserHeaders(final MimeHeaders headers,
-                                          final HeadersEncoder encoder,
-                                          final Map<String,String> capture)
+                                          final HeaderBlock headerBlock)
             throws IOException {
         
         final int mimeHeadersCount = headers.size();
@@ -219,7 +209,7 @@ class EncoderUtils extends EncoderDecoderUtilsBase {
                 final String nameStr = nameToLowerCase(headers.getName(i));
                 final DataChunk value = headers.getValue(i);
                 if (!value.isNull()) {
-                    encoder.encodeHeader(nameStr, value.toString(), capture);
+                    headerBlock.add(nameStr, value.toString());
                 }
 
             }
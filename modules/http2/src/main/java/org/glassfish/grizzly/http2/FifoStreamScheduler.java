@@ -0,0 +1,69 @@
+/*
+ * Copyright (c) 2017 Oracle and/or its affiliates. All rights reserved.
+ *
+ * This program and the accompanying materials are made available under the
+ * terms of the Eclipse Public License v. 2.0, which is available at
+ * http://www.eclipse.org/legal/epl-2.0.
+ *
+ * This Source Code may also be made available under the following Secondary
+ * Licenses when the conditions for such availability set forth in the
+ * Eclipse Public License v. 2.0 are satisfied: GNU General Public License,
+ * version 2 with the GNU Classpath Exception, which is available at
+ * https://www.gnu.org/software/classpath/license.html.
+ *
+ * SPDX-License-Identifier: EPL-2.0 OR GPL-2.0 WITH Classpath-exception-2.0
+ */
+
+
+package org.glassfish.grizzly.http2;
+
+import java.util.ArrayDeque;
+import java.util.Deque;
+
+/**
+ * {@link StreamScheduler}, which writes the data of the streams in the order
+ * the streams became active, each stream is written until its queued data
+ * is over. The stream priorities are ignored.
+ *
+ * @since 2.4.4
+ */
+public class FifoStreamScheduler extends StreamScheduler {
+
+    public static final StreamScheduler.Factory FACTORY =
+            new StreamScheduler.Factory() {
+        @Override
+        public StreamScheduler createStreamScheduler(
+                final Http2Session http2Session) {
+            return new FifoStreamScheduler();
+        }
+    };
+
+    private final Deque<Integer> activeStreams = new ArrayDeque<>();
+
+    @Override
+    protected void add(final int streamId, final StreamPriority priority) {
+        activeStreams.offer(streamId);
+    }
+
+    @Override
+    protected int next() {
+        final Integer streamId = activeStreams.peek();
+        return streamId != null ? streamId : 0;
+    }
+
+    @Override
+    protected void written(final int streamId, final int bytes,
+            final StreamPriority priority) {
+    }
+
+    @Override
+    protected void remove(final int streamId) {
+        // the removed stream is normally the first one
+        final Integer first = activeStreams.peek();
+        if (first != null && first == streamId) {
+            activeStreams.poll();
+        } else {
+            activeStreams.remove(streamId);
+        }
+    }
+}
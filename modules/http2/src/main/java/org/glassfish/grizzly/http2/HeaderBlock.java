@@ -0,0 +1,80 @@
+/*
+ * Copyright (c) 2017 Oracle and/or its affiliates. All rights reserved.
+ *
+ * This program and the accompanying materials are made available under the
+ * terms of the Eclipse Public License v. 2.0, which is available at
+ * http://www.eclipse.org/legal/epl-2.0.
+ *
+ * This Source Code may also be made available under the following Secondary
+ * Licenses when the conditions for such availability set forth in the
+ * Eclipse Public License v. 2.0 are satisfied: GNU General Public License,
+ * version 2 with the GNU Classpath Exception, which is available at
+ * https://www.gnu.org/software/classpath/license.html.
+ *
+ * SPDX-License-Identifier: EPL-2.0 OR GPL-2.0 WITH Classpath-exception-2.0
+ */
+
+package org.glassfish.grizzly.http2;
+
+import java.util.Arrays;
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+/**
+ * The list of header fields captured from an HTTP message, which has to be
+ * HPACK encoded.
+ *
+ * The header fields are captured by the thread, which writes the message, so the
+ * message could be recycled or changed before the block is encoded by the
+ * {@link HeadersEncodingQueue}.
+ *
+ * @since 2.4.4
+ */
+final class HeaderBlock {
+    private static final int DEFAULT_SIZE = 16;
+
+    // names and values are stored interleaved
+    private String[] fields = new String[DEFAULT_SIZE << 1];
+    private int size;
+
+    /**
+     * Adds the header field to the block.
+     *
+     * @param name the header field name
+     * @param value the header field value
+     */
+    void add(final String name, final String value) {
+        final int idx = size << 1;
+        if (idx == fields.length) {
+            fields = Arrays.copyOf(fields, idx << 1);
+        }
+
+        fields[idx] = name;
+        fields[idx + 1] = value;
+        size++;
+    }
+
+    int size() {
+        return size;
+    }
+
+    String getName(final int i) {
+        return fields[i << 1];
+    }
+
+    String getValue(final int i) {
+        return fields[(i << 1) + 1];
+    }
+
+    /**
+     * @return the header fields {@link Map} to be logged by {@link NetLogger}
+     */
+    Map<String, String> toMap() {
+        final Map<String, String> map = new LinkedHashMap<>(size << 1);
+        for (int i = 0; i < size; i++) {
+            map.put(getName(i), getValue(i));
+        }
+
+        return map;
+    }
+}
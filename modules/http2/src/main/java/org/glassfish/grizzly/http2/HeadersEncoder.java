@@ -18,6 +18,8 @@ package org.glassfish.grizzly.http2;
 
 import org.glassfish.grizzly.Buffer;
 import org.glassfish.grizzly.http2.hpack.Encoder;
+import org.glassfish.grizzly.http2.hpack.IndexingEncoder;
+import org.glassfish.grizzly.memory.Buffers;
 import org.glassfish.grizzly.memory.CompositeBuffer;
 import org.glassfish.grizzly.memory.MemoryManager;
 
@@ -38,13 +40,27 @@ public class HeadersEncoder {
 
     private final Encoder hpackEncoder;
     private final MemoryManager memoryManager;
+    private final int maxHeaderTableSize;
 
     private CompositeBuffer buffer;
 
     public HeadersEncoder(final MemoryManager memoryManager,
                           final int maxHeaderTableSize) {
         this.memoryManager = memoryManager;
-        hpackEncoder = new Encoder(maxHeaderTableSize);
+        this.maxHeaderTableSize = maxHeaderTableSize;
+        hpackEncoder = new IndexingEncoder(maxHeaderTableSize);
+    }
+
+    /**
+     * Applies the peer's SETTINGS_HEADER_TABLE_SIZE. The dynamic table won't
+     * grow beyond the size passed to the constructor though.
+     *
+     * @param peerHeaderTableSize the maximum header table size the peer's
+     *                            decoder is able to use
+     */
+    void setPeerHeaderTableSize(final int peerHeaderTableSize) {
+        hpackEncoder.setMaxCapacity(
+                Math.min(peerHeaderTableSize, maxHeaderTableSize));
     }
     
     public void encodeHeader(final String name, final String value, final Map<String,String> capture) {
@@ -58,6 +74,27 @@ public class HeadersEncoder {
         }
     }
     
+    /**
+     * Encodes all the header fields of the {@link HeaderBlock}.
+     * The method is not thread-safe and is expected to be called by the
+     * {@link HeadersEncodingQueue} task only.
+     *
+     * @param headerBlock the {@link HeaderBlock} to encode
+     * @return the {@link Buffer} with the compressed headers
+     */
+    Buffer encodeHeaders(final HeaderBlock headerBlock) {
+        final int size = headerBlock.size();
+        if (size == 0) {
+            return Buffers.EMPTY_BUFFER;
+        }
+
+        for (int i = 0; i < size; i++) {
+            encodeHeader(headerBlock.getName(i), headerBlock.getValue(i), null);
+        }
+
+        return flushHeaders();
+    }
+
     public Buffer flushHeaders() {
         final Buffer bufferLocal = buffer;
         bufferLocal.trim();
@@ -0,0 +1,161 @@
+/*
+ * Copyright (c) 2017 Oracle and/or its affiliates. All rights reserved.
+ *
+ * This program and the accompanying materials are made available under the
+ * terms of the Eclipse Public License v. 2.0, which is available at
+ * http://www.eclipse.org/legal/epl-2.0.
+ *
+ * This Source Code may also be made available under the following Secondary
+ * Licenses when the conditions for such availability set forth in the
+ * Eclipse Public License v. 2.0 are satisfied: GNU General Public License,
+ * version 2 with the GNU Classpath Exception, which is available at
+ * https://www.gnu.org/software/classpath/license.html.
+ *
+ * SPDX-License-Identifier: EPL-2.0 OR GPL-2.0 WITH Classpath-exception-2.0
+ */
+
+package org.glassfish.grizzly.http2;
+
+import java.util.Queue;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.locks.Lock;
+import java.util.logging.Level;
+import java.util.logging.Logger;
+import org.glassfish.grizzly.Grizzly;
+
+/**
+ * Serializes the HPACK encoding of {@link Http2Session} header blocks without
+ * blocking the threads, which submit them.
+ *
+ * HPACK dynamic table requires the header blocks to be written in the same
+ * order they were encoded, so the encoding and the write of a header block
+ * have to be done by one thread at a time. The tasks are put into a lock-free
+ * queue, which is drained by the thread that found the queue idle: this
+ * thread runs its own task and all the tasks submitted meanwhile, the other
+ * threads just leave their tasks in the queue and return.
+ *
+ * The draining thread holds the encoding lock, which is never contended by
+ * the queue itself, but keeps the code, which still encodes header blocks
+ * holding this lock, serialized with the queued tasks.
+ *
+ * @since 2.4.4
+ */
+final class HeadersEncodingQueue {
+    private static final Logger LOGGER = Grizzly.logger(HeadersEncodingQueue.class);
+
+    private final Queue<Task> queue = new ConcurrentLinkedQueue<>();
+
+    // the number of the submitted tasks, which haven't been run yet
+    private final AtomicInteger tasksCount = new AtomicInteger();
+
+    private final Lock encodingLock;
+
+    /**
+     * @param encodingLock the {@link Lock}, which is held while the queue
+     *          is being drained
+     */
+    HeadersEncodingQueue(final Lock encodingLock) {
+        this.encodingLock = encodingLock;
+    }
+
+    /**
+     * Submits the task and runs it, together with the tasks submitted
+     * meanwhile by other threads, if the queue is idle.
+     *
+     * @param task the {@link Task} to run
+     */
+    void submit(final Task task) {
+        final Task firstTask = add(task);
+        if (firstTask != null) {
+            drain(firstTask);
+        }
+    }
+
+    /**
+     * Adds the task to the queue.
+     * If the queue is idle - the caller becomes responsible for draining it
+     * and has to pass the returned task to {@link #drain(Task)}, otherwise
+     * the task will be run by the thread, which is draining the queue.
+     * The method never blocks, so it's safe to call it holding a lock, which
+     * orders the tasks submitted by different threads.
+     *
+     * @param task the {@link Task} to add
+     * @return the {@link Task} the caller has to run by {@link #drain(Task)},
+     *          or <tt>null</tt> if the queue is being drained by another thread
+     */
+    Task add(final Task task) {
+        // the queue might be not empty even if the counter is zero: the task,
+        // which was offered but not counted yet, could be polled instead of
+        // the counted one. Skipping the remaining tasks would break their order.
+        if (queue.isEmpty() && tasksCount.compareAndSet(0, 1)) {
+            // the queue is idle - run the task without queueing it
+            return task;
+        }
+
+        task.onDeferred();
+        queue.offer(task);
+
+        // the task is offered before the counter is incremented, so the queue
+        // is never empty when the counter is positive
+        return tasksCount.getAndIncrement() == 0 ? queue.poll() : null;
+    }
+
+    /**
+     * Runs the task returned by {@link #add(Task)} and then the queued tasks
+     * until the queue is empty.
+     *
+     * @param firstTask the {@link Task} returned by {@link #add(Task)}
+     */
+    void drain(final Task firstTask) {
+        Task task = firstTask;
+        encodingLock.lock();
+        try {
+            do {
+                assert task != null;
+                run(task);
+            } while (tasksCount.decrementAndGet() != 0 && (task = queue.poll()) != null);
+        } finally {
+            encodingLock.unlock();
+        }
+    }
+
+    private static void run(final Task task) {
+        try {
+            task.run();
+        } catch (Throwable t) {
+            LOGGER.log(Level.WARNING, "Unexpected exception, when encoding the header block", t);
+            task.onFailure(t);
+        }
+    }
+
+    /**
+     * The unit of work, which has to be serialized with the other header
+     * blocks encoding.
+     */
+    abstract static class Task {
+
+        /**
+         * The method is called before the task is handed off to another thread.
+         * The task has to detach itself from any state, which belongs to the
+         * submitting thread, for example clone the buffers it references.
+         */
+        protected void onDeferred() {
+        }
+
+        /**
+         * Encodes the header block and writes the result.
+         *
+         * @throws Exception if an error occurs
+         */
+        protected abstract void run() throws Exception;
+
+        /**
+         * The method is called if {@link #run()} has failed.
+         *
+         * @param t the failure
+         */
+        protected void onFailure(final Throwable t) {
+        }
+    }
+}
@@ -145,6 +145,11 @@ public abstract class Http2BaseFilter extends HttpBaseFilter {
             return true;
         }
 
+        // the frames produced while processing this batch
+        // are written to the connection by one write
+        final Http2SessionOutputSink outputSink = http2Session.getOutputSink();
+        outputSink.startCoalescing();
+
         try {
             try {
                 for (Http2Frame inFrame : framesList) {
@@ -192,6 +197,8 @@ public abstract class Http2BaseFilter extends HttpBaseFilter {
                         ctx.getConnection() + " during Http2Frame processing", e);
             }
             http2Session.terminate(ErrorCode.INTERNAL_ERROR, e.getMessage());
+        } finally {
+            outputSink.stopCoalescing();
         }
         
         return false;
@@ -408,7 +415,7 @@ public abstract class Http2BaseFilter extends HttpBaseFilter {
                 break;
             }
             case PriorityFrame.TYPE: {
-                processPriorityFrame(frame);
+                processPriorityFrame(http2Session, frame);
                 break;
             }
             case HeadersFrame.TYPE:
@@ -448,7 +455,8 @@ public abstract class Http2BaseFilter extends HttpBaseFilter {
 
     }
 
-    private void processPriorityFrame(final Http2Frame frame)
+    private void processPriorityFrame(final Http2Session http2Session,
+            final Http2Frame frame)
     throws Http2SessionException, Http2StreamException {
         final int streamId = frame.getStreamId();
         try {
@@ -458,9 +466,20 @@ public abstract class Http2BaseFilter extends HttpBaseFilter {
             if (frame.getLength() != 5) {
                 throw new Http2StreamException(streamId, ErrorCode.FRAME_SIZE_ERROR);
             }
-            if (streamId == ((PriorityFrame) frame).getStreamDependency()) {
+            final PriorityFrame priorityFrame = (PriorityFrame) frame;
+            if (streamId == priorityFrame.getStreamDependency()) {
                 throw new Http2SessionException(ErrorCode.PROTOCOL_ERROR, "PRIORITY frame dependent on itself.");
             }
+
+            // the priority of the idle and unknown streams is ignored,
+            // the weight is sent as (weight - 1)
+            final Http2Stream stream = http2Session.getStream(streamId);
+            if (stream != null) {
+                stream.setStreamPriority(stream.getStreamPriority().withDependency(
+                        priorityFrame.getStreamDependency(),
+                        priorityFrame.isExclusive(),
+                        priorityFrame.getWeight() + 1));
+            }
         } finally {
             frame.recycle();
         }
@@ -528,8 +547,8 @@ public abstract class Http2BaseFilter extends HttpBaseFilter {
             if (settingsFrame.getLength() % 6 != 0) {
                 throw new Http2SessionException(ErrorCode.FRAME_SIZE_ERROR, "SETTINGS frame length not multiple of six.");
             }
-            sendSettingsAck(http2Session, context);
             applySettings(http2Session, settingsFrame);
+            sendSettingsAck(http2Session);
         } finally {
             frame.recycle();
         }
@@ -545,6 +564,7 @@ public abstract class Http2BaseFilter extends HttpBaseFilter {
             
             switch (setting.getId()) {
                 case SettingsFrame.SETTINGS_HEADER_TABLE_SIZE:
+                    http2Session.setPeerHeaderTableSize(setting.getValue());
                     break;
                 case SettingsFrame.SETTINGS_ENABLE_PUSH:
                     final int val = setting.getValue();
@@ -588,6 +608,7 @@ public abstract class Http2BaseFilter extends HttpBaseFilter {
         PingFrame pingFrame = (PingFrame) frame;
 
         if (pingFrame.isAckSet()) {
+            http2Session.onPingAck(pingFrame.getOpaqueData());
             return;
         }
 
@@ -911,7 +932,8 @@ public abstract class Http2BaseFilter extends HttpBaseFilter {
                 .streamId(streamId)
                 .build();
 
-        ctx.write(frameCodec.serializeAndRecycle(http2Session, rstStreamFrame));
+        // write via the session output sink to keep the frames order
+        http2Session.getOutputSink().writeDownStream(rstStreamFrame);
     }
 
     /**
@@ -966,17 +988,22 @@ public abstract class Http2BaseFilter extends HttpBaseFilter {
         return http2Session;
     }
 
-    private void sendSettingsAck(final Http2Session http2Session,
-            final FilterChainContext context) {
+    private void sendSettingsAck(final Http2Session http2Session) {
 
-        final SettingsFrame frame = SettingsFrame.builder()
-                .setAck()
-                .build();
-        
-        context.write(
-                frameCodec.serializeAndRecycle(
-                        http2Session, frame)
-        );
+        // the ACK is written by the HeadersEncodingQueue after the new
+        // header table size is applied, so the header blocks, which
+        // follow the ACK, are encoded with respect to the new settings
+        http2Session.getHeadersEncodingQueue().submit(
+                new HeadersEncodingQueue.Task() {
+            @Override
+            protected void run() {
+                final SettingsFrame frame = SettingsFrame.builder()
+                        .setAck()
+                        .build();
+
+                http2Session.getOutputSink().writeDownStream(frame);
+            }
+        });
     }
     
     private static void processDataFrame(final Http2Session http2Session,
@@ -1000,29 +1027,40 @@ public abstract class Http2BaseFilter extends HttpBaseFilter {
             dataFrame.recycle();
         }
 
-        // Always ACK the data to maintain flow-control state
-        http2Session.ackConsumedData(data.remaining());
+        final int dataSize = data.remaining();
+        http2Session.onDataReceived(dataSize);
 
-        // If we're going away, ignore any frames for streams greater than the last stream ID from the goaway frame.
-        if (ignoreFrameForStreamId(http2Session, streamId)) {
-            return;
-        }
+        // the connection window is released, when the stream consumes the
+        // data, if the data isn't accepted by a stream - release it now
+        // to maintain flow-control state
+        boolean isAccepted = false;
+        try {
+            // If we're going away, ignore any frames for streams greater than the last stream ID from the goaway frame.
+            if (ignoreFrameForStreamId(http2Session, streamId)) {
+                return;
+            }
 
-        final Http2Stream stream = http2Session.getStream(streamId);
-        if (stream == null && streamId > http2Session.lastPeerStreamId) {
-            // consider this case an idle stream without creating one
-            throw new Http2SessionException(ErrorCode.PROTOCOL_ERROR, "Received DATA frame on IDLE stream.");
-        }
-        // @TODO null stream may happen if stream state has been cleaned up.  Need to deal with this better.
-        if (stream == null) {
-            if (LOGGER.isLoggable(Level.FINE)) {
-                LOGGER.log(Level.FINE, "Data frame received for non-existent stream: connection={0}, frame={1}, stream={2}",
-                        new Object[]{context.getConnection(), dataFrame, streamId});
+            final Http2Stream stream = http2Session.getStream(streamId);
+            if (stream == null && streamId > http2Session.lastPeerStreamId) {
+                // consider this case an idle stream without creating one
+                throw new Http2SessionException(ErrorCode.PROTOCOL_ERROR, "Received DATA frame on IDLE stream.");
+            }
+            // @TODO null stream may happen if stream state has been cleaned up.  Need to deal with this better.
+            if (stream == null) {
+                if (LOGGER.isLoggable(Level.FINE)) {
+                    LOGGER.log(Level.FINE, "Data frame received for non-existent stream: connection={0}, frame={1}, stream={2}",
+                            new Object[]{context.getConnection(), dataFrame, streamId});
+                }
+                throw new Http2StreamException(streamId, ErrorCode.STREAM_CLOSED);
             }
-            throw new Http2StreamException(streamId, ErrorCode.STREAM_CLOSED);
-        }
 
-        stream.offerInputData(data, fin);
+            stream.offerInputData(data, fin);
+            isAccepted = true;
+        } finally {
+            if (!isAccepted) {
+                http2Session.ackConsumedData(dataSize);
+            }
+        }
     }
 
     protected static boolean ignoreFrameForStreamId(final Http2Session session, final int streamId) {
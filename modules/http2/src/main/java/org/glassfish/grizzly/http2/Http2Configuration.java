@@ -33,6 +33,8 @@ public class Http2Configuration {
     public static final float DEFAULT_STREAMS_HIGH_WATER_MARK = 0.5f;
     public static final float DEFAULT_STREAMS_CLEAN_PERCENTAGE = 0.5f;
     public static final int DEFAULT_CLEAN_FREQUENCY_CHECK = 50;
+    public static final int DEFAULT_MAX_SESSION_WINDOW_SIZE = 16 * 1024 * 1024;
+    public static final int DEFAULT_MAX_COALESCE_SIZE = 64 * 1024;
 
     private volatile int maxConcurrentStreams;
     private volatile int initialWindowSize;
@@ -44,6 +46,10 @@ public class Http2Configuration {
     private volatile boolean disableCipherCheck;
     private volatile boolean priorKnowledge;
     private volatile boolean pushEnabled;
+    private volatile StreamScheduler.Factory streamSchedulerFactory;
+    private volatile boolean windowAutoTuning;
+    private volatile int maxSessionWindowSize;
+    private volatile int maxCoalesceSize;
     private final ExecutorService executorService;
     private final ThreadPoolConfig threadPoolConfig;
 
@@ -64,6 +70,10 @@ public class Http2Configuration {
         streamsHighWaterMark = builder.streamsHighWaterMark;
         cleanPercentage = builder.cleanPercentage;
         cleanFrequencyCheck = builder.cleanFrequencyCheck;
+        streamSchedulerFactory = builder.streamSchedulerFactory;
+        windowAutoTuning = builder.windowAutoTuning;
+        maxSessionWindowSize = builder.maxSessionWindowSize;
+        maxCoalesceSize = builder.maxCoalesceSize;
     }
 
 
@@ -237,6 +247,91 @@ public class Http2Configuration {
         this.cleanFrequencyCheck = cleanFrequencyCheck;
     }
 
+    /**
+     * @return the {@link StreamScheduler.Factory}, which creates the stream
+     *  scheduler for each session. If not explicitly configured, this returns
+     *  <tt>null</tt>, which means the {@link WeightedFairStreamScheduler} is used.
+     */
+    public StreamScheduler.Factory getStreamSchedulerFactory() {
+        return streamSchedulerFactory;
+    }
+
+    /**
+     * Set the {@link StreamScheduler.Factory}, which creates the scheduler
+     * deciding the order the DATA frames of the session's streams are
+     * written in. For example, {@link FifoStreamScheduler#FACTORY} makes the
+     * streams to be written in the order their data was queued.
+     */
+    public void setStreamSchedulerFactory(final StreamScheduler.Factory streamSchedulerFactory) {
+        this.streamSchedulerFactory = streamSchedulerFactory;
+    }
+
+    /**
+     * @return <tt>true</tt> if the local flow-control windows are tuned
+     *  according to the estimated bandwidth-delay product of each session.
+     *  If not explicitly configured, this returns <tt>false</tt>.
+     */
+    public boolean isWindowAutoTuning() {
+        return windowAutoTuning;
+    }
+
+    /**
+     * Configure whether the local connection and stream flow-control windows
+     * should be tuned according to the bandwidth-delay product, estimated
+     * by PING round trips and the amount of data received meanwhile.
+     * The windows grow, when they limit the throughput, up to the
+     * {@link #getMaxSessionWindowSize()}, and shrink back towards the
+     * initial window size, when the peer sends much less data than the
+     * windows allow.
+     */
+    public void setWindowAutoTuning(final boolean windowAutoTuning) {
+        this.windowAutoTuning = windowAutoTuning;
+    }
+
+    /**
+     * @return the max flow-control window size the auto-tuning may advertise
+     *  for a session. If not explicitly configured, this returns
+     *  {@value #DEFAULT_MAX_SESSION_WINDOW_SIZE}.
+     */
+    public int getMaxSessionWindowSize() {
+        return maxSessionWindowSize;
+    }
+
+    /**
+     * Set the max flow-control window size the auto-tuning may advertise
+     * for a session. Both the stream windows and the connection window,
+     * which is shared by all the streams of the session, are capped by the
+     * value. The connection window is released only once the received data
+     * is consumed by the application (or discarded), so the value limits the
+     * amount of the received data a single session may buffer, regardless
+     * of the number of concurrent streams.
+     */
+    public void setMaxSessionWindowSize(final int maxSessionWindowSize) {
+        this.maxSessionWindowSize = maxSessionWindowSize;
+    }
+
+    /**
+     * @return the max number of bytes of the frames, produced while a batch
+     *  of incoming frames is processed, which are accumulated before they
+     *  are written to the connection by a single write.
+     *  If not explicitly configured, this returns
+     *  {@value #DEFAULT_MAX_COALESCE_SIZE}.
+     */
+    public int getMaxCoalesceSize() {
+        return maxCoalesceSize;
+    }
+
+    /**
+     * Set the max number of bytes of the frames, produced while a batch
+     * of incoming frames is processed, which are accumulated before they
+     * are written to the connection by a single write.
+     * Zero or negative value disables the frame coalescing, so every frame
+     * is written as soon as it's produced.
+     */
+    public void setMaxCoalesceSize(final int maxCoalesceSize) {
+        this.maxCoalesceSize = maxCoalesceSize;
+    }
+
     /**
      * @return the thread pool configuration for servicing HTTP/2 streams, if any.
      */
@@ -267,6 +362,10 @@ public class Http2Configuration {
         private int cleanFrequencyCheck = DEFAULT_CLEAN_FREQUENCY_CHECK;
         private ThreadPoolConfig threadPoolConfig;
         private ExecutorService executorService;
+        private StreamScheduler.Factory streamSchedulerFactory;
+        private boolean windowAutoTuning;
+        private int maxSessionWindowSize = DEFAULT_MAX_SESSION_WINDOW_SIZE;
+        private int maxCoalesceSize = DEFAULT_MAX_COALESCE_SIZE;
 
         private Http2ConfigurationBuilder() {
         }
@@ -370,6 +469,38 @@ public class Http2Configuration {
             return this;
         }
 
+        /**
+         * @see #setStreamSchedulerFactory(StreamScheduler.Factory)
+         */
+        public Http2ConfigurationBuilder streamSchedulerFactory(final StreamScheduler.Factory val) {
+            streamSchedulerFactory = val;
+            return this;
+        }
+
+        /**
+         * @see #setWindowAutoTuning(boolean)
+         */
+        public Http2ConfigurationBuilder windowAutoTuning(final boolean val) {
+            windowAutoTuning = val;
+            return this;
+        }
+
+        /**
+         * @see #setMaxSessionWindowSize(int)
+         */
+        public Http2ConfigurationBuilder maxSessionWindowSize(final int val) {
+            maxSessionWindowSize = val;
+            return this;
+        }
+
+        /**
+         * @see #setMaxCoalesceSize(int)
+         */
+        public Http2ConfigurationBuilder maxCoalesceSize(final int val) {
+            maxCoalesceSize = val;
+            return this;
+        }
+
         /**
          * @return a new {@link Http2Configuration} instances based on the values of this builder.
          */
@@ -847,6 +847,14 @@ public class Http2ServerFilter extends Http2BaseFilter {
             return;
         }
 
+        if (headersFrame.isFlagSet(HeadersFrame.PRIORITIZED)) {
+            // the weight is sent as (weight - 1)
+            stream.setStreamPriority(stream.getStreamPriority().withDependency(
+                    headersFrame.getStreamDependency(),
+                    headersFrame.isExclusive(),
+                    headersFrame.getWeight() + 1));
+        }
+
         try {
             final Map<String,String> capture = ((NetLogger.isActive()) ? new LinkedHashMap<>() : null);
             DecoderUtils.decodeRequestHeaders(http2Session, request, capture);
@@ -869,6 +877,13 @@ public class Http2ServerFilter extends Http2BaseFilter {
             processOutgoingHttpHeader(context, http2Session, header, response);
             return;
         }
+        final String priorityHeader =
+                request.getHeader(StreamPriority.PRIORITY_HEADER);
+        if (priorityHeader != null) {
+            stream.setStreamPriority(stream.getStreamPriority()
+                    .withPriorityHeader(priorityHeader));
+        }
+
         onHttpHeadersParsed(request, context);
         request.getHeaders().mark();
 
@@ -964,6 +979,9 @@ public class Http2ServerFilter extends Http2BaseFilter {
             prepareOutgoingRequest(request);
             prepareOutgoingResponse(request.getResponse());
             final Http2Stream pushStream;
+            final HeadersEncodingQueue encodingQueue =
+                    http2Session.getHeadersEncodingQueue();
+            HeadersEncodingQueue.Task firstEncodingTask = null;
 
             http2Session.getNewClientStreamLock().lock();
             try {
@@ -973,32 +991,35 @@ public class Http2ServerFilter extends Http2BaseFilter {
                         false, 0);
                 pushStream.inputBuffer.terminate(IN_FIN_TERMINATION);
 
-                http2Session.getDeflaterLock().lock();
                 try {
-                    boolean logging = NetLogger.isActive();
-                    final Map<String,String> capture = ((logging) ? new LinkedHashMap<>() : null);
-                    List<Http2Frame> pushPromiseFrames =
-                            http2Session.encodeHttpRequestAsPushPromiseFrames(
-                                    ctx, pushStream.getRequest(), parentStream.getId(),
-                                    pushStream.getId(), null, capture);
-                    if (logging) {
-                        for (Http2Frame http2Frame : pushPromiseFrames) {
-                            if (http2Frame.getType() == PushPromiseFrame.TYPE) {
-                                NetLogger.log(Context.TX, http2Session, (PushPromiseFrame) http2Frame, capture);
-                                break;
-                            }
-                        }
-                    }
-                    http2Session.getOutputSink().writeDownStream(pushPromiseFrames);
-
+                    final HeaderBlock headerBlock =
+                            http2Session.encodeHttpHeaderAsHeaderBlock(
+                                    ctx, pushStream.getRequest());
+
+                    // the push promise has to be queued within the new stream
+                    // lock scope to keep the promised stream IDs in order
+                    final PushPromiseTask pushPromiseTask =
+                            new PushPromiseTask(http2Session, headerBlock,
+                                    parentStream.getId(), pushStream.getId());
+                    final StreamOutputSink parentOutputSink =
+                            parentStream.getOutputSink();
+
+                    // the parent stream frames, which follow the push promise,
+                    // mustn't overtake it (RFC 7540, section 8.2.1)
+                    firstEncodingTask = parentOutputSink instanceof DefaultOutputSink
+                            ? ((DefaultOutputSink) parentOutputSink).addEncodingTask(pushPromiseTask)
+                            : encodingQueue.add(pushPromiseTask);
                 } finally {
                     pushStream.onSendPushPromise();
-                    http2Session.getDeflaterLock().unlock();
                 }
             } finally {
                 http2Session.getNewClientStreamLock().unlock();
             }
 
+            if (firstEncodingTask != null) {
+                encodingQueue.drain(firstEncodingTask);
+            }
+
             request.getProcessingState().setHttpContext(
                     HttpContext.newInstance(pushStream, pushStream, pushStream, request));
             // now send the request upstream...
@@ -1069,4 +1090,40 @@ public class Http2ServerFilter extends Http2BaseFilter {
         newContext.resume(newContext.getStopAction());
     }
 
+    /**
+     * {@link HeadersEncodingQueue} task, which encodes and writes the
+     * PUSH_PROMISE frames.
+     */
+    private static final class PushPromiseTask extends HeadersEncodingQueue.Task {
+        private final Http2Session http2Session;
+        private final HeaderBlock headerBlock;
+        private final int streamId;
+        private final int promisedStreamId;
+
+        private PushPromiseTask(final Http2Session http2Session,
+                final HeaderBlock headerBlock, final int streamId,
+                final int promisedStreamId) {
+            this.http2Session = http2Session;
+            this.headerBlock = headerBlock;
+            this.streamId = streamId;
+            this.promisedStreamId = promisedStreamId;
+        }
+
+        @Override
+        protected void run() {
+            final List<Http2Frame> pushPromiseFrames =
+                    http2Session.encodeHeaderBlockAsPushPromiseFrames(
+                            headerBlock, streamId, promisedStreamId, null);
+            if (NetLogger.isActive()) {
+                for (Http2Frame http2Frame : pushPromiseFrames) {
+                    if (http2Frame.getType() == PushPromiseFrame.TYPE) {
+                        NetLogger.log(Context.TX, http2Session,
+                                (PushPromiseFrame) http2Frame, headerBlock.toMap());
+                        break;
+                    }
+                }
+            }
+            http2Session.getOutputSink().writeDownStream(pushPromiseFrames);
+        }
+    }
 }
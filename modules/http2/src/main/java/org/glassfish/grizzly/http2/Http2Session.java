@@ -95,6 +95,9 @@ public class Http2Session {
 
     private final ReentrantLock deflaterLock = new ReentrantLock();
 
+    private final HeadersEncodingQueue headersEncodingQueue =
+            new HeadersEncodingQueue(deflaterLock);
+
     int lastPeerStreamId;
     private int lastLocalStreamId;
     private boolean pushEnabled = true;
@@ -174,6 +177,13 @@ public class Http2Session {
 
     private final AtomicInteger unackedReadBytes  = new AtomicInteger();
 
+    // the number of bytes the local connection window has been shrunk by,
+    // they are held back from the next connection WINDOW_UPDATEs
+    private final AtomicInteger connectionWindowDebt = new AtomicInteger();
+
+    // accessed by the thread, which processes the session input
+    private WindowAutoTuner windowAutoTuner;
+
     public Http2Session(final Connection<?> connection,
                         final boolean isServer,
                         final Http2BaseFilter handlerFilter) {
@@ -429,6 +439,28 @@ public class Http2Session {
         this.peerMaxFramePayloadSize = peerMaxFramePayloadSize;
     }
 
+    /**
+     * Sets the max header table size the peer's HPACK decoder is able to use.
+     * The method is called during the {@link SettingsFrame} processing.
+     * The new size is applied by the {@link HeadersEncodingQueue}, so it
+     * affects the header blocks submitted after this call.
+     *
+     * @param peerHeaderTableSize max header table size accepted by the peer.
+     */
+    protected void setPeerHeaderTableSize(final int peerHeaderTableSize) {
+        // the setting is an unsigned 32-bit integer
+        final int size = peerHeaderTableSize < 0
+                ? Integer.MAX_VALUE
+                : peerHeaderTableSize;
+
+        headersEncodingQueue.submit(new HeadersEncodingQueue.Task() {
+            @Override
+            protected void run() {
+                getHeadersEncoder().setPeerHeaderTableSize(size);
+            }
+        });
+    }
+
 
     public int getLocalStreamWindowSize() {
         return localStreamWindowSize;
@@ -745,7 +777,7 @@ public class Http2Session {
                         // it can have unacked user data sent from the server.
                         // So it's right time to ack this data and let the server send
                         // more data if needed.
-                        ackConsumedData(getStream(0), 0);
+                        ackConsumedData(0);
                     }
                 }
             }
@@ -802,6 +834,21 @@ public class Http2Session {
         return headersDecoder;
     }
 
+    /**
+     * @return the {@link HeadersEncodingQueue}, which serializes the header
+     *          blocks encoding and writing
+     */
+    HeadersEncodingQueue getHeadersEncodingQueue() {
+        return headersEncodingQueue;
+    }
+
+    /**
+     * @return the lock, which is held by the {@link HeadersEncodingQueue}
+     *          thread, while encoding and writing the header blocks
+     * @deprecated submit a {@link HeadersEncodingQueue.Task} to
+     *          {@link #getHeadersEncodingQueue()} instead
+     */
+    @Deprecated
     ReentrantLock getDeflaterLock() {
         return deflaterLock;
     }
@@ -815,17 +862,106 @@ public class Http2Session {
     }
 
     /**
-     * Encodes the {@link HttpHeader} and locks the compression lock.
+     * Captures the {@link HttpHeader} header fields to be encoded.
+     * Unlike the {@link HeaderBlock} encoding, the method doesn't change the
+     * compression state, so it could be called by any thread.
+     *
+     * @param ctx the current {@link FilterChainContext}
+     * @param httpHeader the {@link HttpHeader} to encode
+     *
+     * @return the {@link HeaderBlock}
+     * @throws IOException if an error occurs encoding the header
+     */
+    HeaderBlock encodeHttpHeaderAsHeaderBlock(
+            final FilterChainContext ctx,
+            final HttpHeader httpHeader)
+            throws IOException {
+
+        final HeaderBlock headerBlock = !httpHeader.isRequest()
+                ? EncoderUtils.encodeResponseHeaders(
+                        (HttpResponsePacket) httpHeader)
+                : EncoderUtils.encodeRequestHeaders(
+                        this, (HttpRequestPacket) httpHeader);
+
+        handlerFilter.onHttpHeadersEncoded(httpHeader, ctx);
+
+        return headerBlock;
+    }
+
+    /**
+     * Captures the trailer header fields to be encoded.
+     *
+     * @param trailerHeaders a {@link MimeHeaders} of headers to be transmitted as trailers.
+     *
+     * @return the {@link HeaderBlock}
+     */
+    HeaderBlock encodeTrailersAsHeaderBlock(final MimeHeaders trailerHeaders) {
+        return EncoderUtils.encodeTrailerHeaders(trailerHeaders);
+    }
+
+    /**
+     * Encodes the {@link HeaderBlock} as a {@link HeadersFrame} and
+     * a sequence of 0 or more {@link ContinuationFrame}s.
+     * The method has to be called by the {@link HeadersEncodingQueue} task.
+     *
+     * @param headerBlock the {@link HeaderBlock} to encode
+     * @param streamId the stream associated with this request
+     * @param isLast is this the last frame?
+     * @param toList the target {@link List}, to which the frames will be serialized
+     *
+     * @return the HTTP2 header frames sequence
+     */
+    List<Http2Frame> encodeHeaderBlockAsHeaderFrames(
+            final HeaderBlock headerBlock,
+            final int streamId,
+            final boolean isLast,
+            final List<Http2Frame> toList) {
+
+        return bufferToHeaderFrames(streamId,
+                getHeadersEncoder().encodeHeaders(headerBlock), isLast, toList);
+    }
+
+    /**
+     * Encodes the {@link HeaderBlock} as a {@link PushPromiseFrame} and
+     * a sequence of 0 or more {@link ContinuationFrame}s.
+     * The method has to be called by the {@link HeadersEncodingQueue} task.
+     *
+     * @param headerBlock the {@link HeaderBlock} to encode
+     * @param streamId the stream associated with this request.
+     * @param promisedStreamId the push promise stream ID.
+     * @param toList the target {@link List}, to which the frames will be serialized
+     * @return the HTTP2 push promise frames sequence
+     */
+    List<Http2Frame> encodeHeaderBlockAsPushPromiseFrames(
+            final HeaderBlock headerBlock,
+            final int streamId,
+            final int promisedStreamId,
+            final List<Http2Frame> toList) {
+
+        return bufferToPushPromiseFrames(streamId, promisedStreamId,
+                getHeadersEncoder().encodeHeaders(headerBlock), toList);
+    }
+
+    /**
+     * Encodes the {@link HttpHeader} as a {@link HeadersFrame} and
+     * a sequence of 0 or more {@link ContinuationFrame}s.
+     * The caller has to hold the {@link #getDeflaterLock()} until the frames
+     * are written.
      *
      * @param ctx the current {@link FilterChainContext}
      * @param httpHeader the {@link HttpHeader} to encode
      * @param streamId the stream associated with this request
      * @param isLast is this the last frame?
      * @param toList the target {@link List}, to which the frames will be serialized
+     * @param capture the {@link Map} to capture the encoded header fields, or <tt>null</tt>
      *
      * @return the HTTP2 header frames sequence
      * @throws IOException if an error occurs encoding the header
+     * @deprecated use {@link #encodeHttpHeaderAsHeaderBlock(FilterChainContext, HttpHeader)}
+     *          and {@link #encodeHeaderBlockAsHeaderFrames(HeaderBlock, int, boolean, List)}
+     *          from a {@link HeadersEncodingQueue.Task}
      */
+    @Deprecated
     @SuppressWarnings("SameParameterValue")
     protected List<Http2Frame> encodeHttpHeaderAsHeaderFrames(
             final FilterChainContext ctx,
@@ -836,53 +972,61 @@ public class Http2Session {
             final Map<String,String> capture)
             throws IOException {
 
-        final Buffer compressedHeaders = !httpHeader.isRequest()
-                ? EncoderUtils.encodeResponseHeaders(
-                        this, (HttpResponsePacket) httpHeader, capture)
-                : EncoderUtils.encodeRequestHeaders(
-                        this, (HttpRequestPacket) httpHeader, capture);
+        final HeaderBlock headerBlock = encodeHttpHeaderAsHeaderBlock(ctx, httpHeader);
+        capture(headerBlock, capture);
 
-        final List<Http2Frame> headerFrames =
-                bufferToHeaderFrames(streamId, compressedHeaders, isLast, toList);
-
-        handlerFilter.onHttpHeadersEncoded(httpHeader, ctx);
-
-        return headerFrames;
+        return encodeHeaderBlockAsHeaderFrames(headerBlock, streamId, isLast, toList);
     }
 
     /**
-     * Encodes the {@link Map} of header values into header frames to be sent as trailer headers.
+     * Encodes the trailer headers as a {@link HeadersFrame} and
+     * a sequence of 0 or more {@link ContinuationFrame}s.
+     * The caller has to hold the {@link #getDeflaterLock()} until the frames
+     * are written.
      *
      * @param streamId the stream associated with this request
      * @param toList the target {@link List}, to which the frames will be serialized.
      * @param trailerHeaders a {@link MimeHeaders} of headers to be transmitted as trailers.
+     * @param capture the {@link Map} to capture the encoded header fields, or <tt>null</tt>
      *
      * @return the HTTP2 header frames sequence
-     *
      * @throws IOException if an error occurs encoding the header
+     * @deprecated use {@link #encodeTrailersAsHeaderBlock(MimeHeaders)}
+     *          and {@link #encodeHeaderBlockAsHeaderFrames(HeaderBlock, int, boolean, List)}
+     *          from a {@link HeadersEncodingQueue.Task}
      */
+    @Deprecated
     protected List<Http2Frame> encodeTrailersAsHeaderFrames(final int streamId,
                                                             final List<Http2Frame> toList,
                                                             final MimeHeaders trailerHeaders,
                                                             final Map<String,String> capture)
     throws IOException {
-        final Buffer compressedHeaders = EncoderUtils.encodeTrailerHeaders(this, trailerHeaders, capture);
-        return bufferToHeaderFrames(streamId, compressedHeaders, true, toList);
+        final HeaderBlock headerBlock = encodeTrailersAsHeaderBlock(trailerHeaders);
+        capture(headerBlock, capture);
+
+        return encodeHeaderBlockAsHeaderFrames(headerBlock, streamId, true, toList);
     }
 
     /**
-     * Encodes the {@link HttpRequestPacket} as a {@link PushPromiseFrame}
-     * and locks the compression lock.
+     * Encodes the {@link HttpRequestPacket} as a {@link PushPromiseFrame} and
+     * a sequence of 0 or more {@link ContinuationFrame}s.
+     * The caller has to hold the {@link #getDeflaterLock()} until the frames
+     * are written.
      *
      * @param ctx the current {@link FilterChainContext}
      * @param httpRequest the  {@link HttpRequestPacket} to encode.
      * @param streamId the stream associated with this request.
      * @param promisedStreamId the push promise stream ID.
      * @param toList the target {@link List}, to which the frames will be serialized
+     * @param capture the {@link Map} to capture the encoded header fields, or <tt>null</tt>
      * @return the HTTP2 push promise frames sequence
      *
      * @throws IOException if an error occurs encoding the request
+     * @deprecated use {@link #encodeHttpHeaderAsHeaderBlock(FilterChainContext, HttpHeader)}
+     *          and {@link #encodeHeaderBlockAsPushPromiseFrames(HeaderBlock, int, int, List)}
+     *          from a {@link HeadersEncodingQueue.Task}
      */
+    @Deprecated
     @SuppressWarnings("SameParameterValue")
     protected List<Http2Frame> encodeHttpRequestAsPushPromiseFrames(
             final FilterChainContext ctx,
@@ -893,18 +1037,18 @@ public class Http2Session {
             final Map<String,String> capture)
             throws IOException {
 
-        final boolean logging = NetLogger.isActive();
+        final HeaderBlock headerBlock = encodeHttpHeaderAsHeaderBlock(ctx, httpRequest);
+        capture(headerBlock, capture);
 
-        final List<Http2Frame> headerFrames =
-                bufferToPushPromiseFrames(
-                        streamId,
-                        promisedStreamId,
-                        EncoderUtils.encodeRequestHeaders(this, httpRequest, capture),
-                        toList);
-
-        handlerFilter.onHttpHeadersEncoded(httpRequest, ctx);
+        return encodeHeaderBlockAsPushPromiseFrames(headerBlock,
+                streamId, promisedStreamId, toList);
+    }
 
-        return headerFrames;
+    private static void capture(final HeaderBlock headerBlock,
+            final Map<String,String> capture) {
+        if (capture != null) {
+            capture.putAll(headerBlock.toMap());
+        }
     }
 
     /**
@@ -965,7 +1109,7 @@ public class Http2Session {
             final int streamId,
             final Buffer compressedHeaders,
             List<Http2Frame> toList) {
-        // we assume deflaterLock is acquired and held by this thread
+        // we assume this is called by the HeadersEncodingQueue task
         assert deflaterLock.isHeldByCurrentThread();
 
         if (toList == null) {
@@ -1306,27 +1450,96 @@ public class Http2Session {
     }
 
     /**
-     * Acknowledge that certain amount of data has been read.
-     * Depending on the total amount of un-acknowledge data the HTTP2 connection
-     * can decide to send a window_update message to the peer.
+     * Called for each received DATA frame by the thread, which processes the
+     * session input. The flow-control windows are acknowledged, when the
+     * data is consumed, see {@link #ackConsumedData(Http2Stream, int)}.
      *
-     * @param sz size, in bytes, of the data being acknowledged
+     * @param sz size, in bytes, of the received data
      */
-    void ackConsumedData(final int sz) {
-        ackConsumedData(null, sz);
+    void onDataReceived(final int sz) {
+        if (http2Configuration.isWindowAutoTuning() && isPrefaceSent) {
+            if (windowAutoTuner == null) {
+                windowAutoTuner = new WindowAutoTuner(getLocalStreamWindowSize(),
+                        http2Configuration.getMaxSessionWindowSize());
+            }
+
+            if (windowAutoTuner.startSample(System.nanoTime())) {
+                outputSink.writeDownStream(PingFrame.builder()
+                        .opaqueData(WindowAutoTuner.PING_PAYLOAD)
+                        .build());
+            }
+
+            windowAutoTuner.onDataReceived(sz);
+        }
+    }
+
+    /**
+     * Called, when a PING ACK is received.
+     *
+     * @param opaqueData the PING payload
+     */
+    void onPingAck(final long opaqueData) {
+        if (windowAutoTuner != null
+                && opaqueData == WindowAutoTuner.PING_PAYLOAD) {
+            final int windowSize = windowAutoTuner.onPingAck(System.nanoTime());
+            if (windowSize != -1) {
+                updateLocalWindowSize(windowSize);
+            }
+        }
+    }
+
+    /**
+     * Changes the local stream and connection flow-control window sizes.
+     * The stream windows are changed by SETTINGS_INITIAL_WINDOW_SIZE, the
+     * connection window can't be shrunk explicitly, so the difference is
+     * held back from the following connection WINDOW_UPDATEs.
+     *
+     * The window size is capped by the
+     * {@link Http2Configuration#getMaxSessionWindowSize()}. The connection
+     * window is shared by all the streams and released, when the data is
+     * consumed, so it bounds the amount of the data buffered by the session,
+     * no matter how many streams are receiving data concurrently.
+     */
+    private void updateLocalWindowSize(final int windowSize) {
+        final int connectionWindowSize =
+                Math.max(windowSize, getDefaultConnectionWindowSize());
+        final int connectionDelta =
+                connectionWindowSize - localConnectionWindowSize;
+
+        localStreamWindowSize = windowSize;
+        localConnectionWindowSize = connectionWindowSize;
+
+        final List<Http2Frame> frames = new ArrayList<>(2);
+        frames.add(SettingsFrame.builder()
+                .setting(SETTINGS_INITIAL_WINDOW_SIZE, windowSize)
+                .build());
+
+        if (connectionDelta > 0) {
+            frames.add(WindowUpdateFrame.builder()
+                    .streamId(0)
+                    .windowSizeIncrement(connectionDelta)
+                    .build());
+        } else if (connectionDelta < 0) {
+            connectionWindowDebt.addAndGet(-connectionDelta);
+        }
+
+        if (NetLogger.isActive()) {
+            for (Http2Frame frame : frames) {
+                NetLogger.log(NetLogger.Context.TX, this, frame);
+            }
+        }
+
+        outputSink.writeDownStream(frames);
     }
 
     /**
-     * Acknowledge that certain amount of data has been read.
+     * Acknowledge that certain amount of data has been read or discarded.
      * Depending on the total amount of un-acknowledge data the HTTP2 connection
      * can decide to send a window_update message to the peer.
-     * Unlike the {@link #ackConsumedData(int)}, this method also requests an
-     * HTTP2 stream to acknowledge consumed data to the peer.
      *
-     * @param stream the stream that data is being ack'd on.
      * @param sz size, in bytes, of the data being acknowledged
      */
-    void ackConsumedData(final Http2Stream stream, final int sz) {
+    void ackConsumedData(final int sz) {
         final int currentUnackedBytes
                 = unackedReadBytes.addAndGet(sz);
 
@@ -1334,28 +1547,57 @@ public class Http2Session {
             // ACK HTTP2 connection flow control
             final int windowSize = getLocalConnectionWindowSize();
 
-            // if not forced - send update window message only in case currentUnackedBytes > windowSize / 2
+            // send update window message only in case currentUnackedBytes > windowSize / 3
             if (currentUnackedBytes > (windowSize / 3)
                     && unackedReadBytes.compareAndSet(currentUnackedBytes, 0)) {
 
-                sendWindowUpdate(0, currentUnackedBytes);
+                final int delta = payConnectionWindowDebt(currentUnackedBytes);
+                if (delta > 0) {
+                    sendWindowUpdate(0, delta);
+                }
             }
+        }
+    }
 
-            if (stream != null) {
-                // ACK HTTP2 stream flow control
-                final int streamUnackedBytes
-                        = Http2Stream.unackedReadBytesUpdater.addAndGet(stream, sz);
-                final int streamWindowSize = stream.getLocalWindowSize();
+    /**
+     * Acknowledge that certain amount of data has been read by the stream.
+     * Depending on the total amount of un-acknowledge data the HTTP2 connection
+     * and stream can decide to send a window_update message to the peer.
+     * Unlike the {@link #ackConsumedData(int)}, this method also requests an
+     * HTTP2 stream to acknowledge consumed data to the peer.
+     *
+     * @param stream the stream that data is being ack'd on.
+     * @param sz size, in bytes, of the data being acknowledged
+     */
+    void ackConsumedData(final Http2Stream stream, final int sz) {
+        ackConsumedData(sz);
 
-                // send update window message only in case currentUnackedBytes > windowSize / 2
-                if (streamUnackedBytes > 0
-                        && (streamUnackedBytes > (streamWindowSize / 2))
-                        && Http2Stream.unackedReadBytesUpdater.compareAndSet(stream, streamUnackedBytes, 0)) {
+        if (isPrefaceSent) {
+            // ACK HTTP2 stream flow control
+            final int streamUnackedBytes
+                    = Http2Stream.unackedReadBytesUpdater.addAndGet(stream, sz);
+            final int streamWindowSize = stream.getLocalWindowSize();
 
-                    sendWindowUpdate(stream.getId(), streamUnackedBytes);
-                }
+            // send update window message only in case currentUnackedBytes > windowSize / 2
+            if (streamUnackedBytes > 0
+                    && (streamUnackedBytes > (streamWindowSize / 2))
+                    && Http2Stream.unackedReadBytesUpdater.compareAndSet(stream, streamUnackedBytes, 0)) {
+
+                sendWindowUpdate(stream.getId(), streamUnackedBytes);
+            }
+        }
+    }
+
+    private int payConnectionWindowDebt(final int delta) {
+        int debt;
+        while ((debt = connectionWindowDebt.get()) > 0) {
+            final int payment = Math.min(debt, delta);
+            if (connectionWindowDebt.compareAndSet(debt, debt - payment)) {
+                return delta - payment;
             }
         }
+
+        return delta;
     }
 
     /*
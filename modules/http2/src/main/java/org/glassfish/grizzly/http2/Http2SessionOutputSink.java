@@ -16,8 +16,12 @@
 
 package org.glassfish.grizzly.http2;
 
+import java.io.IOException;
+import java.util.ArrayDeque;
+import java.util.HashMap;
 import java.util.LinkedList;
 import java.util.List;
+import java.util.Map;
 import java.util.concurrent.atomic.AtomicBoolean;
 import java.util.concurrent.atomic.AtomicInteger;
 import java.util.concurrent.locks.LockSupport;
@@ -26,6 +30,7 @@ import java.util.logging.Logger;
 
 import org.glassfish.grizzly.Buffer;
 import org.glassfish.grizzly.CompletionHandler;
+import org.glassfish.grizzly.Connection;
 import org.glassfish.grizzly.Grizzly;
 import org.glassfish.grizzly.WriteHandler;
 import org.glassfish.grizzly.WriteResult;
@@ -36,10 +41,20 @@ import org.glassfish.grizzly.http2.frames.DataFrame;
 import org.glassfish.grizzly.http2.frames.ErrorCode;
 import org.glassfish.grizzly.http2.frames.Http2Frame;
 import org.glassfish.grizzly.http2.utils.ChunkedCompletionHandler;
+import org.glassfish.grizzly.memory.Buffers;
 
 /**
  * Class represents an output sink associated with specific {@link Http2Session}
  * and is responsible for session (connection) level flow control.
+ *
+ * The queued DATA is kept per stream, the {@link StreamScheduler} decides
+ * which stream's DATA frame is written next, while the connection
+ * flow-control window is open.
+ *
+ * While a batch of the incoming frames is being processed, or a stream
+ * writes its HEADERS followed by DATA, the frames written to the sink are
+ * accumulated and written to the {@link Connection} by one write
+ * (see {@link #startCoalescing()}).
  * 
  * @author Alexey Stashok
  */
@@ -65,10 +80,36 @@ public class Http2SessionOutputSink {
     private final List<Http2Frame> tmpFramesList = new LinkedList<>();
     private final AtomicBoolean writerLock = new AtomicBoolean();
 
+    // the records moved from the output queue, the map and the scheduler
+    // are accessed by the thread, which holds the writer lock
+    private final Map<Integer, ArrayDeque<OutputQueueRecord>> streamQueues =
+            new HashMap<>();
+    private final StreamScheduler scheduler;
+
+    private volatile boolean isClosed;
+
+    // the frames, which can't be written right away, are accumulated in the
+    // pendingBuffer; the writes are passed to the connection by one thread at
+    // a time (the one which set isWriting), so the frames order is kept
+    // without calling the connection while holding the coalesceSync
+    private final Object coalesceSync = new Object();
+    private final ArrayDeque<PendingWrite> pendingWrites = new ArrayDeque<>(4);
+    private Buffer pendingBuffer;
+    private boolean isWriting;
+    private int coalescingDepth;
+    private int maxCoalesceSize;
+
     public Http2SessionOutputSink(Http2Session session) {
         this.http2Session = session;
         availConnectionWindowSize = new AtomicInteger(
                 http2Session.getDefaultConnectionWindowSize());
+
+        final StreamScheduler.Factory schedulerFactory =
+                session.handlerFilter.getConfiguration().getStreamSchedulerFactory();
+        scheduler = schedulerFactory != null
+                ? schedulerFactory.createStreamScheduler(session)
+                : new WeightedFairStreamScheduler(session);
+        maxCoalesceSize = session.handlerFilter.getConfiguration().getMaxCoalesceSize();
     }
 
     protected Http2FrameCodec frameCodec() {
@@ -77,18 +118,14 @@ public class Http2SessionOutputSink {
     
     protected void writeDownStream(final Http2Frame frame) {
         
-        http2Session.getHttp2SessionChain().write(
-                http2Session.getConnection(), null,
-                frameCodec().serializeAndRecycle(http2Session, frame),
-                null, (MessageCloner) null);
+        write(frameCodec().serializeAndRecycle(http2Session, frame),
+                null, null);
     }
 
     protected void writeDownStream(final List<Http2Frame> frames) {
         
-        http2Session.getHttp2SessionChain().write(
-                http2Session.getConnection(), null,
-                frameCodec().serializeAndRecycle(http2Session, frames),
-                null, (MessageCloner) null);
+        write(frameCodec().serializeAndRecycle(http2Session, frames),
+                null, null);
     }
     
     @SuppressWarnings("unchecked")
@@ -108,8 +145,48 @@ public class Http2SessionOutputSink {
             msg = anyMessage;
         }
         
-        http2Session.getHttp2SessionChain().write(http2Session.getConnection(),
-                null, msg, completionHandler, messageCloner);        
+        write(msg, completionHandler, messageCloner);
+    }
+
+    /**
+     * Starts coalescing the frames written to this sink: the serialized
+     * frames are accumulated and written to the {@link Connection} by one
+     * write, when the coalescing is stopped or the accumulated size reaches
+     * the {@link Http2Configuration#getMaxCoalesceSize()}.
+     *
+     * The writes, which come with a {@link CompletionHandler}, are never
+     * delayed, because the caller might wait for the completion, so they
+     * are written immediately together with the frames accumulated so far.
+     *
+     * The calls may be nested and come from different threads, the
+     * coalescing is on until the {@link #stopCoalescing()} is called for
+     * each of them, so every call has to be paired with
+     * {@link #stopCoalescing()} in a finally block.
+     */
+    protected void startCoalescing() {
+        synchronized (coalesceSync) {
+            if (coalescingDepth++ == 0) {
+                maxCoalesceSize = http2Session.handlerFilter
+                        .getConfiguration().getMaxCoalesceSize();
+            }
+        }
+    }
+
+    /**
+     * Stops coalescing the frames written to this sink and, if it's the
+     * last coalescing in progress, writes the frames accumulated so far.
+     */
+    protected void stopCoalescing() {
+        synchronized (coalesceSync) {
+            if (--coalescingDepth != 0 || isWriting || pendingBuffer == null) {
+                // if there's a thread writing - it will write the pendingBuffer
+                return;
+            }
+
+            isWriting = true;
+        }
+
+        writePendingWrites();
     }
 
     protected int getAvailablePeerConnectionWindowSize() {
@@ -170,39 +247,190 @@ public class Http2SessionOutputSink {
             writeDownStream(msg, completionHandler, messageCloner);
 
             return;
-        } else if (headerFrames != null && !headerFrames.isEmpty()) {
-            // flush the headers now in this thread,
-            // because we have to keep compression state consistent
-            writeDownStream(headerFrames);
         }
 
-        final int dataSize = data.remaining();
+        final boolean hasHeaders = headerFrames != null && !headerFrames.isEmpty();
+        if (hasHeaders) {
+            // write the headers along with the DATA frames flushed below
+            startCoalescing();
+        }
+
+        try {
+            if (hasHeaders) {
+                // flush the headers now in this thread,
+                // because we have to keep compression state consistent
+                writeDownStream(headerFrames);
+            }
+
+            final int dataSize = data.remaining();
+
+            if (messageCloner != null) {
+                data = messageCloner.clone(http2Session.getConnection(), data);
+            }
+
+            final Http2SessionOutputSink.OutputQueueRecord record = new Http2SessionOutputSink.OutputQueueRecord(
+                    stream, data,
+                    completionHandler, isLast);
+
+            outputQueue.offer(record);
+            outputQueue.reserveSpace(record.isZeroSizeData() ? 1 : dataSize);
+
+            flushOutputQueue();
+        } finally {
+            if (hasHeaders) {
+                stopCoalescing();
+            }
+        }
+    }
 
+    // the completion handler is passed to the raw-typed FilterChainContext.write(...)
+    @SuppressWarnings("rawtypes")
+    private void write(final Object msg,
+            final CompletionHandler<WriteResult> completionHandler,
+            final MessageCloner<Buffer> messageCloner) {
+
+        final boolean isQueued;
+        synchronized (coalesceSync) {
+            isQueued = isWriting || isCoalescing();
+            if (isQueued) {
+                enqueue(msg, completionHandler, messageCloner);
+
+                if (isWriting || pendingWrites.isEmpty()) {
+                    return;
+                }
+            }
+
+            isWriting = true;
+        }
+
+        if (!isQueued) {
+            // the sink is idle - write the message in this thread
+            writeSafely(msg, completionHandler, messageCloner);
+        }
+
+        writePendingWrites();
+    }
+
+    /**
+     * Must be called while holding the coalesceSync.
+     */
+    private boolean isCoalescing() {
+        return coalescingDepth > 0 && maxCoalesceSize > 0;
+    }
+
+    /**
+     * Must be called while holding the coalesceSync.
+     */
+    @SuppressWarnings({"unchecked", "rawtypes"})
+    private void enqueue(final Object msg,
+            final CompletionHandler<WriteResult> completionHandler,
+            MessageCloner<Buffer> messageCloner) {
+
+        if (!(msg instanceof Buffer)) {
+            queuePendingBuffer();
+            pendingWrites.add(new PendingWrite(msg, completionHandler,
+                    messageCloner));
+            return;
+        }
+
+        Buffer buffer = (Buffer) msg;
+
+        // the caller may reuse the buffer once the write method returns
         if (messageCloner != null) {
-            data = messageCloner.clone(http2Session.getConnection(), data);
+            buffer = messageCloner.clone(http2Session.getConnection(), buffer);
+            messageCloner = null;
         }
 
-        final Http2SessionOutputSink.OutputQueueRecord record = new Http2SessionOutputSink.OutputQueueRecord(
-                stream.getId(), data,
-                completionHandler, isLast);
+        if (completionHandler == null) {
+            pendingBuffer = Buffers.appendBuffers(
+                    http2Session.getMemoryManager(), pendingBuffer, buffer);
 
-        outputQueue.offer(record);
-        outputQueue.reserveSpace(record.isZeroSizeData() ? 1 : dataSize);
+            if (pendingBuffer.remaining() >= maxCoalesceSize) {
+                queuePendingBuffer();
+            }
 
-        flushOutputQueue();
+            return;
+        }
+
+        // the caller might wait for the completion, so don't delay the write:
+        // write the accumulated frames along with the buffer, but report
+        // just the buffer bytes to the CompletionHandler
+        CompletionHandler<WriteResult> writeCompletionHandler =
+                completionHandler;
+        if (pendingBuffer != null) {
+            final AggrCompletionHandler aggrCompletionHandler =
+                    new AggrCompletionHandler();
+            aggrCompletionHandler.register(completionHandler,
+                    buffer.remaining());
+            writeCompletionHandler = aggrCompletionHandler;
+
+            buffer = Buffers.appendBuffers(http2Session.getMemoryManager(),
+                    pendingBuffer, buffer);
+            pendingBuffer = null;
+        }
+
+        pendingWrites.add(new PendingWrite(buffer, writeCompletionHandler,
+                null));
+    }
+
+    /**
+     * Must be called while holding the coalesceSync.
+     */
+    private void queuePendingBuffer() {
+        if (pendingBuffer != null) {
+            pendingWrites.add(new PendingWrite(pendingBuffer, null, null));
+            pendingBuffer = null;
+        }
+    }
+
+    /**
+     * Writes the queued writes, until there's nothing to write.
+     * Must be called by the thread, which has set the isWriting flag.
+     */
+    private void writePendingWrites() {
+        while (true) {
+            final PendingWrite pendingWrite;
+            synchronized (coalesceSync) {
+                if (pendingWrites.isEmpty() && !isCoalescing()) {
+                    queuePendingBuffer();
+                }
+
+                pendingWrite = pendingWrites.poll();
+                if (pendingWrite == null) {
+                    isWriting = false;
+                    return;
+                }
+            }
+
+            writeSafely(pendingWrite.message, pendingWrite.completionHandler,
+                    pendingWrite.messageCloner);
+        }
+    }
+
+    @SuppressWarnings({"unchecked", "rawtypes"})
+    private void writeSafely(final Object msg,
+            final CompletionHandler<WriteResult> completionHandler,
+            final MessageCloner<Buffer> messageCloner) {
+        try {
+            http2Session.getHttp2SessionChain().write(
+                    http2Session.getConnection(), null, msg,
+                    completionHandler, messageCloner);
+        } catch (Throwable t) {
+            // don't leave the isWriting flag set and the queued writes stuck
+            LOGGER.log(Level.WARNING, "Unexpected exception, when writing the frames", t);
+            if (completionHandler != null) {
+                completionHandler.failed(t);
+            }
+        }
     }
 
     private void flushOutputQueue() {
         int backoffDelay = 0;
 
         int availWindowSize;
-        int queueSize;
 
         boolean needToNotify = false;
 
-        // for debug purposes only
-        int tmpcnt = 0;
-
         // try to flush entire output queue
 
         // relaxed check if we have free window space and output queue is not empty
@@ -211,9 +439,19 @@ public class Http2SessionOutputSink {
                 && !outputQueue.isEmpty()
                 && writerLock.compareAndSet(false, true)) {
 
+            if (isClosed) {
+                writerLock.set(false);
+                break;
+            }
+
             // get the values after the writer is locked
             availWindowSize = availConnectionWindowSize.get();
-            queueSize = outputQueue.size();
+
+            // pass the records, queued since the last flush, to the scheduler
+            Http2SessionOutputSink.OutputQueueRecord queuedRecord;
+            while ((queuedRecord = outputQueue.poll()) != null) {
+                schedule(queuedRecord);
+            }
 
             CompletionHandler<WriteResult> writeCompletionHandler = null;
             int writeCompletionHandlerBytes = 0;
@@ -223,21 +461,17 @@ public class Http2SessionOutputSink {
 
             AggrCompletionHandler completionHandlers = null;
 
-            // gather all available output data frames
-            while (availWindowSize > bytesToTransfer &&
-                    queueSize > queueSizeToFree) {
-
-                final Http2SessionOutputSink.OutputQueueRecord record = outputQueue.poll();
-
-                if (record == null) {
-                    // keep this warning for now
-                    // should be reported when null record is spotted
-                    LOGGER.log(Level.WARNING, "UNEXPECTED NULL RECORD. Queue-size: {0} "
-                                    + "tmpcnt={1} byteToTransfer={2} queueSizeToFree={3} queueSize={4}",
-                            new Object[]{outputQueue.size(), tmpcnt, bytesToTransfer, queueSizeToFree, queueSize});
+            // gather the output data frames in the scheduler order
+            while (availWindowSize > bytesToTransfer) {
+                final int streamId = scheduler.next();
+                if (streamId == 0) {
+                    break;
                 }
 
-                assert record != null;
+                final ArrayDeque<Http2SessionOutputSink.OutputQueueRecord> streamQueue =
+                        streamQueues.get(streamId);
+                final Http2SessionOutputSink.OutputQueueRecord record =
+                        streamQueue.peek();
 
                 final int serializedBytes = record.serializeTo(
                         tmpFramesList,
@@ -249,8 +483,15 @@ public class Http2SessionOutputSink {
                     if (record.isZeroSizeData()) {
                         queueSizeToFree++;
                     }
+                    streamQueue.poll();
+                }
+
+                if (streamQueue.isEmpty()) {
+                    streamQueues.remove(streamId);
+                    scheduler.remove(streamId);
                 } else {
-                    outputQueue.setCurrentElement(record);
+                    scheduler.written(streamId, serializedBytes,
+                            record.stream.getStreamPriority());
                 }
 
                 final CompletionHandler<WriteResult> recordCompletionHandler =
@@ -303,7 +544,12 @@ public class Http2SessionOutputSink {
             // we don't want this thread to write all the time - so give more
             // time for another thread to start writing
             LockSupport.parkNanos(backoffDelay++);
-            tmpcnt++;
+        }
+
+        if (isClosed) {
+            // the session might have been closed while this thread was
+            // holding the writer lock
+            failScheduledRecords();
         }
 
         if (needToNotify) {
@@ -311,12 +557,72 @@ public class Http2SessionOutputSink {
         }
     }
 
+    private void schedule(final Http2SessionOutputSink.OutputQueueRecord record) {
+        final int streamId = record.stream.getId();
+
+        ArrayDeque<Http2SessionOutputSink.OutputQueueRecord> streamQueue =
+                streamQueues.get(streamId);
+        if (streamQueue == null) {
+            streamQueue = new ArrayDeque<>(2);
+            streamQueues.put(streamId, streamQueue);
+            scheduler.add(streamId, record.stream.getStreamPriority());
+        }
+
+        streamQueue.offer(record);
+    }
+
+    private void failScheduledRecords() {
+        if (!writerLock.compareAndSet(false, true)) {
+            // the writer will fail the records once it sees the session closed
+            return;
+        }
+
+        try {
+            if (streamQueues.isEmpty()) {
+                return;
+            }
+
+            final IOException error = new IOException("Connection closed");
+            for (Map.Entry<Integer, ArrayDeque<OutputQueueRecord>> entry
+                    : streamQueues.entrySet()) {
+                scheduler.remove(entry.getKey());
+                for (OutputQueueRecord record : entry.getValue()) {
+                    record.notifyFailure(error);
+                }
+            }
+
+            streamQueues.clear();
+        } finally {
+            writerLock.set(false);
+        }
+    }
+
     public void close() {
+        isClosed = true;
         outputQueue.onClose();
+        failScheduledRecords();
+    }
+
+    @SuppressWarnings("rawtypes")
+    private static final class PendingWrite {
+        private final Object message;
+        private final CompletionHandler<WriteResult> completionHandler;
+        private final MessageCloner<Buffer> messageCloner;
+
+        private PendingWrite(final Object message,
+                final CompletionHandler<WriteResult> completionHandler,
+                final MessageCloner<Buffer> messageCloner) {
+            this.message = message;
+            this.completionHandler = completionHandler;
+            this.messageCloner = messageCloner;
+        }
     }
 
     private static class OutputQueueRecord extends AsyncQueueRecord<WriteResult> {
+        private final Http2Stream stream;
         private final int streamId;
+        private final long queuedNanos;
+        private boolean isScheduled;
 
         private ChunkedCompletionHandler chunkedCompletionHandler;
         private final CompletionHandler<WriteResult> originalCompletionHandler;
@@ -325,13 +631,15 @@ public class Http2SessionOutputSink {
 
         private final boolean isZeroSizeData;
 
-        public OutputQueueRecord(final int streamId,
+        public OutputQueueRecord(final Http2Stream stream,
                                  final Buffer buffer,
                                  final CompletionHandler<WriteResult> completionHandler,
                                  final boolean isLast) {
             super(null, null, null);
 
-            this.streamId = streamId;
+            this.stream = stream;
+            this.streamId = stream.getId();
+            this.queuedNanos = System.nanoTime();
             this.buffer = buffer;
             this.isZeroSizeData = !buffer.hasRemaining();
             this.originalCompletionHandler = completionHandler;
@@ -372,6 +680,11 @@ public class Http2SessionOutputSink {
         private int serializeTo(final List<Http2Frame> frames,
                                 final int maxDataSize) {
 
+            if (!isScheduled) {
+                isScheduled = true;
+                stream.onDataScheduled(queuedNanos, System.nanoTime());
+            }
+
             final int recordSize = buffer.remaining();
 
             if (recordSize <= maxDataSize) {
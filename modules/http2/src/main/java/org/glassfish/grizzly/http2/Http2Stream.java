@@ -19,6 +19,7 @@ package org.glassfish.grizzly.http2;
 import java.io.IOException;
 import java.util.Queue;
 import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.TimeUnit;
 import java.util.concurrent.atomic.AtomicIntegerFieldUpdater;
 import java.util.concurrent.atomic.AtomicReferenceFieldUpdater;
 import java.util.logging.Level;
@@ -130,6 +131,15 @@ public class Http2Stream implements AttributeStorage, OutputSink, Closeable {
     
     // the counter for inbound HeaderFrames
     private int inboundHeaderFramesCounter;
+
+    private volatile StreamPriority streamPriority;
+
+    // the output scheduling statistics, updated by the Http2SessionOutputSink
+    // writer
+    private final long createTimeNanos = System.nanoTime();
+    private volatile long firstDataFrameLatencyNanos = -1;
+    private volatile long outputQueueWaitNanos;
+    private volatile long maxOutputQueueWaitNanos;
     
     public static Http2Stream getStreamFor(final HttpHeader httpHeader) {
         final HttpRequestPacket request;
@@ -171,6 +181,11 @@ public class Http2Stream implements AttributeStorage, OutputSink, Closeable {
         this.exclusive = exclusive;
         this.priority = priority;
         this.state = State.IDLE;
+        // the pushed streams depend on their associated streams
+        this.streamPriority = parentStreamId != 0
+                ? StreamPriority.DEFAULT.withDependency(parentStreamId,
+                        exclusive, StreamPriority.DEFAULT_WEIGHT)
+                : StreamPriority.DEFAULT;
 
         inputBuffer = new DefaultInputBuffer(this);
         outputSink = new DefaultOutputSink(this);
@@ -193,6 +208,7 @@ public class Http2Stream implements AttributeStorage, OutputSink, Closeable {
         this.streamId = UPGRADE_STREAM_ID;
         this.parentStreamId = 0;
         this.priority = priority;
+        this.streamPriority = StreamPriority.DEFAULT;
 
         this.exclusive = false;
         inputBuffer = http2Session.isServer()
@@ -252,6 +268,65 @@ public class Http2Stream implements AttributeStorage, OutputSink, Closeable {
         return priority;
     }
 
+    /**
+     * @return the {@link StreamPriority} used to schedule this stream's
+     *          DATA frames
+     */
+    public StreamPriority getStreamPriority() {
+        return streamPriority;
+    }
+
+    void setStreamPriority(final StreamPriority streamPriority) {
+        this.streamPriority = streamPriority;
+    }
+
+    /**
+     * @param timeUnit the {@link TimeUnit} of the result
+     * @return the time between this stream creation and the moment its first
+     *          DATA frame was scheduled by the {@link Http2Session} output
+     *          sink, or <tt>-1</tt> if no DATA has been scheduled yet
+     */
+    public long getFirstDataFrameLatency(final TimeUnit timeUnit) {
+        final long latency = firstDataFrameLatencyNanos;
+        return latency != -1
+                ? timeUnit.convert(latency, TimeUnit.NANOSECONDS)
+                : -1;
+    }
+
+    /**
+     * @param timeUnit the {@link TimeUnit} of the result
+     * @return the total time this stream's data spent in the
+     *          {@link Http2Session} output queue waiting to be scheduled
+     */
+    public long getOutputQueueWaitTime(final TimeUnit timeUnit) {
+        return timeUnit.convert(outputQueueWaitNanos, TimeUnit.NANOSECONDS);
+    }
+
+    /**
+     * @param timeUnit the {@link TimeUnit} of the result
+     * @return the longest time a single write of this stream spent in the
+     *          {@link Http2Session} output queue waiting to be scheduled
+     */
+    public long getMaxOutputQueueWaitTime(final TimeUnit timeUnit) {
+        return timeUnit.convert(maxOutputQueueWaitNanos, TimeUnit.NANOSECONDS);
+    }
+
+    /**
+     * Called by the {@link Http2SessionOutputSink} writer, when the first
+     * DATA frame of a queued write is scheduled.
+     */
+    void onDataScheduled(final long queuedNanos, final long nowNanos) {
+        final long wait = nowNanos - queuedNanos;
+
+        outputQueueWaitNanos = outputQueueWaitNanos + wait;
+        if (wait > maxOutputQueueWaitNanos) {
+            maxOutputQueueWaitNanos = wait;
+        }
+        if (firstDataFrameLatencyNanos == -1) {
+            firstDataFrameLatencyNanos = nowNanos - createTimeNanos;
+        }
+    }
+
     public boolean isPushStream() {
         return (streamId & 1) == 0;
     }
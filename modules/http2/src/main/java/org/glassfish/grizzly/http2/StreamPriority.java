@@ -0,0 +1,189 @@
+/*
+ * Copyright (c) 2017 Oracle and/or its affiliates. All rights reserved.
+ *
+ * This program and the accompanying materials are made available under the
+ * terms of the Eclipse Public License v. 2.0, which is available at
+ * http://www.eclipse.org/legal/epl-2.0.
+ *
+ * This Source Code may also be made available under the following Secondary
+ * Licenses when the conditions for such availability set forth in the
+ * Eclipse Public License v. 2.0 are satisfied: GNU General Public License,
+ * version 2 with the GNU Classpath Exception, which is available at
+ * https://www.gnu.org/software/classpath/license.html.
+ *
+ * SPDX-License-Identifier: EPL-2.0 OR GPL-2.0 WITH Classpath-exception-2.0
+ */
+
+
+package org.glassfish.grizzly.http2;
+
+/**
+ * Immutable scheduling priority of a {@link Http2Stream}.
+ *
+ * The priority combines the RFC 7540 stream dependency and weight, which
+ * are signaled by HEADERS and PRIORITY frames, with the RFC 9218 extensible
+ * priority urgency and incremental parameters, which are signaled by the
+ * <tt>priority</tt> request header.
+ *
+ * The streams, whose peer didn't use the extensible priorities, are
+ * scheduled as incremental with the default urgency, so they share the
+ * connection according to their weights.
+ *
+ * @see StreamScheduler
+ * @since 2.4.4
+ */
+public final class StreamPriority {
+    public static final int DEFAULT_WEIGHT = 16;
+    public static final int MAX_WEIGHT = 256;
+    public static final int DEFAULT_URGENCY = 3;
+    public static final int MAX_URGENCY = 7;
+
+    public static final String PRIORITY_HEADER = "priority";
+
+    /**
+     * The priority of a stream without any priority signals.
+     */
+    public static final StreamPriority DEFAULT = new StreamPriority(
+            0, false, DEFAULT_WEIGHT, DEFAULT_URGENCY, true);
+
+    private final int streamDependency;
+    private final boolean exclusive;
+    private final int weight;
+    private final int urgency;
+    private final boolean incremental;
+
+    private StreamPriority(final int streamDependency, final boolean exclusive,
+            final int weight, final int urgency, final boolean incremental) {
+        this.streamDependency = streamDependency;
+        this.exclusive = exclusive;
+        this.weight = weight;
+        this.urgency = urgency;
+        this.incremental = incremental;
+    }
+
+    /**
+     * @return the ID of the stream this stream depends on, <tt>0</tt> if
+     *          the stream doesn't depend on any other stream
+     */
+    public int getStreamDependency() {
+        return streamDependency;
+    }
+
+    /**
+     * @return <tt>true</tt> if the dependency is exclusive
+     */
+    public boolean isExclusive() {
+        return exclusive;
+    }
+
+    /**
+     * @return the stream weight in [1; 256] range
+     */
+    public int getWeight() {
+        return weight;
+    }
+
+    /**
+     * @return the stream urgency in [0; 7] range, the lower value means the
+     *          higher urgency
+     */
+    public int getUrgency() {
+        return urgency;
+    }
+
+    /**
+     * @return <tt>true</tt> if the stream data might be interleaved with the
+     *          other streams of the same urgency, or <tt>false</tt> if the
+     *          stream has to be served after the earlier streams of the same
+     *          urgency are complete
+     */
+    public boolean isIncremental() {
+        return incremental;
+    }
+
+    /**
+     * Returns the priority with the RFC 7540 dependency and weight replaced.
+     *
+     * @param streamDependency the ID of the stream this stream depends on
+     * @param exclusive <tt>true</tt> if the dependency is exclusive
+     * @param weight the weight in [1; 256] range
+     *
+     * @return the {@link StreamPriority}
+     */
+    public StreamPriority withDependency(final int streamDependency,
+            final boolean exclusive, final int weight) {
+        if (weight < 1 || weight > MAX_WEIGHT) {
+            throw new IllegalArgumentException("Invalid weight: " + weight);
+        }
+
+        return new StreamPriority(streamDependency, exclusive, weight,
+                urgency, incremental);
+    }
+
+    /**
+     * Returns the priority with the RFC 9218 urgency and incremental
+     * parameters replaced.
+     *
+     * @param urgency the urgency in [0; 7] range
+     * @param incremental the incremental flag
+     *
+     * @return the {@link StreamPriority}
+     */
+    public StreamPriority withUrgency(final int urgency,
+            final boolean incremental) {
+        if (urgency < 0 || urgency > MAX_URGENCY) {
+            throw new IllegalArgumentException("Invalid urgency: " + urgency);
+        }
+
+        return new StreamPriority(streamDependency, exclusive, weight,
+                urgency, incremental);
+    }
+
+    /**
+     * Returns the priority with the urgency and incremental parameters
+     * taken from the RFC 9218 <tt>priority</tt> header value, for example
+     * <tt>u=1, i</tt>. The header members, which are missing, get
+     * their default values (<tt>u=3</tt> and non-incremental), the unknown
+     * and malformed members are ignored.
+     *
+     * @param value the <tt>priority</tt> header value
+     *
+     * @return the {@link StreamPriority}
+     */
+    public StreamPriority withPriorityHeader(final String value) {
+        int u = DEFAULT_URGENCY;
+        boolean i = false;
+
+        for (String member : value.split(",")) {
+            // the member parameters aren't used
+            final int paramsIdx = member.indexOf(';');
+            if (paramsIdx != -1) {
+                member = member.substring(0, paramsIdx);
+            }
+            member = member.trim();
+
+            if ("i".equals(member) || "i=?1".equals(member)) {
+                i = true;
+            } else if ("i=?0".equals(member)) {
+                i = false;
+            } else if (member.length() == 3 && member.startsWith("u=")) {
+                final int digit = member.charAt(2) - '0';
+                if (digit >= 0 && digit <= MAX_URGENCY) {
+                    u = digit;
+                }
+            }
+        }
+
+        return withUrgency(u, i);
+    }
+
+    @Override
+    public String toString() {
+        return "StreamPriority{" + "streamDependency=" + streamDependency
+                + ", exclusive=" + exclusive
+                + ", weight=" + weight
+                + ", urgency=" + urgency
+                + ", incremental=" + incremental
+                + '}';
+    }
+}
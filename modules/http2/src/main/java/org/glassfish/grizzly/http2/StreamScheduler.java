@@ -0,0 +1,88 @@
+/*
+ * Copyright (c) 2017 Oracle and/or its affiliates. All rights reserved.
+ *
+ * This program and the accompanying materials are made available under the
+ * terms of the Eclipse Public License v. 2.0, which is available at
+ * http://www.eclipse.org/legal/epl-2.0.
+ *
+ * This Source Code may also be made available under the following Secondary
+ * Licenses when the conditions for such availability set forth in the
+ * Eclipse Public License v. 2.0 are satisfied: GNU General Public License,
+ * version 2 with the GNU Classpath Exception, which is available at
+ * https://www.gnu.org/software/classpath/license.html.
+ *
+ * SPDX-License-Identifier: EPL-2.0 OR GPL-2.0 WITH Classpath-exception-2.0
+ */
+
+
+package org.glassfish.grizzly.http2;
+
+/**
+ * Decides which {@link Http2Stream}'s DATA frame is written next by the
+ * {@link Http2SessionOutputSink}.
+ *
+ * The scheduler tracks the active streams, i.e. the streams, which have DATA
+ * queued in the session output sink. The data passed to the session output
+ * sink already fits the stream flow-control window, so the scheduler is only
+ * asked for the next stream while the connection flow-control window
+ * is open, and every scheduling decision is followed by a DATA frame of at
+ * most max frame size bytes.
+ *
+ * The methods are called by one thread at a time (the one, which holds
+ * the session output sink writer lock), so the implementations don't have
+ * to be thread-safe.
+ *
+ * @see WeightedFairStreamScheduler
+ * @see FifoStreamScheduler
+ * @since 2.4.4
+ */
+public abstract class StreamScheduler {
+
+    /**
+     * Adds the stream to the active streams.
+     *
+     * @param streamId the stream ID
+     * @param priority the stream {@link StreamPriority}
+     */
+    protected abstract void add(int streamId, StreamPriority priority);
+
+    /**
+     * Returns the active stream, whose data has to be written next.
+     * The stream remains active, its data will be reported by
+     * {@link #written(int, int, StreamPriority)} or {@link #remove(int)}.
+     *
+     * @return the stream ID or <tt>0</tt> if there are no active streams
+     */
+    protected abstract int next();
+
+    /**
+     * Notifies the scheduler that the data of the stream, returned by
+     * {@link #next()}, has been written and the stream has more data to write.
+     *
+     * @param streamId the stream ID
+     * @param bytes the number of the written bytes
+     * @param priority the current stream {@link StreamPriority}, which might
+     *          be changed by the peer since the stream has been added
+     */
+    protected abstract void written(int streamId, int bytes,
+            StreamPriority priority);
+
+    /**
+     * Removes the stream from the active streams, because all its data has
+     * been written or the session is closed.
+     *
+     * @param streamId the stream ID
+     */
+    protected abstract void remove(int streamId);
+
+    /**
+     * Creates the {@link StreamScheduler} for each {@link Http2Session}.
+     */
+    public interface Factory {
+        /**
+         * @param http2Session the {@link Http2Session}
+         * @return the {@link StreamScheduler} for the session
+         */
+        StreamScheduler createStreamScheduler(Http2Session http2Session);
+    }
+}
@@ -0,0 +1,200 @@
+/*
+ * Copyright (c) 2017 Oracle and/or its affiliates. All rights reserved.
+ *
+ * This program and the accompanying materials are made available under the
+ * terms of the Eclipse Public License v. 2.0, which is available at
+ * http://www.eclipse.org/legal/epl-2.0.
+ *
+ * This Source Code may also be made available under the following Secondary
+ * Licenses when the conditions for such availability set forth in the
+ * Eclipse Public License v. 2.0 are satisfied: GNU General Public License,
+ * version 2 with the GNU Classpath Exception, which is available at
+ * https://www.gnu.org/software/classpath/license.html.
+ *
+ * SPDX-License-Identifier: EPL-2.0 OR GPL-2.0 WITH Classpath-exception-2.0
+ */
+
+
+package org.glassfish.grizzly.http2;
+
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.TreeSet;
+
+/**
+ * {@link StreamScheduler}, which shares the connection between the active
+ * streams according to their {@link StreamPriority}:
+ * <ul>
+ *     <li>the streams of a lower urgency value are served first;</li>
+ *     <li>among the streams of the same urgency, the non-incremental streams
+ *     are served one by one in the stream ID order, before the incremental
+ *     ones;</li>
+ *     <li>the incremental streams of the same urgency share the connection
+ *     proportionally to their weights (stride scheduling: each written byte
+ *     advances the stream's virtual time by <tt>256 / weight</tt> and
+ *     the stream with the smallest virtual time is served next);</li>
+ *     <li>a stream isn't served while a stream it depends on (directly or
+ *     transitively) is active.</li>
+ * </ul>
+ *
+ * The exclusive dependency flag doesn't restructure the dependency tree, the
+ * stream dependencies are followed up to {@value #MAX_DEPENDENCY_DEPTH}
+ * levels. If all the active streams are blocked by their dependencies (which
+ * is possible if the peer created a dependency cycle), the first active
+ * stream is served, so the output never stalls.
+ *
+ * @since 2.4.4
+ */
+public class WeightedFairStreamScheduler extends StreamScheduler {
+
+    public static final StreamScheduler.Factory FACTORY =
+            new StreamScheduler.Factory() {
+        @Override
+        public StreamScheduler createStreamScheduler(
+                final Http2Session http2Session) {
+            return new WeightedFairStreamScheduler(http2Session);
+        }
+    };
+
+    static final int MAX_DEPENDENCY_DEPTH = 16;
+
+    private static final Comparator<Entry> ORDER = new Comparator<Entry>() {
+        @Override
+        public int compare(final Entry e1, final Entry e2) {
+            final StreamPriority p1 = e1.priority;
+            final StreamPriority p2 = e2.priority;
+
+            if (p1.getUrgency() != p2.getUrgency()) {
+                return p1.getUrgency() < p2.getUrgency() ? -1 : 1;
+            }
+            if (p1.isIncremental() != p2.isIncremental()) {
+                return p1.isIncremental() ? 1 : -1;
+            }
+            if (p1.isIncremental() && e1.pass != e2.pass) {
+                return e1.pass < e2.pass ? -1 : 1;
+            }
+
+            return Integer.compare(e1.streamId, e2.streamId);
+        }
+    };
+
+    private final Http2Session http2Session;
+
+    private final Map<Integer, Entry> activeStreams = new HashMap<>();
+    private final TreeSet<Entry> order = new TreeSet<>(ORDER);
+
+    // the virtual time of the last served incremental stream
+    private long virtualTime;
+
+    /**
+     * @param http2Session the {@link Http2Session} used to look up the
+     *          priorities of the inactive streams, might be <tt>null</tt>
+     */
+    public WeightedFairStreamScheduler(final Http2Session http2Session) {
+        this.http2Session = http2Session;
+    }
+
+    @Override
+    protected void add(final int streamId, final StreamPriority priority) {
+        // the stream gets no credit for the time it was inactive
+        final Entry entry = new Entry(streamId, priority, virtualTime);
+        activeStreams.put(streamId, entry);
+        order.add(entry);
+    }
+
+    @Override
+    protected int next() {
+        if (order.isEmpty()) {
+            return 0;
+        }
+
+        for (Entry entry : order) {
+            if (!isBlocked(entry)) {
+                return select(entry);
+            }
+        }
+
+        return select(order.first());
+    }
+
+    @Override
+    protected void written(final int streamId, final int bytes,
+            final StreamPriority priority) {
+        final Entry entry = activeStreams.get(streamId);
+        if (entry == null) {
+            return;
+        }
+
+        order.remove(entry);
+        entry.pass += ((long) bytes << 8) / entry.priority.getWeight();
+        entry.priority = priority;
+        order.add(entry);
+    }
+
+    @Override
+    protected void remove(final int streamId) {
+        final Entry entry = activeStreams.remove(streamId);
+        if (entry != null) {
+            order.remove(entry);
+        }
+    }
+
+    /**
+     * Returns the priority of the stream, which is not active. The method is
+     * used to follow the dependencies through the inactive streams.
+     *
+     * @param streamId the stream ID
+     * @return the {@link StreamPriority}, or <tt>null</tt> if the stream
+     *          is unknown
+     */
+    protected StreamPriority getPriority(final int streamId) {
+        if (http2Session == null) {
+            return null;
+        }
+
+        final Http2Stream stream = http2Session.getStream(streamId);
+        return stream != null ? stream.getStreamPriority() : null;
+    }
+
+    private boolean isBlocked(final Entry entry) {
+        int dependency = entry.priority.getStreamDependency();
+
+        for (int i = 0; dependency != 0 && i < MAX_DEPENDENCY_DEPTH; i++) {
+            final Entry parent = activeStreams.get(dependency);
+            if (parent != null) {
+                return parent != entry;
+            }
+
+            final StreamPriority priority = getPriority(dependency);
+            if (priority == null) {
+                return false;
+            }
+
+            dependency = priority.getStreamDependency();
+        }
+
+        return false;
+    }
+
+    private int select(final Entry entry) {
+        if (entry.priority.isIncremental() && entry.pass > virtualTime) {
+            virtualTime = entry.pass;
+        }
+
+        return entry.streamId;
+    }
+
+    private static final class Entry {
+        private final int streamId;
+        private StreamPriority priority;
+        private long pass;
+
+        private Entry(final int streamId, final StreamPriority priority,
+                final long pass) {
+            this.streamId = streamId;
+            this.priority = priority;
+            this.pass = pass;
+        }
+    }
+}
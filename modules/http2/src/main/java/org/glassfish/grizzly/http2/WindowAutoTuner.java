@@ -0,0 +1,141 @@
+/*
+ * Copyright (c) 2017 Oracle and/or its affiliates. All rights reserved.
+ *
+ * This program and the accompanying materials are made available under the
+ * terms of the Eclipse Public License v. 2.0, which is available at
+ * http://www.eclipse.org/legal/epl-2.0.
+ *
+ * This Source Code may also be made available under the following Secondary
+ * Licenses when the conditions for such availability set forth in the
+ * Eclipse Public License v. 2.0 are satisfied: GNU General Public License,
+ * version 2 with the GNU Classpath Exception, which is available at
+ * https://www.gnu.org/software/classpath/license.html.
+ *
+ * SPDX-License-Identifier: EPL-2.0 OR GPL-2.0 WITH Classpath-exception-2.0
+ */
+
+
+package org.glassfish.grizzly.http2;
+
+/**
+ * Estimates the bandwidth-delay product (BDP) of a {@link Http2Session}
+ * and calculates the local flow-control window size, which doesn't limit the
+ * session throughput.
+ *
+ * When a DATA frame is received and there is no estimation in progress,
+ * a PING is sent and the DATA received until the PING ACK arrives is
+ * counted. The amount is the number of bytes the peer managed to send
+ * during one round trip. If it's close to the current window, the window
+ * limits the throughput, so it grows to twice the sample size (up to the
+ * max window size), unless the bandwidth is lower than the best bandwidth
+ * seen so far, which means the round trip time got longer because of the
+ * buffering, not the window. If the samples stay much smaller than the
+ * window, the window shrinks by half, but not below the initial
+ * window size.
+ *
+ * The tuner is used by the thread, which processes the session input,
+ * so it isn't thread-safe.
+ *
+ * @since 2.4.4
+ */
+final class WindowAutoTuner {
+    // the payload, which identifies the BDP estimation PINGs
+    static final long PING_PAYLOAD = 0x4244505F50494E47L;
+
+    // the number of consecutive small samples, which make the window shrink
+    static final int SHRINK_SAMPLES = 4;
+
+    private final int minWindowSize;
+    private final int maxWindowSize;
+
+    private int windowSize;
+
+    private boolean isSampling;
+    private long sampleStartNanos;
+    private long sampleBytes;
+
+    // the best bandwidth seen so far, bytes per nanosecond
+    private double maxBandwidth;
+    private int smallSamplesCount;
+
+    WindowAutoTuner(final int initialWindowSize, final int maxWindowSize) {
+        this.minWindowSize = initialWindowSize;
+        this.maxWindowSize = Math.max(initialWindowSize, maxWindowSize);
+        this.windowSize = initialWindowSize;
+    }
+
+    int getWindowSize() {
+        return windowSize;
+    }
+
+    /**
+     * Starts a new sample, if there is no sample in progress.
+     *
+     * @return <tt>true</tt> if the sample has been started and the caller
+     *          has to send a PING with the {@link #PING_PAYLOAD}
+     */
+    boolean startSample(final long nowNanos) {
+        if (isSampling) {
+            return false;
+        }
+
+        isSampling = true;
+        sampleStartNanos = nowNanos;
+        sampleBytes = 0;
+
+        return true;
+    }
+
+    void onDataReceived(final int size) {
+        if (isSampling) {
+            sampleBytes += size;
+        }
+    }
+
+    /**
+     * Completes the sample once the PING ACK is received.
+     *
+     * @return the new window size, or <tt>-1</tt> if the window size
+     *          shouldn't be changed
+     */
+    int onPingAck(final long nowNanos) {
+        if (!isSampling) {
+            return -1;
+        }
+
+        isSampling = false;
+
+        final long rtt = Math.max(nowNanos - sampleStartNanos, 1);
+        final long sample = sampleBytes;
+        final double bandwidth = (double) sample / rtt;
+
+        if (sample >= (long) windowSize * 2 / 3) {
+            smallSamplesCount = 0;
+
+            if (bandwidth >= maxBandwidth && windowSize < maxWindowSize) {
+                maxBandwidth = bandwidth;
+                return resize((int) Math.min(sample * 2, maxWindowSize));
+            }
+        } else if (sample < windowSize / 8 && windowSize > minWindowSize) {
+            if (++smallSamplesCount >= SHRINK_SAMPLES) {
+                smallSamplesCount = 0;
+                // the conditions have changed, forget the previous best
+                maxBandwidth = bandwidth;
+                return resize(Math.max(windowSize / 2, minWindowSize));
+            }
+        } else {
+            smallSamplesCount = 0;
+        }
+
+        return -1;
+    }
+
+    private int resize(final int newWindowSize) {
+        if (newWindowSize == windowSize) {
+            return -1;
+        }
+
+        windowSize = newWindowSize;
+        return newWindowSize;
+    }
+}
@@ -193,18 +193,44 @@ public class Encoder {
         } else if (index < 0) {
             if (sensitive) {
                 literalNeverIndexed(-index, value, DEFAULT_HUFFMAN);
+            } else if (isIndexable(name, value)) {
+                literalWithIndexing(-index, value, DEFAULT_HUFFMAN);
             } else {
                 literal(-index, value, DEFAULT_HUFFMAN);
             }
         } else {
             if (sensitive) {
                 literalNeverIndexed(name, DEFAULT_HUFFMAN, value, DEFAULT_HUFFMAN);
+            } else if (isIndexable(name, value)) {
+                literalWithIndexing(name, DEFAULT_HUFFMAN, value, DEFAULT_HUFFMAN);
             } else {
                 literal(name, DEFAULT_HUFFMAN, value, DEFAULT_HUFFMAN);
             }
         }
     }
 
+    /**
+     * Decides whether the header, which has no exact match in the header
+     * table, has to be added to the dynamic table, so the following header
+     * blocks could refer to it by index.
+     *
+     * <p> The default implementation doesn't use the dynamic table and always
+     * returns {@code false}.
+     *
+     * @param name
+     *         the name
+     * @param value
+     *         the value
+     *
+     * @return {@code true} if the header has to be encoded as a literal with
+     *         incremental indexing, {@code false} otherwise
+     * @see IndexingEncoder
+     */
+    @SuppressWarnings("UnusedParameters")
+    protected boolean isIndexable(CharSequence name, CharSequence value) {
+        return false;
+    }
+
     /**
      * Sets a maximum capacity of the header table.
      *
@@ -368,7 +394,6 @@ public class Encoder {
                 .name(name, nameHuffman).value(value, valueHuffman);
     }
 
-    @SuppressWarnings("unused")
     protected final void literalWithIndexing(int index,
                                              CharSequence value,
                                              boolean valueHuffman)
@@ -379,7 +404,6 @@ public class Encoder {
                 .index(index).value(value, valueHuffman);
     }
 
-    @SuppressWarnings("unused")
     protected final void literalWithIndexing(CharSequence name,
                                              boolean nameHuffman,
                                              CharSequence value,
@@ -403,7 +427,6 @@ public class Encoder {
         writer = sizeUpdateWriter.maxHeaderTableSize(capacity);
     }
 
-    @SuppressWarnings("unused")
     protected final int getMaxCapacity() {
         return maxCapacity;
     }
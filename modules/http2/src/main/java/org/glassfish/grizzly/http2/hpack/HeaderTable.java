@@ -17,7 +17,6 @@
 package org.glassfish.grizzly.http2.hpack;
 
 import java.util.HashMap;
-import java.util.LinkedHashMap;
 import java.util.Map;
 import java.util.NoSuchElementException;
 
@@ -99,18 +98,24 @@ final class HeaderTable {
 
     private static final int STATIC_TABLE_LENGTH = staticTable.length - 1;
     private static final int ENTRY_SIZE = 32;
-    private static final Map<String, LinkedHashMap<String, Integer>> staticIndexes;
+    private static final Map<String, Map<String, Integer>> staticIndexes;
+    // name -> the lowest index of an entry with this name
+    private static final Map<String, Integer> staticNameIndexes;
 
     static {
         staticIndexes = new HashMap<>(STATIC_TABLE_LENGTH);
+        staticNameIndexes = new HashMap<>(STATIC_TABLE_LENGTH);
         for (int i = 1; i <= STATIC_TABLE_LENGTH; i++) {
             HeaderField f = staticTable[i];
-            LinkedHashMap<String,Integer> values = staticIndexes.get(f.name);
+            Map<String, Integer> values = staticIndexes.get(f.name);
             if (values == null) {
-                values = new LinkedHashMap<>();
+                values = new HashMap<>(4);
+                staticIndexes.put(f.name, values);
+                staticNameIndexes.put(f.name, i);
+            }
+            if (!values.containsKey(f.value)) {
                 values.put(f.value, i);
             }
-            staticIndexes.put(f.name, values);
         }
     }
 
@@ -156,21 +161,14 @@ final class HeaderTable {
         int didx = dynamicTable.indexOf(n, v);
         if (didx > 0) {
             return STATIC_TABLE_LENGTH + didx;
+        } else if (values != null) {
+            // 3. Return name match from the static region
+            return -staticNameIndexes.get(n);
         } else if (didx < 0) {
-            if (values != null) {
-                // 3. Return name match from the static region
-                return -values.values().iterator().next(); // Iterator allocation
-            } else {
-                // 4. Return name match from the dynamic region
-                return -STATIC_TABLE_LENGTH + didx;
-            }
+            // 4. Return name match from the dynamic region
+            return -STATIC_TABLE_LENGTH + didx;
         } else {
-            if (values != null) {
-                // 3. Return name match from the static region
-                return -values.values().iterator().next(); // Iterator allocation
-            } else {
-                return 0;
-            }
+            return 0;
         }
     }
 
@@ -178,7 +176,6 @@ final class HeaderTable {
         return size;
     }
 
-    @SuppressWarnings("unused")
     public int maxSize() {
         return maxSize;
     }
@@ -360,6 +357,14 @@ final class HeaderTable {
     // Which is the same as its index in the queue now. Given, of course, it's
     // still in the queue.
     //
+    // The same (name, value) pair might be added to the queue several times,
+    // so the map keeps the counter value of the most recently added one. When
+    // the oldest element is evicted, its counter value is known as well
+    // (counter - size), so its mapping is removed only if it wasn't
+    // overwritten by a newer duplicate. The same is done for the name-only
+    // mapping, which is kept along with the values of the name, so both exact
+    // and name matches are found by a single hash lookup of the name.
+    //
     // I'm pretty sure in a real life long overflow will never happen, so it's
     // not too practical to add recalibrating code, but a pedantic person might
     // want to do so:
@@ -377,7 +382,7 @@ final class HeaderTable {
     //
     private static final class Table {
 
-        private final Map<String, Map<String, Long>> map;
+        private final Map<String, NameIndex> map;
         private final CircularBuffer<HeaderField> buffer;
         private long counter = 1;
 
@@ -388,12 +393,14 @@ final class HeaderTable {
 
         void add(HeaderField f) {
             buffer.add(f);
-            Map<String, Long> values = map.get(f.name);
-            if (values == null) {
-                values = new HashMap<>();
-                values.put(f.value, counter++);
+            NameIndex nameIndex = map.get(f.name);
+            if (nameIndex == null) {
+                nameIndex = new NameIndex();
+                map.put(f.name, nameIndex);
             }
-            map.put(f.name, values);
+            final long c = counter++;
+            nameIndex.counter = c;
+            nameIndex.values.put(f.value, c);
         }
 
         HeaderField get(int index) {
@@ -401,26 +408,33 @@ final class HeaderTable {
         }
 
         int indexOf(String name, String value) {
-            Map<String, Long> values = map.get(name);
-            if (values == null) {
+            NameIndex nameIndex = map.get(name);
+            if (nameIndex == null) {
                 return 0;
             }
-            Long index = values.get(value);
+            Long index = nameIndex.values.get(value);
             if (index != null) {
                 return (int) (counter - index);
             } else {
-                assert !values.isEmpty();
-                Long any = values.values().iterator().next(); // Iterator allocation
-                return -(int) (counter - any);
+                return -(int) (counter - nameIndex.counter);
             }
         }
 
         HeaderField remove() {
+            // the counter value the oldest element had been added with
+            final long c = counter - buffer.size;
             HeaderField f = buffer.remove();
-            Map<String, Long> values = map.get(f.name);
-            Long index = values.remove(f.value);
+            NameIndex nameIndex = map.get(f.name);
+            assert nameIndex != null;
+            Long index = nameIndex.values.get(f.value);
             assert index != null;
-            if (values.isEmpty()) {
+            if (index == c) {
+                // not overwritten by a newer duplicate
+                nameIndex.values.remove(f.value);
+            }
+            if (nameIndex.counter == c) {
+                // it was the only element with this name
+                assert nameIndex.values.isEmpty();
                 map.remove(f.name);
             }
             return f;
@@ -433,6 +447,14 @@ final class HeaderTable {
         public void setCapacity(int capacity) {
             buffer.resize(capacity);
         }
+
+        // the values added with the same name
+        private static final class NameIndex {
+            // the counter value the most recent element with the name had
+            // been added with
+            long counter;
+            final Map<String, Long> values = new HashMap<>(4);
+        }
     }
 
     //                    head
@@ -0,0 +1,93 @@
+/*
+ * Copyright (c) 2017 Oracle and/or its affiliates. All rights reserved.
+ *
+ * This program and the accompanying materials are made available under the
+ * terms of the Eclipse Public License v. 2.0, which is available at
+ * http://www.eclipse.org/legal/epl-2.0.
+ *
+ * This Source Code may also be made available under the following Secondary
+ * Licenses when the conditions for such availability set forth in the
+ * Eclipse Public License v. 2.0 are satisfied: GNU General Public License,
+ * version 2 with the GNU Classpath Exception, which is available at
+ * https://www.gnu.org/software/classpath/license.html.
+ *
+ * SPDX-License-Identifier: EPL-2.0 OR GPL-2.0 WITH Classpath-exception-2.0
+ */
+
+package org.glassfish.grizzly.http2.hpack;
+
+import java.util.Arrays;
+import java.util.HashSet;
+import java.util.Set;
+
+/**
+ * {@link Encoder}, which uses the dynamic table.
+ *
+ * <p> The headers are looked up in the static and dynamic tables by hash, so
+ * the lookup cost doesn't depend on the table size. A header, which has no
+ * exact match, is added to the dynamic table unless:
+ * <ul>
+ *     <li>its value is likely to be different in every header block
+ *     (e.g. {@code :path}, {@code content-length}, {@code etag}), so indexing
+ *     would only evict more useful entries;</li>
+ *     <li>the entry takes more than 3/4 of the table capacity.</li>
+ * </ul>
+ *
+ * <p> The headers carrying credentials ({@code authorization},
+ * {@code proxy-authorization}, {@code cookie} and {@code set-cookie}) are
+ * always encoded as never-indexed literals, so neither this encoder nor
+ * an intermediary adds them to a dynamic table, where they could be
+ * recovered by a compression-oracle attack (see
+ * <a href="https://tools.ietf.org/html/rfc7541#section-7.1.3">7.1.3. Never-Indexed Literals</a>).
+ *
+ * <p> The encoder uses the entire capacity agreed with the peer, so the
+ * memory used by the dynamic table has to be limited by the
+ * {@link #setMaxCapacity(int)} value.
+ *
+ * @since 2.4.4
+ */
+public class IndexingEncoder extends Encoder {
+
+    private static final int ENTRY_SIZE = 32;
+
+    private static final Set<String> NOT_INDEXED_NAMES = new HashSet<>(
+            Arrays.asList(":path", "age", "content-length", "etag",
+                    "if-modified-since", "if-none-match", "location"));
+
+    private static final Set<String> NEVER_INDEXED_NAMES = new HashSet<>(
+            Arrays.asList("authorization", "proxy-authorization", "cookie",
+                    "set-cookie"));
+
+    /**
+     * Constructs an {@code IndexingEncoder} with the specified maximum
+     * capacity of the header table.
+     *
+     * @param maxCapacity
+     *         a non-negative integer
+     *
+     * @throws IllegalArgumentException
+     *         if maxCapacity is negative
+     */
+    public IndexingEncoder(int maxCapacity) {
+        super(maxCapacity);
+    }
+
+    @Override
+    public void header(CharSequence name, CharSequence value,
+                       boolean sensitive) throws IllegalStateException {
+        super.header(name, value,
+                sensitive || NEVER_INDEXED_NAMES.contains(name.toString()));
+    }
+
+    @Override
+    protected int calculateCapacity(int maxCapacity) {
+        return maxCapacity;
+    }
+
+    @Override
+    protected boolean isIndexable(CharSequence name, CharSequence value) {
+        final int entrySize = name.length() + value.length() + ENTRY_SIZE;
+        return entrySize <= (getMaxCapacity() >> 2) * 3
+                && !NOT_INDEXED_NAMES.contains(name.toString());
+    }
+}
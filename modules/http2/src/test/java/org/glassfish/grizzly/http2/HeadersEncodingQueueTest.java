@@ -0,0 +1,172 @@
+/*
+ * Copyright (c) 2017 Oracle and/or its affiliates. All rights reserved.
+ *
+ * This program and the accompanying materials are made available under the
+ * terms of the Eclipse Public License v. 2.0, which is available at
+ * http://www.eclipse.org/legal/epl-2.0.
+ *
+ * This Source Code may also be made available under the following Secondary
+ * Licenses when the conditions for such availability set forth in the
+ * Eclipse Public License v. 2.0 are satisfied: GNU General Public License,
+ * version 2 with the GNU Classpath Exception, which is available at
+ * https://www.gnu.org/software/classpath/license.html.
+ *
+ * SPDX-License-Identifier: EPL-2.0 OR GPL-2.0 WITH Classpath-exception-2.0
+ */
+
+package org.glassfish.grizzly.http2;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.locks.ReentrantLock;
+import org.junit.Test;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+/**
+ * {@link HeadersEncodingQueue} tests.
+ */
+public class HeadersEncodingQueueTest {
+
+    @Test
+    public void testSubmitFromTask() {
+        final HeadersEncodingQueue queue = new HeadersEncodingQueue(new ReentrantLock());
+        final List<Integer> order = new ArrayList<>();
+
+        queue.submit(new HeadersEncodingQueue.Task() {
+            @Override
+            protected void run() {
+                order.add(1);
+                // the nested task must not be run recursively
+                queue.submit(new RecordingTask(order, 3));
+                order.add(2);
+            }
+        });
+
+        assertEquals(3, order.size());
+        for (int i = 0; i < order.size(); i++) {
+            assertEquals(i + 1, (int) order.get(i));
+        }
+    }
+
+    @Test
+    public void testEncodingLockIsHeldByTask() {
+        final ReentrantLock encodingLock = new ReentrantLock();
+        final HeadersEncodingQueue queue = new HeadersEncodingQueue(encodingLock);
+        final List<Boolean> isHeld = new ArrayList<>();
+
+        queue.submit(new HeadersEncodingQueue.Task() {
+            @Override
+            protected void run() {
+                isHeld.add(encodingLock.isHeldByCurrentThread());
+            }
+        });
+
+        assertEquals(1, isHeld.size());
+        assertTrue(isHeld.get(0));
+        assertTrue(!encodingLock.isLocked());
+    }
+
+    @Test
+    public void testFailedTaskDoesNotStopQueue() {
+        final HeadersEncodingQueue queue = new HeadersEncodingQueue(new ReentrantLock());
+        final List<Integer> order = new ArrayList<>();
+        final AtomicInteger failures = new AtomicInteger();
+
+        queue.submit(new HeadersEncodingQueue.Task() {
+            @Override
+            protected void run() {
+                queue.submit(new RecordingTask(order, 1));
+                throw new IllegalStateException();
+            }
+
+            @Override
+            protected void onFailure(final Throwable t) {
+                failures.incrementAndGet();
+            }
+        });
+
+        assertEquals(1, failures.get());
+        assertEquals(1, order.size());
+    }
+
+    @Test
+    public void testConcurrentSubmit() throws Exception {
+        final int threadsCount = 8;
+        final int tasksPerThread = 10000;
+
+        final HeadersEncodingQueue queue = new HeadersEncodingQueue(new ReentrantLock());
+        // not thread-safe on purpose, the queue has to serialize the tasks
+        final List<Integer> order = new ArrayList<>();
+        final AtomicInteger running = new AtomicInteger();
+        final AtomicInteger overlaps = new AtomicInteger();
+        final CountDownLatch startLatch = new CountDownLatch(1);
+
+        final Thread[] threads = new Thread[threadsCount];
+        for (int i = 0; i < threadsCount; i++) {
+            final int threadIdx = i;
+            threads[i] = new Thread() {
+                @Override
+                public void run() {
+                    try {
+                        startLatch.await();
+                    } catch (InterruptedException e) {
+                        return;
+                    }
+
+                    for (int j = 0; j < tasksPerThread; j++) {
+                        final int value = threadIdx * tasksPerThread + j;
+                        queue.submit(new HeadersEncodingQueue.Task() {
+                            @Override
+                            protected void run() {
+                                if (running.incrementAndGet() != 1) {
+                                    overlaps.incrementAndGet();
+                                }
+                                order.add(value);
+                                running.decrementAndGet();
+                            }
+                        });
+                    }
+                }
+            };
+            threads[i].start();
+        }
+
+        startLatch.countDown();
+        for (Thread thread : threads) {
+            thread.join(30000);
+        }
+
+        assertEquals(0, overlaps.get());
+        assertEquals(threadsCount * tasksPerThread, order.size());
+
+        // the tasks submitted by the same thread have to run in order
+        final int[] lastValues = new int[threadsCount];
+        for (int i = 0; i < threadsCount; i++) {
+            lastValues[i] = i * tasksPerThread - 1;
+        }
+        for (int value : order) {
+            final int threadIdx = value / tasksPerThread;
+            assertTrue(value > lastValues[threadIdx]);
+            lastValues[threadIdx] = value;
+        }
+    }
+
+    private static final class RecordingTask extends HeadersEncodingQueue.Task {
+        private final List<Integer> order;
+        private final int value;
+
+        private RecordingTask(final List<Integer> order, final int value) {
+            this.order = order;
+            this.value = value;
+        }
+
+        @Override
+        protected void run() {
+            order.add(value);
+        }
+    }
+}
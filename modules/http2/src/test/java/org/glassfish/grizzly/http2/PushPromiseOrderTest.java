@@ -0,0 +1,239 @@
+/*
+ * Copyright (c) 2017 Oracle and/or its affiliates. All rights reserved.
+ *
+ * This program and the accompanying materials are made available under the
+ * terms of the Eclipse Public License v. 2.0, which is available at
+ * http://www.eclipse.org/legal/epl-2.0.
+ *
+ * This Source Code may also be made available under the following Secondary
+ * Licenses when the conditions for such availability set forth in the
+ * Eclipse Public License v. 2.0 are satisfied: GNU General Public License,
+ * version 2 with the GNU Classpath Exception, which is available at
+ * https://www.gnu.org/software/classpath/license.html.
+ *
+ * SPDX-License-Identifier: EPL-2.0 OR GPL-2.0 WITH Classpath-exception-2.0
+ */
+
+
+package org.glassfish.grizzly.http2;
+
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+
+import org.glassfish.grizzly.Buffer;
+import org.glassfish.grizzly.Connection;
+import org.glassfish.grizzly.SocketConnectorHandler;
+import org.glassfish.grizzly.filterchain.BaseFilter;
+import org.glassfish.grizzly.filterchain.FilterChain;
+import org.glassfish.grizzly.filterchain.FilterChainBuilder;
+import org.glassfish.grizzly.filterchain.FilterChainContext;
+import org.glassfish.grizzly.filterchain.NextAction;
+import org.glassfish.grizzly.filterchain.TransportFilter;
+import org.glassfish.grizzly.http.HttpClientFilter;
+import org.glassfish.grizzly.http.HttpContent;
+import org.glassfish.grizzly.http.HttpRequestPacket;
+import org.glassfish.grizzly.http.Method;
+import org.glassfish.grizzly.http.Protocol;
+import org.glassfish.grizzly.http.server.HttpHandler;
+import org.glassfish.grizzly.http.server.HttpServer;
+import org.glassfish.grizzly.http.server.Request;
+import org.glassfish.grizzly.http.server.Response;
+import org.glassfish.grizzly.http2.frames.DataFrame;
+import org.glassfish.grizzly.http2.frames.HeadersFrame;
+import org.glassfish.grizzly.http2.frames.PushPromiseFrame;
+import org.glassfish.grizzly.memory.Buffers;
+import org.glassfish.grizzly.nio.transport.TCPNIOConnectorHandler;
+import org.junit.After;
+import org.junit.Test;
+
+import static org.junit.Assert.assertTrue;
+
+/**
+ * Checks the PUSH_PROMISE is written before the parent stream END_STREAM,
+ * when the push promise is deferred by another thread draining the
+ * {@link HeadersEncodingQueue} (RFC 7540, section 8.2.1).
+ */
+public class PushPromiseOrderTest extends AbstractHttp2Test {
+
+    private static final String MESSAGE = "ECHO ECHO ECHO";
+    private static final int PORT = 18895;
+    private static final int END_STREAM = 0x1;
+    private HttpServer httpServer;
+
+
+    // ----------------------------------------------------------- Test Methods
+
+
+    @Test
+    public void testPushPromiseDeferredByConcurrentDrainer() throws Exception {
+        httpServer = createServer(null, PORT, false,
+                HttpHandlerRegistration.of(new HttpHandler() {
+                    @Override
+                    public void service(Request request, Response response) throws Exception {
+                        response.setContentType("text/plain");
+                        response.getWriter().write(MESSAGE);
+                        // the HEADERS are written, the stream has no pending writes
+                        response.flush();
+
+                        final Http2Session http2Session = Http2Stream.getStreamFor(
+                                request.getRequest()).getHttp2Session();
+                        final CountDownLatch draining = new CountDownLatch(1);
+                        final CountDownLatch release = new CountDownLatch(1);
+                        final Thread drainer = new Thread() {
+                            @Override
+                            public void run() {
+                                http2Session.getHeadersEncodingQueue().submit(
+                                        new HeadersEncodingQueue.Task() {
+                                            @Override
+                                            protected void run() throws Exception {
+                                                draining.countDown();
+                                                release.await(10, TimeUnit.SECONDS);
+                                            }
+                                        });
+                            }
+                        };
+                        drainer.start();
+
+                        try {
+                            assertTrue(draining.await(10, TimeUnit.SECONDS));
+                            // the PUSH_PROMISE is left in the queue for the drainer
+                            request.newPushBuilder().path("/resource").push();
+                            response.getWriter().write(MESSAGE);
+                            response.finish();
+                        } finally {
+                            release.countDown();
+                        }
+                        drainer.join();
+                    }
+                }, "/main"),
+                HttpHandlerRegistration.of(new HttpHandler() {
+                    @Override
+                    public void service(Request request, Response response) throws Exception {
+                        response.setContentType("text/plain");
+                        response.getWriter().write(MESSAGE);
+                    }
+                }, "/resource"));
+        httpServer.getListener("grizzly").getKeepAlive().setIdleTimeoutInSeconds(-1);
+        httpServer.start();
+
+        final List<int[]> frames = new ArrayList<>();
+        // the main and the pushed responses
+        final CountDownLatch latch = new CountDownLatch(2);
+        final Connection c = getConnection(frames, latch);
+
+        final HttpRequestPacket request = HttpRequestPacket.builder()
+                .method(Method.GET)
+                .uri("/main")
+                .protocol(Protocol.HTTP_2_0)
+                .host("localhost:" + PORT).build();
+        c.write(HttpContent.builder(request)
+                .content(Buffers.EMPTY_BUFFER).last(true).build());
+
+        assertTrue(latch.await(10, TimeUnit.SECONDS));
+
+        synchronized (frames) {
+            int pushPromiseIdx = -1;
+            int endStreamIdx = -1;
+            for (int i = 0; i < frames.size(); i++) {
+                final int[] frame = frames.get(i);
+                if (frame[0] == PushPromiseFrame.TYPE && pushPromiseIdx == -1) {
+                    pushPromiseIdx = i;
+                } else if ((frame[0] == DataFrame.TYPE || frame[0] == HeadersFrame.TYPE)
+                        && (frame[1] & END_STREAM) != 0 && frame[2] == 1) {
+                    endStreamIdx = i;
+                }
+            }
+
+            assertTrue(pushPromiseIdx != -1);
+            assertTrue(pushPromiseIdx < endStreamIdx);
+        }
+    }
+
+    @After
+    public void tearDown() {
+        if (httpServer != null) {
+            httpServer.shutdownNow();
+        }
+    }
+
+
+    // -------------------------------------------------------- Private Methods
+
+
+    private Connection getConnection(final List<int[]> frames,
+            final CountDownLatch latch) throws Exception {
+
+        final FilterChain clientChain = FilterChainBuilder.stateless()
+                .add(new TransportFilter())
+                .add(new FrameRecordingFilter(frames))
+                .add(new HttpClientFilter())
+                .add(new Http2ClientFilter(Http2Configuration.builder().priorKnowledge(true).build()))
+                .add(new BaseFilter() {
+                    @Override
+                    public NextAction handleRead(FilterChainContext ctx) throws IOException {
+                        final HttpContent httpContent = ctx.getMessage();
+                        if (httpContent.isLast()) {
+                            latch.countDown();
+                        }
+                        return ctx.getStopAction();
+                    }
+                }).build();
+
+        final SocketConnectorHandler connectorHandler = TCPNIOConnectorHandler.builder(
+                httpServer.getListener("grizzly").getTransport())
+                .processor(clientChain)
+                .build();
+
+        final Future<Connection> connectFuture = connectorHandler.connect("localhost", PORT);
+        return connectFuture.get(10, TimeUnit.SECONDS);
+    }
+
+    /**
+     * Records the type, flags and stream ID of the received frames,
+     * leaving the raw bytes untouched for the filters above.
+     */
+    private static final class FrameRecordingFilter extends BaseFilter {
+        private final List<int[]> frames;
+        private final byte[] header = new byte[9];
+        private int headerLength;
+        private int payloadRemaining;
+
+        private FrameRecordingFilter(final List<int[]> frames) {
+            this.frames = frames;
+        }
+
+        @Override
+        public NextAction handleRead(FilterChainContext ctx) throws IOException {
+            final Buffer buffer = ctx.getMessage();
+            int i = buffer.position();
+            final int limit = buffer.limit();
+            while (i < limit) {
+                if (payloadRemaining > 0) {
+                    final int skip = Math.min(payloadRemaining, limit - i);
+                    payloadRemaining -= skip;
+                    i += skip;
+                    continue;
+                }
+
+                header[headerLength++] = buffer.get(i++);
+                if (headerLength == header.length) {
+                    headerLength = 0;
+                    payloadRemaining = ((header[0] & 0xFF) << 16)
+                            | ((header[1] & 0xFF) << 8) | (header[2] & 0xFF);
+                    final int streamId = ((header[5] & 0x7F) << 24)
+                            | ((header[6] & 0xFF) << 16)
+                            | ((header[7] & 0xFF) << 8) | (header[8] & 0xFF);
+                    synchronized (frames) {
+                        frames.add(new int[] {header[3] & 0xFF, header[4] & 0xFF, streamId});
+                    }
+                }
+            }
+
+            return ctx.getInvokeAction();
+        }
+    }
+}
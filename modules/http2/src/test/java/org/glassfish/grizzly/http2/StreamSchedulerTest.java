@@ -0,0 +1,201 @@
+/*
+ * Copyright (c) 2017 Oracle and/or its affiliates. All rights reserved.
+ *
+ * This program and the accompanying materials are made available under the
+ * terms of the Eclipse Public License v. 2.0, which is available at
+ * http://www.eclipse.org/legal/epl-2.0.
+ *
+ * This Source Code may also be made available under the following Secondary
+ * Licenses when the conditions for such availability set forth in the
+ * Eclipse Public License v. 2.0 are satisfied: GNU General Public License,
+ * version 2 with the GNU Classpath Exception, which is available at
+ * https://www.gnu.org/software/classpath/license.html.
+ *
+ * SPDX-License-Identifier: EPL-2.0 OR GPL-2.0 WITH Classpath-exception-2.0
+ */
+
+
+package org.glassfish.grizzly.http2;
+
+import java.util.HashMap;
+import java.util.Map;
+import org.junit.Test;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+public class StreamSchedulerTest {
+
+    private static final int FRAME_SIZE = 1000;
+
+
+    // ----------------------------------------------------------- Test Methods
+
+
+    @Test
+    public void testWeightsShareConnection() {
+        final TestScheduler scheduler = new TestScheduler();
+        scheduler.add(1, weight(16));
+        scheduler.add(3, weight(48));
+
+        final Map<Integer, Integer> frames = writeFrames(scheduler, 400);
+        assertEquals(100, (int) frames.get(1));
+        assertEquals(300, (int) frames.get(3));
+    }
+
+    @Test
+    public void testNewStreamIsNotStarved() {
+        final TestScheduler scheduler = new TestScheduler();
+        scheduler.add(1, StreamPriority.DEFAULT);
+        writeFrames(scheduler, 1000);
+
+        // the stream added later gets neither credit nor penalty for the
+        // data written before it became active
+        scheduler.add(3, StreamPriority.DEFAULT);
+        final Map<Integer, Integer> frames = writeFrames(scheduler, 10);
+        assertEquals(5, (int) frames.get(1));
+        assertEquals(5, (int) frames.get(3));
+    }
+
+    @Test
+    public void testUrgency() {
+        final TestScheduler scheduler = new TestScheduler();
+        scheduler.add(1, StreamPriority.DEFAULT);
+        scheduler.add(3, StreamPriority.DEFAULT.withUrgency(0, true));
+        assertEquals(3, scheduler.next());
+        scheduler.written(3, FRAME_SIZE, StreamPriority.DEFAULT.withUrgency(0, true));
+        assertEquals(3, scheduler.next());
+        scheduler.remove(3);
+        assertEquals(1, scheduler.next());
+    }
+
+    @Test
+    public void testNonIncrementalStreamsInOrder() {
+        final TestScheduler scheduler = new TestScheduler();
+        final StreamPriority nonIncremental =
+                StreamPriority.DEFAULT.withUrgency(StreamPriority.DEFAULT_URGENCY, false);
+        scheduler.add(5, nonIncremental);
+        scheduler.add(3, nonIncremental);
+        scheduler.add(1, StreamPriority.DEFAULT);
+
+        for (int i = 0; i < 10; i++) {
+            assertEquals(3, scheduler.next());
+            scheduler.written(3, FRAME_SIZE, nonIncremental);
+        }
+        scheduler.remove(3);
+        assertEquals(5, scheduler.next());
+        scheduler.remove(5);
+        assertEquals(1, scheduler.next());
+    }
+
+    @Test
+    public void testDependency() {
+        final TestScheduler scheduler = new TestScheduler();
+        // 5 depends on the inactive stream 3, which depends on the stream 1
+        scheduler.priorities.put(3, dependency(1));
+        scheduler.add(5, dependency(3));
+        scheduler.add(1, StreamPriority.DEFAULT.withUrgency(StreamPriority.MAX_URGENCY, true));
+
+        assertEquals(1, scheduler.next());
+        scheduler.written(1, FRAME_SIZE, StreamPriority.DEFAULT);
+        assertEquals(1, scheduler.next());
+        scheduler.remove(1);
+        assertEquals(5, scheduler.next());
+    }
+
+    @Test
+    public void testDependencyCycleDoesNotStall() {
+        final TestScheduler scheduler = new TestScheduler();
+        scheduler.add(1, dependency(3));
+        scheduler.add(3, dependency(1));
+
+        final Map<Integer, Integer> frames = writeFrames(scheduler, 10);
+        assertEquals(10, frames.get(1) + frames.get(3));
+    }
+
+    @Test
+    public void testFifoScheduler() {
+        final FifoStreamScheduler scheduler = new FifoStreamScheduler();
+        scheduler.add(3, StreamPriority.DEFAULT);
+        scheduler.add(1, StreamPriority.DEFAULT.withUrgency(0, true));
+
+        assertEquals(3, scheduler.next());
+        scheduler.written(3, FRAME_SIZE, StreamPriority.DEFAULT);
+        assertEquals(3, scheduler.next());
+        scheduler.remove(3);
+        assertEquals(1, scheduler.next());
+        scheduler.remove(1);
+        assertEquals(0, scheduler.next());
+    }
+
+    @Test
+    public void testPriorityHeader() {
+        StreamPriority priority = StreamPriority.DEFAULT.withPriorityHeader("u=1, i");
+        assertEquals(1, priority.getUrgency());
+        assertTrue(priority.isIncremental());
+
+        priority = StreamPriority.DEFAULT.withPriorityHeader("i=?0;x=1, u=6, foo=bar");
+        assertEquals(6, priority.getUrgency());
+        assertFalse(priority.isIncremental());
+
+        // malformed urgency is ignored, default values are used
+        priority = StreamPriority.DEFAULT.withPriorityHeader("u=9");
+        assertEquals(StreamPriority.DEFAULT_URGENCY, priority.getUrgency());
+        assertFalse(priority.isIncremental());
+    }
+
+
+    // -------------------------------------------------------- Private Methods
+
+
+    private static StreamPriority weight(final int weight) {
+        return StreamPriority.DEFAULT.withDependency(0, false, weight);
+    }
+
+    private static StreamPriority dependency(final int streamId) {
+        return StreamPriority.DEFAULT.withDependency(streamId, false,
+                StreamPriority.DEFAULT_WEIGHT);
+    }
+
+    private static Map<Integer, Integer> writeFrames(
+            final TestScheduler scheduler, final int count) {
+        final Map<Integer, Integer> frames = new HashMap<>();
+        for (int i = 0; i < count; i++) {
+            final int streamId = scheduler.next();
+            final Integer n = frames.get(streamId);
+            frames.put(streamId, n == null ? 1 : n + 1);
+            scheduler.written(streamId, FRAME_SIZE, scheduler.current(streamId));
+        }
+
+        return frames;
+    }
+
+
+    // ----------------------------------------------------------- Nested Classes
+
+
+    private static class TestScheduler extends WeightedFairStreamScheduler {
+        final Map<Integer, StreamPriority> priorities = new HashMap<>();
+        final Map<Integer, StreamPriority> active = new HashMap<>();
+
+        TestScheduler() {
+            super(null);
+        }
+
+        @Override
+        protected void add(final int streamId, final StreamPriority priority) {
+            active.put(streamId, priority);
+            super.add(streamId, priority);
+        }
+
+        @Override
+        protected StreamPriority getPriority(final int streamId) {
+            return priorities.get(streamId);
+        }
+
+        StreamPriority current(final int streamId) {
+            return active.get(streamId);
+        }
+    }
+}
@@ -0,0 +1,120 @@
+/*
+ * Copyright (c) 2017 Oracle and/or its affiliates. All rights reserved.
+ *
+ * This program and the accompanying materials are made available under the
+ * terms of the Eclipse Public License v. 2.0, which is available at
+ * http://www.eclipse.org/legal/epl-2.0.
+ *
+ * This Source Code may also be made available under the following Secondary
+ * Licenses when the conditions for such availability set forth in the
+ * Eclipse Public License v. 2.0 are satisfied: GNU General Public License,
+ * version 2 with the GNU Classpath Exception, which is available at
+ * https://www.gnu.org/software/classpath/license.html.
+ *
+ * SPDX-License-Identifier: EPL-2.0 OR GPL-2.0 WITH Classpath-exception-2.0
+ */
+
+
+package org.glassfish.grizzly.http2;
+
+import org.junit.Test;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+public class WindowAutoTunerTest {
+
+    private static final int INITIAL_WINDOW = 65535;
+    private static final int MAX_WINDOW = 1024 * 1024;
+    private static final long RTT = 1000000;
+
+
+    // ----------------------------------------------------------- Test Methods
+
+
+    @Test
+    public void testGrowsWhenWindowLimitsThroughput() {
+        final WindowAutoTuner tuner = new WindowAutoTuner(INITIAL_WINDOW, MAX_WINDOW);
+
+        assertEquals(120000, sample(tuner, 0, 60000, RTT));
+        assertEquals(120000, tuner.getWindowSize());
+
+        // the sample is far below the window
+        assertEquals(-1, sample(tuner, RTT, 10000, RTT));
+        assertEquals(120000, tuner.getWindowSize());
+    }
+
+    @Test
+    public void testMaxWindowSize() {
+        final WindowAutoTuner tuner = new WindowAutoTuner(INITIAL_WINDOW, MAX_WINDOW);
+
+        long now = 0;
+        int windowSize = INITIAL_WINDOW;
+        for (int i = 0; i < 10; i++) {
+            final int newWindowSize = sample(tuner, now, windowSize, RTT);
+            if (newWindowSize != -1) {
+                windowSize = newWindowSize;
+            }
+            now += RTT;
+        }
+
+        assertEquals(MAX_WINDOW, windowSize);
+        assertEquals(MAX_WINDOW, tuner.getWindowSize());
+    }
+
+    @Test
+    public void testNoGrowthWhenBandwidthDrops() {
+        final WindowAutoTuner tuner = new WindowAutoTuner(INITIAL_WINDOW, MAX_WINDOW);
+        assertEquals(120000, sample(tuner, 0, 60000, RTT));
+
+        // the window is filled, but the round trip got slower
+        assertEquals(-1, sample(tuner, RTT, 100000, RTT * 4));
+        assertEquals(120000, tuner.getWindowSize());
+    }
+
+    @Test
+    public void testShrinksToInitialWindow() {
+        final WindowAutoTuner tuner = new WindowAutoTuner(INITIAL_WINDOW, MAX_WINDOW);
+        assertEquals(600000, sample(tuner, 0, 300000, RTT));
+
+        long now = RTT;
+        for (int i = 1; i < WindowAutoTuner.SHRINK_SAMPLES; i++) {
+            assertEquals(-1, sample(tuner, now, 1000, RTT));
+            now += RTT;
+        }
+        assertEquals(300000, sample(tuner, now, 1000, RTT));
+
+        for (int i = 0; i < WindowAutoTuner.SHRINK_SAMPLES * 4; i++) {
+            now += RTT;
+            sample(tuner, now, 1000, RTT);
+        }
+        assertEquals(INITIAL_WINDOW, tuner.getWindowSize());
+    }
+
+    @Test
+    public void testOneSampleAtATime() {
+        final WindowAutoTuner tuner = new WindowAutoTuner(INITIAL_WINDOW, MAX_WINDOW);
+
+        // the data isn't counted, if there is no sample in progress
+        tuner.onDataReceived(100000);
+        assertEquals(-1, tuner.onPingAck(RTT));
+
+        assertTrue(tuner.startSample(0));
+        tuner.onDataReceived(30000);
+        assertFalse(tuner.startSample(10));
+        tuner.onDataReceived(30000);
+        assertEquals(120000, tuner.onPingAck(RTT));
+    }
+
+
+    // -------------------------------------------------------- Private Methods
+
+
+    private static int sample(final WindowAutoTuner tuner, final long start,
+            final int bytes, final long rtt) {
+        assertTrue(tuner.startSample(start));
+        tuner.onDataReceived(bytes);
+        return tuner.onPingAck(start + rtt);
+    }
+}
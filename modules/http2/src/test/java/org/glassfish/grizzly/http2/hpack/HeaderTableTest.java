@@ -0,0 +1,226 @@
+/*
+ * Copyright (c) 2017 Oracle and/or its affiliates. All rights reserved.
+ *
+ * This program and the accompanying materials are made available under the
+ * terms of the Eclipse Public License v. 2.0, which is available at
+ * http://www.eclipse.org/legal/epl-2.0.
+ *
+ * This Source Code may also be made available under the following Secondary
+ * Licenses when the conditions for such availability set forth in the
+ * Eclipse Public License v. 2.0 are satisfied: GNU General Public License,
+ * version 2 with the GNU Classpath Exception, which is available at
+ * https://www.gnu.org/software/classpath/license.html.
+ *
+ * SPDX-License-Identifier: EPL-2.0 OR GPL-2.0 WITH Classpath-exception-2.0
+ */
+
+
+package org.glassfish.grizzly.http2.hpack;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Random;
+import org.glassfish.grizzly.Buffer;
+import org.glassfish.grizzly.memory.HeapMemoryManager;
+import org.junit.Test;
+
+import static org.junit.Assert.assertArrayEquals;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+public class HeaderTableTest {
+
+    private static final int STATIC_TABLE_LENGTH = 61;
+
+
+    // ----------------------------------------------------------- Test Methods
+
+
+    @Test
+    public void evictedDuplicateDoesNotHideNewerEntry() {
+        // each entry takes 32 + 2 + 2 = 36 bytes, so the table fits 3 entries
+        final HeaderTable table = new HeaderTable(36 * 3);
+        table.put("n1", "v1");
+        table.put("n2", "v2");
+        table.put("n1", "v1");
+        // evicts the oldest n1: v1, the newer duplicate has to stay indexed
+        table.put("n3", "v3");
+
+        assertEquals(STATIC_TABLE_LENGTH + 2, table.indexOf("n1", "v1"));
+        assertEquals(STATIC_TABLE_LENGTH + 3, table.indexOf("n2", "v2"));
+        assertEquals(STATIC_TABLE_LENGTH + 1, table.indexOf("n3", "v3"));
+        assertEquals(-(STATIC_TABLE_LENGTH + 2), table.indexOf("n1", "xx"));
+
+        // evicts n2: v2
+        table.put("n4", "v4");
+        assertEquals(0, table.indexOf("n2", "v2"));
+        assertEquals(STATIC_TABLE_LENGTH + 3, table.indexOf("n1", "v1"));
+
+        // evicts n1: v1
+        table.put("n5", "v5");
+        assertEquals(0, table.indexOf("n1", "v1"));
+    }
+
+    @Test
+    public void staticTableLookup() {
+        final HeaderTable table = new HeaderTable(4096);
+        assertEquals(2, table.indexOf(":method", "GET"));
+        assertEquals(3, table.indexOf(":method", "POST"));
+        assertEquals(8, table.indexOf(":status", "200"));
+        assertEquals(14, table.indexOf(":status", "500"));
+        assertEquals(-8, table.indexOf(":status", "201"));
+        assertEquals(-2, table.indexOf(":method", "PUT"));
+
+        // the static exact match wins, the static name match is preferred
+        // over the dynamic one
+        table.put(":method", "PUT");
+        table.put("x-custom", "1");
+        assertEquals(2, table.indexOf(":method", "GET"));
+        assertEquals(STATIC_TABLE_LENGTH + 2, table.indexOf(":method", "PUT"));
+        assertEquals(-2, table.indexOf(":method", "DELETE"));
+        assertEquals(-(STATIC_TABLE_LENGTH + 1), table.indexOf("x-custom", "2"));
+        assertEquals(0, table.indexOf("x-other", "1"));
+    }
+
+    @Test
+    public void indexOfMatchesLinearScan() {
+        final Random random = new Random(7);
+        final HeaderTable table = new HeaderTable(512);
+        final String[] names = {":method", ":status", "accept", "n1", "n2",
+                "n3", "n4"};
+
+        for (int i = 0; i < 20000; i++) {
+            final String name = names[random.nextInt(names.length)];
+            final String value = "v" + random.nextInt(8);
+            if (random.nextInt(4) == 0) {
+                table.setMaxSize(64 + random.nextInt(512));
+            }
+            table.put(name, value);
+
+            for (String n : names) {
+                for (int v = 0; v < 8; v++) {
+                    assertEquals(n + ": v" + v,
+                            linearIndexOf(table, n, "v" + v),
+                            table.indexOf(n, "v" + v));
+                }
+            }
+        }
+    }
+
+    @Test
+    public void indexingEncoderRoundTrip() {
+        final HeapMemoryManager mm = new HeapMemoryManager();
+        final IndexingEncoder encoder = new IndexingEncoder(4096);
+        final Decoder decoder = new Decoder(4096);
+        final String[][] headers = {
+            {":method", "GET"},
+            {":path", "/items?page=2"},
+            {":authority", "www.example.com"},
+            {"user-agent", "grizzly-test"},
+            {"authorization", "Basic dXNlcjpwYXNz"},
+            {"x-custom", "value"}
+        };
+
+        final Buffer first = encode(mm, encoder, headers);
+        final int firstLength = first.remaining();
+        assertArrayEquals(headers, decode(decoder, first));
+
+        final Buffer second = encode(mm, encoder, headers);
+        assertTrue(second.remaining() + " < " + firstLength,
+                second.remaining() < firstLength);
+        assertArrayEquals(headers, decode(decoder, second));
+
+        // :path and authorization are never indexed
+        final HeaderTable table = encoder.getHeaderTable();
+        assertTrue(table.indexOf(":path", "/items?page=2") <= 0);
+        assertTrue(table.indexOf("authorization", "Basic dXNlcjpwYXNz") <= 0);
+        assertTrue(table.indexOf("x-custom", "value") > STATIC_TABLE_LENGTH);
+    }
+
+
+    @Test
+    public void indexingEncoderNeverIndexesCredentials() {
+        final HeapMemoryManager mm = new HeapMemoryManager();
+        final IndexingEncoder encoder = new IndexingEncoder(4096);
+        final Decoder decoder = new Decoder(4096);
+        final String[][] headers = {
+            {"authorization", "Basic dXNlcjpwYXNz"},
+            {"proxy-authorization", "Basic cHJveHk6cGFzcw=="},
+            {"cookie", "JSESSIONID=1234"},
+            {"set-cookie", "JSESSIONID=1234; Path=/"},
+            {"x-custom", "value"}
+        };
+
+        final Buffer buffer = encode(mm, encoder, headers);
+        final List<String> sensitiveNames = new ArrayList<>();
+        decoder.decode(buffer, true, new DecodingCallback() {
+            @Override
+            public void onDecoded(CharSequence name, CharSequence value) {
+            }
+
+            @Override
+            public void onDecoded(CharSequence name, CharSequence value,
+                    boolean sensitive) {
+                if (sensitive) {
+                    sensitiveNames.add(name.toString());
+                }
+            }
+        });
+
+        // the credentials are encoded as never-indexed literals
+        assertEquals(Arrays.asList("authorization", "proxy-authorization",
+                "cookie", "set-cookie"), sensitiveNames);
+
+        final HeaderTable table = encoder.getHeaderTable();
+        for (int i = 0; i < 4; i++) {
+            assertTrue(headers[i][0],
+                    table.indexOf(headers[i][0], headers[i][1]) <= 0);
+        }
+        assertTrue(table.indexOf("x-custom", "value") > STATIC_TABLE_LENGTH);
+    }
+
+
+    // -------------------------------------------------------- Private Methods
+
+
+    private static int linearIndexOf(final HeaderTable table,
+            final String name, final String value) {
+        int nameIndex = 0;
+        for (int i = 1; i <= table.length(); i++) {
+            final HeaderTable.HeaderField f = table.get(i);
+            if (f.name.equals(name)) {
+                if (f.value.equals(value)) {
+                    return i;
+                }
+                if (nameIndex == 0) {
+                    nameIndex = i;
+                }
+            }
+        }
+        return -nameIndex;
+    }
+
+    private static Buffer encode(final HeapMemoryManager mm,
+            final Encoder encoder, final String[][] headers) {
+        final Buffer buffer = mm.allocate(4096);
+        for (String[] header : headers) {
+            encoder.header(header[0], header[1]);
+            assertTrue(header[0], encoder.encode(buffer));
+        }
+        buffer.flip();
+        return buffer;
+    }
+
+    private static String[][] decode(final Decoder decoder,
+            final Buffer buffer) {
+        final List<String[]> decoded = new ArrayList<>();
+        decoder.decode(buffer, true, new DecodingCallback() {
+            @Override
+            public void onDecoded(CharSequence name, CharSequence value) {
+                decoded.add(new String[] {name.toString(), value.toString()});
+            }
+        });
+        return decoded.toArray(new String[decoded.size()][]);
+    }
+}
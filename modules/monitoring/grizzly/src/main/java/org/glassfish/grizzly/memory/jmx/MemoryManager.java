@@ -17,6 +17,8 @@
 package org.glassfish.grizzly.memory.jmx;
 
 import org.glassfish.grizzly.monitoring.jmx.JmxObject;
+import org.glassfish.grizzly.memory.MemoryBudget;
+import org.glassfish.grizzly.memory.MemoryBudgetAware;
 import org.glassfish.grizzly.memory.MemoryProbe;
 import java.util.concurrent.atomic.AtomicLong;
 import org.glassfish.gmbal.Description;
@@ -42,6 +44,10 @@ public class MemoryManager extends JmxObject {
     private final AtomicLong realAllocatedBytes = new AtomicLong();
     private final AtomicLong poolAllocatedBytes = new AtomicLong();
     private final AtomicLong poolReleasedBytes = new AtomicLong();
+    private final AtomicLong arenaReservedBytes = new AtomicLong();
+    private final AtomicLong arenaFragmentedBytes = new AtomicLong();
+    private final AtomicLong leakedBuffers = new AtomicLong();
+    private final AtomicLong leakedBytes = new AtomicLong();
     
     public MemoryManager(org.glassfish.grizzly.memory.MemoryManager memoryManager) {
         this.memoryManager = memoryManager;
@@ -94,6 +100,57 @@ public class MemoryManager extends JmxObject {
         return poolReleasedBytes.get();
     }
 
+    @ManagedAttribute(id="arena-reserved-bytes")
+    @Description("Number of bytes currently reserved by memory arena chunks")
+    public long getArenaReservedBytes() {
+        return arenaReservedBytes.get();
+    }
+
+    @ManagedAttribute(id="arena-fragmented-bytes")
+    @Description("Number of free, but fragmented, arena bytes reported when the last arena chunk was allocated")
+    public long getArenaFragmentedBytes() {
+        return arenaFragmentedBytes.get();
+    }
+
+    @ManagedAttribute(id="leaked-buffers")
+    @Description("Number of sampled buffers, which were garbage collected without being disposed")
+    public long getLeakedBuffers() {
+        return leakedBuffers.get();
+    }
+
+    @ManagedAttribute(id="leaked-bytes")
+    @Description("Number of bytes in sampled buffers, which were garbage collected without being disposed")
+    public long getLeakedBytes() {
+        return leakedBytes.get();
+    }
+
+    @ManagedAttribute(id="budget-limit-bytes")
+    @Description("Memory budget limit in bytes, -1 if the memory is not limited")
+    public long getBudgetLimitBytes() {
+        final MemoryBudget budget = getMemoryBudget();
+        return budget != null ? budget.getLimit() : -1;
+    }
+
+    @ManagedAttribute(id="budget-used-bytes")
+    @Description("Number of bytes held by the allocated, but not disposed, buffers accounted against the memory budget")
+    public long getBudgetUsedBytes() {
+        final MemoryBudget budget = getMemoryBudget();
+        return budget != null ? budget.getUsedBytes() : 0;
+    }
+
+    @ManagedAttribute(id="budget-paused-reads")
+    @Description("Number of times reading was paused, because the memory budget was exhausted")
+    public long getBudgetPausedReads() {
+        final MemoryBudget budget = getMemoryBudget();
+        return budget != null ? budget.getExhaustedCount() : 0;
+    }
+
+    private MemoryBudget getMemoryBudget() {
+        return memoryManager instanceof MemoryBudgetAware
+                ? ((MemoryBudgetAware) memoryManager).getMemoryBudget()
+                : null;
+    }
+
     private class JmxMemoryProbe implements MemoryProbe {
 
         @Override
@@ -113,5 +170,24 @@ public class MemoryManager extends JmxObject {
             poolReleasedBytes.addAndGet(size);
         }
 
+        @Override
+        public void onArenaChunkAllocateEvent(int chunkSize, long freeBytes) {
+            totalAllocatedBytes.addAndGet(chunkSize);
+            realAllocatedBytes.addAndGet(chunkSize);
+            arenaReservedBytes.addAndGet(chunkSize);
+            arenaFragmentedBytes.set(freeBytes);
+        }
+
+        @Override
+        public void onArenaChunkReleaseEvent(int chunkSize) {
+            arenaReservedBytes.addAndGet(-chunkSize);
+        }
+
+        @Override
+        public void onBufferLeakEvent(int size) {
+            leakedBuffers.incrementAndGet();
+            leakedBytes.addAndGet(size);
+        }
+
     }
 }